@@ -19,10 +19,12 @@ import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.amazonaws.handlers.RequestHandler;
 import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ConnectionPoolStats;
 import com.amazonaws.http.ExecutionContext;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.http.HttpRequest;
@@ -176,6 +178,19 @@ public abstract class AmazonWebServiceClient {
         client.shutdown();
     }
 
+    /**
+     * Returns the state of this client's HTTP connection pool: the number of
+     * connections leased, available for reuse and waited for, for each host
+     * the client has connected to. Useful for spotting a client which is
+     * starved of connections.
+     *
+     * @return The connection pool statistics, keyed by route (e.g.
+     *         "https://dynamodb.us-east-1.amazonaws.com:443").
+     */
+    public Map<String, ConnectionPoolStats> getConnectionPoolStats() {
+        return client.getConnectionPoolStats();
+    }
+
     /**
      * Converts a Request<T> object into an HttpRequest object. Copies all the
      * headers, parameters, etc. from the Request into the new HttpRequest.
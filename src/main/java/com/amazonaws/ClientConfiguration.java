@@ -30,9 +30,21 @@ public class ClientConfiguration {
     /** The default HTTP user agent header for AWS Java SDK clients. */
     public static final String DEFAULT_USER_AGENT = VersionInfoUtils.getUserAgent();
 
+    /**
+     * The default time, in milliseconds, a pooled connection can be idle
+     * before it's validated when it's next used.
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 5 * 1000;
+
     /** The default maximum number of retries for error responses. */
     public static final int DEFAULT_MAX_RETRIES = 3;
 
+    /**
+     * The default number of tokens in a client's retry budget, which disables
+     * the retry budget.
+     */
+    public static final int DEFAULT_RETRY_CAPACITY = 0;
+
     /** The HTTP user agent header passed with all HTTP requests. */
     private String userAgent = DEFAULT_USER_AGENT;
 
@@ -71,6 +83,25 @@ public class ClientConfiguration {
 	/** The maximum number of open HTTP connections. */
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
 
+    /**
+     * The maximum number of open HTTP connections to a single host. Zero or
+     * less means the same as maxConnections.
+     */
+    private int maxConnectionsPerRoute = 0;
+
+    /**
+     * The maximum time (in milliseconds) a connection is kept open for reuse.
+     * Zero or less means connections are kept until they're idle for too long.
+     */
+    private long connectionTTL = -1;
+
+    /**
+     * How long (in milliseconds) a pooled connection can be idle before it's
+     * checked for staleness when it's next used. Zero or less disables the
+     * check.
+     */
+    private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+
     /**
      * The amount of time to wait (in milliseconds) for data to be transfered
      * over an established, open connection before the connection is timed out.
@@ -99,12 +130,40 @@ public class ClientConfiguration {
      */
     private int socketReceiveBufferSizeHint = 0;
 
+    /**
+     * Whether AmazonDynamoDBAsyncClient sends requests through the
+     * non-blocking transport instead of running blocking requests on its
+     * thread pool. No other client uses this setting.
+     */
+    private boolean useNonBlockingTransport = false;
+
+    /**
+     * The number of tokens in the retry budget shared by all the requests of
+     * a client. Zero or less disables the retry budget.
+     */
+    private int retryCapacity = DEFAULT_RETRY_CAPACITY;
+
+    /**
+     * Whether the client adapts how fast it sends requests to the throttling
+     * errors it receives.
+     */
+    private boolean useAdaptiveSendRate = false;
+
+    /**
+     * Whether XML responses are parsed with an XMLStreamReader instead of an
+     * XMLEventReader.
+     */
+    private boolean useXmlStreamReader = false;
+
 
     public ClientConfiguration() {}
 
     public ClientConfiguration(ClientConfiguration other) {
         this.connectionTimeout = other.connectionTimeout;
         this.maxConnections    = other.maxConnections;
+        this.maxConnectionsPerRoute = other.maxConnectionsPerRoute;
+        this.connectionTTL     = other.connectionTTL;
+        this.validateAfterInactivity = other.validateAfterInactivity;
         this.maxErrorRetry     = other.maxErrorRetry;
         this.protocol          = other.protocol;
         this.proxyDomain       = other.proxyDomain;
@@ -118,6 +177,10 @@ public class ClientConfiguration {
 
         this.socketReceiveBufferSizeHint = other.socketReceiveBufferSizeHint;
         this.socketSendBufferSizeHint    = other.socketSendBufferSizeHint;
+        this.useNonBlockingTransport     = other.useNonBlockingTransport;
+        this.retryCapacity               = other.retryCapacity;
+        this.useAdaptiveSendRate         = other.useAdaptiveSendRate;
+        this.useXmlStreamReader          = other.useXmlStreamReader;
     }
 
     /**
@@ -211,6 +274,136 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the maximum number of open HTTP connections to a single host
+     * (i.e. scheme, host and port). By default, a single host can use all of
+     * the connections allowed by {@link #getMaxConnections()}.
+     *
+     * @return The maximum number of open HTTP connections to a single host,
+     *         or zero or less if only {@link #getMaxConnections()} applies.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of open HTTP connections to a single host (i.e.
+     * scheme, host and port). Clients which talk to many hosts, such as many
+     * S3 buckets, can set this below {@link #setMaxConnections(int)} so that
+     * requests to one slow host can't starve requests to the others of
+     * connections.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of open HTTP connections to a single
+     *            host, or zero to only limit the total number of connections.
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of open HTTP connections to a single host, and
+     * returns the updated ClientConfiguration object so that additional method
+     * calls may be chained together.
+     *
+     * @param maxConnectionsPerRoute
+     *            The maximum number of open HTTP connections to a single
+     *            host, or zero to only limit the total number of connections.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        return this;
+    }
+
+    /**
+     * Returns the maximum time (in milliseconds) a connection is kept open
+     * for reuse after it's opened. By default, connections are kept open as
+     * long as they're used often enough.
+     *
+     * @return The connection time to live, in milliseconds, or zero or less if
+     *         connections don't expire.
+     */
+    public long getConnectionTTL() {
+        return connectionTTL;
+    }
+
+    /**
+     * Sets the maximum time (in milliseconds) a connection is kept open for
+     * reuse after it's opened. Expiring connections periodically lets a
+     * client pick up DNS changes and spreads its connections across the hosts
+     * behind an endpoint.
+     *
+     * @param connectionTTL
+     *            The connection time to live, in milliseconds, or -1 for
+     *            connections which don't expire.
+     */
+    public void setConnectionTTL(long connectionTTL) {
+        this.connectionTTL = connectionTTL;
+    }
+
+    /**
+     * Sets the maximum time (in milliseconds) a connection is kept open for
+     * reuse after it's opened, and returns the updated ClientConfiguration
+     * object so that additional method calls may be chained together.
+     *
+     * @param connectionTTL
+     *            The connection time to live, in milliseconds, or -1 for
+     *            connections which don't expire.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withConnectionTTL(long connectionTTL) {
+        setConnectionTTL(connectionTTL);
+        return this;
+    }
+
+    /**
+     * Returns how long (in milliseconds) a pooled connection can be idle
+     * before it's checked for staleness when it's next used. The default is
+     * {@link #DEFAULT_VALIDATE_AFTER_INACTIVITY}.
+     *
+     * @return The inactivity period after which connections are validated, in
+     *         milliseconds, or zero or less if they're never validated.
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Sets how long (in milliseconds) a pooled connection can be idle before
+     * it's checked for staleness when it's next used. Servers close
+     * connections which are idle for too long, and a request sent on such a
+     * connection fails; checking a connection costs a short read on its
+     * socket, so only connections idle for longer than this period are
+     * checked.
+     *
+     * @param validateAfterInactivity
+     *            The inactivity period after which connections are validated,
+     *            in milliseconds, or zero to never validate them.
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Sets how long (in milliseconds) a pooled connection can be idle before
+     * it's checked for staleness when it's next used, and returns the updated
+     * ClientConfiguration object so that additional method calls may be
+     * chained together.
+     *
+     * @param validateAfterInactivity
+     *            The inactivity period after which connections are validated,
+     *            in milliseconds, or zero to never validate them.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withValidateAfterInactivity(int validateAfterInactivity) {
+        setValidateAfterInactivity(validateAfterInactivity);
+        return this;
+    }
+
     /**
      * Returns the HTTP user agent header to send with all requests.
      *
@@ -713,4 +906,196 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns whether AmazonDynamoDBAsyncClient sends requests through the
+     * non-blocking transport. By default, each in-flight asynchronous request
+     * occupies a thread from the client's thread pool for its whole duration.
+     * No other client uses this setting.
+     *
+     * @return True if AmazonDynamoDBAsyncClient uses the non-blocking
+     *         transport.
+     */
+    public boolean isUseNonBlockingTransport() {
+        return useNonBlockingTransport;
+    }
+
+    /**
+     * Sets whether AmazonDynamoDBAsyncClient sends requests through the
+     * non-blocking transport. When enabled, requests are sent and received by
+     * a single event loop thread, so the client's thread pool is only used to
+     * unmarshall responses and invoke callbacks, and many thousands of
+     * requests can be in flight at once.
+     * <p>
+     * Only AmazonDynamoDBAsyncClient supports the non-blocking transport.
+     * Every other client, including the other asynchronous clients, ignores
+     * this setting and runs blocking requests on its thread pool. The
+     * transport buffers request and response content in memory and doesn't
+     * support proxies; with a proxy configured, AmazonDynamoDBAsyncClient
+     * uses blocking requests too.
+     *
+     * @param useNonBlockingTransport
+     *            True to send AmazonDynamoDBAsyncClient's requests through
+     *            the non-blocking transport.
+     */
+    public void setUseNonBlockingTransport(boolean useNonBlockingTransport) {
+        this.useNonBlockingTransport = useNonBlockingTransport;
+    }
+
+    /**
+     * Sets whether AmazonDynamoDBAsyncClient sends requests through the
+     * non-blocking transport, and returns the updated ClientConfiguration
+     * object so that additional method calls may be chained together. No
+     * other client uses this setting.
+     *
+     * @param useNonBlockingTransport
+     *            True to send AmazonDynamoDBAsyncClient's requests through
+     *            the non-blocking transport.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withUseNonBlockingTransport(boolean useNonBlockingTransport) {
+        setUseNonBlockingTransport(useNonBlockingTransport);
+        return this;
+    }
+
+    /**
+     * Returns the number of tokens in the retry budget shared by all the
+     * requests of a client. Each retry consumes tokens from the budget (more
+     * for connection errors and timeouts than for throttling and server
+     * errors), and each successful request returns some, so while a service
+     * is failing most requests, the client stops retrying them instead of
+     * adding to the load on the service. The retry budget is disabled by
+     * default.
+     *
+     * @return The number of tokens in the retry budget, or zero or less if the
+     *         retry budget is disabled.
+     */
+    public int getRetryCapacity() {
+        return retryCapacity;
+    }
+
+    /**
+     * Sets the number of tokens in the retry budget shared by all the
+     * requests of a client. A retry costs 5 tokens for throttling and server
+     * errors and 10 tokens for connection errors and timeouts; a request
+     * which succeeds returns the tokens its last retry consumed, or 1 token if
+     * it wasn't retried. A capacity of 500 lets a client make 50 to 100
+     * retries in a row before it stops retrying.
+     * <p>
+     * Once the budget runs out, failed requests are no longer retried until
+     * successful requests have returned enough tokens, so the retry budget is
+     * disabled by default and retries are only limited by
+     * {@link #setMaxErrorRetry(int)}.
+     *
+     * @param retryCapacity
+     *            The number of tokens in the retry budget, or zero to disable
+     *            the retry budget and only limit retries with
+     *            {@link #setMaxErrorRetry(int)}.
+     */
+    public void setRetryCapacity(int retryCapacity) {
+        this.retryCapacity = retryCapacity;
+    }
+
+    /**
+     * Sets the number of tokens in the retry budget shared by all the
+     * requests of a client, and returns the updated ClientConfiguration object
+     * so that additional method calls may be chained together.
+     *
+     * @param retryCapacity
+     *            The number of tokens in the retry budget, or zero to disable
+     *            the retry budget.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withRetryCapacity(int retryCapacity) {
+        setRetryCapacity(retryCapacity);
+        return this;
+    }
+
+    /**
+     * Returns whether the client adapts how fast it sends requests to the
+     * throttling errors it receives. Disabled by default.
+     *
+     * @return True if the client limits its send rate after throttling
+     *         errors.
+     */
+    public boolean isUseAdaptiveSendRate() {
+        return useAdaptiveSendRate;
+    }
+
+    /**
+     * Sets whether the client adapts how fast it sends requests to the
+     * throttling errors it receives. When enabled, the first throttling error
+     * starts a client-side rate limiter: each throttling error cuts the send
+     * rate, which then grows back gradually while requests succeed. Requests
+     * (including retries) wait until the limiter lets them through, which
+     * spreads out the retries of many requests throttled at once instead of
+     * sending them all again together.
+     *
+     * @param useAdaptiveSendRate
+     *            True to limit the send rate after throttling errors.
+     */
+    public void setUseAdaptiveSendRate(boolean useAdaptiveSendRate) {
+        this.useAdaptiveSendRate = useAdaptiveSendRate;
+    }
+
+    /**
+     * Sets whether the client adapts how fast it sends requests to the
+     * throttling errors it receives, and returns the updated
+     * ClientConfiguration object so that additional method calls may be
+     * chained together.
+     *
+     * @param useAdaptiveSendRate
+     *            True to limit the send rate after throttling errors.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withUseAdaptiveSendRate(boolean useAdaptiveSendRate) {
+        setUseAdaptiveSendRate(useAdaptiveSendRate);
+        return this;
+    }
+
+    /**
+     * Returns whether the client parses XML responses with an
+     * {@link javax.xml.stream.XMLStreamReader} instead of an
+     * {@link javax.xml.stream.XMLEventReader}. Disabled by default.
+     *
+     * @return True if XML responses are parsed with an XMLStreamReader.
+     */
+    public boolean isUseXmlStreamReader() {
+        return useXmlStreamReader;
+    }
+
+    /**
+     * Sets whether the client parses XML responses with an
+     * {@link javax.xml.stream.XMLStreamReader} instead of an
+     * {@link javax.xml.stream.XMLEventReader}. The stream reader doesn't
+     * allocate an event object for every element, attribute and piece of
+     * text, so large responses, such as EC2's DescribeInstances, are parsed
+     * with much less garbage. Only affects services with XML responses.
+     *
+     * @param useXmlStreamReader
+     *            True to parse XML responses with an XMLStreamReader.
+     */
+    public void setUseXmlStreamReader(boolean useXmlStreamReader) {
+        this.useXmlStreamReader = useXmlStreamReader;
+    }
+
+    /**
+     * Sets whether the client parses XML responses with an
+     * {@link javax.xml.stream.XMLStreamReader} instead of an
+     * {@link javax.xml.stream.XMLEventReader}, and returns the updated
+     * ClientConfiguration object so that additional method calls may be
+     * chained together.
+     *
+     * @param useXmlStreamReader
+     *            True to parse XML responses with an XMLStreamReader.
+     *
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withUseXmlStreamReader(boolean useXmlStreamReader) {
+        setUseXmlStreamReader(useXmlStreamReader);
+        return this;
+    }
+
 }
@@ -21,7 +21,9 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SimpleTimeZone;
 
 import org.apache.commons.logging.Log;
@@ -41,6 +43,38 @@ public class AWS4Signer extends AbstractAWSSigner {
     private static final String ALGORITHM = "AWS4-HMAC-SHA256";
     private static final String TERMINATOR = "aws4_request";
 
+    /** Content hash signed in place of the payload hash for chunk encoded payloads. */
+    private static final String STREAMING_PAYLOAD = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+
+    /** The maximum number of derived signing keys kept in the signing key cache. */
+    private static final int MAX_SIGNING_KEY_CACHE_SIZE = 300;
+
+    /**
+     * Derived signing keys only change when the credentials, day, region or
+     * service change, so they're cached across requests (and signers) instead
+     * of being recomputed with four HMACs on every request.
+     */
+    private static final SigningKeyCache signingKeyCache = new SigningKeyCache(MAX_SIGNING_KEY_CACHE_SIZE);
+
+    /** SimpleDateFormat isn't thread safe, so each thread keeps its own copies. */
+    private static final ThreadLocal<SimpleDateFormat> dateStampFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+            format.setTimeZone(new SimpleTimeZone(0, "UTC"));
+            return format;
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> dateTimeFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
+            format.setTimeZone(new SimpleTimeZone(0, "UTC"));
+            return format;
+        }
+    };
+
     /**
      * Service name override for use when the endpoint can't be used to
      * determine the service name.
@@ -73,12 +107,6 @@ public class AWS4Signer extends AbstractAWSSigner {
             addSessionCredentials(request, (AWSSessionCredentials) sanitizedCredentials);
         }
 
-        SimpleDateFormat dateStampFormat = new SimpleDateFormat("yyyyMMdd");
-        dateStampFormat.setTimeZone(new SimpleTimeZone(0, "UTC"));
-
-        SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
-        dateTimeFormat.setTimeZone(new SimpleTimeZone(0, "UTC"));
-
         String regionName  = extractRegionName(request.getEndpoint());
         String serviceName = extractServiceName(request.getEndpoint());
 
@@ -93,16 +121,34 @@ public class AWS4Signer extends AbstractAWSSigner {
         Date date = getSignatureDate(request.getTimeOffset());
         if (overriddenDate != null) date = overriddenDate;
 
-        String dateTime  = dateTimeFormat.format(date);
-        String dateStamp = dateStampFormat.format(date);
-
-        InputStream payloadStream = getBinaryRequestPayloadStream(request);
-        payloadStream.mark(-1);
-        String contentSha256 = BinaryUtils.toHex(hash(payloadStream));
-        try {
-            payloadStream.reset();
-        } catch (IOException e) {
-            throw new AmazonClientException("Unable to reset stream after calculating AWS4 signature", e);
+        String dateTime  = dateTimeFormat.get().format(date);
+        String dateStamp = dateStampFormat.get().format(date);
+
+        boolean isChunked = useChunkEncoding(request);
+        String contentSha256;
+        if (isChunked) {
+            // On retries the previous attempt's encoding is replaced, since its
+            // chunk signatures chain from the old header signature
+            if (request.getContent() instanceof AwsChunkedEncodingInputStream) {
+                request.setContent(((AwsChunkedEncodingInputStream)request.getContent()).getWrappedInputStream());
+            }
+            long originalContentLength = Long.parseLong(request.getHeaders().get("Content-Length"));
+            request.addHeader("x-amz-decoded-content-length", Long.toString(originalContentLength));
+            request.addHeader("Content-Length", Long.toString(
+                    AwsChunkedEncodingInputStream.calculateStreamContentLength(originalContentLength)));
+            String contentEncoding = request.getHeaders().get("Content-Encoding");
+            request.addHeader("Content-Encoding", (contentEncoding == null)
+                    ? "aws-chunked" : "aws-chunked," + contentEncoding);
+            contentSha256 = STREAMING_PAYLOAD;
+        } else {
+            InputStream payloadStream = getBinaryRequestPayloadStream(request);
+            payloadStream.mark(-1);
+            contentSha256 = BinaryUtils.toHex(hash(payloadStream));
+            try {
+                payloadStream.reset();
+            } catch (IOException e) {
+                throw new AmazonClientException("Unable to reset stream after calculating AWS4 signature", e);
+            }
         }
 
         request.addHeader("X-Amz-Date", dateTime);
@@ -110,7 +156,7 @@ public class AWS4Signer extends AbstractAWSSigner {
 
         String canonicalRequest =
                 request.getHttpMethod().toString() + "\n" +
-                        super.getCanonicalizedResourcePath(request.getResourcePath()) + "\n" +
+                        getCanonicalizedResourcePath(request.getResourcePath()) + "\n" +
                         getCanonicalizedQueryString(request) + "\n" +
                         getCanonicalizedHeaderString(request) + "\n" +
                         getSignedHeadersString(request) + "\n" +
@@ -127,12 +173,7 @@ public class AWS4Signer extends AbstractAWSSigner {
                         BinaryUtils.toHex(hash(canonicalRequest));
         log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
 
-        // AWS4 uses a series of derived keys, formed by hashing different pieces of data
-        byte[] kSecret  = ("AWS4" + sanitizedCredentials.getAWSSecretKey()).getBytes();
-        byte[] kDate    = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
-        byte[] kRegion  = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
-        byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        byte[] kSigning = getSigningKey(sanitizedCredentials, dateStamp, regionName, serviceName);
 
         byte[] signature = sign(stringToSign.getBytes(), kSigning, SigningAlgorithm.HmacSHA256);
 
@@ -149,6 +190,29 @@ public class AWS4Signer extends AbstractAWSSigner {
                 + signatureAuthorizationHeader;
 
         request.addHeader("Authorization", authorizationHeader);
+
+        if (isChunked) {
+            request.setContent(new AwsChunkedEncodingInputStream(request.getContent(), kSigning,
+                    dateTime, scope, BinaryUtils.toHex(signature), this));
+        }
+    }
+
+    /**
+     * Returns true if the specified request's payload should be sent with the
+     * "aws-chunked" content encoding, signing each chunk as it's written
+     * instead of hashing the whole payload up front. This reads the payload
+     * only once and doesn't require a markable stream, but is only supported
+     * by some services, so it's disabled by default.
+     * <p>
+     * Requests using chunk encoding must have a Content-Length header.
+     *
+     * @param request
+     *            The request being signed.
+     *
+     * @return True if the request's payload should be chunk encoded.
+     */
+    protected boolean useChunkEncoding(Request<?> request) {
+        return false;
     }
 
     /**
@@ -184,6 +248,30 @@ public class AWS4Signer extends AbstractAWSSigner {
         request.addHeader("x-amz-security-token", credentials.getSessionToken());
     }
 
+    /**
+     * Returns the derived signing key for the given credentials and scope,
+     * computing and caching it if it isn't already cached.
+     */
+    private byte[] getSigningKey(AWSCredentials credentials, String dateStamp, String regionName, String serviceName) {
+        String cacheKey = credentials.getAWSAccessKeyId() + "/" + dateStamp + "/" + regionName + "/" + serviceName;
+        String secretKey = credentials.getAWSSecretKey();
+
+        SigningKey signingKey = signingKeyCache.get(cacheKey);
+        if (signingKey != null && signingKey.secretKey.equals(secretKey)) {
+            return signingKey.key;
+        }
+
+        // AWS4 uses a series of derived keys, formed by hashing different pieces of data
+        byte[] kSecret  = ("AWS4" + secretKey).getBytes();
+        byte[] kDate    = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
+        byte[] kRegion  = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
+        byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
+        byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+
+        signingKeyCache.put(cacheKey, new SigningKey(secretKey, kSigning));
+        return kSigning;
+    }
+
     private String extractRegionName(URI endpoint) {
         if (regionName != null) return regionName;
 
@@ -229,4 +317,44 @@ public class AWS4Signer extends AbstractAWSSigner {
         return buffer.toString();
     }
 
+    /**
+     * A derived signing key, along with the secret key it was derived from so
+     * that a changed secret for the same access key is never signed with a
+     * stale key.
+     */
+    private static final class SigningKey {
+        private final String secretKey;
+        private final byte[] key;
+
+        SigningKey(String secretKey, byte[] key) {
+            this.secretKey = secretKey;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Bounded, least recently used cache of derived signing keys.
+     */
+    private static final class SigningKeyCache {
+        private final Map<String, SigningKey> signingKeys;
+
+        SigningKeyCache(final int maxSize) {
+            signingKeys = new LinkedHashMap<String, SigningKey>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SigningKey> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized SigningKey get(String cacheKey) {
+            return signingKeys.get(cacheKey);
+        }
+
+        synchronized void put(String cacheKey, SigningKey signingKey) {
+            signingKeys.put(cacheKey, signingKey);
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renews a credentials provider's credentials on a background thread, so that
+ * callers can keep using the credentials the provider already has while new
+ * ones are fetched.
+ * <p>
+ * At most one refresh runs at a time for each provider, and refreshes are
+ * spaced at least a minute apart, whether they succeed or not, so a service
+ * which is slow to hand out new credentials isn't asked for them on every
+ * call. A failed refresh is only logged; the provider keeps serving its
+ * current credentials and the refresh is tried again later.
+ */
+class AsyncCredentialsRefresher {
+
+    /** The minimum time, in milliseconds, between the start of two refreshes */
+    private static final int MINIMUM_REFRESH_INTERVAL = 1000 * 60;
+
+    private static final Log log = LogFactory.getLog(AsyncCredentialsRefresher.class);
+
+    /** Threads are only kept alive while there are refreshes to run */
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger(1);
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("aws-credentials-refresher-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AWSCredentialsProvider provider;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long nextRefreshTime;
+
+    /**
+     * @param provider
+     *            The provider whose {@link AWSCredentialsProvider#refresh()}
+     *            method renews its credentials.
+     */
+    AsyncCredentialsRefresher(AWSCredentialsProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Starts refreshing the provider's credentials in the background, unless
+     * a refresh is already running or the last one started less than a minute
+     * ago. Never blocks.
+     */
+    void refreshInBackground() {
+        if (System.currentTimeMillis() < nextRefreshTime) return;
+        if (!refreshing.compareAndSet(false, true)) return;
+
+        nextRefreshTime = System.currentTimeMillis() + MINIMUM_REFRESH_INTERVAL;
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        provider.refresh();
+                    } catch (Exception e) {
+                        log.warn("Unable to refresh credentials in the background, continuing to use the current ones: "
+                                + e.getMessage(), e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+}
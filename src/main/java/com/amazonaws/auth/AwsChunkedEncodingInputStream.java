@@ -0,0 +1,254 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * Input stream which encodes the wrapped payload with the "aws-chunked"
+ * content encoding, signing each chunk as it is read. Each chunk's signature
+ * chains from the signature of the previous chunk, starting with the seed
+ * signature of the request headers, so the payload is hashed in a single pass
+ * while it's being written to the connection and never needs to be buffered or
+ * read ahead of time.
+ * <p>
+ * The stream supports mark and reset (back to the start of the payload) if
+ * the wrapped stream does.
+ */
+public final class AwsChunkedEncodingInputStream extends InputStream {
+
+    /** The default number of payload bytes in each chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+
+    private static final String CRLF = "\r\n";
+    private static final String CHUNK_SIGNATURE_HEADER = ";chunk-signature=";
+    private static final String CHUNK_STRING_TO_SIGN_PREFIX = "AWS4-HMAC-SHA256-PAYLOAD";
+
+    /** Length in hex characters of a chunk signature. */
+    private static final int SIGNATURE_LENGTH = 64;
+
+    private final InputStream in;
+    private final AWS4Signer signer;
+    private final byte[] signingKey;
+    private final String dateTime;
+    private final String scope;
+    private final String headerSignature;
+    private final String emptyChunkHash;
+
+    private final byte[] chunkData = new byte[DEFAULT_CHUNK_SIZE];
+
+    /** The encoded bytes of the current chunk, and the read position in them. */
+    private byte[] currentChunk;
+    private int currentChunkPosition;
+
+    private String previousChunkSignature;
+    private boolean isFinalChunkEncoded;
+    private boolean isAtStart = true;
+
+    /**
+     * Creates a stream which encodes and signs the given payload.
+     *
+     * @param in
+     *            The payload to encode.
+     * @param signingKey
+     *            The derived AWS4 signing key used to sign the request.
+     * @param dateTime
+     *            The timestamp used to sign the request.
+     * @param scope
+     *            The credential scope used to sign the request.
+     * @param headerSignature
+     *            The signature of the request headers, which seeds the chain of
+     *            chunk signatures.
+     * @param signer
+     *            The signer which signed the request headers.
+     */
+    public AwsChunkedEncodingInputStream(InputStream in, byte[] signingKey, String dateTime,
+            String scope, String headerSignature, AWS4Signer signer) {
+        this.in = in;
+        this.signingKey = signingKey;
+        this.dateTime = dateTime;
+        this.scope = scope;
+        this.headerSignature = headerSignature;
+        this.signer = signer;
+        this.previousChunkSignature = headerSignature;
+        this.emptyChunkHash = BinaryUtils.toHex(signer.hash(new byte[0]));
+    }
+
+    /**
+     * Returns the payload stream being encoded.
+     */
+    public InputStream getWrappedInputStream() {
+        return in;
+    }
+
+    /**
+     * Returns the length of the aws-chunked encoding of a payload with the
+     * given length, which is the value of the Content-Length header for a
+     * request sent with this stream.
+     *
+     * @param originalLength
+     *            The length of the payload.
+     *
+     * @return The length of the encoded payload.
+     */
+    public static long calculateStreamContentLength(long originalLength) {
+        if (originalLength < 0) {
+            throw new IllegalArgumentException("Nonnegative content length expected.");
+        }
+
+        long maxSizeChunks = originalLength / DEFAULT_CHUNK_SIZE;
+        long remainingBytes = originalLength % DEFAULT_CHUNK_SIZE;
+        return maxSizeChunks * calculateChunkLength(DEFAULT_CHUNK_SIZE)
+                + (remainingBytes > 0 ? calculateChunkLength(remainingBytes) : 0)
+                + calculateChunkLength(0);
+    }
+
+    private static long calculateChunkLength(long dataLength) {
+        return Long.toHexString(dataLength).length()
+                + CHUNK_SIGNATURE_HEADER.length()
+                + SIGNATURE_LENGTH
+                + CRLF.length()
+                + dataLength
+                + CRLF.length();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int count = read(b, 0, 1);
+        if (count == -1) return -1;
+        return b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+
+        if (currentChunk == null || currentChunkPosition == currentChunk.length) {
+            if (isFinalChunkEncoded) return -1;
+            encodeNextChunk();
+        }
+
+        int count = Math.min(len, currentChunk.length - currentChunkPosition);
+        System.arraycopy(currentChunk, currentChunkPosition, b, off, count);
+        currentChunkPosition += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        byte[] buffer = new byte[(int)Math.min(n, 4096)];
+        while (skipped < n) {
+            int count = read(buffer, 0, (int)Math.min(n - skipped, buffer.length));
+            if (count == -1) break;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return in.markSupported();
+    }
+
+    /**
+     * Marks the start of the payload. Only the start of the payload can be
+     * marked, since every chunk signature depends on all the chunks before it.
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+        if (isAtStart) in.mark(readlimit);
+    }
+
+    /**
+     * Resets the wrapped stream to its mark and starts encoding again from the
+     * first chunk.
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        currentChunk = null;
+        currentChunkPosition = 0;
+        previousChunkSignature = headerSignature;
+        isFinalChunkEncoded = false;
+        isAtStart = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads up to a full chunk of payload and encodes it, or encodes the final
+     * empty chunk once the payload runs out.
+     */
+    private void encodeNextChunk() throws IOException {
+        isAtStart = false;
+
+        int length = 0;
+        while (length < chunkData.length) {
+            int count = in.read(chunkData, length, chunkData.length - length);
+            if (count == -1) break;
+            length += count;
+        }
+        if (length == 0) isFinalChunkEncoded = true;
+
+        currentChunk = createSignedChunk(length);
+        currentChunkPosition = 0;
+    }
+
+    private byte[] createSignedChunk(int length) {
+        byte[] data = chunkData;
+        byte[] chunkHash = (length == chunkData.length) ? signer.hash(chunkData) : hashPrefix(length);
+
+        String chunkStringToSign =
+                CHUNK_STRING_TO_SIGN_PREFIX + "\n" +
+                dateTime + "\n" +
+                scope + "\n" +
+                previousChunkSignature + "\n" +
+                emptyChunkHash + "\n" +
+                BinaryUtils.toHex(chunkHash);
+        String chunkSignature = BinaryUtils.toHex(signer.sign(chunkStringToSign, signingKey, SigningAlgorithm.HmacSHA256));
+        previousChunkSignature = chunkSignature;
+
+        String chunkHeader = Integer.toHexString(length) + CHUNK_SIGNATURE_HEADER + chunkSignature + CRLF;
+        byte[] header;
+        try {
+            header = chunkHeader.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AmazonClientException("Unable to encode chunk header: " + e.getMessage(), e);
+        }
+
+        byte[] chunk = new byte[header.length + length + CRLF.length()];
+        System.arraycopy(header, 0, chunk, 0, header.length);
+        System.arraycopy(data, 0, chunk, header.length, length);
+        chunk[chunk.length - 2] = '\r';
+        chunk[chunk.length - 1] = '\n';
+        return chunk;
+    }
+
+    private byte[] hashPrefix(int length) {
+        byte[] data = new byte[length];
+        System.arraycopy(chunkData, 0, data, 0, length);
+        return signer.hash(data);
+    }
+}
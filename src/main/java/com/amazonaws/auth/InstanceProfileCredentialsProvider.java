@@ -27,13 +27,63 @@ import com.amazonaws.util.json.JSONObject;
 /**
  * Credentials provider implementation that loads credentials from the Amazon
  * EC2 Instance Metadata Service.
+ * <p>
+ * By default, credentials which are about to expire are reloaded by the first
+ * thread to ask for them, and other threads asking at the same time wait for
+ * the new credentials. Optionally, credentials can instead be renewed in the
+ * background, well before they expire, while callers carry on using the
+ * current credentials.
  */
 public class InstanceProfileCredentialsProvider implements AWSCredentialsProvider {
 
-    protected AWSCredentials credentials;
-    protected Date credentialsExpiration;
+    /**
+     * The time, in milliseconds, before the credentials expire when they're
+     * renewed in the background.
+     */
+    private static final int ASYNC_REFRESH_THRESHOLD = 1000 * 60 * 15;
+
+    protected volatile AWSCredentials credentials;
+    protected volatile Date credentialsExpiration;
+
+    /** Renews the credentials in the background, or null if that's disabled. */
+    private final AsyncCredentialsRefresher asyncRefresher;
+
+    public InstanceProfileCredentialsProvider() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new InstanceProfileCredentialsProvider, optionally renewing
+     * credentials in the background.
+     *
+     * @param refreshCredentialsAsync
+     *            True to start renewing the credentials in the background
+     *            fifteen minutes before they expire, without making callers
+     *            wait; callers are only blocked when no unexpired credentials
+     *            are available. If the metadata service can't be reached,
+     *            the current credentials keep being used until they expire.
+     */
+    public InstanceProfileCredentialsProvider(boolean refreshCredentialsAsync) {
+        this.asyncRefresher = refreshCredentialsAsync ? new AsyncCredentialsRefresher(this) : null;
+    }
 
     public AWSCredentials getCredentials() {
+        if (asyncRefresher != null) {
+            /*
+             * New credentials are published before their expiration, so
+             * reading the expiration first never pairs it with older
+             * credentials than the ones it belongs to.
+             */
+            Date expiration = credentialsExpiration;
+            AWSCredentials currentCredentials = credentials;
+            if (currentCredentials != null && !expired(expiration)) {
+                if (isWithinExpirationThreshold(expiration, ASYNC_REFRESH_THRESHOLD)) {
+                    asyncRefresher.refreshInBackground();
+                }
+                return currentCredentials;
+            }
+        }
+
         if (needsToLoadCredentials()) loadCredentials();
         if (expired()) {
             throw new AmazonClientException("The credentials received from the Amazon EC2 metadata service have expired");
@@ -49,18 +99,28 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
     protected boolean needsToLoadCredentials() {
         if (credentials == null) return true;
 
-        if (credentialsExpiration != null) {
-            int thresholdInMilliseconds = 1000 * 60 * 5;
-            boolean withinExpirationThreshold = credentialsExpiration.getTime() - System.currentTimeMillis() < thresholdInMilliseconds;
-            if (withinExpirationThreshold) return true;
+        return isWithinExpirationThreshold(1000 * 60 * 5);
+    }
+
+    private boolean isWithinExpirationThreshold(int thresholdInMilliseconds) {
+        return isWithinExpirationThreshold(credentialsExpiration, thresholdInMilliseconds);
+    }
+
+    private static boolean isWithinExpirationThreshold(Date expiration, int thresholdInMilliseconds) {
+        if (expiration != null) {
+            return expiration.getTime() - System.currentTimeMillis() < thresholdInMilliseconds;
         }
 
         return false;
     }
 
     private boolean expired() {
-        if (credentialsExpiration != null) {
-            if (credentialsExpiration.getTime() < System.currentTimeMillis()) {
+        return expired(credentialsExpiration);
+    }
+
+    private static boolean expired(Date expiration) {
+        if (expiration != null) {
+            if (expiration.getTime() < System.currentTimeMillis()) {
                 return true;
             }
         }
@@ -73,13 +133,15 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
             String credentialsResponse = new EC2MetadataClient().getDefaultCredentials();
             JSONObject jsonObject = new JSONObject(credentialsResponse);
 
+            AWSCredentials newCredentials;
+            Date newExpiration = null;
             if (jsonObject.has("Token")) {
-                credentials = new BasicSessionCredentials(
+                newCredentials = new BasicSessionCredentials(
                         jsonObject.getString("AccessKeyId"),
                         jsonObject.getString("SecretAccessKey"),
                         jsonObject.getString("Token"));
             } else {
-                credentials = new BasicAWSCredentials(
+                newCredentials = new BasicAWSCredentials(
                         jsonObject.getString("AccessKeyId"),
                         jsonObject.getString("SecretAccessKey"));
             }
@@ -93,8 +155,15 @@ public class InstanceProfileCredentialsProvider implements AWSCredentialsProvide
                 String expiration = jsonObject.getString("Expiration");
                 expiration = expiration.replaceAll("\\+0000$", "Z");
 
-                credentialsExpiration = new DateUtils().parseIso8601Date(expiration);
+                newExpiration = new DateUtils().parseIso8601Date(expiration);
             }
+
+            /*
+             * Readers aren't synchronized, so only publish fully parsed
+             * values, and the credentials before their expiration.
+             */
+            credentials = newCredentials;
+            credentialsExpiration = newExpiration;
         } catch (IOException e) {
             throw new AmazonClientException("Unable to load credentials from Amazon EC2 metadata service", e);
         } catch (JSONException e) {
@@ -33,14 +33,24 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
     /** Default duration for started sessions */
     public static final int DEFAULT_DURATION_SECONDS = 3600;
 
+    /**
+     * The time, in milliseconds, before the session expires when a new one is
+     * started in the background.
+     */
+    private static final int ASYNC_REFRESH_THRESHOLD = 1000 * 60 * 5;
+
     /** The client for starting STS sessions */
     private final AWSSecurityTokenService securityTokenService;
 
-    /** The current session credentials */
-    private AWSSessionCredentials sessionCredentials;
+    /**
+     * The current session, or null if none has been started. Its credentials
+     * and expiration time are published together, since callers read them
+     * without locking.
+     */
+    private volatile Session session;
 
-    /** The expiration time for the current session credentials */
-    private Date sessionCredentialsExpiration;
+    /** Starts new sessions in the background, or null if that's disabled */
+    private final AsyncCredentialsRefresher asyncRefresher;
 
 
     /**
@@ -71,6 +81,7 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      */
     public STSSessionCredentialsProvider(AWSCredentials longLivedCredentials, ClientConfiguration clientConfiguration) {
         securityTokenService = new AWSSecurityTokenServiceClient(longLivedCredentials, clientConfiguration);
+        asyncRefresher = null;
     }
 
     /**
@@ -86,6 +97,7 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      */
     public STSSessionCredentialsProvider(AWSCredentialsProvider longLivedCredentialsProvider) {
         securityTokenService = new AWSSecurityTokenServiceClient(longLivedCredentialsProvider);
+        asyncRefresher = null;
     }
 
     /**
@@ -102,14 +114,46 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      *            Client configuration connection parameters.
      */
     public STSSessionCredentialsProvider(AWSCredentialsProvider longLivedCredentialsProvider, ClientConfiguration clientConfiguration) {
+        this(longLivedCredentialsProvider, clientConfiguration, false);
+    }
+
+    /**
+     * Constructs a new STSSessionCredentialsProvider, which will use the
+     * specified credentials provider (which vends long lived AWS credentials)
+     * to make a request to the AWS Security Token Service (STS) to request
+     * short lived session credentials, which will then be returned by this
+     * class's {@link #getCredentials()} method.
+     *
+     * @param longLivedCredentialsProvider
+     *            Credentials provider for the main AWS credentials for a user's
+     *            account.
+     * @param clientConfiguration
+     *            Client configuration connection parameters.
+     * @param refreshCredentialsAsync
+     *            True to start a new session in the background five minutes
+     *            before the current one expires, while callers carry on using
+     *            the current session's credentials. Callers are only blocked
+     *            when there's no unexpired session, and if a new session can't
+     *            be started, the current one keeps being used until it
+     *            expires.
+     */
+    public STSSessionCredentialsProvider(AWSCredentialsProvider longLivedCredentialsProvider,
+            ClientConfiguration clientConfiguration, boolean refreshCredentialsAsync) {
         securityTokenService = new AWSSecurityTokenServiceClient(longLivedCredentialsProvider, clientConfiguration);
+        asyncRefresher = refreshCredentialsAsync ? new AsyncCredentialsRefresher(this) : null;
     }
 
     @Override
     public AWSCredentials getCredentials() {
-        if (needsNewSession()) startSession();
+        Session currentSession = session;
+        if (asyncRefresher != null && currentSession != null && currentSession.timeRemaining() > 0) {
+            if (currentSession.timeRemaining() < ASYNC_REFRESH_THRESHOLD) asyncRefresher.refreshInBackground();
+            return currentSession.credentials;
+        }
+
+        if (needsNewSession(currentSession)) currentSession = startSessionIfNeeded();
 
-        return sessionCredentials;
+        return currentSession.credentials;
     }
 
     @Override
@@ -122,16 +166,27 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      * Service (STS) with the long lived AWS credentials. This class then vends
      * the short lived session credentials sent back from STS.
      */
-    private void startSession() {
+    private synchronized Session startSession() {
         GetSessionTokenResult sessionTokenResult = securityTokenService
                 .getSessionToken(new GetSessionTokenRequest().withDurationSeconds(DEFAULT_DURATION_SECONDS));
         Credentials stsCredentials = sessionTokenResult.getCredentials();
 
-        sessionCredentials = new BasicSessionCredentials(
+        session = new Session(new BasicSessionCredentials(
                 stsCredentials.getAccessKeyId(),
                 stsCredentials.getSecretAccessKey(),
-                stsCredentials.getSessionToken());
-        sessionCredentialsExpiration = stsCredentials.getExpiration();
+                stsCredentials.getSessionToken()),
+                stsCredentials.getExpiration());
+        return session;
+    }
+
+    /**
+     * Starts a new session unless another thread started one while this one
+     * was waiting for the lock, and returns the current session.
+     */
+    private synchronized Session startSessionIfNeeded() {
+        Session currentSession = session;
+        if (needsNewSession(currentSession)) currentSession = startSession();
+        return currentSession;
     }
 
     /**
@@ -141,11 +196,31 @@ public class STSSessionCredentialsProvider implements AWSCredentialsProvider {
      *
      * @return True if a new STS session needs to be started.
      */
-    private boolean needsNewSession() {
-        if (sessionCredentials == null) return true;
+    private static boolean needsNewSession(Session session) {
+        if (session == null) return true;
 
-        long timeRemaining = sessionCredentialsExpiration.getTime() - System.currentTimeMillis();
-        return timeRemaining < (60 * 1000);
+        return session.timeRemaining() < (60 * 1000);
+    }
+
+    /**
+     * The credentials of a session and the time they expire, which never
+     * change once the session has been started.
+     */
+    private static final class Session {
+        private final AWSSessionCredentials credentials;
+        private final Date expiration;
+
+        private Session(AWSSessionCredentials credentials, Date expiration) {
+            this.credentials = credentials;
+            this.expiration = new Date(expiration.getTime());
+        }
+
+        /**
+         * Returns the time, in milliseconds, until the session expires.
+         */
+        private long timeRemaining() {
+            return expiration.getTime() - System.currentTimeMillis();
+        }
     }
 
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+/**
+ * Client-side rate limiter which adapts how fast a client sends requests to
+ * the throttling errors it receives.
+ * <p>
+ * The limiter does nothing until the first throttling error received after
+ * the client's send rate has been measured over at least one interval, since
+ * until then there is no rate to cut. From then on, every request (including
+ * retries) takes a token from a bucket which refills at the current send
+ * rate. Each throttling error cuts the rate to a fraction
+ * of the rate the client was measured sending at, and the rate then grows
+ * back along a cubic curve: quickly at first, slowly as it approaches the rate
+ * which was last throttled, and quickly again beyond it, similar to the CUBIC
+ * TCP congestion control algorithm.
+ * <p>
+ * All methods are thread safe.
+ */
+class AdaptiveRateLimiter {
+
+    /** The fraction of the measured rate kept after a throttling error */
+    private static final double BETA = 0.7;
+
+    /** Scales how fast the rate grows back after a throttling error */
+    private static final double SCALE_CONSTANT = 0.4;
+
+    /** Weight of the newest sample in the smoothed measured send rate */
+    private static final double SMOOTHING = 0.8;
+
+    /** The length of each bucket over which the send rate is measured */
+    private static final double MEASUREMENT_INTERVAL_SECONDS = 0.5;
+
+    /** The lowest rate, in requests per second, the limiter slows down to */
+    private static final double MIN_FILL_RATE = 0.5;
+
+    private boolean enabled;
+
+    /* Token bucket */
+    private double fillRate;
+    private double maxCapacity;
+    private double capacity;
+    private double lastRefillTime = -1;
+
+    /* Measured send rate */
+    private double measuredSendRate;
+    private double lastMeasurementBucket;
+    private long requestCount;
+    private boolean rateMeasured;
+
+    /* Cubic rate curve */
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+
+    AdaptiveRateLimiter() {
+        double now = now();
+        lastMeasurementBucket = measurementBucket(now);
+        lastThrottleTime = now;
+    }
+
+    /**
+     * Takes a token for a request about to be sent.
+     *
+     * @return How long, in milliseconds, the request must wait before it's
+     *         sent; zero if it can be sent immediately.
+     */
+    synchronized long acquire() {
+        if (!enabled) return 0;
+
+        refill(now());
+        capacity -= 1;
+        if (capacity >= 0) return 0;
+
+        // The bucket goes into debt, so that concurrent requests queue up
+        // behind each other instead of all waiting for the same token.
+        return (long)Math.ceil(-capacity / fillRate * 1000);
+    }
+
+    /**
+     * Updates the send rate after a response is received.
+     *
+     * @param throttled
+     *            True if the response was a throttling error.
+     */
+    synchronized void update(boolean throttled) {
+        double now = now();
+        updateMeasuredRate(now);
+
+        double calculatedRate;
+        if (throttled) {
+            if (!rateMeasured) return;
+
+            double rateToUse = enabled ? Math.min(measuredSendRate, fillRate) : measuredSendRate;
+            lastMaxRate = rateToUse;
+            timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            double elapsed = now - lastThrottleTime;
+            calculatedRate = SCALE_CONSTANT * Math.pow(elapsed - timeWindow, 3) + lastMaxRate;
+        }
+
+        if (enabled) {
+            updateFillRate(now, Math.min(calculatedRate, 2 * measuredSendRate));
+        }
+    }
+
+    /**
+     * Returns true once a throttling error has enabled the limiter.
+     */
+    synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the rate, in requests per second, the limiter currently lets
+     * requests through at, or zero if it isn't enabled.
+     */
+    synchronized double getSendRate() {
+        return enabled ? fillRate : 0;
+    }
+
+    private void refill(double now) {
+        if (lastRefillTime >= 0) {
+            capacity = Math.min(maxCapacity, capacity + (now - lastRefillTime) * fillRate);
+        }
+        lastRefillTime = now;
+    }
+
+    private void updateFillRate(double now, double newRate) {
+        refill(now);
+        fillRate = Math.max(newRate, MIN_FILL_RATE);
+        maxCapacity = Math.max(newRate, 1);
+        capacity = Math.min(capacity, maxCapacity);
+    }
+
+    private void updateMeasuredRate(double now) {
+        double bucket = measurementBucket(now);
+        requestCount++;
+        if (bucket > lastMeasurementBucket) {
+            double currentRate = requestCount / (bucket - lastMeasurementBucket);
+            measuredSendRate = currentRate * SMOOTHING + measuredSendRate * (1 - SMOOTHING);
+            requestCount = 0;
+            lastMeasurementBucket = bucket;
+            rateMeasured = true;
+        }
+    }
+
+    private static double measurementBucket(double time) {
+        return Math.floor(time / MEASUREMENT_INTERVAL_SECONDS) * MEASUREMENT_INTERVAL_SECONDS;
+    }
+
+    private static double now() {
+        return System.nanoTime() / 1e9;
+    }
+}
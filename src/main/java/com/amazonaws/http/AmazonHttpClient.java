@@ -14,16 +14,24 @@
  */
 package com.amazonaws.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.net.ssl.SSLContext;
 
@@ -48,9 +56,14 @@ import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
 import com.amazonaws.ResponseMetadata;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.handlers.RequestHandler;
+import com.amazonaws.http.nio.NioHttpTransport;
+import com.amazonaws.http.nio.ResponseCallback;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.internal.CustomBackoffStrategy;
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
 import com.amazonaws.util.CountingInputStream;
@@ -81,6 +94,15 @@ public class AmazonHttpClient {
     /** Client configuration options, such as proxy settings, max retries, etc. */
     private final ClientConfiguration config;
 
+    /** Optional transport for sending requests without blocking a thread */
+    private final NioHttpTransport nioTransport;
+
+    /** Retry budget shared by all requests, or null if disabled */
+    private final RetryCapacity retryCapacity;
+
+    /** Client-side rate limiter which adapts to throttling, or null if disabled */
+    private final AdaptiveRateLimiter sendRateLimiter;
+
     /** Cache of metadata for recently executed requests for diagnostic purposes */
     private final ResponseMetadataCache responseMetadataCache = new ResponseMetadataCache(50);
 
@@ -116,6 +138,45 @@ public class AmazonHttpClient {
     public AmazonHttpClient(ClientConfiguration clientConfiguration) {
         this.config = clientConfiguration;
         this.httpClient = httpClientFactory.createHttpClient(config);
+        this.nioTransport = createNonBlockingTransport(config);
+        this.retryCapacity = (config.getRetryCapacity() > 0) ? new RetryCapacity(config.getRetryCapacity()) : null;
+        this.sendRateLimiter = config.isUseAdaptiveSendRate() ? new AdaptiveRateLimiter() : null;
+    }
+
+    /**
+     * Creates the non-blocking transport if the configuration enables it and
+     * it supports the configuration's options.
+     */
+    private static NioHttpTransport createNonBlockingTransport(ClientConfiguration config) {
+        if (!config.isUseNonBlockingTransport()) return null;
+
+        if (config.getProxyHost() != null && config.getProxyPort() > 0) {
+            log.warn("The non-blocking transport doesn't support proxies, so asynchronous requests will be sent with blocking I/O");
+            return null;
+        }
+        return new NioHttpTransport(config);
+    }
+
+    /**
+     * Returns true if requests can be sent with
+     * {@link #executeAsync(Request, HttpResponseHandler, HttpResponseHandler, ExecutionContext, Executor, AsyncHandler)}.
+     */
+    public boolean isNonBlockingTransportEnabled() {
+        return nioTransport != null;
+    }
+
+    /**
+     * Returns the state of the connections in the client's connection pool,
+     * keyed by route (e.g. "https://dynamodb.us-east-1.amazonaws.com:443").
+     *
+     * @return The number of leased, available and pending connections to each
+     *         route the client has connected to.
+     */
+    public Map<String, ConnectionPoolStats> getConnectionPoolStats() {
+        if (httpClient.getConnectionManager() instanceof ValidatingClientConnManager) {
+            return ((ValidatingClientConnManager)httpClient.getConnectionManager()).getStats();
+        }
+        return Collections.emptyMap();
     }
 
     /**
@@ -186,6 +247,8 @@ public class AmazonHttpClient {
             requestHandler.beforeRequest(request);
         }
 
+        RequestMetricCollector metricCollector = AwsSdkMetrics.getRequestMetricCollector();
+
         try {
             T t = executeHelper(request, responseHandler, errorResponseHandler, executionContext);
             TimingInfo timingInfo = executionContext.getAwsRequestMetrics().getTimingInfo();
@@ -202,6 +265,76 @@ public class AmazonHttpClient {
                 handler.afterError(request, e);
             }
             throw e;
+        } finally {
+            collectMetrics(metricCollector, request, executionContext.getAwsRequestMetrics());
+        }
+    }
+
+    /**
+     * Executes the request through the non-blocking transport, without
+     * blocking the calling thread or any other thread while the request is in
+     * flight. Retries are scheduled on the transport rather than slept
+     * through.
+     * <p>
+     * The request's content, if any, is buffered in memory before this method
+     * returns.
+     *
+     * @param request
+     *            The AmazonWebServices request to send to the remote server
+     * @param responseHandler
+     *            A response handler to accept a successful response from the
+     *            remote server
+     * @param errorResponseHandler
+     *            A response handler to accept an unsuccessful response from the
+     *            remote server
+     * @param executionContext
+     *            Additional information about the context of this web service
+     *            call
+     * @param executor
+     *            The executor which runs the response handlers and the
+     *            optional async handler
+     * @param asyncHandler
+     *            Optional callback to notify when the request completes
+     *
+     * @return A future for the result of the request.
+     *
+     * @throws IllegalStateException
+     *             If the non-blocking transport isn't enabled.
+     */
+    public <T> Future<T> executeAsync(Request<?> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext, Executor executor,
+            AsyncHandler<AmazonWebServiceRequest, T> asyncHandler) {
+        if (nioTransport == null) throw new IllegalStateException("The non-blocking transport isn't enabled");
+        if (executionContext == null) throw new AmazonClientException("Internal SDK Error: No execution context parameter specified.");
+
+        NonBlockingExecution<T> execution = new NonBlockingExecution<T>(request, responseHandler,
+                errorResponseHandler, executionContext, executor, asyncHandler);
+        execution.start();
+        return execution.future;
+    }
+
+    /**
+     * Feeds the metrics recorded while executing a request to the collector
+     * registered when the request started. Collector failures are logged
+     * rather than failing the request.
+     */
+    private void collectMetrics(RequestMetricCollector metricCollector, Request<?> request,
+            AWSRequestMetrics awsRequestMetrics) {
+        if (retryCapacity != null) {
+            awsRequestMetrics.setCounter(Field.RetryCapacity, retryCapacity.getAvailableCapacity());
+        }
+        if (sendRateLimiter != null && sendRateLimiter.isEnabled()) {
+            awsRequestMetrics.setCounter(Field.ClientSendRate, Math.round(sendRateLimiter.getSendRate()));
+        }
+
+        if (metricCollector == null || !awsRequestMetrics.isEnabled()) return;
+
+        try {
+            metricCollector.collectMetrics(request, awsRequestMetrics);
+        } catch (RuntimeException e) {
+            log.warn("Unable to collect request metrics: " + e.getMessage(), e);
         }
     }
 
@@ -236,6 +369,7 @@ public class AmazonHttpClient {
         applyRequestData(request);
 
         int retryCount = 0;
+        int retryCost = 0;
         URI redirectedURI = null;
         HttpEntity entity = null;
         AmazonServiceException exception = null;
@@ -248,7 +382,7 @@ public class AmazonHttpClient {
         originalHeaders.putAll(request.getHeaders());
 
         while (true) {
-            awsRequestMetrics.setCounter(Field.AttemptCount.name(), retryCount+1);
+            awsRequestMetrics.setCounter(Field.AttemptCount, retryCount+1);
             if ( retryCount > 0 ) {
                 request.setParameters(originalParameters);
                 request.setHeaders(originalHeaders);
@@ -261,9 +395,9 @@ public class AmazonHttpClient {
             try {
                 // Sign the request if a signer was provided
                 if (executionContext.getSigner() != null && executionContext.getCredentials() != null) {
-                    awsRequestMetrics.startEvent(Field.RequestSigningTime.name());
+                    awsRequestMetrics.startEvent(Field.RequestSigningTime);
                     executionContext.getSigner().sign(request, executionContext.getCredentials());
-                    awsRequestMetrics.endEvent(Field.RequestSigningTime.name());
+                    awsRequestMetrics.endEvent(Field.RequestSigningTime);
                 }
 
                  if (requestLog.isDebugEnabled()) {
@@ -281,9 +415,15 @@ public class AmazonHttpClient {
                 }
 
                 if ( retryCount > 0 ) {
-                    awsRequestMetrics.startEvent(Field.RetryPauseTime.name());
+                    awsRequestMetrics.startEvent(Field.RetryPauseTime);
                     pauseExponentially(retryCount, exception, executionContext.getCustomBackoffStrategy());
-                    awsRequestMetrics.endEvent(Field.RetryPauseTime.name());
+                    awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                }
+
+                if (sendRateLimiter != null) {
+                    awsRequestMetrics.startEvent(Field.RateLimitDelayTime);
+                    sleep(sendRateLimiter.acquire());
+                    awsRequestMetrics.endEvent(Field.RateLimitDelayTime);
                 }
 
                 if ( entity != null ) {
@@ -302,14 +442,15 @@ public class AmazonHttpClient {
 
                 exception = null;
 
-                awsRequestMetrics.startEvent(Field.HttpRequestTime.name());
+                awsRequestMetrics.startEvent(Field.HttpRequestTime);
                 response = httpClient.execute(httpRequest);
-                awsRequestMetrics.endEvent(Field.HttpRequestTime.name());
+                awsRequestMetrics.endEvent(Field.HttpRequestTime);
 
 
                 if (isRequestSuccessful(response)) {
 
                     awsRequestMetrics.addProperty(Field.StatusCode.name(), response.getStatusLine().getStatusCode());
+                    requestSucceeded(retryCost);
 
                     /*
                      * If we get back any 2xx status code, then we know we should
@@ -339,10 +480,12 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID.name(), exception.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode.name(), exception.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode.name(), exception.getStatusCode());
+                    if (sendRateLimiter != null) sendRateLimiter.update(isThrottlingException(exception));
 
                     if (!shouldRetry(httpRequest, exception, retryCount)) {
                         throw exception;
                     }
+                    retryCost = RetryCapacity.costOf(exception);
                     resetRequestAfterError(request, exception);
                 }
             } catch (IOException ioe) {
@@ -353,6 +496,7 @@ public class AmazonHttpClient {
                 if (!shouldRetry(httpRequest, ioe, retryCount)) {
                     throw new AmazonClientException("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
                 }
+                retryCost = RetryCapacity.costOf(ioe);
                 resetRequestAfterError(request, ioe);
             } finally {
                 retryCount++;
@@ -439,10 +583,12 @@ public class AmazonHttpClient {
     public void shutdown() {
         IdleConnectionReaper.removeConnectionManager(httpClient.getConnectionManager());
         httpClient.getConnectionManager().shutdown();
+        if (nioTransport != null) nioTransport.shutdown();
     }
 
     /**
-     * Returns true if a failed request should be retried.
+     * Returns true if a failed request should be retried, consuming the cost
+     * of the retry from the retry budget.
      *
      * @param method
      *            The current HTTP method being executed.
@@ -454,6 +600,43 @@ public class AmazonHttpClient {
      * @return True if the failed request should be retried.
      */
     private boolean shouldRetry(HttpRequestBase method, Exception exception, int retries) {
+        if (!isRetryable(method, exception, retries)) return false;
+
+        if (retryCapacity != null && !retryCapacity.acquire(RetryCapacity.costOf(exception))) {
+            if (log.isDebugEnabled()) {
+                log.debug("Not retrying because the retry budget is exhausted");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Updates the retry budget and send rate after a successful response.
+     *
+     * @param retryCost
+     *            The retry budget consumed by the request's last retry, or
+     *            zero if the request wasn't retried.
+     */
+    private void requestSucceeded(int retryCost) {
+        if (retryCapacity != null) retryCapacity.release(retryCost);
+        if (sendRateLimiter != null) sendRateLimiter.update(false);
+    }
+
+    /**
+     * Returns true if a failed request can be retried, regardless of the
+     * retry budget.
+     *
+     * @param method
+     *            The current HTTP method being executed.
+     * @param exception
+     *            The exception from the failed request.
+     * @param retries
+     *            The number of times the current request has been attempted.
+     *
+     * @return True if the failed request can be retried.
+     */
+    private boolean isRetryable(HttpRequestBase method, Exception exception, int retries) {
         if (retries >= config.getMaxErrorRetry()) return false;
 
         if (method instanceof HttpEntityEnclosingRequest) {
@@ -558,9 +741,9 @@ public class AmazonHttpClient {
             }
 
             AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
-            awsRequestMetrics.startEvent(Field.ResponseProcessingTime.name());
+            awsRequestMetrics.startEvent(Field.ResponseProcessingTime);
             AmazonWebServiceResponse<? extends T> awsResponse = responseHandler.handle(httpResponse);
-            awsRequestMetrics.endEvent(Field.ResponseProcessingTime.name());
+            awsRequestMetrics.endEvent(Field.ResponseProcessingTime);
             if (countingInputStream != null) {
                 awsRequestMetrics.setCounter(Field.BytesProcessed.name(), countingInputStream.getByteCount());
             }
@@ -687,6 +870,33 @@ public class AmazonHttpClient {
      *            Exception information for the previous attempt, if any.
      */
     private void pauseExponentially(int retries, AmazonServiceException previousException, CustomBackoffStrategy backoffStrategy) {
+        sleep(computeBackoffDelay(retries, previousException, backoffStrategy));
+    }
+
+    /**
+     * Sleeps for the specified number of milliseconds, if any.
+     */
+    private static void sleep(long delay) {
+        if (delay <= 0) return;
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns how long to wait, in milliseconds, before retrying a failed
+     * request.
+     *
+     * @param retries
+     *            Current retry count.
+     * @param previousException
+     *            Exception information for the previous attempt, if any.
+     */
+    private long computeBackoffDelay(int retries, AmazonServiceException previousException, CustomBackoffStrategy backoffStrategy) {
         long delay = 0;
         if (backoffStrategy != null) {
             delay = backoffStrategy.getBackoffPeriod(retries);
@@ -703,13 +913,7 @@ public class AmazonHttpClient {
             log.debug("Retriable error detected, " +
                     "will retry in " + delay + "ms, attempt number: " + retries);
         }
-
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new AmazonClientException(e.getMessage(), e);
-        }
+        return delay;
     }
 
     /**
@@ -728,6 +932,301 @@ public class AmazonHttpClient {
             || "ProvisionedThroughputExceededException".equals(ase.getErrorCode());
     }
 
+    /**
+     * The state of a request executed with the non-blocking transport. This
+     * follows the same steps as {@link #executeHelper}, but each attempt is
+     * sent by the transport's event loop and its response is handled on the
+     * caller's executor, so no thread waits on the network or sleeps between
+     * retries.
+     */
+    private final class NonBlockingExecution<T> implements ResponseCallback {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final Executor executor;
+        private final AsyncHandler<AmazonWebServiceRequest, T> asyncHandler;
+        private final List<RequestHandler> requestHandlers;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final RequestMetricCollector metricCollector = AwsSdkMetrics.getRequestMetricCollector();
+        private final ResponseFuture<T> future = new ResponseFuture<T>();
+
+        private Map<String, String> originalParameters;
+        private Map<String, String> originalHeaders;
+        private byte[] content;
+
+        private int retryCount;
+        private int retryCost;
+        private URI redirectedURI;
+        private AmazonServiceException exception;
+        private HttpRequestBase httpRequest;
+
+        NonBlockingExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext, Executor executor,
+                AsyncHandler<AmazonWebServiceRequest, T> asyncHandler) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.executor = executor;
+            this.asyncHandler = asyncHandler;
+            this.awsRequestMetrics = executionContext.getAwsRequestMetrics();
+
+            List<RequestHandler> handlers = executionContext.getRequestHandlers();
+            this.requestHandlers = (handlers == null) ? new ArrayList<RequestHandler>() : handlers;
+        }
+
+        void start() {
+            try {
+                for (RequestHandler requestHandler : requestHandlers) {
+                    requestHandler.beforeRequest(request);
+                }
+
+                awsRequestMetrics.addProperty(Field.ServiceName.name(), request.getServiceName());
+                awsRequestMetrics.addProperty(Field.ServiceEndpoint.name(), request.getEndpoint());
+                applyRequestData(request);
+
+                originalParameters = new HashMap<String, String>(request.getParameters());
+                originalHeaders = new HashMap<String, String>(request.getHeaders());
+
+                // Buffer the content so every attempt can be sent without blocking
+                if (request.getContent() != null) {
+                    content = readContent(request.getContent());
+                }
+
+                attempt();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void attempt() {
+            if (future.isCancelled()) return;
+
+            try {
+                awsRequestMetrics.setCounter(Field.AttemptCount, retryCount + 1);
+                if (retryCount > 0) {
+                    request.setParameters(originalParameters);
+                    request.setHeaders(originalHeaders);
+                }
+                if (content != null) {
+                    request.setContent(new ByteArrayInputStream(content));
+                }
+
+                if (executionContext.getSigner() != null && executionContext.getCredentials() != null) {
+                    awsRequestMetrics.startEvent(Field.RequestSigningTime);
+                    executionContext.getSigner().sign(request, executionContext.getCredentials());
+                    awsRequestMetrics.endEvent(Field.RequestSigningTime);
+                }
+
+                if (requestLog.isDebugEnabled()) {
+                    requestLog.debug("Sending Request: " + request.toString());
+                }
+
+                httpRequest = httpRequestFactory.createHttpRequest(request, config, null, executionContext);
+                if (redirectedURI != null) {
+                    httpRequest.setURI(redirectedURI);
+                }
+
+                exception = null;
+                long delay = (sendRateLimiter != null) ? sendRateLimiter.acquire() : 0;
+                if (delay > 0) {
+                    awsRequestMetrics.startEvent(Field.RateLimitDelayTime);
+                    nioTransport.schedule(new Runnable() {
+                        public void run() {
+                            awsRequestMetrics.endEvent(Field.RateLimitDelayTime);
+                            send();
+                        }
+                    }, delay);
+                } else {
+                    send();
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void send() {
+            awsRequestMetrics.startEvent(Field.HttpRequestTime);
+            nioTransport.execute(httpRequest, this);
+        }
+
+        public void completed(final org.apache.http.HttpResponse response) {
+            runOnExecutor(new Runnable() {
+                public void run() {
+                    awsRequestMetrics.endEvent(Field.HttpRequestTime);
+                    responseReceived(response);
+                }
+            });
+        }
+
+        public void failed(final IOException ioe) {
+            runOnExecutor(new Runnable() {
+                public void run() {
+                    awsRequestMetrics.endEvent(Field.HttpRequestTime);
+                    requestFailed(ioe);
+                }
+            });
+        }
+
+        private void responseReceived(org.apache.http.HttpResponse response) {
+            try {
+                if (isRequestSuccessful(response)) {
+                    awsRequestMetrics.addProperty(Field.StatusCode.name(), response.getStatusLine().getStatusCode());
+                    requestSucceeded(retryCost);
+                    succeed(handleResponse(request, responseHandler, httpRequest, response, executionContext));
+                } else if (isTemporaryRedirect(response)) {
+                    String redirectedLocation = response.getHeaders("location")[0].getValue();
+                    log.debug("Redirecting to: " + redirectedLocation);
+                    redirectedURI = URI.create(redirectedLocation);
+                    awsRequestMetrics.addProperty(Field.StatusCode.name(), response.getStatusLine().getStatusCode());
+                    awsRequestMetrics.addProperty(Field.RedirectLocation.name(), redirectedLocation);
+                    awsRequestMetrics.addProperty(Field.AWSRequestID.name(), null);
+                    retry();
+                } else {
+                    exception = handleErrorResponse(request, errorResponseHandler, httpRequest, response);
+                    awsRequestMetrics.addProperty(Field.AWSRequestID.name(), exception.getRequestId());
+                    awsRequestMetrics.addProperty(Field.AWSErrorCode.name(), exception.getErrorCode());
+                    awsRequestMetrics.addProperty(Field.StatusCode.name(), exception.getStatusCode());
+                    if (sendRateLimiter != null) sendRateLimiter.update(isThrottlingException(exception));
+
+                    if (!shouldRetry(httpRequest, exception, retryCount)) {
+                        fail(exception);
+                        return;
+                    }
+                    retryCost = RetryCapacity.costOf(exception);
+                    retry();
+                }
+            } catch (IOException ioe) {
+                requestFailed(ioe);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void requestFailed(IOException ioe) {
+            log.info("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+            awsRequestMetrics.addProperty(Field.Exception.name(), ioe.toString());
+            awsRequestMetrics.addProperty(Field.AWSRequestID.name(), null);
+
+            if (!shouldRetry(httpRequest, ioe, retryCount)) {
+                fail(new AmazonClientException("Unable to execute HTTP request: " + ioe.getMessage(), ioe));
+                return;
+            }
+            retryCost = RetryCapacity.costOf(ioe);
+            retry();
+        }
+
+        private void retry() {
+            retryCount++;
+            long delay = computeBackoffDelay(retryCount, exception, executionContext.getCustomBackoffStrategy());
+
+            awsRequestMetrics.startEvent(Field.RetryPauseTime);
+            nioTransport.schedule(new Runnable() {
+                public void run() {
+                    runOnExecutor(new Runnable() {
+                        public void run() {
+                            awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                            attempt();
+                        }
+                    });
+                }
+            }, delay);
+        }
+
+        private void succeed(T result) {
+            TimingInfo timingInfo = awsRequestMetrics.getTimingInfo();
+            timingInfo.setEndTime(System.currentTimeMillis());
+            for (RequestHandler handler : requestHandlers) {
+                try {
+                    handler.afterResponse(request, result, timingInfo);
+                } catch (ClassCastException cce) {}
+            }
+            finish();
+
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onSuccess(request.getOriginalRequest(), result);
+                } catch (RuntimeException e) {
+                    log.warn("Async handler failed: " + e.getMessage(), e);
+                }
+            }
+            future.complete(result);
+        }
+
+        private void fail(Exception e) {
+            if (e instanceof AmazonClientException) {
+                for (RequestHandler handler : requestHandlers) {
+                    handler.afterError(request, (AmazonClientException)e);
+                }
+            }
+            finish();
+
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onError(e);
+                } catch (RuntimeException handlerException) {
+                    log.warn("Async handler failed: " + handlerException.getMessage(), handlerException);
+                }
+            }
+            future.fail(e);
+        }
+
+        private void finish() {
+            collectMetrics(metricCollector, request, awsRequestMetrics);
+            awsRequestMetrics.log();
+        }
+
+        private void runOnExecutor(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                fail(new AmazonClientException("Unable to handle response: " + e.getMessage(), e));
+            }
+        }
+    }
+
+    /**
+     * Reads the remaining content of a request into memory.
+     */
+    private static byte[] readContent(InputStream content) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int count;
+            while ((count = content.read(chunk)) > -1) {
+                buffer.write(chunk, 0, count);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to read request content: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Future completed by a {@link NonBlockingExecution} instead of by running
+     * a task.
+     */
+    private static final class ResponseFuture<T> extends FutureTask<T> {
+        ResponseFuture() {
+            super(new Callable<T>() {
+                public T call() throws Exception {
+                    throw new IllegalStateException("Completed by the non-blocking transport");
+                }
+            });
+        }
+
+        void complete(T result) {
+            set(result);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+    }
+
     @Override
     protected void finalize() throws Throwable {
         this.shutdown();
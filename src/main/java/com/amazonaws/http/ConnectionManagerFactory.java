@@ -14,7 +14,7 @@
  */
 package com.amazonaws.http;
 
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.params.HttpParams;
 
 import com.amazonaws.ClientConfiguration;
@@ -22,10 +22,15 @@ import com.amazonaws.ClientConfiguration;
 /** Responsible for creating and configuring instances of Apache HttpClient4's Connection Manager. */
 class ConnectionManagerFactory {
 
-    public static ThreadSafeClientConnManager createThreadSafeClientConnManager( ClientConfiguration config, HttpParams httpClientParams ) {
-        ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
-        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+    public static ValidatingClientConnManager createPoolingClientConnManager( ClientConfiguration config, HttpParams httpClientParams ) {
+        ValidatingClientConnManager connectionManager = new ValidatingClientConnManager(
+                SchemeRegistryFactory.createDefault(),
+                config.getConnectionTTL(),
+                config.getValidateAfterInactivity());
         connectionManager.setMaxTotal(config.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute() > 0
+                ? Math.min(config.getMaxConnectionsPerRoute(), config.getMaxConnections())
+                : config.getMaxConnections());
 
         IdleConnectionReaper.registerConnectionManager(connectionManager);
         return connectionManager;
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+/**
+ * A snapshot of the HTTP connections a client has open to a single route
+ * (i.e. scheme, host and port).
+ */
+public class ConnectionPoolStats {
+
+    private final String route;
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+
+    public ConnectionPoolStats(String route, int leased, int available, int pending, int max) {
+        this.route = route;
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+    }
+
+    /**
+     * Returns the route, e.g. "https://dynamodb.us-east-1.amazonaws.com:443".
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * Returns the number of connections currently carrying a request.
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * Returns the number of idle connections kept open for reuse.
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns the number of requests waiting for a connection, because the
+     * route or the whole pool has reached its connection limit.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Returns the maximum number of connections to the route.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "[route: " + route + "; leased: " + leased + "; pending: " + pending
+                + "; available: " + available + "; max: " + max + "]";
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.http.params.CoreProtocolPNames;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
+import com.amazonaws.auth.AwsChunkedEncodingInputStream;
 import com.amazonaws.util.HttpUtils;
 
 /** Responsible for creating Apache HttpClient 4 request objects. */
@@ -115,7 +116,12 @@ class HttpRequestFactory {
              */
             putMethod.getParams().setParameter(CoreProtocolPNames.USE_EXPECT_CONTINUE, true);
 
-            if (previousEntity != null) {
+            /*
+             * Chunk encoded payloads are re-encoded by the signer on every
+             * attempt, since each chunk signature chains from the signature of
+             * the request headers, so their entities can't be reused.
+             */
+            if (previousEntity != null && !(request.getContent() instanceof AwsChunkedEncodingInputStream)) {
                 putMethod.setEntity(previousEntity);
             } else if (request.getContent() != null) {
                 HttpEntity entity = new RepeatableInputStreamRequestEntity(request);
@@ -91,8 +91,10 @@ public class IdleConnectionReaper extends Thread {
                 for (ClientConnectionManager connectionManager : connectionManagers) {
                     // When we release connections, the connection manager leaves them
                     // open so they can be reused.  We want to close out any idle
-                    // connections so that they don't sit around in CLOSE_WAIT.
+                    // connections so that they don't sit around in CLOSE_WAIT, along
+                    // with any that have outlived their time to live.
                     try {
+                        connectionManager.closeExpiredConnections();
                         connectionManager.closeIdleConnections(60, TimeUnit.SECONDS);
                     } catch (Throwable t) {
                         log.warn("Unable to close idle connections", t);
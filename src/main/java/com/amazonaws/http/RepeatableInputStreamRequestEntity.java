@@ -24,6 +24,7 @@ import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.InputStreamEntity;
 
 import com.amazonaws.Request;
+import com.amazonaws.internal.DirectlyWritable;
 
 /**
  * Custom implementation of {@link RequestEntity} that delegates to an
@@ -122,7 +123,9 @@ class RepeatableInputStreamRequestEntity extends BasicHttpEntity {
     /**
      * Resets the underlying InputStream if this isn't the first attempt to
      * write out the request, otherwise simply delegates to
-     * InputStreamRequestEntity to write out the data.
+     * InputStreamRequestEntity to write out the data. Content which can be
+     * written directly, such as a file region, is written straight from its
+     * source instead, and left open so that it can be reset and written again.
      * <p>
      * If an error is encountered the first time we try to write the request
      * entity, we remember the original exception, and report that as the root
@@ -137,7 +140,11 @@ class RepeatableInputStreamRequestEntity extends BasicHttpEntity {
             if (!firstAttempt && isRepeatable()) content.reset();
 
             firstAttempt = false;
-            inputStreamRequestEntity.writeTo(output);
+            if (content instanceof DirectlyWritable && ((DirectlyWritable)content).isDirectlyWritable()) {
+                ((DirectlyWritable)content).writeTo(output);
+            } else {
+                inputStreamRequestEntity.writeTo(output);
+            }
         } catch (IOException ioe) {
             if (originalException == null) originalException = ioe;
             throw originalException;
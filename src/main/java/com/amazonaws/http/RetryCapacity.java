@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token bucket shared by all the requests of a client, which limits how many
+ * retries the client can make while a service is failing.
+ * <p>
+ * Each retry consumes tokens, and each successful request returns some, so a
+ * client keeps retrying occasional errors but stops adding retries to the
+ * load of a service which is failing most requests. Once the bucket is empty,
+ * failed requests are returned to the caller without being retried until
+ * enough requests succeed again.
+ */
+class RetryCapacity {
+
+    /** Tokens consumed by retrying a throttling or server error */
+    static final int RETRY_COST = 5;
+
+    /** Tokens consumed by retrying a connection error or timeout */
+    static final int IO_RETRY_COST = 10;
+
+    /** Tokens returned by a request which succeeds on its first attempt */
+    static final int NO_RETRY_INCREMENT = 1;
+
+    private final int maxCapacity;
+    private final AtomicInteger capacity;
+
+    /**
+     * @param maxCapacity
+     *            The maximum (and initial) number of tokens in the bucket.
+     */
+    RetryCapacity(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        this.capacity = new AtomicInteger(maxCapacity);
+    }
+
+    /**
+     * Returns the number of tokens consumed by retrying the specified error.
+     */
+    static int costOf(Exception exception) {
+        return (exception instanceof IOException) ? IO_RETRY_COST : RETRY_COST;
+    }
+
+    /**
+     * Consumes the specified number of tokens, if that many are available.
+     *
+     * @return True if the tokens were consumed, false if there weren't enough
+     *         and the retry shouldn't be made.
+     */
+    boolean acquire(int cost) {
+        while (true) {
+            int current = capacity.get();
+            if (current < cost) return false;
+            if (capacity.compareAndSet(current, current - cost)) return true;
+        }
+    }
+
+    /**
+     * Returns tokens to the bucket after a request succeeds.
+     *
+     * @param retryCost
+     *            The number of tokens consumed by the request's last retry,
+     *            or zero if it succeeded on its first attempt.
+     */
+    void release(int retryCost) {
+        int amount = (retryCost > 0) ? retryCost : NO_RETRY_INCREMENT;
+        while (true) {
+            int current = capacity.get();
+            if (current >= maxCapacity) return;
+            if (capacity.compareAndSet(current, Math.min(maxCapacity, current + amount))) return;
+        }
+    }
+
+    /**
+     * Returns the number of tokens currently available.
+     */
+    int getAvailableCapacity() {
+        return capacity.get();
+    }
+}
@@ -20,6 +20,7 @@ import java.util.Map;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +44,9 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** The StAX unmarshaller to use when handling the response */
     private Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller;
 
+    /** Whether to parse responses with an XMLStreamReader */
+    private final boolean useXmlStreamReader;
+
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
@@ -60,7 +64,25 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
      *            The StAX unmarshaller to use on the response.
      */
     public StaxResponseHandler(Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller) {
+        this(responseUnmarshaller, false);
+    }
+
+    /**
+     * Constructs a new response handler that will use the specified StAX
+     * unmarshaller to unmarshall the service response, reading it with either
+     * an XMLStreamReader or an XMLEventReader.
+     *
+     * @param responseUnmarshaller
+     *            The StAX unmarshaller to use on the response.
+     * @param useXmlStreamReader
+     *            True to read the response with an XMLStreamReader, which
+     *            allocates less, rather than an XMLEventReader.
+     *
+     * @see com.amazonaws.ClientConfiguration#setUseXmlStreamReader(boolean)
+     */
+    public StaxResponseHandler(Unmarshaller<T, StaxUnmarshallerContext> responseUnmarshaller, boolean useXmlStreamReader) {
         this.responseUnmarshaller = responseUnmarshaller;
+        this.useXmlStreamReader = useXmlStreamReader;
 
         /*
          * Even if the invoked operation just returns null, we still need an
@@ -82,10 +104,19 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         log.trace("Parsing service response XML");
         InputStream content = response.getContent();
         if (content == null) content = new ByteArrayInputStream("<eof/>".getBytes());
-        XMLEventReader eventReader = xmlInputFactory.createXMLEventReader(content);
+        XMLEventReader eventReader = null;
+        XMLStreamReader streamReader = null;
         try {
+            StaxUnmarshallerContext unmarshallerContext;
+            if (useXmlStreamReader) {
+                streamReader = xmlInputFactory.createXMLStreamReader(content);
+                unmarshallerContext = new StaxUnmarshallerContext(streamReader, response.getHeaders());
+            } else {
+                eventReader = xmlInputFactory.createXMLEventReader(content);
+                unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
+            }
+
             AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
-            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
             unmarshallerContext.registerMetadataExpression("ResponseMetadata/RequestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             unmarshallerContext.registerMetadataExpression("requestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             registerAdditionalMetadataExpressions(unmarshallerContext);
@@ -99,7 +130,8 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             log.trace("Done parsing service response");
             return awsResponse;
         } finally {
-            try {eventReader.close();} catch (Exception e) {}
+            try {if (eventReader != null) eventReader.close();} catch (Exception e) {}
+            try {if (streamReader != null) streamReader.close();} catch (Exception e) {}
         }
     }
 
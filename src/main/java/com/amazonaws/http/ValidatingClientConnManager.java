@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.params.ConnPerRoute;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.tsccm.BasicPoolEntry;
+import org.apache.http.impl.conn.tsccm.ConnPoolByRoute;
+import org.apache.http.impl.conn.tsccm.RouteSpecificPool;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.impl.conn.tsccm.WaitingThreadAborter;
+
+/**
+ * Connection manager which pools connections by route, with separate limits
+ * for each route and for the whole pool, and which checks pooled connections
+ * that have been idle for a while before leasing them.
+ * <p>
+ * HttpClient's stale connection check is disabled because it costs a read
+ * with a timeout on every request. Instead, a connection which has been idle
+ * for longer than the validate-after-inactivity period is checked when it's
+ * leased, and replaced with a new one if the server has closed it, so requests
+ * after an idle period don't fail on connections the server dropped.
+ * Connections are also discarded once they reach their time to live.
+ */
+class ValidatingClientConnManager extends ThreadSafeClientConnManager {
+
+    private final ValidatingConnPool validatingPool;
+
+    /**
+     * @param schemeRegistry
+     *            The schemes the connections can be made with.
+     * @param connectionTTL
+     *            The maximum time, in milliseconds, a connection is kept in
+     *            the pool, or a value of zero or less to keep connections
+     *            until they're closed for being idle.
+     * @param validateAfterInactivity
+     *            How long, in milliseconds, a pooled connection can be idle
+     *            before it's checked for staleness when it's leased, or a
+     *            value of zero or less to never check.
+     */
+    ValidatingClientConnManager(SchemeRegistry schemeRegistry, long connectionTTL, int validateAfterInactivity) {
+        super(schemeRegistry, connectionTTL, TimeUnit.MILLISECONDS);
+        this.validatingPool = (ValidatingConnPool)pool;
+        this.validatingPool.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    @Override
+    protected ConnPoolByRoute createConnectionPool(long connTTL, TimeUnit connTTLTimeUnit) {
+        // The total limit is set by ConnectionManagerFactory once the pool is created
+        return new ValidatingConnPool(connOperator, connPerRoute, 20, connTTL, connTTLTimeUnit);
+    }
+
+    /**
+     * Returns the current state of the connections to each route the pool
+     * has connected to.
+     *
+     * @return The pool statistics, keyed by route (e.g.
+     *         "https://dynamodb.us-east-1.amazonaws.com:443").
+     */
+    Map<String, ConnectionPoolStats> getStats() {
+        return validatingPool.getStats();
+    }
+
+    /**
+     * Connection pool which validates idle connections before leasing them and
+     * tracks how many connections to each route are available or leased.
+     */
+    private static final class ValidatingConnPool extends ConnPoolByRoute {
+        private final long connTTL;
+        private final TimeUnit connTTLTimeUnit;
+
+        /* Set after construction, since pools are created by the superclass constructor */
+        volatile int validateAfterInactivity;
+
+        ValidatingConnPool(ClientConnectionOperator operator, ConnPerRoute connPerRoute,
+                int maxTotalConnections, long connTTL, TimeUnit connTTLTimeUnit) {
+            super(operator, connPerRoute, maxTotalConnections, connTTL, connTTLTimeUnit);
+            this.connTTL = connTTL;
+            this.connTTLTimeUnit = connTTLTimeUnit;
+        }
+
+        @Override
+        protected RouteSpecificPool newRouteSpecificPool(HttpRoute route) {
+            return new ObservableRoutePool(route, connPerRoute);
+        }
+
+        @Override
+        protected BasicPoolEntry createEntry(RouteSpecificPool rospl, ClientConnectionOperator op) {
+            ValidatingPoolEntry entry = new ValidatingPoolEntry(op, rospl.getRoute(), connTTL, connTTLTimeUnit);
+            getLock().lock();
+            try {
+                rospl.createdEntry(entry);
+                numConnections++;
+                leasedConnections.add(entry);
+            } finally {
+                getLock().unlock();
+            }
+            return entry;
+        }
+
+        /**
+         * Leases an entry as the superclass does, then checks it for
+         * staleness once it's been taken out of the pool. The superclass
+         * looks for free entries while holding the pool lock, which every
+         * thread leasing a connection to any route waits on, so the check,
+         * which reads from the connection's socket, is made only after the
+         * lock has been released. A stale entry is dropped and another one
+         * leased in its place, within the time left of the original timeout.
+         */
+        @Override
+        protected BasicPoolEntry getEntryBlocking(HttpRoute route, Object state, long timeout, TimeUnit tunit,
+                WaitingThreadAborter aborter) throws ConnectionPoolTimeoutException, InterruptedException {
+            long deadline = timeout > 0 ? System.currentTimeMillis() + tunit.toMillis(timeout) : 0;
+            while (true) {
+                BasicPoolEntry entry = super.getEntryBlocking(route, state, timeout, tunit, aborter);
+                if (!isStale(entry)) return entry;
+
+                AmazonHttpClient.log.debug("Discarding stale connection to " + route);
+                getLock().lock();
+                try {
+                    leasedConnections.remove(entry);
+                    RouteSpecificPool rospl = getRoutePool(route, true);
+                    rospl.dropEntry();
+                    numConnections--;
+                    notifyWaitingThread(rospl);
+                } finally {
+                    getLock().unlock();
+                }
+                ((ValidatingPoolEntry)entry).close();
+
+                if (deadline > 0) {
+                    timeout = Math.max(deadline - System.currentTimeMillis(), 1);
+                    tunit = TimeUnit.MILLISECONDS;
+                }
+            }
+        }
+
+        /**
+         * Checks whether a connection has been idle long enough to need
+         * validating and, if so, whether the server has closed it. Must be
+         * called without holding the pool lock, since the check reads from
+         * the connection's socket.
+         */
+        private boolean isStale(BasicPoolEntry entry) {
+            int inactivity = validateAfterInactivity;
+            if (inactivity <= 0 || !(entry instanceof ValidatingPoolEntry)) return false;
+            if (System.currentTimeMillis() - entry.getUpdated() <= inactivity) return false;
+
+            return ((ValidatingPoolEntry)entry).isStale();
+        }
+
+        Map<String, ConnectionPoolStats> getStats() {
+            Map<String, ConnectionPoolStats> stats = new LinkedHashMap<String, ConnectionPoolStats>();
+            getLock().lock();
+            try {
+                for (Map.Entry<HttpRoute, RouteSpecificPool> entry : routeToPool.entrySet()) {
+                    ObservableRoutePool routePool = (ObservableRoutePool)entry.getValue();
+                    String route = entry.getKey().getTargetHost().toURI();
+                    stats.put(route, new ConnectionPoolStats(route,
+                            routePool.getEntryCount() - routePool.getAvailableCount(),
+                            routePool.getAvailableCount(),
+                            routePool.getPendingCount(),
+                            routePool.getMaxEntries()));
+                }
+            } finally {
+                getLock().unlock();
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Route pool which exposes its number of available connections and
+     * waiting threads.
+     */
+    private static final class ObservableRoutePool extends RouteSpecificPool {
+        ObservableRoutePool(HttpRoute route, ConnPerRoute connPerRoute) {
+            super(route, connPerRoute);
+        }
+
+        int getAvailableCount() {
+            return freeEntries.size();
+        }
+
+        int getPendingCount() {
+            return waitingThreads.size();
+        }
+    }
+
+    /**
+     * Pool entry which can check whether its connection is stale.
+     */
+    private static final class ValidatingPoolEntry extends BasicPoolEntry {
+        ValidatingPoolEntry(ClientConnectionOperator op, HttpRoute route, long connTTL, TimeUnit timeunit) {
+            super(op, route, connTTL, timeunit);
+        }
+
+        boolean isStale() {
+            return connection.isOpen() && connection.isStale();
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                AmazonHttpClient.log.debug("Unable to close stale connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+/**
+ * Incremental parser for a single HTTP/1.x response, fed with whatever bytes
+ * are available each time the connection is readable.
+ */
+class HttpResponseParser {
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private enum State {
+        STATUS_LINE, HEADERS, FIXED_BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, BODY_UNTIL_CLOSE, DONE
+    }
+
+    private final boolean isHeadRequest;
+
+    private State state = State.STATUS_LINE;
+    private final StringBuilder line = new StringBuilder();
+    private boolean bytesReceived;
+
+    private BasicHttpResponse response;
+    private ByteArrayOutputStream body;
+    private long remaining;
+    private boolean keepAlive;
+
+    /**
+     * @param isHeadRequest
+     *            True if the response is to a HEAD request, which has no body
+     *            regardless of its headers.
+     */
+    HttpResponseParser(boolean isHeadRequest) {
+        this.isHeadRequest = isHeadRequest;
+    }
+
+    /**
+     * Consumes as much of the given buffer as belongs to this response.
+     *
+     * @return True once the complete response has been parsed.
+     */
+    boolean consume(ByteBuffer buffer) throws IOException {
+        if (buffer.hasRemaining()) bytesReceived = true;
+
+        while (buffer.hasRemaining() && state != State.DONE) {
+            switch (state) {
+            case STATUS_LINE:
+                if (readLine(buffer)) parseStatusLine();
+                break;
+            case HEADERS:
+                if (readLine(buffer)) parseHeaderLine();
+                break;
+            case FIXED_BODY:
+            case CHUNK_DATA:
+                int count = (int)Math.min(remaining, buffer.remaining());
+                body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+                buffer.position(buffer.position() + count);
+                remaining -= count;
+                if (remaining == 0) state = (state == State.FIXED_BODY) ? State.DONE : State.CHUNK_END;
+                break;
+            case CHUNK_SIZE:
+                if (readLine(buffer)) parseChunkSize();
+                break;
+            case CHUNK_END:
+                if (readLine(buffer)) {
+                    if (line.length() != 0) throw new IOException("Malformed chunk: " + line);
+                    state = State.CHUNK_SIZE;
+                }
+                break;
+            case TRAILERS:
+                if (readLine(buffer)) {
+                    if (line.length() == 0) state = State.DONE;
+                    line.setLength(0);
+                }
+                break;
+            case BODY_UNTIL_CLOSE:
+                body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+                break;
+            default:
+                break;
+            }
+        }
+        return state == State.DONE;
+    }
+
+    /**
+     * Called when the server closes the connection.
+     *
+     * @return True if the response is complete, i.e. its body is delimited by
+     *         the end of the connection.
+     *
+     * @throws IOException
+     *             If the connection was closed before the response completed.
+     */
+    boolean endOfStream() throws IOException {
+        if (state == State.BODY_UNTIL_CLOSE) {
+            state = State.DONE;
+            return true;
+        }
+        if (state == State.DONE) return true;
+
+        if (!bytesReceived) throw new IOException("The target server failed to respond");
+        throw new IOException("Connection closed before the response was completed");
+    }
+
+    /**
+     * Returns true if the connection can be reused for another request after
+     * this response.
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Returns the parsed response, with its content buffered in memory.
+     */
+    HttpResponse getResponse() {
+        if (body != null) {
+            response.setEntity(new ByteArrayEntity(body.toByteArray()));
+        }
+        return response;
+    }
+
+    /**
+     * Appends bytes up to the end of the current line, which isn't included.
+     *
+     * @return True if the end of the line was reached.
+     */
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            char c = (char)(buffer.get() & 0xFF);
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') line.setLength(length - 1);
+                return true;
+            }
+            if (line.length() >= MAX_LINE_LENGTH) throw new IOException("Response line too long");
+            line.append(c);
+        }
+        return false;
+    }
+
+    private void parseStatusLine() throws IOException {
+        String statusLine = line.toString();
+        line.setLength(0);
+
+        int firstSpace = statusLine.indexOf(' ');
+        if (firstSpace == -1 || !statusLine.startsWith("HTTP/")) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        int secondSpace = statusLine.indexOf(' ', firstSpace + 1);
+        if (secondSpace == -1) secondSpace = statusLine.length();
+
+        ProtocolVersion version = statusLine.startsWith("HTTP/1.0") ? HttpVersion.HTTP_1_0 : HttpVersion.HTTP_1_1;
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(statusLine.substring(firstSpace + 1, secondSpace));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        String reasonPhrase = (secondSpace < statusLine.length()) ? statusLine.substring(secondSpace + 1) : "";
+
+        response = new BasicHttpResponse(new BasicStatusLine(version, statusCode, reasonPhrase));
+        keepAlive = (version == HttpVersion.HTTP_1_1);
+        state = State.HEADERS;
+    }
+
+    private void parseHeaderLine() throws IOException {
+        if (line.length() == 0) {
+            headersComplete();
+            return;
+        }
+
+        String header = line.toString();
+        line.setLength(0);
+
+        int colon = header.indexOf(':');
+        if (colon <= 0) throw new IOException("Invalid header: " + header);
+        String name = header.substring(0, colon).trim();
+        String value = header.substring(colon + 1).trim();
+        response.addHeader(name, value);
+
+        if (name.equalsIgnoreCase("Connection")) {
+            if (value.equalsIgnoreCase("close")) keepAlive = false;
+            else if (value.equalsIgnoreCase("keep-alive")) keepAlive = true;
+        }
+    }
+
+    private void headersComplete() throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+
+        // Interim responses (e.g. 100 Continue) are followed by the real one
+        if (statusCode / 100 == 1) {
+            state = State.STATUS_LINE;
+            return;
+        }
+
+        if (isHeadRequest || statusCode == 204 || statusCode == 304) {
+            state = State.DONE;
+            return;
+        }
+
+        body = new ByteArrayOutputStream();
+        if (response.getFirstHeader("Transfer-Encoding") != null
+                && !"identity".equalsIgnoreCase(response.getFirstHeader("Transfer-Encoding").getValue())) {
+            state = State.CHUNK_SIZE;
+        } else if (response.getFirstHeader("Content-Length") != null) {
+            try {
+                remaining = Long.parseLong(response.getFirstHeader("Content-Length").getValue());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + response.getFirstHeader("Content-Length").getValue());
+            }
+            state = (remaining == 0) ? State.DONE : State.FIXED_BODY;
+        } else {
+            keepAlive = false;
+            state = State.BODY_UNTIL_CLOSE;
+        }
+    }
+
+    private void parseChunkSize() throws IOException {
+        String chunkSize = line.toString();
+        line.setLength(0);
+
+        int extension = chunkSize.indexOf(';');
+        if (extension != -1) chunkSize = chunkSize.substring(0, extension);
+        try {
+            remaining = Long.parseLong(chunkSize.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + chunkSize);
+        }
+        state = (remaining == 0) ? State.TRAILERS : State.CHUNK_DATA;
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.nio;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+
+import com.amazonaws.http.nio.NioHttpTransport.Exchange;
+import com.amazonaws.http.nio.NioHttpTransport.Route;
+
+/**
+ * A single non-blocking HTTP connection, driven by the transport's event loop.
+ * A connection carries one exchange (request and response) at a time, and
+ * goes back to its route's pool of idle connections between exchanges if the
+ * server allows it to be kept alive.
+ * <p>
+ * All methods must be called on the event loop thread.
+ */
+class NioConnection {
+
+    private enum State {
+        CONNECTING, HANDSHAKING, WRITING, READING, IDLE, CLOSED
+    }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final NioHttpTransport transport;
+    private final Route route;
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final boolean verifyHostname;
+
+    /* Encrypted bytes read from and waiting to be written to the channel */
+    private final ByteBuffer netIn;
+    private final ByteBuffer netOut;
+
+    /* Plaintext bytes read from the connection */
+    private final ByteBuffer appIn;
+
+    private SelectionKey key;
+    private State state = State.CONNECTING;
+    private long lastActivity = System.currentTimeMillis();
+
+    private Exchange exchange;
+    private ByteBuffer requestBuffer;
+    private HttpResponseParser parser;
+
+    /**
+     * @param engine
+     *            The SSL engine to secure the connection with, or null for a
+     *            plain connection.
+     */
+    NioConnection(NioHttpTransport transport, Route route, SocketChannel channel,
+            SSLEngine engine, boolean verifyHostname) {
+        this.transport = transport;
+        this.route = route;
+        this.channel = channel;
+        this.engine = engine;
+        this.verifyHostname = verifyHostname;
+
+        if (engine != null) {
+            netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            netOut.flip();
+            appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        } else {
+            netIn = null;
+            netOut = null;
+            appIn = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    Route getRoute() {
+        return route;
+    }
+
+    void setSelectionKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    /**
+     * Starts sending the specified exchange. If the connection is still being
+     * established, the request is sent once it's ready.
+     */
+    void start(Exchange exchange) throws IOException {
+        this.exchange = exchange;
+        this.requestBuffer = ByteBuffer.wrap(exchange.requestBytes);
+        this.parser = new HttpResponseParser(exchange.isHeadRequest);
+        this.lastActivity = System.currentTimeMillis();
+
+        if (state == State.IDLE) {
+            state = State.WRITING;
+            write();
+        }
+    }
+
+    /**
+     * Handles the I/O operations the selector reported as ready.
+     */
+    void handleEvent() throws IOException {
+        lastActivity = System.currentTimeMillis();
+
+        switch (state) {
+        case CONNECTING:
+            if (channel.finishConnect()) connected();
+            break;
+        case HANDSHAKING:
+            handshake();
+            break;
+        case WRITING:
+            write();
+            break;
+        case READING:
+            read();
+            break;
+        case IDLE:
+            readWhileIdle();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Called once the TCP connection is established.
+     */
+    void connected() throws IOException {
+        lastActivity = System.currentTimeMillis();
+        if (engine != null) {
+            state = State.HANDSHAKING;
+            engine.beginHandshake();
+            handshake();
+        } else {
+            state = State.WRITING;
+            write();
+        }
+    }
+
+    /**
+     * Closes connections which have been waiting too long for the server (or
+     * have been idle for too long).
+     */
+    void checkTimeout(long now, int connectionTimeout, int socketTimeout, long idleTimeout) {
+        long elapsed = now - lastActivity;
+        switch (state) {
+        case CONNECTING:
+            if (connectionTimeout > 0 && elapsed > connectionTimeout) {
+                fail(new SocketTimeoutException("Connect to " + route.host + ":" + route.port + " timed out"));
+            }
+            break;
+        case HANDSHAKING:
+        case WRITING:
+        case READING:
+            if (socketTimeout > 0 && elapsed > socketTimeout) {
+                fail(new SocketTimeoutException("Read timed out"));
+            }
+            break;
+        case IDLE:
+            if (elapsed > idleTimeout) close();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Closes the connection and fails the current exchange, if any.
+     */
+    void fail(IOException e) {
+        Exchange failedExchange = exchange;
+        exchange = null;
+        close();
+        if (failedExchange != null) failedExchange.callback.failed(e);
+    }
+
+    void close() {
+        if (state == State.CLOSED) return;
+        state = State.CLOSED;
+
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            NioHttpTransport.log.debug("Unable to close connection cleanly", e);
+        }
+        transport.connectionClosed(this);
+    }
+
+    private void handshake() throws IOException {
+        while (true) {
+            if (!flushNetOut()) {
+                setInterest(SelectionKey.OP_WRITE);
+                return;
+            }
+
+            switch (engine.getHandshakeStatus()) {
+            case NEED_TASK:
+                runDelegatedTasks();
+                break;
+            case NEED_WRAP:
+                netOut.compact();
+                SSLEngineResult wrapResult = engine.wrap(EMPTY, netOut);
+                netOut.flip();
+                if (wrapResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("Connection closed during handshake");
+                }
+                break;
+            case NEED_UNWRAP:
+                netIn.flip();
+                SSLEngineResult unwrapResult = engine.unwrap(netIn, appIn);
+                netIn.compact();
+                if (unwrapResult.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    int count = channel.read(netIn);
+                    if (count == -1) throw new SSLException("Connection closed during handshake");
+                    if (count == 0) {
+                        setInterest(SelectionKey.OP_READ);
+                        return;
+                    }
+                } else if (unwrapResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("Connection closed during handshake");
+                }
+                break;
+            default:
+                handshakeComplete();
+                return;
+            }
+        }
+    }
+
+    private void handshakeComplete() throws IOException {
+        if (verifyHostname) {
+            Certificate[] certificates = engine.getSession().getPeerCertificates();
+            SSLSocketFactory.STRICT_HOSTNAME_VERIFIER.verify(route.host, (X509Certificate)certificates[0]);
+        }
+
+        state = State.WRITING;
+        write();
+    }
+
+    private void write() throws IOException {
+        if (engine == null) {
+            channel.write(requestBuffer);
+            if (requestBuffer.hasRemaining()) {
+                setInterest(SelectionKey.OP_WRITE);
+                return;
+            }
+        } else {
+            while (true) {
+                if (!flushNetOut()) {
+                    setInterest(SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (!requestBuffer.hasRemaining()) break;
+
+                netOut.compact();
+                SSLEngineResult result = engine.wrap(requestBuffer, netOut);
+                netOut.flip();
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("Connection closed while sending request");
+                }
+            }
+        }
+
+        requestBuffer = null;
+        state = State.READING;
+        setInterest(SelectionKey.OP_READ);
+    }
+
+    private void read() throws IOException {
+        int count;
+        boolean complete;
+        if (engine == null) {
+            count = channel.read(appIn);
+            complete = consumeAppIn();
+        } else {
+            count = channel.read(netIn);
+            complete = unwrapNetIn();
+        }
+
+        if (complete) {
+            responseComplete(parser.isKeepAlive() && count != -1);
+        } else if (count == -1) {
+            // Throws if the response isn't delimited by the end of the stream
+            parser.endOfStream();
+            responseComplete(false);
+        }
+    }
+
+    /**
+     * Servers don't send anything on idle connections unless they're closing
+     * them, so any activity means the connection can't be reused.
+     */
+    private void readWhileIdle() throws IOException {
+        int count;
+        if (engine == null) {
+            count = channel.read(appIn);
+        } else {
+            count = channel.read(netIn);
+            netIn.flip();
+            SSLEngineResult result = engine.unwrap(netIn, appIn);
+            netIn.compact();
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) count = -1;
+            if (engine.getHandshakeStatus() == HandshakeStatus.NEED_TASK) runDelegatedTasks();
+        }
+
+        if (count == -1 || appIn.position() > 0) close();
+    }
+
+    /**
+     * Decrypts whatever complete records have been read and feeds them to the
+     * response parser.
+     *
+     * @return True if the response is complete.
+     */
+    private boolean unwrapNetIn() throws IOException {
+        netIn.flip();
+        try {
+            while (true) {
+                SSLEngineResult result = engine.unwrap(netIn, appIn);
+                if (consumeAppIn()) return true;
+
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW
+                        || result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    return false;
+                }
+                if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                    runDelegatedTasks();
+                }
+                if (result.getStatus() == SSLEngineResult.Status.OK
+                        && result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                    return false;
+                }
+                if (!netIn.hasRemaining()) return false;
+            }
+        } finally {
+            netIn.compact();
+        }
+    }
+
+    private boolean consumeAppIn() throws IOException {
+        appIn.flip();
+        try {
+            return parser.consume(appIn);
+        } finally {
+            appIn.compact();
+        }
+    }
+
+    private void responseComplete(boolean keepAlive) {
+        HttpResponse response = parser.getResponse();
+        Exchange completedExchange = exchange;
+        exchange = null;
+        parser = null;
+
+        // Anything left over means the server sent more than one response
+        boolean leftover = appIn.position() > 0 || (netIn != null && netIn.position() > 0);
+        if (keepAlive && !leftover) {
+            state = State.IDLE;
+            lastActivity = System.currentTimeMillis();
+            setInterest(SelectionKey.OP_READ);
+            transport.release(this);
+        } else {
+            close();
+        }
+
+        completedExchange.callback.completed(response);
+    }
+
+    /**
+     * Writes as much pending encrypted data as the channel accepts.
+     *
+     * @return True if all the pending data was written.
+     */
+    private boolean flushNetOut() throws IOException {
+        while (netOut.hasRemaining()) {
+            if (channel.write(netOut) == 0) return false;
+        }
+        return true;
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private void setInterest(int ops) {
+        if (key != null && key.isValid()) key.interestOps(ops);
+    }
+}
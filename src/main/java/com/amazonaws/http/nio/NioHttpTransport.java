@@ -0,0 +1,555 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * Non-blocking HTTP/1.1 transport. A single event loop thread multiplexes all
+ * the transport's connections with a {@link Selector}, so the number of
+ * requests in flight isn't limited by the number of threads.
+ * <p>
+ * Connections are pooled per route (scheme, host and port), up to the
+ * client's maximum number of connections for each route; requests beyond that
+ * wait for a connection to be released, without occupying a thread. Request
+ * and response content is buffered in memory, so this transport is meant for
+ * services whose payloads are small (e.g. Amazon DynamoDB).
+ */
+public class NioHttpTransport {
+
+    static final Log log = LogFactory.getLog(NioHttpTransport.class);
+
+    /** Idle connections are closed after this many milliseconds. */
+    private static final long IDLE_CONNECTION_TIMEOUT = 60 * 1000;
+
+    /** The longest the event loop waits before checking for timeouts. */
+    private static final long TIMEOUT_CHECK_INTERVAL = 250;
+
+    private static final String HEADER_ENCODING = "ISO-8859-1";
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Selector selector;
+    private final Thread eventLoop;
+
+    /** Tasks submitted by other threads, run by the event loop */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /* The following are only accessed by the event loop thread */
+    private final PriorityQueue<ScheduledTask> timers = new PriorityQueue<ScheduledTask>();
+    private final Map<String, Route> routes = new HashMap<String, Route>();
+    private long lastTimeoutCheck;
+
+    private final SSLContext sslContext;
+    private final boolean verifyHostnames;
+    private final String userAgent;
+    private final int maxConnectionsPerRoute;
+    private final int connectionTimeout;
+    private final int socketTimeout;
+    private final int socketSendBufferSizeHint;
+    private final int socketReceiveBufferSizeHint;
+
+    private volatile boolean shutdown;
+
+    /** Set once the event loop has closed everything down */
+    private volatile boolean terminated;
+
+    /**
+     * Creates a transport configured with the connection limits, timeouts
+     * and user agent of the specified client configuration, and starts its
+     * event loop thread.
+     *
+     * @param config
+     *            The client configuration.
+     */
+    public NioHttpTransport(ClientConfiguration config) {
+        this.userAgent = config.getUserAgent();
+        this.maxConnectionsPerRoute = config.getMaxConnections();
+        this.connectionTimeout = config.getConnectionTimeout();
+        this.socketTimeout = config.getSocketTimeout();
+        this.socketSendBufferSizeHint = config.getSocketBufferSizeHints()[0];
+        this.socketReceiveBufferSizeHint = config.getSocketBufferSizeHints()[1];
+
+        try {
+            if (System.getProperty("com.amazonaws.sdk.disableCertChecking") != null) {
+                sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, new TrustManager[] { new TrustingX509TrustManager() }, null);
+                verifyHostnames = false;
+            } else {
+                sslContext = SSLContext.getDefault();
+                verifyHostnames = true;
+            }
+            selector = Selector.open();
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to initialize non-blocking transport: " + e.getMessage(), e);
+        }
+
+        eventLoop = new Thread(new Runnable() {
+            public void run() {
+                runEventLoop();
+            }
+        }, "aws-sdk-nio-" + threadCount.incrementAndGet());
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    /**
+     * Sends the specified request, and notifies the callback when the
+     * response has been received. The request's content is buffered in memory
+     * by the calling thread before this method returns.
+     *
+     * @param request
+     *            The request to send.
+     * @param callback
+     *            The callback to notify with the response. If the request
+     *            can't be sent at all, it may be notified on the calling
+     *            thread.
+     */
+    public void execute(HttpRequestBase request, ResponseCallback callback) {
+        final Exchange exchange;
+        try {
+            exchange = createExchange(request, callback);
+        } catch (IOException e) {
+            callback.failed(e);
+            return;
+        }
+
+        submit(new Runnable() {
+            public void run() {
+                dispatch(exchange);
+            }
+        });
+    }
+
+    /**
+     * Runs the specified task on the event loop thread after a delay, without
+     * tying up any other thread in the meantime. The task must not block.
+     * Tasks still waiting when the transport is shut down are run straight
+     * away.
+     *
+     * @param task
+     *            The task to run.
+     * @param delayMillis
+     *            The delay, in milliseconds.
+     */
+    public void schedule(Runnable task, long delayMillis) {
+        final ScheduledTask scheduledTask = new ScheduledTask(task, System.currentTimeMillis() + delayMillis);
+        submit(new Runnable() {
+            public void run() {
+                if (terminated) {
+                    scheduledTask.task.run();
+                } else {
+                    timers.add(scheduledTask);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shuts down the event loop, closing all connections and failing any
+     * requests that haven't completed.
+     */
+    public void shutdown() {
+        shutdown = true;
+        selector.wakeup();
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        if (terminated) {
+            // The event loop has already finished, so run the task here
+            runTasks();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    private Exchange createExchange(HttpRequestBase request, ResponseCallback callback) throws IOException {
+        URI uri = request.getURI();
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = (uri.getPort() == -1) ? (secure ? 443 : 80) : uri.getPort();
+
+        byte[] body = null;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest)request).getEntity();
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            if (entity != null) entity.writeTo(content);
+            body = content.toByteArray();
+        }
+
+        String target = uri.getRawPath();
+        if (target == null || target.length() == 0) target = "/";
+        if (uri.getRawQuery() != null) target += "?" + uri.getRawQuery();
+
+        StringBuilder head = new StringBuilder(512);
+        head.append(request.getMethod()).append(' ').append(target).append(" HTTP/1.1\r\n");
+        for (Header header : request.getAllHeaders()) {
+            head.append(header.getName()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (request.getFirstHeader("Host") == null) {
+            head.append("Host: ").append(uri.getHost());
+            if (uri.getPort() != -1) head.append(':').append(port);
+            head.append("\r\n");
+        }
+        if (request.getFirstHeader("User-Agent") == null && userAgent != null) {
+            head.append("User-Agent: ").append(userAgent).append("\r\n");
+        }
+        if (body != null) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("\r\n");
+
+        byte[] headBytes = head.toString().getBytes(HEADER_ENCODING);
+        byte[] requestBytes = headBytes;
+        if (body != null && body.length > 0) {
+            requestBytes = new byte[headBytes.length + body.length];
+            System.arraycopy(headBytes, 0, requestBytes, 0, headBytes.length);
+            System.arraycopy(body, 0, requestBytes, headBytes.length, body.length);
+        }
+
+        return new Exchange(uri.getHost(), port, secure, requestBytes,
+                "HEAD".equals(request.getMethod()), callback);
+    }
+
+    private void runEventLoop() {
+        try {
+            while (!shutdown) {
+                long timeout = TIMEOUT_CHECK_INTERVAL;
+                ScheduledTask nextTimer = timers.peek();
+                if (nextTimer != null) {
+                    timeout = Math.max(1, Math.min(timeout, nextTimer.time - System.currentTimeMillis()));
+                }
+                selector.select(timeout);
+
+                runTasks();
+                handleSelectedKeys();
+                runTimers(false);
+                checkTimeouts();
+            }
+        } catch (Throwable t) {
+            log.error("Non-blocking transport event loop failed", t);
+        } finally {
+            shutdown = true;
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Non-blocking transport task failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void handleSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+
+            NioConnection connection = (NioConnection)key.attachment();
+            try {
+                connection.handleEvent();
+            } catch (IOException e) {
+                connection.fail(e);
+            } catch (RuntimeException e) {
+                IOException failure = new IOException("Unexpected error on connection: " + e.getMessage());
+                failure.initCause(e);
+                connection.fail(failure);
+            }
+        }
+    }
+
+    private void runTimers(boolean all) {
+        long now = System.currentTimeMillis();
+        while (!timers.isEmpty() && (all || timers.peek().time <= now)) {
+            try {
+                timers.poll().task.run();
+            } catch (RuntimeException e) {
+                log.warn("Non-blocking transport timer failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        if (now - lastTimeoutCheck < TIMEOUT_CHECK_INTERVAL) return;
+        lastTimeoutCheck = now;
+
+        for (SelectionKey key : new ArrayList<SelectionKey>(selector.keys())) {
+            NioConnection connection = (NioConnection)key.attachment();
+            if (connection != null) {
+                connection.checkTimeout(now, connectionTimeout, socketTimeout, IDLE_CONNECTION_TIMEOUT);
+            }
+        }
+    }
+
+    /**
+     * Sends an exchange on an idle connection of its route, or a new one if
+     * the route has capacity; otherwise queues it for the next connection to
+     * be released.
+     */
+    private void dispatch(Exchange exchange) {
+        if (shutdown) {
+            exchange.callback.failed(new IOException("Connection pool shut down"));
+            return;
+        }
+
+        Route route = routes.get(exchange.routeKey);
+        if (route == null) {
+            route = new Route(exchange.host, exchange.port, exchange.secure);
+            routes.put(exchange.routeKey, route);
+        }
+
+        while (!route.idleConnections.isEmpty()) {
+            NioConnection connection = route.idleConnections.removeFirst();
+            if (connection.isOpen()) {
+                startExchange(connection, exchange);
+                return;
+            }
+        }
+
+        if (route.openConnections < maxConnectionsPerRoute) {
+            openConnection(route, exchange);
+        } else {
+            route.pendingExchanges.add(exchange);
+        }
+    }
+
+    private void startExchange(NioConnection connection, Exchange exchange) {
+        try {
+            connection.start(exchange);
+        } catch (IOException e) {
+            connection.fail(e);
+        }
+    }
+
+    /**
+     * Opens a new connection for the route and starts the exchange on it. The
+     * route's host is looked up here, on the event loop, rather than by the
+     * thread submitting the request; it's only looked up when a connection is
+     * opened, and repeated lookups are answered from the JVM's address cache.
+     */
+    private void openConnection(Route route, Exchange exchange) {
+        SocketChannel channel = null;
+        NioConnection connection = null;
+        route.openConnections++;
+        try {
+            InetSocketAddress address = new InetSocketAddress(route.host, route.port);
+            if (address.isUnresolved()) throw new UnknownHostException(route.host);
+
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (socketSendBufferSizeHint > 0) channel.socket().setSendBufferSize(socketSendBufferSizeHint);
+            if (socketReceiveBufferSizeHint > 0) channel.socket().setReceiveBufferSize(socketReceiveBufferSizeHint);
+
+            SSLEngine engine = null;
+            if (route.secure) {
+                engine = sslContext.createSSLEngine(route.host, route.port);
+                engine.setUseClientMode(true);
+            }
+
+            connection = new NioConnection(this, route, channel, engine, verifyHostnames);
+            connection.start(exchange);
+            boolean connected = channel.connect(address);
+            connection.setSelectionKey(channel.register(selector,
+                    connected ? 0 : SelectionKey.OP_CONNECT, connection));
+            if (connected) connection.connected();
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.fail(e);
+            } else {
+                route.openConnections--;
+                try {
+                    if (channel != null) channel.close();
+                } catch (IOException closeException) {}
+                exchange.callback.failed(e);
+            }
+        }
+    }
+
+    /**
+     * Called by a connection when it has finished an exchange and can be
+     * reused.
+     */
+    void release(NioConnection connection) {
+        Route route = connection.getRoute();
+        Exchange pending = route.pendingExchanges.poll();
+        if (pending != null) {
+            startExchange(connection, pending);
+        } else {
+            route.idleConnections.addFirst(connection);
+        }
+    }
+
+    /**
+     * Called by a connection when it's closed, freeing up capacity for the
+     * route's pending exchanges.
+     */
+    void connectionClosed(NioConnection connection) {
+        Route route = connection.getRoute();
+        route.idleConnections.remove(connection);
+        route.openConnections--;
+
+        Exchange pending = route.pendingExchanges.poll();
+        if (pending != null) dispatch(pending);
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : new ArrayList<SelectionKey>(selector.keys())) {
+            NioConnection connection = (NioConnection)key.attachment();
+            if (connection != null) connection.fail(new IOException("Connection pool shut down"));
+        }
+
+        List<Exchange> pendingExchanges = new ArrayList<Exchange>();
+        for (Route route : routes.values()) {
+            pendingExchanges.addAll(route.pendingExchanges);
+            route.pendingExchanges.clear();
+        }
+        for (Exchange exchange : pendingExchanges) {
+            exchange.callback.failed(new IOException("Connection pool shut down"));
+        }
+
+        // Pending tasks and timers are run so nothing waits forever on them
+        terminated = true;
+        runTasks();
+        runTimers(true);
+        runTasks();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Unable to close selector cleanly", e);
+        }
+    }
+
+    /**
+     * The connections and queued exchanges of a single scheme, host and port.
+     */
+    static final class Route {
+        final String host;
+        final int port;
+        final boolean secure;
+
+        final LinkedList<NioConnection> idleConnections = new LinkedList<NioConnection>();
+        final Queue<Exchange> pendingExchanges = new LinkedList<Exchange>();
+        int openConnections;
+
+        Route(String host, int port, boolean secure) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+        }
+    }
+
+    /**
+     * A serialized request waiting to be sent, and the callback for its
+     * response.
+     */
+    static final class Exchange {
+        final String host;
+        final int port;
+        final boolean secure;
+        final String routeKey;
+        final byte[] requestBytes;
+        final boolean isHeadRequest;
+        final ResponseCallback callback;
+
+        Exchange(String host, int port, boolean secure,
+                byte[] requestBytes, boolean isHeadRequest, ResponseCallback callback) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+            this.routeKey = (secure ? "https://" : "http://") + host + ":" + port;
+            this.requestBytes = requestBytes;
+            this.isHeadRequest = isHeadRequest;
+            this.callback = callback;
+        }
+    }
+
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+        private static final AtomicLong sequence = new AtomicLong();
+
+        final Runnable task;
+        final long time;
+        final long order = sequence.incrementAndGet();
+
+        ScheduledTask(Runnable task, long time) {
+            this.task = task;
+            this.time = time;
+        }
+
+        public int compareTo(ScheduledTask other) {
+            if (time != other.time) return (time < other.time) ? -1 : 1;
+            return (order < other.order) ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+
+    /**
+     * Trust manager which accepts any certificate, used only when certificate
+     * checking has been explicitly disabled for testing.
+     */
+    private static class TrustingX509TrustManager implements X509TrustManager {
+        private static final X509Certificate[] X509_CERTIFICATES = new X509Certificate[0];
+
+        public X509Certificate[] getAcceptedIssuers() {
+            return X509_CERTIFICATES;
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+    }
+}
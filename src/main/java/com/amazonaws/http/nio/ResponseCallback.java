@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.nio;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+
+/**
+ * Receives the outcome of a request sent through a {@link NioHttpTransport}.
+ * <p>
+ * Callbacks are invoked on the transport's event loop thread, so they must
+ * not block; anything more than a hand-off to another thread delays every
+ * other request sharing the transport.
+ */
+public interface ResponseCallback {
+
+    /**
+     * Called once the complete response has been received.
+     *
+     * @param response
+     *            The response, with its content buffered in memory.
+     */
+    public void completed(HttpResponse response);
+
+    /**
+     * Called if the request couldn't be sent or the response couldn't be
+     * received.
+     *
+     * @param e
+     *            The cause of the failure.
+     */
+    public void failed(IOException e);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Implemented by request content streams which can write the rest of their
+ * data straight to an output stream, rather than being read through, such as
+ * file regions and the streams which wrap them. This interface is not
+ * intended to be used by clients.
+ */
+public interface DirectlyWritable {
+
+    /**
+     * Returns true if {@link #writeTo(OutputStream)} can be used. A wrapping
+     * stream can only be written directly if the stream it wraps can.
+     */
+    public boolean isDirectlyWritable();
+
+    /**
+     * Writes the rest of the data, from the current position of the stream,
+     * to the specified output stream, leaving the stream open.
+     *
+     * @param output
+     *            The stream to write the data to.
+     *
+     * @throws IOException
+     *             If the data can't be read, or the output can't be written.
+     */
+    public void writeTo(OutputStream output) throws IOException;
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+/**
+ * Registry of the metric collector fed by every AWS client in the JVM.
+ * <p>
+ * No collector is registered by default, in which case the SDK doesn't time
+ * requests at all (unless runtime profiling is enabled). To aggregate request
+ * latencies in production, register a {@link HistogramMetricCollector}:
+ *
+ * <pre>
+ * HistogramMetricCollector collector = new HistogramMetricCollector();
+ * AwsSdkMetrics.setRequestMetricCollector(collector);
+ * </pre>
+ */
+public final class AwsSdkMetrics {
+
+    private static volatile RequestMetricCollector requestMetricCollector;
+
+    private AwsSdkMetrics() {}
+
+    /**
+     * Returns the collector fed by every AWS client, or null if no collector
+     * is registered.
+     */
+    public static RequestMetricCollector getRequestMetricCollector() {
+        return requestMetricCollector;
+    }
+
+    /**
+     * Registers the collector fed by every AWS client. Requests which have
+     * already started keep reporting to the collector that was registered
+     * when they started.
+     *
+     * @param collector
+     *            The collector to register, or null to stop collecting
+     *            metrics.
+     */
+    public static void setRequestMetricCollector(RequestMetricCollector collector) {
+        requestMetricCollector = collector;
+    }
+
+    /**
+     * Returns true if a metric collector is registered.
+     */
+    public static boolean isMetricsEnabled() {
+        return requestMetricCollector != null;
+    }
+}
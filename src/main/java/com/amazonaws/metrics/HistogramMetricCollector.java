@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+/**
+ * Metric collector which aggregates request timings into lock-free
+ * histograms, one set for each service and operation.
+ * <p>
+ * Timings ({@link Field#HttpRequestTime}, {@link Field#RequestSigningTime},
+ * {@link Field#ResponseProcessingTime}, {@link Field#RetryPauseTime} and
+ * {@link Field#RateLimitDelayTime}) are recorded in microseconds and summed
+ * across all the attempts of a request; {@link Field#AttemptCount} is
+ * recorded as the number of attempts, and {@link Field#RetryCapacity} and
+ * {@link Field#ClientSendRate} as the client's retry budget and send rate
+ * when the request completed.
+ * <p>
+ * Snapshots can be taken on demand with {@link #getSnapshot()}, or delivered
+ * periodically to a listener with
+ * {@link #startPeriodicSnapshots(long, TimeUnit, SnapshotListener)}.
+ */
+public class HistogramMetricCollector implements RequestMetricCollector {
+
+    /** The fields aggregated by this collector. */
+    public static final Field[] COLLECTED_FIELDS = {
+        Field.HttpRequestTime,
+        Field.RequestSigningTime,
+        Field.ResponseProcessingTime,
+        Field.RetryPauseTime,
+        Field.RateLimitDelayTime,
+        Field.AttemptCount,
+        Field.RetryCapacity,
+        Field.ClientSendRate,
+    };
+
+    private static final Log log = LogFactory.getLog(HistogramMetricCollector.class);
+
+    private static final String UNKNOWN_OPERATION = "Unknown";
+
+    /**
+     * Receives the metrics recorded during each period, after
+     * {@link HistogramMetricCollector#startPeriodicSnapshots(long, TimeUnit, SnapshotListener)}
+     * is called.
+     */
+    public interface SnapshotListener {
+
+        /**
+         * Called on the snapshot thread at the end of each period.
+         *
+         * @param snapshot
+         *            The values recorded during the period, keyed by
+         *            "service.operation" and then by field.
+         */
+        public void snapshotTaken(Map<String, Map<Field, HistogramSnapshot>> snapshot);
+    }
+
+    private final ConcurrentMap<String, OperationHistograms> histogramsByOperation =
+        new ConcurrentHashMap<String, OperationHistograms>();
+
+    /* Caches operation names so they're only derived once per request class */
+    private final ConcurrentMap<Class<?>, String> operationNames =
+        new ConcurrentHashMap<Class<?>, String>();
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    public void collectMetrics(Request<?> request, AWSRequestMetrics metrics) {
+        OperationHistograms histograms = getHistograms(request);
+        for (Field field : COLLECTED_FIELDS) {
+            if (isCounter(field)) {
+                histograms.get(field).record(metrics.getCounter(field));
+            } else {
+                histograms.get(field).record(TimeUnit.NANOSECONDS.toMicros(metrics.getTimeNanos(field)));
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of everything recorded since this collector was
+     * created.
+     *
+     * @return The recorded values, keyed by "service.operation" and then by
+     *         field.
+     */
+    public Map<String, Map<Field, HistogramSnapshot>> getSnapshot() {
+        Map<String, Map<Field, HistogramSnapshot>> snapshot = new HashMap<String, Map<Field, HistogramSnapshot>>();
+        for (Map.Entry<String, OperationHistograms> entry : histogramsByOperation.entrySet()) {
+            Map<Field, HistogramSnapshot> fields = new EnumMap<Field, HistogramSnapshot>(Field.class);
+            for (Field field : COLLECTED_FIELDS) {
+                fields.put(field, entry.getValue().get(field).getSnapshot());
+            }
+            snapshot.put(entry.getKey(), Collections.unmodifiableMap(fields));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Starts delivering the values recorded during each period to the
+     * specified listener, on a daemon thread owned by this collector.
+     *
+     * @param period
+     *            The length of each period.
+     * @param unit
+     *            The time unit of the period.
+     * @param listener
+     *            The listener to notify at the end of each period.
+     */
+    public synchronized void startPeriodicSnapshots(long period, TimeUnit unit, final SnapshotListener listener) {
+        if (snapshotExecutor != null) {
+            throw new IllegalStateException("Periodic snapshots have already been started");
+        }
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "aws-sdk-metrics-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        snapshotExecutor.scheduleAtFixedRate(new Runnable() {
+            private Map<String, Map<Field, HistogramSnapshot>> previous =
+                Collections.<String, Map<Field, HistogramSnapshot>>emptyMap();
+
+            public void run() {
+                Map<String, Map<Field, HistogramSnapshot>> current = getSnapshot();
+                try {
+                    listener.snapshotTaken(difference(current, previous));
+                } catch (RuntimeException e) {
+                    log.warn("Metric snapshot listener failed: " + e.getMessage(), e);
+                }
+                previous = current;
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops delivering periodic snapshots.
+     */
+    public synchronized void shutdown() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+            snapshotExecutor = null;
+        }
+    }
+
+    private static Map<String, Map<Field, HistogramSnapshot>> difference(
+            Map<String, Map<Field, HistogramSnapshot>> current,
+            Map<String, Map<Field, HistogramSnapshot>> previous) {
+        Map<String, Map<Field, HistogramSnapshot>> interval = new HashMap<String, Map<Field, HistogramSnapshot>>();
+        for (Map.Entry<String, Map<Field, HistogramSnapshot>> entry : current.entrySet()) {
+            Map<Field, HistogramSnapshot> previousFields = previous.get(entry.getKey());
+            Map<Field, HistogramSnapshot> fields = new EnumMap<Field, HistogramSnapshot>(Field.class);
+            for (Map.Entry<Field, HistogramSnapshot> field : entry.getValue().entrySet()) {
+                HistogramSnapshot earlier = (previousFields == null) ? null : previousFields.get(field.getKey());
+                fields.put(field.getKey(), field.getValue().since(earlier));
+            }
+            interval.put(entry.getKey(), Collections.unmodifiableMap(fields));
+        }
+        return Collections.unmodifiableMap(interval);
+    }
+
+    private static boolean isCounter(Field field) {
+        return field == Field.AttemptCount
+            || field == Field.RetryCapacity
+            || field == Field.ClientSendRate;
+    }
+
+    private OperationHistograms getHistograms(Request<?> request) {
+        String key = request.getServiceName() + "." + getOperationName(request.getOriginalRequest());
+
+        OperationHistograms histograms = histogramsByOperation.get(key);
+        if (histograms == null) {
+            histograms = new OperationHistograms();
+            OperationHistograms existing = histogramsByOperation.putIfAbsent(key, histograms);
+            if (existing != null) histograms = existing;
+        }
+        return histograms;
+    }
+
+    /**
+     * Derives the operation name from the original request's class name, e.g.
+     * "PutObject" for PutObjectRequest.
+     */
+    private String getOperationName(AmazonWebServiceRequest originalRequest) {
+        if (originalRequest == null) return UNKNOWN_OPERATION;
+
+        Class<?> requestClass = originalRequest.getClass();
+        String operationName = operationNames.get(requestClass);
+        if (operationName == null) {
+            operationName = requestClass.getSimpleName();
+            if (operationName.endsWith("Request") && operationName.length() > "Request".length()) {
+                operationName = operationName.substring(0, operationName.length() - "Request".length());
+            }
+            operationNames.put(requestClass, operationName);
+        }
+        return operationName;
+    }
+
+    /**
+     * The histograms of a single service operation.
+     */
+    private static final class OperationHistograms {
+        private final StripedHistogram[] histograms = new StripedHistogram[Field.values().length];
+
+        OperationHistograms() {
+            for (Field field : COLLECTED_FIELDS) {
+                histograms[field.ordinal()] = new StripedHistogram();
+            }
+        }
+
+        StripedHistogram get(Field field) {
+            return histograms[field.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+/**
+ * Immutable point in time view of a {@link StripedHistogram}.
+ * <p>
+ * Percentiles are estimated from power-of-two buckets, so they're reported
+ * as the upper bound of the bucket they fall in (never more than the largest
+ * recorded value).
+ */
+public class HistogramSnapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] buckets, long sum, long max) {
+        this.buckets = buckets;
+        this.sum = sum;
+        this.max = max;
+
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the values recorded.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the largest value recorded, or zero if no values were recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the values recorded, or zero if no values were
+     * recorded.
+     */
+    public double getMean() {
+        return (count == 0) ? 0 : (double)sum / count;
+    }
+
+    /**
+     * Returns an estimate of the specified percentile of the values recorded.
+     *
+     * @param percentile
+     *            The percentile to estimate, between 0 and 100.
+     *
+     * @return The upper bound of the bucket holding the percentile, or zero if
+     *         no values were recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) return 0;
+
+        long rank = (long)Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(StripedHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns a snapshot of the values recorded between an earlier snapshot of
+     * the same histogram and this one. The maximum of the interval can't be
+     * known exactly, so it's estimated from the highest bucket that changed.
+     *
+     * @param earlier
+     *            An earlier snapshot of the same histogram, or null.
+     *
+     * @return A snapshot of the values recorded since the earlier snapshot.
+     */
+    public HistogramSnapshot since(HistogramSnapshot earlier) {
+        if (earlier == null) return this;
+
+        long[] delta = new long[buckets.length];
+        int highestBucket = -1;
+        for (int i = 0; i < buckets.length; i++) {
+            delta[i] = buckets[i] - earlier.buckets[i];
+            if (delta[i] > 0) highestBucket = i;
+        }
+
+        long intervalMax = (highestBucket == -1) ? 0
+                : Math.min(StripedHistogram.bucketUpperBound(highestBucket), max);
+        return new HistogramSnapshot(delta, sum - earlier.sum, intervalMax);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50)
+                + ", p99=" + getPercentile(99) + ", max=" + max;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import com.amazonaws.Request;
+import com.amazonaws.util.AWSRequestMetrics;
+
+/**
+ * Receives the metrics recorded for every request executed by the SDK's HTTP
+ * client, once the request has either completed or failed.
+ * <p>
+ * Collectors are called on the thread that executed the request, so
+ * implementations must be thread safe and should return quickly.
+ *
+ * @see AwsSdkMetrics#setRequestMetricCollector(RequestMetricCollector)
+ */
+public interface RequestMetricCollector {
+
+    /**
+     * Collects the metrics recorded while executing the specified request.
+     *
+     * @param request
+     *            The request that was executed.
+     * @param metrics
+     *            The metrics recorded while executing the request. Timings
+     *            are available through
+     *            {@link AWSRequestMetrics#getTimeNanos(AWSRequestMetrics.Field)}
+     *            and counters through
+     *            {@link AWSRequestMetrics#getCounter(AWSRequestMetrics.Field)}.
+     */
+    public void collectMetrics(Request<?> request, AWSRequestMetrics metrics);
+}
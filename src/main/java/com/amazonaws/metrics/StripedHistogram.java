@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with power-of-two buckets.
+ * <p>
+ * Recording a value is a few atomic increments on one of several stripes,
+ * picked by the recording thread, so threads recording at the same time
+ * rarely contend on the same counters. Stripes are only summed when a
+ * {@link HistogramSnapshot} is taken.
+ */
+public class StripedHistogram {
+
+    /**
+     * Number of buckets. Bucket 0 holds zero; bucket i holds values from
+     * 2^(i-1) to 2^i - 1, and the last bucket also holds anything larger.
+     */
+    static final int BUCKET_COUNT = 40;
+
+    /* Slots after the buckets in each stripe */
+    private static final int SUM = BUCKET_COUNT;
+    private static final int MAX = BUCKET_COUNT + 1;
+    private static final int STRIPE_LENGTH = BUCKET_COUNT + 2;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public StripedHistogram() {
+        int stripeCount = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        while (stripeCount < processors * 2 && stripeCount < 64) {
+            stripeCount <<= 1;
+        }
+
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Records a value in this histogram. Negative values are recorded as
+     * zero.
+     *
+     * @param value
+     *            The value to record.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        AtomicLongArray stripe = stripes[(int)(Thread.currentThread().getId() & stripeMask)];
+        stripe.incrementAndGet(bucketIndex(value));
+        stripe.addAndGet(SUM, value);
+
+        long max;
+        while (value > (max = stripe.get(MAX))) {
+            if (stripe.compareAndSet(MAX, max, value)) break;
+        }
+    }
+
+    /**
+     * Returns a snapshot of all the values recorded so far. Values recorded
+     * while the snapshot is being taken may or may not be included.
+     */
+    public HistogramSnapshot getSnapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM);
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return new HistogramSnapshot(buckets, sum, max);
+    }
+
+    static int bucketIndex(long value) {
+        int index = 64 - Long.numberOfLeadingZeros(value);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns the largest value held by the specified bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index == BUCKET_COUNT - 1) return Long.MAX_VALUE;
+        return (1L << index) - 1;
+    }
+}
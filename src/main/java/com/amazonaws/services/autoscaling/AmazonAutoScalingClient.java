@@ -1710,7 +1710,7 @@ public class AmazonAutoScalingClient extends AmazonWebServiceClient implements A
         executionContext.setSigner(signer);
         executionContext.setCredentials(credentials);
         
-        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller, clientConfiguration.isUseXmlStreamReader());
         DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(exceptionUnmarshallers);
 
         return (X)client.execute(request, responseHandler, errorResponseHandler, executionContext);
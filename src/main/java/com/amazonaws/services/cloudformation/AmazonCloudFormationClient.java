@@ -886,7 +886,7 @@ public class AmazonCloudFormationClient extends AmazonWebServiceClient implement
         executionContext.setSigner(signer);
         executionContext.setCredentials(credentials);
         
-        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller, clientConfiguration.isUseXmlStreamReader());
         DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(exceptionUnmarshallers);
 
         return (X)client.execute(request, responseHandler, errorResponseHandler, executionContext);
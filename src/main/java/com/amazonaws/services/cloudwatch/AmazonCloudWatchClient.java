@@ -782,7 +782,7 @@ public class AmazonCloudWatchClient extends AmazonWebServiceClient implements Am
         executionContext.setSigner(signer);
         executionContext.setCredentials(credentials);
         
-        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller);
+        StaxResponseHandler<X> responseHandler = new StaxResponseHandler<X>(unmarshaller, clientConfiguration.isUseXmlStreamReader());
         DefaultErrorResponseHandler errorResponseHandler = new DefaultErrorResponseHandler(exceptionUnmarshallers);
 
         return (X)client.execute(request, responseHandler, errorResponseHandler, executionContext);
@@ -18,16 +18,25 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
 import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.JsonResponseHandler;
+import com.amazonaws.transform.JsonUnmarshallerContext;
+import com.amazonaws.transform.Marshaller;
+import com.amazonaws.transform.Unmarshaller;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 
 import com.amazonaws.services.dynamodb.model.*;
+import com.amazonaws.services.dynamodb.model.transform.*;
 
 
 /**
@@ -36,6 +45,11 @@ import com.amazonaws.services.dynamodb.model.*;
  * process the result and handle the exceptions in the worker thread by providing a callback handler
  * when making the call, or use the returned Future object to check the result of the call in the calling thread.
  * <p>
+ * If {@link ClientConfiguration#isUseNonBlockingTransport()} is enabled, requests
+ * are sent without tying up a thread of the executor service while waiting for
+ * the response; the executor service is then only used to run callback handlers.
+ * </p>
+ * <p>
  * Amazon DynamoDB is a fast, highly scalable, highly available, cost-effective non-relational database service.
  * </p>
  * <p>
@@ -272,6 +286,57 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
         super.shutdown();
         executorService.shutdownNow();
     }
+
+    /**
+     * Sends a request through the client's non-blocking transport.
+     *
+     * @param originalRequest
+     *            The request to send.
+     * @param marshaller
+     *            The marshaller for the request.
+     * @param unmarshaller
+     *            The unmarshaller for the result.
+     * @param asyncHandler
+     *            The callback handler to notify, or null.
+     *
+     * @return A future for the result of the request.
+     */
+    private <X extends AmazonWebServiceRequest, Y> Future<Y> invokeNonBlocking(final X originalRequest,
+            Marshaller<Request<X>, X> marshaller,
+            Unmarshaller<Y, JsonUnmarshallerContext> unmarshaller,
+            final AsyncHandler<X, Y> asyncHandler) {
+        AsyncHandler<AmazonWebServiceRequest, Y> handler = null;
+        if (asyncHandler != null) {
+            handler = new AsyncHandler<AmazonWebServiceRequest, Y>() {
+                public void onError(Exception exception) {
+                    asyncHandler.onError(exception);
+                }
+                public void onSuccess(AmazonWebServiceRequest request, Y result) {
+                    asyncHandler.onSuccess(originalRequest, result);
+                }
+            };
+        }
+
+        try {
+            ExecutionContext executionContext = createExecutionContext();
+            Request<X> request = marshaller.marshall(originalRequest);
+            return invokeAsync(request, new JsonResponseHandler<Y>(unmarshaller),
+                    executionContext, executorService, handler);
+        } catch (Exception e) {
+            final AmazonClientException failure = (e instanceof AmazonClientException)
+                    ? (AmazonClientException)e
+                    : new AmazonClientException("Unable to marshall request: " + e.getMessage(), e);
+            if (handler != null) handler.onError(failure);
+
+            FutureTask<Y> failed = new FutureTask<Y>(new Callable<Y>() {
+                public Y call() {
+                    throw failure;
+                }
+            });
+            failed.run();
+            return failed;
+        }
+    }
             
     /**
      * <p>
@@ -295,6 +360,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<ListTablesResult> listTablesAsync(final ListTablesRequest listTablesRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(listTablesRequest, new ListTablesRequestMarshaller(),
+                    new ListTablesResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<ListTablesResult>() {
             public ListTablesResult call() throws Exception {
                 return listTables(listTablesRequest);
@@ -331,6 +400,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final ListTablesRequest listTablesRequest,
             final AsyncHandler<ListTablesRequest, ListTablesResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(listTablesRequest, new ListTablesRequestMarshaller(),
+                    new ListTablesResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<ListTablesResult>() {
             public ListTablesResult call() throws Exception {
             	ListTablesResult result;
@@ -374,6 +447,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<QueryResult> queryAsync(final QueryRequest queryRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(queryRequest, new QueryRequestMarshaller(),
+                    new QueryResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
                 return query(queryRequest);
@@ -416,6 +493,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final QueryRequest queryRequest,
             final AsyncHandler<QueryRequest, QueryResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(queryRequest, new QueryRequestMarshaller(),
+                    new QueryResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<QueryResult>() {
             public QueryResult call() throws Exception {
             	QueryResult result;
@@ -457,6 +538,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<BatchWriteItemResult> batchWriteItemAsync(final BatchWriteItemRequest batchWriteItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(batchWriteItemRequest, new BatchWriteItemRequestMarshaller(),
+                    new BatchWriteItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
                 return batchWriteItem(batchWriteItemRequest);
@@ -497,6 +582,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final BatchWriteItemRequest batchWriteItemRequest,
             final AsyncHandler<BatchWriteItemRequest, BatchWriteItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(batchWriteItemRequest, new BatchWriteItemRequestMarshaller(),
+                    new BatchWriteItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<BatchWriteItemResult>() {
             public BatchWriteItemResult call() throws Exception {
             	BatchWriteItemResult result;
@@ -538,6 +627,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest updateItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(updateItemRequest, new UpdateItemRequestMarshaller(),
+                    new UpdateItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
                 return updateItem(updateItemRequest);
@@ -578,6 +671,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final UpdateItemRequest updateItemRequest,
             final AsyncHandler<UpdateItemRequest, UpdateItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(updateItemRequest, new UpdateItemRequestMarshaller(),
+                    new UpdateItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<UpdateItemResult>() {
             public UpdateItemResult call() throws Exception {
             	UpdateItemResult result;
@@ -622,6 +719,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<PutItemResult> putItemAsync(final PutItemRequest putItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(putItemRequest, new PutItemRequestMarshaller(),
+                    new PutItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
                 return putItem(putItemRequest);
@@ -665,6 +766,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final PutItemRequest putItemRequest,
             final AsyncHandler<PutItemRequest, PutItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(putItemRequest, new PutItemRequestMarshaller(),
+                    new PutItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<PutItemResult>() {
             public PutItemResult call() throws Exception {
             	PutItemResult result;
@@ -706,6 +811,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<DescribeTableResult> describeTableAsync(final DescribeTableRequest describeTableRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(describeTableRequest, new DescribeTableRequestMarshaller(),
+                    new DescribeTableResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<DescribeTableResult>() {
             public DescribeTableResult call() throws Exception {
                 return describeTable(describeTableRequest);
@@ -746,6 +855,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final DescribeTableRequest describeTableRequest,
             final AsyncHandler<DescribeTableRequest, DescribeTableResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(describeTableRequest, new DescribeTableRequestMarshaller(),
+                    new DescribeTableResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<DescribeTableResult>() {
             public DescribeTableResult call() throws Exception {
             	DescribeTableResult result;
@@ -786,6 +899,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<ScanResult> scanAsync(final ScanRequest scanRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(scanRequest, new ScanRequestMarshaller(),
+                    new ScanResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
                 return scan(scanRequest);
@@ -825,6 +942,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final ScanRequest scanRequest,
             final AsyncHandler<ScanRequest, ScanResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(scanRequest, new ScanRequestMarshaller(),
+                    new ScanResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<ScanResult>() {
             public ScanResult call() throws Exception {
             	ScanResult result;
@@ -873,6 +994,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<CreateTableResult> createTableAsync(final CreateTableRequest createTableRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(createTableRequest, new CreateTableRequestMarshaller(),
+                    new CreateTableResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<CreateTableResult>() {
             public CreateTableResult call() throws Exception {
                 return createTable(createTableRequest);
@@ -920,6 +1045,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final CreateTableRequest createTableRequest,
             final AsyncHandler<CreateTableRequest, CreateTableResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(createTableRequest, new CreateTableRequestMarshaller(),
+                    new CreateTableResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<CreateTableResult>() {
             public CreateTableResult call() throws Exception {
             	CreateTableResult result;
@@ -960,6 +1089,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<UpdateTableResult> updateTableAsync(final UpdateTableRequest updateTableRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(updateTableRequest, new UpdateTableRequestMarshaller(),
+                    new UpdateTableResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<UpdateTableResult>() {
             public UpdateTableResult call() throws Exception {
                 return updateTable(updateTableRequest);
@@ -999,6 +1132,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final UpdateTableRequest updateTableRequest,
             final AsyncHandler<UpdateTableRequest, UpdateTableResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(updateTableRequest, new UpdateTableRequestMarshaller(),
+                    new UpdateTableResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<UpdateTableResult>() {
             public UpdateTableResult call() throws Exception {
             	UpdateTableResult result;
@@ -1042,6 +1179,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<DeleteTableResult> deleteTableAsync(final DeleteTableRequest deleteTableRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(deleteTableRequest, new DeleteTableRequestMarshaller(),
+                    new DeleteTableResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<DeleteTableResult>() {
             public DeleteTableResult call() throws Exception {
                 return deleteTable(deleteTableRequest);
@@ -1084,6 +1225,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final DeleteTableRequest deleteTableRequest,
             final AsyncHandler<DeleteTableRequest, DeleteTableResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(deleteTableRequest, new DeleteTableRequestMarshaller(),
+                    new DeleteTableResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<DeleteTableResult>() {
             public DeleteTableResult call() throws Exception {
             	DeleteTableResult result;
@@ -1124,6 +1269,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest deleteItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(deleteItemRequest, new DeleteItemRequestMarshaller(),
+                    new DeleteItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
                 return deleteItem(deleteItemRequest);
@@ -1163,6 +1312,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final DeleteItemRequest deleteItemRequest,
             final AsyncHandler<DeleteItemRequest, DeleteItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(deleteItemRequest, new DeleteItemRequestMarshaller(),
+                    new DeleteItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<DeleteItemResult>() {
             public DeleteItemResult call() throws Exception {
             	DeleteItemResult result;
@@ -1207,6 +1360,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<GetItemResult> getItemAsync(final GetItemRequest getItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(getItemRequest, new GetItemRequestMarshaller(),
+                    new GetItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
                 return getItem(getItemRequest);
@@ -1250,6 +1407,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final GetItemRequest getItemRequest,
             final AsyncHandler<GetItemRequest, GetItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(getItemRequest, new GetItemRequestMarshaller(),
+                    new GetItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<GetItemResult>() {
             public GetItemResult call() throws Exception {
             	GetItemResult result;
@@ -1303,6 +1464,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
      */
     public Future<BatchGetItemResult> batchGetItemAsync(final BatchGetItemRequest batchGetItemRequest) 
             throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(batchGetItemRequest, new BatchGetItemRequestMarshaller(),
+                    new BatchGetItemResultJsonUnmarshaller(), null);
+        }
         return executorService.submit(new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
                 return batchGetItem(batchGetItemRequest);
@@ -1355,6 +1520,10 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient
             final BatchGetItemRequest batchGetItemRequest,
             final AsyncHandler<BatchGetItemRequest, BatchGetItemResult> asyncHandler)
                     throws AmazonServiceException, AmazonClientException {
+        if (isNonBlockingTransportEnabled()) {
+            return invokeNonBlocking(batchGetItemRequest, new BatchGetItemRequestMarshaller(),
+                    new BatchGetItemResultJsonUnmarshaller(), asyncHandler);
+        }
         return executorService.submit(new Callable<BatchGetItemResult>() {
             public BatchGetItemResult call() throws Exception {
             	BatchGetItemResult result;
@@ -18,6 +18,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -25,6 +27,7 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.*;
 import com.amazonaws.regions.*;
 import com.amazonaws.auth.*;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.handlers.HandlerChainFactory;
 import com.amazonaws.handlers.RequestHandler;
 import com.amazonaws.http.HttpResponseHandler;
@@ -969,6 +972,45 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
                                                                 HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
                                                                 ExecutionContext executionContext) throws AmazonClientException {
 
+        prepareRequest(request, executionContext);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(exceptionUnmarshallers);
+
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime.name());
+        X result = (X) client.execute(request, responseHandler, errorResponseHandler, executionContext);
+        awsRequestMetrics.endEvent(Field.ClientExecuteTime.name());
+
+        awsRequestMetrics.log();
+
+        return result;
+    }
+
+    /**
+     * Sends the request through the non-blocking transport, which must be
+     * enabled in the client configuration. The response handler and the
+     * optional async handler are run by the specified executor.
+     */
+    protected <X, Y extends AmazonWebServiceRequest> Future<X> invokeAsync(Request<Y> request,
+                                                                HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
+                                                                ExecutionContext executionContext,
+                                                                Executor executor,
+                                                                AsyncHandler<AmazonWebServiceRequest, X> asyncHandler) throws AmazonClientException {
+
+        prepareRequest(request, executionContext);
+        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(exceptionUnmarshallers);
+
+        return client.executeAsync(request, responseHandler, errorResponseHandler, executionContext, executor, asyncHandler);
+    }
+
+    /**
+     * Returns true if asynchronous requests can be sent with
+     * {@link #invokeAsync(Request, HttpResponseHandler, ExecutionContext, Executor, AsyncHandler)}.
+     */
+    protected boolean isNonBlockingTransportEnabled() {
+        return client.isNonBlockingTransportEnabled();
+    }
+
+    private void prepareRequest(Request<?> request, ExecutionContext executionContext) {
         request.setEndpoint(endpoint);
         request.setTimeOffset(timeOffset);
 
@@ -987,15 +1029,6 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
         executionContext.setCredentials(credentials);
 
         executionContext.setCustomBackoffStrategy(com.amazonaws.internal.DynamoDBBackoffStrategy.DEFAULT);
-        JsonErrorResponseHandler errorResponseHandler = new JsonErrorResponseHandler(exceptionUnmarshallers);
-
-        awsRequestMetrics.startEvent(Field.ClientExecuteTime.name());
-        X result = (X) client.execute(request, responseHandler, errorResponseHandler, executionContext);
-        awsRequestMetrics.endEvent(Field.ClientExecuteTime.name());
-
-        awsRequestMetrics.log();
-
-        return result;
     }
 }
         
\ No newline at end of file
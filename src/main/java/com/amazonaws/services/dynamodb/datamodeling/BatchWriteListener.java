@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011-2013 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodb.datamodeling;
+
+/**
+ * Listener notified of the progress of a
+ * {@link DynamoDBMapper#batchWrite(java.util.List, java.util.List, DynamoDBMapperConfig, BatchWriteListener)}
+ * operation.
+ * <p>
+ * When the batch write sends several requests at a time, the listener can be
+ * called from several threads at once, so implementations must be thread
+ * safe.
+ */
+public interface BatchWriteListener {
+
+    /**
+     * Called after each batch write request that wrote items to a table, with
+     * the progress of all the writes to that table so far.
+     */
+    public void progressChanged(BatchWriteProgress progress);
+}
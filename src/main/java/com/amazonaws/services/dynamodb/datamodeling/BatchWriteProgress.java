@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011-2013 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodb.datamodeling;
+
+/**
+ * Snapshot of the progress of a batch write operation for one table.
+ *
+ * @see BatchWriteListener
+ */
+public class BatchWriteProgress {
+
+    private final String tableName;
+    private final int totalItems;
+    private final int itemsWritten;
+    private final double consumedCapacityUnits;
+
+    BatchWriteProgress(String tableName, int totalItems, int itemsWritten, double consumedCapacityUnits) {
+        this.tableName = tableName;
+        this.totalItems = totalItems;
+        this.itemsWritten = itemsWritten;
+        this.consumedCapacityUnits = consumedCapacityUnits;
+    }
+
+    /**
+     * Returns the name of the table written to.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Returns the number of put and delete requests the batch write operation
+     * makes to the table.
+     */
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * Returns the number of put and delete requests DynamoDB has processed so
+     * far.
+     */
+    public int getItemsWritten() {
+        return itemsWritten;
+    }
+
+    /**
+     * Returns the number of put and delete requests not yet processed,
+     * including any DynamoDB returned as unprocessed and which are waiting to
+     * be retried.
+     */
+    public int getItemsRemaining() {
+        return totalItems - itemsWritten;
+    }
+
+    /**
+     * Returns the write capacity units consumed on the table so far.
+     */
+    public double getConsumedCapacityUnits() {
+        return consumedCapacityUnits;
+    }
+
+    @Override
+    public String toString() {
+        return "{TableName: " + tableName + ", ItemsWritten: " + itemsWritten + "/" + totalItems
+                + ", ConsumedCapacityUnits: " + consumedCapacityUnits + "}";
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2011-2013 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodb.datamodeling;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Precompiled mapping of a class annotated with {@link DynamoDBTable}, built
+ * once by {@link DynamoDBReflector} and never modified afterwards, so that it
+ * can be shared by any number of threads without locking.
+ * <p>
+ * Holds everything {@link DynamoDBMapper} needs to turn an item back into an
+ * object: the attribute name, setter and unmarshaller of every mapped
+ * property, resolved up front rather than looked up for each attribute of
+ * each item.
+ */
+class DynamoDBClassMapping {
+
+    private final Collection<Method> relevantGetters;
+    private final Method hashKeyGetter;
+    private final Method rangeKeyGetter;
+    private final PropertyMapping[] properties;
+
+    DynamoDBClassMapping(DynamoDBReflector reflector, List<Method> relevantGetters) {
+        Method hashKeyGetter = null;
+        Method rangeKeyGetter = null;
+        PropertyMapping[] properties = new PropertyMapping[relevantGetters.size()];
+
+        int i = 0;
+        for ( Method getter : relevantGetters ) {
+            makeAccessible(getter);
+            if ( hashKeyGetter == null && getter.isAnnotationPresent(DynamoDBHashKey.class) ) {
+                hashKeyGetter = getter;
+            }
+            if ( rangeKeyGetter == null && getter.isAnnotationPresent(DynamoDBRangeKey.class) ) {
+                rangeKeyGetter = getter;
+            }
+            properties[i++] = new PropertyMapping(reflector, getter);
+        }
+
+        this.relevantGetters = Collections.unmodifiableList(new ArrayList<Method>(relevantGetters));
+        this.hashKeyGetter = hashKeyGetter;
+        this.rangeKeyGetter = rangeKeyGetter;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the getters of the mapped properties.
+     */
+    Collection<Method> getRelevantGetters() {
+        return relevantGetters;
+    }
+
+    /**
+     * Returns the {@link DynamoDBHashKey} getter, or null if there isn't one.
+     */
+    Method getHashKeyGetter() {
+        return hashKeyGetter;
+    }
+
+    /**
+     * Returns the {@link DynamoDBRangeKey} getter, or null if there isn't one.
+     */
+    Method getRangeKeyGetter() {
+        return rangeKeyGetter;
+    }
+
+    /**
+     * Returns the mappings of the properties, in the same order as
+     * {@link #getRelevantGetters()}. Callers must not modify the array.
+     */
+    PropertyMapping[] getProperties() {
+        return properties;
+    }
+
+    /**
+     * Turns off the language access checks for a public method, which
+     * otherwise cost a security check on every invocation. Left as it is if a
+     * security manager doesn't allow it.
+     */
+    private static void makeAccessible(Method method) {
+        try {
+            method.setAccessible(true);
+        } catch ( SecurityException e ) {
+        }
+    }
+
+    /**
+     * The precompiled mapping of one property.
+     */
+    static final class PropertyMapping {
+
+        private final Method getter;
+        private final String attributeName;
+        private final Method setter;
+        private final ArgumentUnmarshaller unmarshaller;
+
+        /*
+         * Properties which can be saved but not loaded, such as ones without
+         * a setter, are only an error once an item actually has a value for
+         * them, so the reason is kept until then.
+         */
+        private final RuntimeException unmarshallingFailure;
+
+        private PropertyMapping(DynamoDBReflector reflector, Method getter) {
+            this.getter = getter;
+            this.attributeName = reflector.getAttributeName(getter);
+
+            Method setter = null;
+            ArgumentUnmarshaller unmarshaller = null;
+            RuntimeException unmarshallingFailure = null;
+            try {
+                setter = reflector.getSetter(getter);
+                unmarshaller = reflector.getArgumentUnmarshaller(null, getter, setter);
+                makeAccessible(setter);
+            } catch ( RuntimeException e ) {
+                unmarshallingFailure = e;
+            }
+            this.setter = setter;
+            this.unmarshaller = unmarshaller;
+            this.unmarshallingFailure = unmarshallingFailure;
+        }
+
+        Method getGetter() {
+            return getter;
+        }
+
+        String getAttributeName() {
+            return attributeName;
+        }
+
+        /**
+         * Returns the setter of the property.
+         *
+         * @throws DynamoDBMappingException
+         *             If the property has no usable setter.
+         */
+        Method getSetter() {
+            if ( unmarshallingFailure != null ) {
+                throw unmarshallingFailure;
+            }
+            return setter;
+        }
+
+        /**
+         * Returns the unmarshaller of the property's values.
+         *
+         * @throws DynamoDBMappingException
+         *             If the property's values can't be unmarshalled.
+         */
+        ArgumentUnmarshaller getUnmarshaller() {
+            if ( unmarshallingFailure != null ) {
+                throw unmarshallingFailure;
+            }
+            return unmarshaller;
+        }
+    }
+}
@@ -21,7 +21,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +29,8 @@ import java.util.Map.Entry;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.services.dynamodb.AmazonDynamoDB;
+import com.amazonaws.services.dynamodb.datamodeling.DynamoDBClassMapping.PropertyMapping;
+import com.amazonaws.services.dynamodb.datamodeling.DynamoDBMapperConfig.BatchWriteParallelism;
 import com.amazonaws.services.dynamodb.datamodeling.DynamoDBMapperConfig.ConsistentReads;
 import com.amazonaws.services.dynamodb.datamodeling.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.services.dynamodb.model.AttributeValue;
@@ -38,7 +39,6 @@ import com.amazonaws.services.dynamodb.model.BatchGetItemRequest;
 import com.amazonaws.services.dynamodb.model.BatchGetItemResult;
 import com.amazonaws.services.dynamodb.model.BatchResponse;
 import com.amazonaws.services.dynamodb.model.BatchWriteItemRequest;
-import com.amazonaws.services.dynamodb.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodb.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodb.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodb.model.DeleteRequest;
@@ -307,10 +307,10 @@ public class DynamoDBMapper {
 
         itemAttributes = untransformAttributes(clazz, itemAttributes);
 
-        for ( Method m : reflector.getRelevantGetters(clazz) ) {
-            String attributeName = reflector.getAttributeName(m);
+        for ( PropertyMapping property : reflector.getClassMapping(clazz).getProperties() ) {
+            String attributeName = property.getAttributeName();
             if ( itemAttributes.containsKey(attributeName) ) {
-                setValue(toReturn, m, itemAttributes.get(attributeName));
+                setValue(toReturn, property.getSetter(), property.getUnmarshaller(), itemAttributes.get(attributeName));
             }
         }
 
@@ -337,6 +337,14 @@ public class DynamoDBMapper {
 
         Method setter = reflector.getSetter(getter);
         ArgumentUnmarshaller unmarhsaller = reflector.getArgumentUnmarshaller(toReturn, getter, setter);
+        setValue(toReturn, setter, unmarhsaller, value);
+    }
+
+    /**
+     * Unmarshalls the service result with the unmarshaller given and sets it
+     * in the return object with the setter given.
+     */
+    private void setValue(Object toReturn, Method setter, ArgumentUnmarshaller unmarhsaller, AttributeValue value) {
         unmarhsaller.typeCheck(value, setter);
 
         Object argument;
@@ -707,12 +715,41 @@ public class DynamoDBMapper {
      *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
      *            API.
      * @param config
-     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} is
-     *            considered; if specified, all objects in the two parameter
-     *            lists will be considered to belong to the given table
-     *            override.
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
+     *            {@link DynamoDBMapperConfig#getBatchWriteParallelism()} are
+     *            considered; if a table name override is specified, all
+     *            objects in the two parameter lists will be considered to
+     *            belong to the given table override.
      */
     public void batchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete, DynamoDBMapperConfig config) {
+        batchWrite(objectsToWrite, objectsToDelete, config, null);
+    }
+
+    /**
+     * Saves and deletes the objects given using one or more calls to the
+     * {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API,
+     * reporting the progress and consumed capacity of each table to the
+     * listener given.
+     * <p>
+     * The objects are sent in batches of up to 25 items. If the configuration
+     * specifies a {@link BatchWriteParallelism}, up to that many batches are
+     * sent at a time. Items DynamoDB returns as unprocessed are retried after
+     * an exponentially increasing, randomized delay.
+     *
+     * @param objectsToWrite
+     *            A list of objects to save to DynamoDB.
+     * @param objectsToDelete
+     *            A list of objects to delete from DynamoDB.
+     * @param config
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
+     *            {@link DynamoDBMapperConfig#getBatchWriteParallelism()} are
+     *            considered.
+     * @param listener
+     *            The listener to notify after each request, or null.
+     * @see DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig)
+     */
+    public void batchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete,
+            DynamoDBMapperConfig config, BatchWriteListener listener) {
         config = mergeConfig(config);
 
         HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
@@ -775,37 +812,9 @@ public class DynamoDBMapper {
         }
 
         // Break into chunks of 25 items and make service requests to DynamoDB
-        while ( !requestItems.isEmpty() ) {
-            HashMap<String, List<WriteRequest>> batch = new HashMap<String, List<WriteRequest>>();
-            int i = 0;
-            Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet().iterator();
-            while ( tableIter.hasNext() && i < 25 ) {
-                Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
-                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
-                Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
-                while ( writeRequestIter.hasNext() && i++ < 25 ) {
-                    WriteRequest writeRequest = writeRequestIter.next();
-                    batch.get(tableRequest.getKey()).add(writeRequest);
-                    writeRequestIter.remove();
-                }
-
-                // If we've processed all the write requests for this table,
-                // remove it from the parent iterator.
-                if ( !writeRequestIter.hasNext() ) {
-                    tableIter.remove();
-                }
-            }
-
-            BatchWriteItemResult result = db.batchWriteItem(new BatchWriteItemRequest().withRequestItems(batch));
-
-            // add any unprocessed items back into the list to process
-            for ( Entry<String, List<WriteRequest>> unprocessedItem : result.getUnprocessedItems().entrySet() ) {
-                if ( !requestItems.containsKey(unprocessedItem.getKey()) ) {
-                    requestItems.put(unprocessedItem.getKey(), new LinkedList<WriteRequest>());
-                }
-                requestItems.get(unprocessedItem.getKey()).addAll(unprocessedItem.getValue());
-            }
-        }
+        BatchWriteParallelism parallelism = config.getBatchWriteParallelism();
+        new ParallelBatchWriter(db, requestItems, parallelism == null ? 1 : parallelism.getParallelism(), listener)
+                .execute();
 
         // Once the entire batch is processed, update assigned keys in memory
         for ( ValueUpdate update : inMemoryUpdates ) {
@@ -1075,6 +1084,72 @@ public class DynamoDBMapper {
         return new PaginatedScanList<T>(this, clazz, db, scanRequest, scanResult);
     }
     
+    /**
+     * Scans through an Amazon DynamoDB table on several threads at once and
+     * returns an iterator over the matching results, using the default
+     * configuration.
+     *
+     * @see DynamoDBMapper#parallelScan(Class, DynamoDBScanExpression, int,
+     *      DynamoDBMapperConfig)
+     */
+    public <T> ParallelScanIterator<T> parallelScan(Class<T> clazz, DynamoDBScanExpression scanExpression, int totalSegments) {
+        return parallelScan(clazz, scanExpression, totalSegments, config);
+    }
+
+    /**
+     * Scans through an Amazon DynamoDB table on several threads at once and
+     * returns an iterator over the matching results. The table is divided into
+     * the given number of segments, each of which is scanned page by page on
+     * its own thread, and the results are returned in no particular order.
+     * <p>
+     * Unlike the list returned by
+     * {@link #scan(Class, DynamoDBScanExpression, DynamoDBMapperConfig)}, the
+     * iterator returned doesn't keep the objects it has already returned, and
+     * scanning threads wait for the caller once a page of results per segment
+     * is ready, so a table of any size can be iterated over in constant
+     * memory. Callers which stop iterating before the end of the results
+     * should call {@link ParallelScanIterator#cancel()}.
+     * <p>
+     * Any exclusive start key in the scan expression is ignored, since each
+     * segment starts from its own beginning.
+     *
+     * @param <T>
+     *            The type of the objects being returned.
+     * @param clazz
+     *            The class annotated with DynamoDB annotations describing how
+     *            to store the object data in Amazon DynamoDB.
+     * @param scanExpression
+     *            Details on how to run the scan, including any filters to apply
+     *            to limit results.
+     * @param totalSegments
+     *            The number of segments to divide the table into, which is
+     *            also the number of threads scanning it.
+     * @param config
+     *            The configuration to use for this scan, which overrides the
+     *            default provided at object construction.
+     * @return An iterator over the objects constructed from the results of
+     *         the scan.
+     * @see ParallelScanIterator
+     */
+    public <T> ParallelScanIterator<T> parallelScan(Class<T> clazz, DynamoDBScanExpression scanExpression,
+            int totalSegments, DynamoDBMapperConfig config) {
+        if ( totalSegments < 1 ) {
+            throw new IllegalArgumentException("Parallel scans must have at least one segment");
+        }
+        config = mergeConfig(config);
+
+        List<ScanRequest> segmentScanRequests = new ArrayList<ScanRequest>(totalSegments);
+        for ( int segment = 0; segment < totalSegments; segment++ ) {
+            ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
+            scanRequest.setExclusiveStartKey(null);
+            scanRequest.setSegment(segment);
+            scanRequest.setTotalSegments(totalSegments);
+            segmentScanRequests.add(scanRequest);
+        }
+
+        return new ParallelScanIterator<T>(this, clazz, db, segmentScanRequests);
+    }
+
     /**
      * Scans through an Amazon DynamoDB table and returns a single page of matching
      * results. The table to scan is determined by looking at the annotations on
@@ -31,6 +31,8 @@ package com.amazonaws.services.dynamodb.datamodeling;
  * mapper.save(obj, new DynamoDBMapperConfig(new TableNameOverride("AnotherTable")));
  * // Delete the object even if the version field is out of date
  * mapper.delete(obj, new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+ * // Send up to four batch write requests at a time
+ * mapper.batchWrite(objects, Collections.emptyList(), new DynamoDBMapperConfig(new BatchWriteParallelism(4)));
  * </pre>
  */
 public class DynamoDBMapperConfig {
@@ -120,9 +122,41 @@ public class DynamoDBMapperConfig {
         }        
     }
 
+    /**
+     * Sets how many requests the mapper's batch write operations send to
+     * DynamoDB at the same time.
+     * <p>
+     * By default, the mapper sends one request at a time.
+     */
+    public static final class BatchWriteParallelism {
+
+        private final int parallelism;
+
+        /**
+         * @param parallelism
+         *            The maximum number of
+         *            {@link com.amazonaws.services.dynamodb.AmazonDynamoDB#batchWriteItem}
+         *            requests to send at a time; must be at least one.
+         */
+        public BatchWriteParallelism(int parallelism) {
+            if ( parallelism < 1 ) {
+                throw new IllegalArgumentException("Batch write parallelism must be at least one");
+            }
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Returns the maximum number of batch write requests sent at a time.
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+    }
+
     private final SaveBehavior saveBehavior;
     private final ConsistentReads consistentReads;
     private final TableNameOverride tableNameOverride;
+    private final BatchWriteParallelism batchWriteParallelism;
 
     /**
      * Constructs a new configuration object with the save behavior, consistent
@@ -137,9 +171,28 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(SaveBehavior saveBehavior, ConsistentReads consistentReads,
             TableNameOverride tableNameOverride) {
+        this(saveBehavior, consistentReads, tableNameOverride, null);
+    }
+
+    /**
+     * Constructs a new configuration object with the save behavior, consistent
+     * read behavior, table name override and batch write parallelism given.
+     * 
+     * @param saveBehavior
+     *            The {@link SaveBehavior} to use, or null for default.
+     * @param consistentReads
+     *            The {@link ConsistentReads} to use, or null for default.
+     * @param tableNameOverride
+     *            An override for the table name, or null for no override.
+     * @param batchWriteParallelism
+     *            The {@link BatchWriteParallelism} to use, or null for default.
+     */
+    public DynamoDBMapperConfig(SaveBehavior saveBehavior, ConsistentReads consistentReads,
+            TableNameOverride tableNameOverride, BatchWriteParallelism batchWriteParallelism) {
         this.saveBehavior = saveBehavior;
         this.consistentReads = consistentReads;
         this.tableNameOverride = tableNameOverride;
+        this.batchWriteParallelism = batchWriteParallelism;
     }
 
     /**
@@ -164,6 +217,14 @@ public class DynamoDBMapperConfig {
         this(null, null, tableNameOverride);
     }
 
+    /**
+     * Constructs a new configuration object with the batch write parallelism
+     * given.
+     */
+    public DynamoDBMapperConfig(BatchWriteParallelism batchWriteParallelism) {
+        this(null, null, null, batchWriteParallelism);
+    }
+
     /**
      * Constructs a new configuration object from two others: a set of defaults
      * and a set of overrides. Any non-null overrides will be applied to the
@@ -177,6 +238,7 @@ public class DynamoDBMapperConfig {
             this.saveBehavior = defaults.getSaveBehavior();
             this.consistentReads = defaults.getConsistentReads();
             this.tableNameOverride = defaults.getTableNameOverride();
+            this.batchWriteParallelism = defaults.getBatchWriteParallelism();
         } else {
             this.saveBehavior = overrides.getSaveBehavior() == null ? defaults.getSaveBehavior() : overrides
                     .getSaveBehavior();
@@ -184,6 +246,8 @@ public class DynamoDBMapperConfig {
                     .getConsistentReads();
             this.tableNameOverride = overrides.getTableNameOverride() == null ? defaults.getTableNameOverride()
                     : overrides.getTableNameOverride();
+            this.batchWriteParallelism = overrides.getBatchWriteParallelism() == null ? defaults
+                    .getBatchWriteParallelism() : overrides.getBatchWriteParallelism();
         }
     }
 
@@ -215,6 +279,14 @@ public class DynamoDBMapperConfig {
         return tableNameOverride;
     }
 
+    /**
+     * Returns the batch write parallelism for this configuration, or null if
+     * batch writes send one request at a time.
+     */
+    public BatchWriteParallelism getBatchWriteParallelism() {
+        return batchWriteParallelism;
+    }
+
     /**
      * Default configuration uses UPDATE behavior for saves and EVENTUALly
      * consistent reads, with no table name override.
@@ -26,13 +26,14 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import java.nio.ByteBuffer;
 
@@ -44,44 +45,58 @@ import com.amazonaws.util.DateUtils;
  */
 public class DynamoDBReflector {
 
+    /** DateUtils is safe to share between threads */
+    private static final DateUtils dateUtils = new DateUtils();
+
     /*
      * Several caches for performance. Collectively, they can make this class
-     * over twice as fast.
+     * over twice as fast. They're only ever added to, so they're read without
+     * locking; two threads which race to fill in the same entry compute equal
+     * values, and the first one stored wins.
      */
-    private final Map<Class<?>, Collection<Method>> getterCache = new HashMap<Class<?>, Collection<Method>>();
-    private final Map<Class<?>, Method> hashKeyGetterCache = new HashMap<Class<?>, Method>();
-    private final Map<Class<?>, Method> rangeKeyGetterCache = new HashMap<Class<?>, Method>();
+    private final ConcurrentMap<Class<?>, DynamoDBClassMapping> classMappingCache = new ConcurrentHashMap<Class<?>, DynamoDBClassMapping>();
 
     /*
      * All caches keyed by a Method use the getter for a particular mapped
      * property
      */
-    private final Map<Method, Method> setterCache = new HashMap<Method, Method>();
-    private final Map<Method, String> attributeNameCache = new HashMap<Method, String>();
-    private final Map<Method, ArgumentUnmarshaller> argumentUnmarshallerCache = new HashMap<Method, ArgumentUnmarshaller>();
-    private final Map<Method, ArgumentMarshaller> argumentMarshallerCache = new HashMap<Method, ArgumentMarshaller>();
-    private final Map<Method, ArgumentMarshaller> versionArgumentMarshallerCache = new HashMap<Method, ArgumentMarshaller>();
-    private final Map<Method, ArgumentMarshaller> keyArgumentMarshallerCache = new HashMap<Method, ArgumentMarshaller>();
-    private final Map<Method, Boolean> versionAttributeGetterCache = new HashMap<Method, Boolean>();
-    private final Map<Method, Boolean> autoGeneratedKeyGetterCache = new HashMap<Method, Boolean>();
+    private final ConcurrentMap<Method, Method> setterCache = new ConcurrentHashMap<Method, Method>();
+    private final ConcurrentMap<Method, String> attributeNameCache = new ConcurrentHashMap<Method, String>();
+    private final ConcurrentMap<Method, ArgumentUnmarshaller> argumentUnmarshallerCache = new ConcurrentHashMap<Method, ArgumentUnmarshaller>();
+    private final ConcurrentMap<Method, ArgumentMarshaller> argumentMarshallerCache = new ConcurrentHashMap<Method, ArgumentMarshaller>();
+    private final ConcurrentMap<Method, ArgumentMarshaller> versionArgumentMarshallerCache = new ConcurrentHashMap<Method, ArgumentMarshaller>();
+    private final ConcurrentMap<Method, ArgumentMarshaller> keyArgumentMarshallerCache = new ConcurrentHashMap<Method, ArgumentMarshaller>();
+    private final ConcurrentMap<Method, Boolean> versionAttributeGetterCache = new ConcurrentHashMap<Method, Boolean>();
+    private final ConcurrentMap<Method, Boolean> autoGeneratedKeyGetterCache = new ConcurrentHashMap<Method, Boolean>();
 
     /**
-     * Returns the set of getter methods which are relevant when marshalling or
-     * unmarshalling an object.
+     * Returns the precompiled mapping of the class given, building it the
+     * first time the class is seen.
      */
-    Collection<Method> getRelevantGetters(Class<?> clazz) {
-        synchronized (getterCache) {
-            if ( !getterCache.containsKey(clazz) ) {
-                List<Method> relevantGetters = new LinkedList<Method>();
-                for ( Method m : clazz.getMethods() ) {
-                    if ( isRelevantGetter(m) ) {
-                        relevantGetters.add(m);
-                    }
+    DynamoDBClassMapping getClassMapping(Class<?> clazz) {
+        DynamoDBClassMapping mapping = classMappingCache.get(clazz);
+        if ( mapping == null ) {
+            List<Method> relevantGetters = new ArrayList<Method>();
+            for ( Method m : clazz.getMethods() ) {
+                if ( isRelevantGetter(m) ) {
+                    relevantGetters.add(m);
                 }
-                getterCache.put(clazz, relevantGetters);
+            }
+            DynamoDBClassMapping newMapping = new DynamoDBClassMapping(this, relevantGetters);
+            mapping = classMappingCache.putIfAbsent(clazz, newMapping);
+            if ( mapping == null ) {
+                mapping = newMapping;
             }
         }
-        return getterCache.get(clazz);
+        return mapping;
+    }
+
+    /**
+     * Returns the set of getter methods which are relevant when marshalling or
+     * unmarshalling an object.
+     */
+    Collection<Method> getRelevantGetters(Class<?> clazz) {
+        return getClassMapping(clazz).getRelevantGetters();
     }
 
     /**
@@ -101,19 +116,7 @@ public class DynamoDBReflector {
      * given, or null if the class doesn't have one.
      */
     <T> Method getRangeKeyGetter(Class<T> clazz) {
-        synchronized (rangeKeyGetterCache) {
-            if ( !rangeKeyGetterCache.containsKey(clazz) ) {
-                Method rangeKeyMethod = null;
-                for ( Method method : getRelevantGetters(clazz) ) {
-                    if ( method.getParameterTypes().length == 0 && method.isAnnotationPresent(DynamoDBRangeKey.class)) {
-                        rangeKeyMethod = method;
-                        break;
-                    }
-                }
-                rangeKeyGetterCache.put(clazz, rangeKeyMethod);
-            }
-        }
-        return rangeKeyGetterCache.get(clazz);
+        return getClassMapping(clazz).getRangeKeyGetter();
     }
 
     /**
@@ -121,18 +124,7 @@ public class DynamoDBReflector {
      * throwing an exception if there isn't one.
      */
     <T> Method getHashKeyGetter(Class<T> clazz) {
-        synchronized (hashKeyGetterCache) {
-            if ( !hashKeyGetterCache.containsKey(clazz) ) {
-                for ( Method method : getRelevantGetters(clazz) ) {
-                    if ( method.getParameterTypes().length == 0 && method.isAnnotationPresent(DynamoDBHashKey.class)) {
-                        hashKeyGetterCache.put(clazz, method);
-                        break;
-                    }
-                }
-            }
-        }
-
-        Method hashKeyMethod = hashKeyGetterCache.get(clazz);
+        Method hashKeyMethod = getClassMapping(clazz).getHashKeyGetter();
         if ( hashKeyMethod == null ) {
             throw new DynamoDBMappingException("Public, zero-parameter hash key property must be annotated with "
                     + DynamoDBHashKey.class);
@@ -175,386 +167,384 @@ public class DynamoDBReflector {
      *            The corresponding setter method being considered
      */
     <T> ArgumentUnmarshaller getArgumentUnmarshaller(final T toReturn, final Method getter, final Method setter) {
-        synchronized (argumentUnmarshallerCache) {
-            if ( !argumentUnmarshallerCache.containsKey(getter) ) {
-
-                Class<?>[] parameterTypes = setter.getParameterTypes();
-                Class<?> paramType = parameterTypes[0];
-                if ( parameterTypes.length != 1 ) {
-                    throw new DynamoDBMappingException("Expected exactly one agument to " + setter);
-                }
+        if ( !argumentUnmarshallerCache.containsKey(getter) ) {
 
-                ArgumentUnmarshaller unmarshaller = null;
-                if ( isCustomMarshaller(getter) ) {
-                    unmarshaller = new SUnmarshaller() {
+            Class<?>[] parameterTypes = setter.getParameterTypes();
+            Class<?> paramType = parameterTypes[0];
+            if ( parameterTypes.length != 1 ) {
+                throw new DynamoDBMappingException("Expected exactly one agument to " + setter);
+            }
 
-                        @Override
-                        public Object unmarshall(AttributeValue value) {
-                            return getCustomMarshalledValue(toReturn, getter, value);
-                        }
-                    };
-                } else {
+            ArgumentUnmarshaller unmarshaller = null;
+            if ( isCustomMarshaller(getter) ) {
+                unmarshaller = new SUnmarshaller() {
 
-                    // If we're dealing with a collection, we need to get the
-                    // underlying type out of it
-                    boolean isCollection = false;
-                    if ( Set.class.isAssignableFrom(paramType) ) {
-                        isCollection = true;
-                        Type genericType = setter.getGenericParameterTypes()[0];
-                        if ( genericType instanceof ParameterizedType ) {
-                        	if (((ParameterizedType) genericType).getActualTypeArguments()[0].toString().equals("byte[]")) {
-                        		paramType = byte[].class;
-                        	} else {
-                        		 paramType = (Class<?>) ((ParameterizedType) genericType).getActualTypeArguments()[0];
-                        	}
-                        }
-                    } else if ( Collection.class.isAssignableFrom(paramType) ) {
-                        throw new DynamoDBMappingException("Only java.util.Set collection types are permitted for "
-                                + DynamoDBAttribute.class);
+                    @Override
+                    public Object unmarshall(AttributeValue value) {
+                        return getCustomMarshalledValue(toReturn, getter, value);
+                    }
+                };
+            } else {
+
+                // If we're dealing with a collection, we need to get the
+                // underlying type out of it
+                boolean isCollection = false;
+                if ( Set.class.isAssignableFrom(paramType) ) {
+                    isCollection = true;
+                    Type genericType = setter.getGenericParameterTypes()[0];
+                    if ( genericType instanceof ParameterizedType ) {
+                    	if (((ParameterizedType) genericType).getActualTypeArguments()[0].toString().equals("byte[]")) {
+                    		paramType = byte[].class;
+                    	} else {
+                    		 paramType = (Class<?>) ((ParameterizedType) genericType).getActualTypeArguments()[0];
+                    	}
                     }
+                } else if ( Collection.class.isAssignableFrom(paramType) ) {
+                    throw new DynamoDBMappingException("Only java.util.Set collection types are permitted for "
+                            + DynamoDBAttribute.class);
+                }
 
-                    if ( double.class.isAssignableFrom(paramType) || Double.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
+                if ( double.class.isAssignableFrom(paramType) || Double.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Double> argument = new HashSet<Double>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Double.parseDouble(s));
-                                    }
-                                    return argument;
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Double> argument = new HashSet<Double>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Double.parseDouble(s));
                                 }
+                                return argument;
+                            }
 
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Double.parseDouble(value.getN());
-                                }
-                            };
-                        }
-                    } else if ( BigDecimal.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<BigDecimal> argument = new HashSet<BigDecimal>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(new BigDecimal(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Double.parseDouble(value.getN());
+                            }
+                        };
+                    }
+                } else if ( BigDecimal.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return new BigDecimal(value.getN());
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<BigDecimal> argument = new HashSet<BigDecimal>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(new BigDecimal(s));
                                 }
-                            };
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
 
-                        }
-                    } else if ( BigInteger.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<BigInteger> argument = new HashSet<BigInteger>();
-                                    for ( String s : value.getNS() ) {
-                                        ((Set<BigInteger>) argument).add(new BigInteger(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return new BigDecimal(value.getN());
+                            }
+                        };
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return new BigInteger(value.getN());
-                                }
-                            };
-                        }
-                    } else if ( int.class.isAssignableFrom(paramType) || Integer.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Integer> argument = new HashSet<Integer>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Integer.parseInt(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                    }
+                } else if ( BigInteger.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Integer.parseInt(value.getN());
-                                }
-                            };
-                        }
-                    } else if ( float.class.isAssignableFrom(paramType) || Float.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Float> argument = new HashSet<Float>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Float.parseFloat(s));
-                                    }
-                                    return argument;
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<BigInteger> argument = new HashSet<BigInteger>();
+                                for ( String s : value.getNS() ) {
+                                    ((Set<BigInteger>) argument).add(new BigInteger(s));
                                 }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Float.parseFloat(value.getN());
-                                }
-                            };
-                        }
-                    } else if ( byte.class.isAssignableFrom(paramType) || Byte.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Byte> argument = new HashSet<Byte>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Byte.parseByte(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return new BigInteger(value.getN());
+                            }
+                        };
+                    }
+                } else if ( int.class.isAssignableFrom(paramType) || Integer.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Byte.parseByte(value.getN());
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Integer> argument = new HashSet<Integer>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Integer.parseInt(s));
                                 }
-                            };
-                        }
-                    } else if ( long.class.isAssignableFrom(paramType) || Long.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Long> argument = new HashSet<Long>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Long.parseLong(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Long.parseLong(value.getN());
-                                }
-                            };
-                        }
-                    } else if ( short.class.isAssignableFrom(paramType) || Short.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Short> argument = new HashSet<Short>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(Short.parseShort(s));
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Integer.parseInt(value.getN());
+                            }
+                        };
+                    }
+                } else if ( float.class.isAssignableFrom(paramType) || Float.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return Short.parseShort(value.getN());
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Float> argument = new HashSet<Float>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Float.parseFloat(s));
                                 }
-                            };
-                        }
-                    } else if ( boolean.class.isAssignableFrom(paramType) || Boolean.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new NSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<Boolean> argument = new HashSet<Boolean>();
-                                    for ( String s : value.getNS() ) {
-                                        argument.add(parseBoolean(s));
-                                    }
-                                    return argument;
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Float.parseFloat(value.getN());
+                            }
+                        };
+                    }
+                } else if ( byte.class.isAssignableFrom(paramType) || Byte.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Byte> argument = new HashSet<Byte>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Byte.parseByte(s));
                                 }
-                            };
-                        } else {
-                            unmarshaller = new NUnmarshaller() {
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Byte.parseByte(value.getN());
+                            }
+                        };
+                    }
+                } else if ( long.class.isAssignableFrom(paramType) || Long.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return parseBoolean(value.getN());
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Long> argument = new HashSet<Long>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Long.parseLong(s));
                                 }
-                            };
-                        }
-                    } else if ( Date.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new SSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) throws ParseException {
-                                    Set<Date> argument = new HashSet<Date>();
-                                    for ( String s : value.getSS() ) {
-                                        argument.add(new DateUtils().parseIso8601Date(s));
-                                    }
-                                    return argument;
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Long.parseLong(value.getN());
+                            }
+                        };
+                    }
+                } else if ( short.class.isAssignableFrom(paramType) || Short.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Short> argument = new HashSet<Short>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(Short.parseShort(s));
                                 }
-                            };
-                        } else {
-                            unmarshaller = new SUnmarshaller() {
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return Short.parseShort(value.getN());
+                            }
+                        };
+                    }
+                } else if ( boolean.class.isAssignableFrom(paramType) || Boolean.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new NSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) throws ParseException {
-                                    return new DateUtils().parseIso8601Date(value.getS());
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<Boolean> argument = new HashSet<Boolean>();
+                                for ( String s : value.getNS() ) {
+                                    argument.add(parseBoolean(s));
                                 }
-                            };
-                        }
-                    } else if ( Calendar.class.isAssignableFrom(paramType) ) {
-                        if ( isCollection ) {
-                            unmarshaller = new SSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) throws ParseException {
-                                    Set<Calendar> argument = new HashSet<Calendar>();
-                                    for ( String s : value.getSS() ) {
-                                        Calendar cal = GregorianCalendar.getInstance();
-                                        cal.setTime(new DateUtils().parseIso8601Date(s));
-                                        argument.add(cal);
-                                    }
-                                    return argument;
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new NUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return parseBoolean(value.getN());
+                            }
+                        };
+                    }
+                } else if ( Date.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new SSUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) throws ParseException {
+                                Set<Date> argument = new HashSet<Date>();
+                                for ( String s : value.getSS() ) {
+                                    argument.add(dateUtils.parseIso8601Date(s));
                                 }
-                            };
-                        } else {
-                            unmarshaller = new SUnmarshaller() {
-                              
-                                @Override
-                                public Object unmarshall(AttributeValue value) throws ParseException {
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new SUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) throws ParseException {
+                                return dateUtils.parseIso8601Date(value.getS());
+                            }
+                        };
+                    }
+                } else if ( Calendar.class.isAssignableFrom(paramType) ) {
+                    if ( isCollection ) {
+                        unmarshaller = new SSUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) throws ParseException {
+                                Set<Calendar> argument = new HashSet<Calendar>();
+                                for ( String s : value.getSS() ) {
                                     Calendar cal = GregorianCalendar.getInstance();
-                                    cal.setTime(new DateUtils().parseIso8601Date(value.getS()));
-                                    return cal;
+                                    cal.setTime(dateUtils.parseIso8601Date(s));
+                                    argument.add(cal);
                                 }
-                            };
-                        }
-                    } else if (ByteBuffer.class.isAssignableFrom(paramType)) {
-                    	  if ( isCollection ) {
-                    		  unmarshaller = new BSUnmarshaller() {
-
-                                  @Override
-                                  public Object unmarshall(AttributeValue value) throws ParseException {
-                                	 Set<ByteBuffer> argument = new HashSet<ByteBuffer>();
-                                	 for (ByteBuffer b : value.getBS()) {
-                                	 argument.add(b);
-                                	 }
-                                     return argument;
-                                  }
-                              };
-                    	  } else {
-                    		  unmarshaller = new BUnmarshaller() {
-                    			  
-                                  @Override
-                                  public Object unmarshall(AttributeValue value) throws ParseException {
-                                      return value.getB();
-                                  }
-                              };
-                    	  }
-                    } else if (byte[].class.isAssignableFrom(paramType)) {
-                    	 if ( isCollection ) {
-                   		  unmarshaller = new BSUnmarshaller() {
-
-                                 @Override
-                                 public Object unmarshall(AttributeValue value) throws ParseException {
-                               	 Set<byte[]> argument = new HashSet<byte[]>();
-                               	 for (ByteBuffer b : value.getBS()) {
-                               		 byte[] bytes = null;
-                               		if (b.hasArray()) {
-                               			bytes = b.array();
-                               		} else {
-                               			bytes = new byte[b.limit()];
-                               			b.get(bytes, 0, bytes.length);
-                               		}
-                               		argument.add(bytes);
-                               	 }
-                                    return argument;
-                                 }
-                             };
-                   	  } else {
-                   		  unmarshaller = new BUnmarshaller() {
-                   			  
-                                 @Override
-                                 public Object unmarshall(AttributeValue value) throws ParseException {
-                                	 ByteBuffer byteBuffer = value.getB();
-                                	 byte[] bytes = null;
-                                	 if (byteBuffer.hasArray()) {
-                                			bytes = byteBuffer.array();
-                                		} else {
-                                			bytes = new byte[byteBuffer.limit()];
-                                			byteBuffer.get(bytes, 0, bytes.length);
-                                		}
-                                     return bytes;
-                                 }
-                             };
-                   	  }
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new SUnmarshaller() {
+                          
+                            @Override
+                            public Object unmarshall(AttributeValue value) throws ParseException {
+                                Calendar cal = GregorianCalendar.getInstance();
+                                cal.setTime(dateUtils.parseIso8601Date(value.getS()));
+                                return cal;
+                            }
+                        };
                     }
+                } else if (ByteBuffer.class.isAssignableFrom(paramType)) {
+                	  if ( isCollection ) {
+                		  unmarshaller = new BSUnmarshaller() {
+
+                              @Override
+                              public Object unmarshall(AttributeValue value) throws ParseException {
+                            	 Set<ByteBuffer> argument = new HashSet<ByteBuffer>();
+                            	 for (ByteBuffer b : value.getBS()) {
+                            	 argument.add(b);
+                            	 }
+                                 return argument;
+                              }
+                          };
+                	  } else {
+                		  unmarshaller = new BUnmarshaller() {
+                			  
+                              @Override
+                              public Object unmarshall(AttributeValue value) throws ParseException {
+                                  return value.getB();
+                              }
+                          };
+                	  }
+                } else if (byte[].class.isAssignableFrom(paramType)) {
+                	 if ( isCollection ) {
+               		  unmarshaller = new BSUnmarshaller() {
+
+                             @Override
+                             public Object unmarshall(AttributeValue value) throws ParseException {
+                           	 Set<byte[]> argument = new HashSet<byte[]>();
+                           	 for (ByteBuffer b : value.getBS()) {
+                           		 byte[] bytes = null;
+                           		if (b.hasArray()) {
+                           			bytes = b.array();
+                           		} else {
+                           			bytes = new byte[b.limit()];
+                           			b.get(bytes, 0, bytes.length);
+                           		}
+                           		argument.add(bytes);
+                           	 }
+                                return argument;
+                             }
+                         };
+               	  } else {
+               		  unmarshaller = new BUnmarshaller() {
+               			  
+                             @Override
+                             public Object unmarshall(AttributeValue value) throws ParseException {
+                            	 ByteBuffer byteBuffer = value.getB();
+                            	 byte[] bytes = null;
+                            	 if (byteBuffer.hasArray()) {
+                            			bytes = byteBuffer.array();
+                            		} else {
+                            			bytes = new byte[byteBuffer.limit()];
+                            			byteBuffer.get(bytes, 0, bytes.length);
+                            		}
+                                 return bytes;
+                             }
+                         };
+               	  }
+                }
 
-                    /*
-                     * After checking all other supported types, enforce a
-                     * String match
-                     */
-                    else if ( !String.class.isAssignableFrom(paramType) ) {                	 
-                        throw new DynamoDBMappingException("Expected a String, but was " + paramType);
-                    } else {
-                        if ( isCollection ) {
-                            unmarshaller = new SSUnmarshaller() {
-
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    Set<String> argument = new HashSet<String>();
-                                    for ( String s : value.getSS() ) {
-                                        argument.add(s);
-                                    }
-                                    return argument;
-                                }
-                            };
-                        } else {
-                            unmarshaller = new SUnmarshaller() {
+                /*
+                 * After checking all other supported types, enforce a
+                 * String match
+                 */
+                else if ( !String.class.isAssignableFrom(paramType) ) {                	 
+                    throw new DynamoDBMappingException("Expected a String, but was " + paramType);
+                } else {
+                    if ( isCollection ) {
+                        unmarshaller = new SSUnmarshaller() {
 
-                                @Override
-                                public Object unmarshall(AttributeValue value) {
-                                    return value.getS();
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                Set<String> argument = new HashSet<String>();
+                                for ( String s : value.getSS() ) {
+                                    argument.add(s);
                                 }
-                            };
-                        }
+                                return argument;
+                            }
+                        };
+                    } else {
+                        unmarshaller = new SUnmarshaller() {
+
+                            @Override
+                            public Object unmarshall(AttributeValue value) {
+                                return value.getS();
+                            }
+                        };
                     }
                 }
-
-                argumentUnmarshallerCache.put(getter, unmarshaller);
             }
+
+            argumentUnmarshallerCache.putIfAbsent(getter, unmarshaller);
         }
 
         return argumentUnmarshallerCache.get(getter);
@@ -609,196 +599,193 @@ public class DynamoDBReflector {
      */
     ArgumentMarshaller getArgumentMarshaller(final Method getter) {
 
-        synchronized (argumentMarshallerCache) {
-            if ( !argumentMarshallerCache.containsKey(getter) ) {
-                ArgumentMarshaller marshaller = null;
+        if ( !argumentMarshallerCache.containsKey(getter) ) {
+            ArgumentMarshaller marshaller = null;
 
-                if ( isCustomMarshaller(getter) ) {
-                    marshaller = new ArgumentMarshaller() {
+            if ( isCustomMarshaller(getter) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            return getCustomerMarshallerAttributeValue(getter, obj);
-                        }
-                    };
-                } else {
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        return getCustomerMarshallerAttributeValue(getter, obj);
+                    }
+                };
+            } else {
 
-                    Class<?> returnType = getter.getReturnType();
-                    if ( Set.class.isAssignableFrom(returnType) ) {
-                        Type genericType = getter.getGenericReturnType();
-                        if ( genericType instanceof ParameterizedType ) {
-                            if ( ((ParameterizedType) genericType).getActualTypeArguments()[0].toString().equals("byte[]") ) {
-                                returnType = byte[].class;
-                            } else {
-                                returnType = (Class<?>) ((ParameterizedType) genericType).getActualTypeArguments()[0];
-                            }
+                Class<?> returnType = getter.getReturnType();
+                if ( Set.class.isAssignableFrom(returnType) ) {
+                    Type genericType = getter.getGenericReturnType();
+                    if ( genericType instanceof ParameterizedType ) {
+                        if ( ((ParameterizedType) genericType).getActualTypeArguments()[0].toString().equals("byte[]") ) {
+                            returnType = byte[].class;
+                        } else {
+                            returnType = (Class<?>) ((ParameterizedType) genericType).getActualTypeArguments()[0];
                         }
+                    }
 
-                        if ( Date.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
+                    if ( Date.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
 
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    List<String> timestamps = new LinkedList<String>();
-                                    for ( Object o : (Set<?>) obj ) {
-                                        timestamps.add(new DateUtils().formatIso8601Date((Date) o));
-                                    }
-                                    return new AttributeValue().withSS(timestamps);
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                List<String> timestamps = new LinkedList<String>();
+                                for ( Object o : (Set<?>) obj ) {
+                                    timestamps.add(dateUtils.formatIso8601Date((Date) o));
                                 }
-                            };
-                        } else if ( Calendar.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    List<String> timestamps = new LinkedList<String>();
-                                    for ( Object o : (Set<?>) obj ) {
-                                        timestamps.add(new DateUtils().formatIso8601Date(((Calendar) o).getTime()));
-                                    }
-                                    return new AttributeValue().withSS(timestamps);
+                                return new AttributeValue().withSS(timestamps);
+                            }
+                        };
+                    } else if ( Calendar.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                List<String> timestamps = new LinkedList<String>();
+                                for ( Object o : (Set<?>) obj ) {
+                                    timestamps.add(dateUtils.formatIso8601Date(((Calendar) o).getTime()));
                                 }
-                            };
-                        } else if ( boolean.class.isAssignableFrom(returnType)
-                                || Boolean.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    List<String> booleanAttributes = new ArrayList<String>();
-                                    for ( Object b : (Set<?>) obj ) {
-                                        if ( b == null || !(Boolean) b ) {
-                                            booleanAttributes.add("0");
-                                        } else {
-                                            booleanAttributes.add("1");
-                                        }
+                                return new AttributeValue().withSS(timestamps);
+                            }
+                        };
+                    } else if ( boolean.class.isAssignableFrom(returnType)
+                            || Boolean.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                List<String> booleanAttributes = new ArrayList<String>();
+                                for ( Object b : (Set<?>) obj ) {
+                                    if ( b == null || !(Boolean) b ) {
+                                        booleanAttributes.add("0");
+                                    } else {
+                                        booleanAttributes.add("1");
                                     }
-                                    return new AttributeValue().withNS(booleanAttributes);
                                 }
-                            };
-                        } else if ( returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    List<String> attributes = new ArrayList<String>();
-                                    for ( Object o : (Set<?>) obj ) {
-                                        attributes.add(String.valueOf(o));
-                                    }
-                                    return new AttributeValue().withNS(attributes);
+                                return new AttributeValue().withNS(booleanAttributes);
+                            }
+                        };
+                    } else if ( returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                List<String> attributes = new ArrayList<String>();
+                                for ( Object o : (Set<?>) obj ) {
+                                    attributes.add(String.valueOf(o));
                                 }
-                            };
-                        } else if (ByteBuffer.class.isAssignableFrom(returnType)) {
-                        	 marshaller = new ArgumentMarshaller() {
-
-                                 @Override
-                                 public AttributeValue marshall(Object obj) {
-                                     List<ByteBuffer> attributes = new ArrayList<ByteBuffer>();
-                                     for ( Object o : (Set<?>) obj ) {
-                                         attributes.add((ByteBuffer) o);
-                                     }
-                                     return new AttributeValue().withBS(attributes);
+                                return new AttributeValue().withNS(attributes);
+                            }
+                        };
+                    } else if (ByteBuffer.class.isAssignableFrom(returnType)) {
+                    	 marshaller = new ArgumentMarshaller() {
+
+                             @Override
+                             public AttributeValue marshall(Object obj) {
+                                 List<ByteBuffer> attributes = new ArrayList<ByteBuffer>();
+                                 for ( Object o : (Set<?>) obj ) {
+                                     attributes.add((ByteBuffer) o);
                                  }
-                             };
-                        } else if (byte[].class.isAssignableFrom(returnType)) { 
-                        	 marshaller = new ArgumentMarshaller() {
-
-                                 @Override
-                                 public AttributeValue marshall(Object obj) {
-                                     List<ByteBuffer> attributes = new ArrayList<ByteBuffer>();
-                                     for ( Object o : (Set<?>) obj ) {
-                                         attributes.add(ByteBuffer.wrap((byte[])o));
-                                     }
-                                     return new AttributeValue().withBS(attributes);
+                                 return new AttributeValue().withBS(attributes);
+                             }
+                         };
+                    } else if (byte[].class.isAssignableFrom(returnType)) { 
+                    	 marshaller = new ArgumentMarshaller() {
+
+                             @Override
+                             public AttributeValue marshall(Object obj) {
+                                 List<ByteBuffer> attributes = new ArrayList<ByteBuffer>();
+                                 for ( Object o : (Set<?>) obj ) {
+                                     attributes.add(ByteBuffer.wrap((byte[])o));
                                  }
-                             };
-                        } else {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    List<String> attributes = new ArrayList<String>();
-                                    for ( Object o : (Set<?>) obj ) {
-                                        attributes.add(String.valueOf(o));
-                                    }
-                                    return new AttributeValue().withSS(attributes);
-                                }
-                            };
-                        }
-                    } else if ( Collection.class.isAssignableFrom(returnType) ) {
-                        throw new DynamoDBMappingException("Non-set collections aren't supported: "
-                                + (getter.getDeclaringClass() + "." + getter.getName()));
+                                 return new AttributeValue().withBS(attributes);
+                             }
+                         };
                     } else {
-                        if ( Date.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
+                        marshaller = new ArgumentMarshaller() {
 
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    return new AttributeValue().withS(new DateUtils().formatIso8601Date((Date) obj));
-                                }
-                            };
-                        } else if ( Calendar.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    return new AttributeValue().withS(new DateUtils()
-                                            .formatIso8601Date(((Calendar) obj).getTime()));
-                                }
-                            };
-                        } else if ( boolean.class.isAssignableFrom(returnType)
-                                || Boolean.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    if ( obj == null || !(Boolean) obj ) {
-                                        return new AttributeValue().withN("0");
-                                    } else {
-                                        return new AttributeValue().withN("1");
-                                    }
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                List<String> attributes = new ArrayList<String>();
+                                for ( Object o : (Set<?>) obj ) {
+                                    attributes.add(String.valueOf(o));
                                 }
-                            };
-                        } else if ( returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) ) {
-                            marshaller = new ArgumentMarshaller() {
+                                return new AttributeValue().withSS(attributes);
+                            }
+                        };
+                    }
+                } else if ( Collection.class.isAssignableFrom(returnType) ) {
+                    throw new DynamoDBMappingException("Non-set collections aren't supported: "
+                            + (getter.getDeclaringClass() + "." + getter.getName()));
+                } else {
+                    if ( Date.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
 
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    return new AttributeValue().withN(String.valueOf(obj));
-                                }
-                            };
-                        } else if ( returnType == String.class ) {
-                            marshaller = new ArgumentMarshaller() {
-
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    if ( ((String) obj).length() == 0 )
-                                        return null;
-                                    return new AttributeValue().withS(String.valueOf(obj));
-                                }
-                            };
-                        } else if ( returnType == ByteBuffer.class ) {
-                        	marshaller = new ArgumentMarshaller() {
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                return new AttributeValue().withS(dateUtils.formatIso8601Date((Date) obj));
+                            }
+                        };
+                    } else if ( Calendar.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
 
-                                @Override
-                                public AttributeValue marshall(Object obj) {
-                                    return new AttributeValue().withB((ByteBuffer)obj);
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                return new AttributeValue().withS(dateUtils.formatIso8601Date(((Calendar) obj).getTime()));
+                            }
+                        };
+                    } else if ( boolean.class.isAssignableFrom(returnType)
+                            || Boolean.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                if ( obj == null || !(Boolean) obj ) {
+                                    return new AttributeValue().withN("0");
+                                } else {
+                                    return new AttributeValue().withN("1");
                                 }
-                            };
-                        } else if ( returnType == byte[].class) {
-                        	 marshaller = new ArgumentMarshaller() {
+                            }
+                        };
+                    } else if ( returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) ) {
+                        marshaller = new ArgumentMarshaller() {
 
-                                 @Override
-                                 public AttributeValue marshall(Object obj) {
-                                     return new AttributeValue().withB(ByteBuffer.wrap((byte[])obj));
-                                 }
-                             };
-                        } else {
-                            throw new DynamoDBMappingException("Unsupported type: " + returnType + " for " + getter);
-                        }
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                return new AttributeValue().withN(String.valueOf(obj));
+                            }
+                        };
+                    } else if ( returnType == String.class ) {
+                        marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                if ( ((String) obj).length() == 0 )
+                                    return null;
+                                return new AttributeValue().withS(String.valueOf(obj));
+                            }
+                        };
+                    } else if ( returnType == ByteBuffer.class ) {
+                    	marshaller = new ArgumentMarshaller() {
+
+                            @Override
+                            public AttributeValue marshall(Object obj) {
+                                return new AttributeValue().withB((ByteBuffer)obj);
+                            }
+                        };
+                    } else if ( returnType == byte[].class) {
+                    	 marshaller = new ArgumentMarshaller() {
+
+                             @Override
+                             public AttributeValue marshall(Object obj) {
+                                 return new AttributeValue().withB(ByteBuffer.wrap((byte[])obj));
+                             }
+                         };
+                    } else {
+                        throw new DynamoDBMappingException("Unsupported type: " + returnType + " for " + getter);
                     }
                 }
-                argumentMarshallerCache.put(getter, marshaller);
             }
+            argumentMarshallerCache.putIfAbsent(getter, marshaller);
         }
 
         return argumentMarshallerCache.get(getter);
@@ -822,44 +809,42 @@ public class DynamoDBReflector {
      * Returns the attribute name corresponding to the given getter method.
      */
     String getAttributeName(Method getter) {
-        synchronized (attributeNameCache) {
-            if ( !attributeNameCache.containsKey(getter) ) {
-
-                // First check for a hash key annotation
-                DynamoDBHashKey hashKeyAnnotation = getter.getAnnotation(DynamoDBHashKey.class);
-                if ( hashKeyAnnotation != null && hashKeyAnnotation.attributeName() != null
-                        && hashKeyAnnotation.attributeName().length() > 0 )
-                    return hashKeyAnnotation.attributeName();
-
-                // Then a range key
-                DynamoDBRangeKey rangeKey = getter.getAnnotation(DynamoDBRangeKey.class);
-                if ( rangeKey != null && rangeKey.attributeName() != null && rangeKey.attributeName().length() > 0 )
-                    return rangeKey.attributeName();
-
-                // Then an attribute
-                DynamoDBAttribute attribute = getter.getAnnotation(DynamoDBAttribute.class);
-                if ( attribute != null && attribute.attributeName() != null && attribute.attributeName().length() > 0 )
-                    return attribute.attributeName();
-
-                // Finally a version attribute
-                DynamoDBVersionAttribute version = getter.getAnnotation(DynamoDBVersionAttribute.class);
-                if ( version != null && version.attributeName() != null && version.attributeName().length() > 0 )
-                    return version.attributeName();
-
-                // Default to method name
-                String attributeName = null;
-                if ( getter.getName().startsWith("get") ) {
-                    attributeName = getter.getName().substring("get".length());
-                } else if ( getter.getName().startsWith("is") ) {
-                    attributeName = getter.getName().substring("is".length());
-                } else {
-                    throw new DynamoDBMappingException("Getter must begin with 'get' or 'is'");
-                }
-
-                // Lowercase the first letter of the name
-                attributeName = attributeName.substring(0, 1).toLowerCase() + attributeName.substring(1);
-                attributeNameCache.put(getter, attributeName);
+        if ( !attributeNameCache.containsKey(getter) ) {
+
+            // First check for a hash key annotation
+            DynamoDBHashKey hashKeyAnnotation = getter.getAnnotation(DynamoDBHashKey.class);
+            if ( hashKeyAnnotation != null && hashKeyAnnotation.attributeName() != null
+                    && hashKeyAnnotation.attributeName().length() > 0 )
+                return hashKeyAnnotation.attributeName();
+
+            // Then a range key
+            DynamoDBRangeKey rangeKey = getter.getAnnotation(DynamoDBRangeKey.class);
+            if ( rangeKey != null && rangeKey.attributeName() != null && rangeKey.attributeName().length() > 0 )
+                return rangeKey.attributeName();
+
+            // Then an attribute
+            DynamoDBAttribute attribute = getter.getAnnotation(DynamoDBAttribute.class);
+            if ( attribute != null && attribute.attributeName() != null && attribute.attributeName().length() > 0 )
+                return attribute.attributeName();
+
+            // Finally a version attribute
+            DynamoDBVersionAttribute version = getter.getAnnotation(DynamoDBVersionAttribute.class);
+            if ( version != null && version.attributeName() != null && version.attributeName().length() > 0 )
+                return version.attributeName();
+
+            // Default to method name
+            String attributeName = null;
+            if ( getter.getName().startsWith("get") ) {
+                attributeName = getter.getName().substring("get".length());
+            } else if ( getter.getName().startsWith("is") ) {
+                attributeName = getter.getName().substring("is".length());
+            } else {
+                throw new DynamoDBMappingException("Getter must begin with 'get' or 'is'");
             }
+
+            // Lowercase the first letter of the name
+            attributeName = attributeName.substring(0, 1).toLowerCase() + attributeName.substring(1);
+            attributeNameCache.putIfAbsent(getter, attributeName);
         }
         
         return attributeNameCache.get(getter);
@@ -870,30 +855,28 @@ public class DynamoDBReflector {
      * setter exists.
      */
     Method getSetter(Method getter) {
-        synchronized (setterCache) {
-            if ( !setterCache.containsKey(getter) ) {
-                String attributeName = null;
-                if ( getter.getName().startsWith("get") ) {
-                    attributeName = getter.getName().substring("get".length());
-                } else if ( getter.getName().startsWith("is") ) {
-                    attributeName = getter.getName().substring("is".length());
-                } else {
-                    // should be impossible to reach this exception
-                    throw new RuntimeException("Getter method must start with 'is' or 'get'");
-                }
-                String setterName = "set" + attributeName;
-                Method setter = null;
-                try {
-                    setter = getter.getDeclaringClass().getMethod(setterName, getter.getReturnType());
-                } catch ( NoSuchMethodException e ) {
-                    throw new DynamoDBMappingException("Expected a public, one-argument method called " + setterName
-                            + " on class " + getter.getDeclaringClass(), e);
-                } catch ( SecurityException e ) {
-                    throw new DynamoDBMappingException("No access to public, one-argument method called " + setterName
-                            + " on class " + getter.getDeclaringClass(), e);
-                }
-                setterCache.put(getter, setter);
+        if ( !setterCache.containsKey(getter) ) {
+            String attributeName = null;
+            if ( getter.getName().startsWith("get") ) {
+                attributeName = getter.getName().substring("get".length());
+            } else if ( getter.getName().startsWith("is") ) {
+                attributeName = getter.getName().substring("is".length());
+            } else {
+                // should be impossible to reach this exception
+                throw new RuntimeException("Getter method must start with 'is' or 'get'");
             }
+            String setterName = "set" + attributeName;
+            Method setter = null;
+            try {
+                setter = getter.getDeclaringClass().getMethod(setterName, getter.getReturnType());
+            } catch ( NoSuchMethodException e ) {
+                throw new DynamoDBMappingException("Expected a public, one-argument method called " + setterName
+                        + " on class " + getter.getDeclaringClass(), e);
+            } catch ( SecurityException e ) {
+                throw new DynamoDBMappingException("No access to public, one-argument method called " + setterName
+                        + " on class " + getter.getDeclaringClass(), e);
+            }
+            setterCache.putIfAbsent(getter, setter);
         }
         
         return setterCache.get(getter);
@@ -906,66 +889,64 @@ public class DynamoDBReflector {
      */
     ArgumentMarshaller getVersionedArgumentMarshaller(final Method getter, Object getterReturnResult) {
 
-        synchronized (versionArgumentMarshallerCache) {
-            if ( !versionArgumentMarshallerCache.containsKey(getter) ) {
-
-                ArgumentMarshaller marshaller = null;
+        if ( !versionArgumentMarshallerCache.containsKey(getter) ) {
 
-                final Class<?> returnType = getter.getReturnType();
-                if ( BigInteger.class.isAssignableFrom(returnType) ) {
-                    marshaller = new ArgumentMarshaller() {
+            ArgumentMarshaller marshaller = null;
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            if ( obj == null )
-                                obj = BigInteger.ZERO;
-                            Object newValue = ((BigInteger) obj).add(BigInteger.ONE);
-                            return getArgumentMarshaller(getter).marshall(newValue);
-                        }
-                    };
+            final Class<?> returnType = getter.getReturnType();
+            if ( BigInteger.class.isAssignableFrom(returnType) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                } else if ( Integer.class.isAssignableFrom(returnType) ) {
-                    marshaller = new ArgumentMarshaller() {
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        if ( obj == null )
+                            obj = BigInteger.ZERO;
+                        Object newValue = ((BigInteger) obj).add(BigInteger.ONE);
+                        return getArgumentMarshaller(getter).marshall(newValue);
+                    }
+                };
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            if ( obj == null )
-                                obj = new Integer(0);
-                            Object newValue = ((Integer) obj).intValue() + 1;
-                            return getArgumentMarshaller(getter).marshall(newValue);
-                        }
-                    };
+            } else if ( Integer.class.isAssignableFrom(returnType) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                } else if ( Byte.class.isAssignableFrom(returnType) ) {
-                    marshaller = new ArgumentMarshaller() {
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        if ( obj == null )
+                            obj = new Integer(0);
+                        Object newValue = ((Integer) obj).intValue() + 1;
+                        return getArgumentMarshaller(getter).marshall(newValue);
+                    }
+                };
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            if ( obj == null )
-                                obj = new Byte((byte) 0);
-                            Object newValue = (byte) ((((Byte) obj).byteValue() + 1) % Byte.MAX_VALUE);
-                            return getArgumentMarshaller(getter).marshall(newValue);
-                        }
-                    };
+            } else if ( Byte.class.isAssignableFrom(returnType) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                } else if ( Long.class.isAssignableFrom(returnType) ) {
-                    marshaller = new ArgumentMarshaller() {
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        if ( obj == null )
+                            obj = new Byte((byte) 0);
+                        Object newValue = (byte) ((((Byte) obj).byteValue() + 1) % Byte.MAX_VALUE);
+                        return getArgumentMarshaller(getter).marshall(newValue);
+                    }
+                };
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            if ( obj == null )
-                                obj = new Long(0);
-                            Object newValue = ((Long) obj).longValue() + 1L;
-                            return getArgumentMarshaller(getter).marshall(newValue);
-                        }
-                    };
-                } else {
-                    throw new DynamoDBMappingException("Unsupported parameter type for "
-                            + DynamoDBVersionAttribute.class + ": " + returnType + ". Must be a whole-number type.");
-                }
+            } else if ( Long.class.isAssignableFrom(returnType) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                versionArgumentMarshallerCache.put(getter, marshaller);
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        if ( obj == null )
+                            obj = new Long(0);
+                        Object newValue = ((Long) obj).longValue() + 1L;
+                        return getArgumentMarshaller(getter).marshall(newValue);
+                    }
+                };
+            } else {
+                throw new DynamoDBMappingException("Unsupported parameter type for "
+                        + DynamoDBVersionAttribute.class + ": " + returnType + ". Must be a whole-number type.");
             }
+
+            versionArgumentMarshallerCache.putIfAbsent(getter, marshaller);
         }
 
         return versionArgumentMarshallerCache.get(getter);
@@ -975,27 +956,25 @@ public class DynamoDBReflector {
      * Returns a marshaller for the auto-generated key returned by the getter given.
      */
     ArgumentMarshaller getAutoGeneratedKeyArgumentMarshaller(final Method getter) {
-        synchronized (keyArgumentMarshallerCache) {
-            if ( !keyArgumentMarshallerCache.containsKey(getter) ) {
-                ArgumentMarshaller marshaller = null;
+        if ( !keyArgumentMarshallerCache.containsKey(getter) ) {
+            ArgumentMarshaller marshaller = null;
 
-                Class<?> returnType = getter.getReturnType();
-                if ( String.class.isAssignableFrom(returnType) ) {
-                    marshaller = new ArgumentMarshaller() {
+            Class<?> returnType = getter.getReturnType();
+            if ( String.class.isAssignableFrom(returnType) ) {
+                marshaller = new ArgumentMarshaller() {
 
-                        @Override
-                        public AttributeValue marshall(Object obj) {
-                            String newValue = UUID.randomUUID().toString();
-                            return getArgumentMarshaller(getter).marshall(newValue);
-                        }
-                    };
-                } else {
-                    throw new DynamoDBMappingException("Unsupported type for " + getter + ": " + returnType
-                            + ".  Only Strings are supported when auto-generating keys.");
-                }
-
-                keyArgumentMarshallerCache.put(getter, marshaller);
+                    @Override
+                    public AttributeValue marshall(Object obj) {
+                        String newValue = UUID.randomUUID().toString();
+                        return getArgumentMarshaller(getter).marshall(newValue);
+                    }
+                };
+            } else {
+                throw new DynamoDBMappingException("Unsupported type for " + getter + ": " + returnType
+                        + ".  Only Strings are supported when auto-generating keys.");
             }
+
+            keyArgumentMarshallerCache.putIfAbsent(getter, marshaller);
         }
 
         return keyArgumentMarshallerCache.get(getter);
@@ -1006,13 +985,11 @@ public class DynamoDBReflector {
      * version attribute.
      */
     boolean isVersionAttributeGetter(Method getter) {
-        synchronized (versionAttributeGetterCache) {
-            if ( !versionAttributeGetterCache.containsKey(getter) ) {
-                versionAttributeGetterCache.put(
-                        getter,
-                        getter.getName().startsWith("get") && getter.getParameterTypes().length == 0
-                                && getter.isAnnotationPresent(DynamoDBVersionAttribute.class));
-            }
+        if ( !versionAttributeGetterCache.containsKey(getter) ) {
+            versionAttributeGetterCache.putIfAbsent(
+                    getter,
+                    getter.getName().startsWith("get") && getter.getParameterTypes().length == 0
+                            && getter.isAnnotationPresent(DynamoDBVersionAttribute.class));
         }
         
         return versionAttributeGetterCache.get(getter);
@@ -1022,14 +999,12 @@ public class DynamoDBReflector {
      * Returns whether the method given is an assignable key getter.
      */
     boolean isAssignableKey(Method getter) {
-        synchronized (autoGeneratedKeyGetterCache) {
-            if ( !autoGeneratedKeyGetterCache.containsKey(getter) ) {
-                autoGeneratedKeyGetterCache.put(
-                        getter,
-                        getter.isAnnotationPresent(DynamoDBAutoGeneratedKey.class)
-                                && (getter.isAnnotationPresent(DynamoDBHashKey.class) || getter
-                                        .isAnnotationPresent(DynamoDBRangeKey.class)));
-            }
+        if ( !autoGeneratedKeyGetterCache.containsKey(getter) ) {
+            autoGeneratedKeyGetterCache.putIfAbsent(
+                    getter,
+                    getter.isAnnotationPresent(DynamoDBAutoGeneratedKey.class)
+                            && (getter.isAnnotationPresent(DynamoDBHashKey.class) || getter
+                                    .isAnnotationPresent(DynamoDBRangeKey.class)));
         }
 
         return autoGeneratedKeyGetterCache.get(getter);
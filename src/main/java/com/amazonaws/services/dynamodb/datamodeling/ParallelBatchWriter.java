@@ -0,0 +1,296 @@
+/*
+ * Copyright 2011-2013 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodb.datamodeling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodb.AmazonDynamoDB;
+import com.amazonaws.services.dynamodb.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodb.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodb.model.BatchWriteResponse;
+import com.amazonaws.services.dynamodb.model.WriteRequest;
+
+/**
+ * Writes a set of put and delete requests to DynamoDB in batches of up to 25
+ * items, sending several batches at a time if requested.
+ * <p>
+ * Items DynamoDB returns as unprocessed, usually because a table's provisioned
+ * throughput was exceeded, are retried after an exponentially increasing,
+ * randomized delay, so that retries don't add to the load on a table that is
+ * already being throttled, and concurrent writers don't retry in lockstep.
+ */
+class ParallelBatchWriter {
+
+    /** The maximum number of items in a batch write request */
+    static final int MAX_ITEMS_PER_BATCH = 25;
+
+    /** The base delay, in milliseconds, before retrying unprocessed items */
+    private static final int BASE_BACKOFF_MILLIS = 50;
+
+    /** The maximum delay, in milliseconds, before retrying unprocessed items */
+    private static final int MAX_BACKOFF_MILLIS = 10 * 1000;
+
+    private static final Log log = LogFactory.getLog(ParallelBatchWriter.class);
+
+    private static final Random random = new Random();
+
+    private final AmazonDynamoDB db;
+    private final int parallelism;
+    private final BatchWriteListener listener;
+    private final Queue<Map<String, List<WriteRequest>>> batches;
+    private final Map<String, TableProgress> progress = new HashMap<String, TableProgress>();
+
+    /* Set when a batch fails, so the other threads stop sending batches */
+    private volatile boolean failed;
+
+    /**
+     * @param db
+     *            The client to send the requests with.
+     * @param requestItems
+     *            The write requests to send, keyed by table name.
+     * @param parallelism
+     *            The maximum number of requests to send at a time.
+     * @param listener
+     *            The listener to notify of each table's progress, or null.
+     */
+    ParallelBatchWriter(AmazonDynamoDB db, Map<String, List<WriteRequest>> requestItems, int parallelism,
+            BatchWriteListener listener) {
+        this.db = db;
+        this.parallelism = parallelism;
+        this.listener = listener;
+
+        for ( Entry<String, List<WriteRequest>> tableRequests : requestItems.entrySet() ) {
+            progress.put(tableRequests.getKey(), new TableProgress(tableRequests.getKey(), tableRequests.getValue()
+                    .size()));
+        }
+        this.batches = new ConcurrentLinkedQueue<Map<String, List<WriteRequest>>>(createBatches(requestItems));
+    }
+
+    /**
+     * Sends all the write requests, returning once every item has been
+     * processed.
+     *
+     * @throws AmazonClientException
+     *             If any batch couldn't be written. Batches which were
+     *             already written aren't rolled back.
+     */
+    void execute() {
+        int threads = Math.min(parallelism, batches.size());
+        if ( threads <= 1 ) {
+            writeBatches();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int threadCount = 1;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("dynamodb-mapper-batch-writer-" + threadCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+            for ( int i = 0; i < threads; i++ ) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        writeBatches();
+                        return null;
+                    }
+                }));
+            }
+
+            Throwable firstFailure = null;
+            for ( Future<Void> future : futures ) {
+                try {
+                    future.get();
+                } catch ( ExecutionException e ) {
+                    if ( firstFailure == null ) firstFailure = e.getCause();
+                }
+            }
+
+            if ( firstFailure instanceof RuntimeException ) throw (RuntimeException) firstFailure;
+            if ( firstFailure instanceof Error ) throw (Error) firstFailure;
+            if ( firstFailure != null ) {
+                throw new AmazonClientException("Unable to write batch: " + firstFailure.getMessage(), firstFailure);
+            }
+        } catch ( InterruptedException e ) {
+            failed = true;
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while waiting for batch writes to complete", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes batches from the queue and writes them until the queue is empty or
+     * another thread's batch fails.
+     */
+    private void writeBatches() {
+        Map<String, List<WriteRequest>> batch;
+        while ( !failed && (batch = batches.poll()) != null ) {
+            try {
+                writeBatch(batch);
+            } catch ( RuntimeException e ) {
+                failed = true;
+                throw e;
+            } catch ( Error e ) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes one batch, retrying any unprocessed items until they've all been
+     * written.
+     */
+    private void writeBatch(Map<String, List<WriteRequest>> batch) {
+        int retries = 0;
+        while ( true ) {
+            BatchWriteItemResult result = db.batchWriteItem(new BatchWriteItemRequest().withRequestItems(batch));
+            Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+            reportProgress(batch, unprocessedItems, result.getResponses());
+
+            if ( unprocessedItems == null || unprocessedItems.isEmpty() ) return;
+            if ( failed ) {
+                throw new AmazonClientException("Batch write abandoned after another batch failed");
+            }
+
+            pauseExponentially(retries++);
+            batch = unprocessedItems;
+        }
+    }
+
+    private void reportProgress(Map<String, List<WriteRequest>> batch,
+            Map<String, List<WriteRequest>> unprocessedItems, Map<String, BatchWriteResponse> responses) {
+        for ( Entry<String, List<WriteRequest>> tableRequests : batch.entrySet() ) {
+            String tableName = tableRequests.getKey();
+            int written = tableRequests.getValue().size();
+            if ( unprocessedItems != null && unprocessedItems.containsKey(tableName) ) {
+                written -= unprocessedItems.get(tableName).size();
+            }
+
+            double consumedCapacityUnits = 0;
+            if ( responses != null && responses.get(tableName) != null
+                    && responses.get(tableName).getConsumedCapacityUnits() != null ) {
+                consumedCapacityUnits = responses.get(tableName).getConsumedCapacityUnits();
+            }
+
+            BatchWriteProgress snapshot = progress.get(tableName).update(written, consumedCapacityUnits);
+            if ( listener != null && snapshot != null ) {
+                listener.progressChanged(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Sleeps for a random time between zero and an exponentially increasing
+     * limit ("full jitter").
+     */
+    private void pauseExponentially(int retries) {
+        int limit = BASE_BACKOFF_MILLIS << Math.min(retries, 16);
+        long delay = random.nextInt(Math.min(limit, MAX_BACKOFF_MILLIS)) + 1;
+
+        if ( log.isDebugEnabled() ) {
+            log.debug("Retrying unprocessed items after " + delay + "ms (retry " + (retries + 1) + ")");
+        }
+        try {
+            Thread.sleep(delay);
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while retrying unprocessed items", e);
+        }
+    }
+
+    /**
+     * Breaks the write requests into batches of up to 25 items, each of which
+     * may include items from several tables.
+     */
+    private static List<Map<String, List<WriteRequest>>> createBatches(Map<String, List<WriteRequest>> requestItems) {
+        List<Map<String, List<WriteRequest>>> batches = new LinkedList<Map<String, List<WriteRequest>>>();
+
+        Map<String, List<WriteRequest>> batch = new HashMap<String, List<WriteRequest>>();
+        int batchSize = 0;
+        for ( Entry<String, List<WriteRequest>> tableRequests : requestItems.entrySet() ) {
+            Iterator<WriteRequest> writeRequestIter = tableRequests.getValue().iterator();
+            while ( writeRequestIter.hasNext() ) {
+                if ( batchSize == MAX_ITEMS_PER_BATCH ) {
+                    batches.add(batch);
+                    batch = new HashMap<String, List<WriteRequest>>();
+                    batchSize = 0;
+                }
+                if ( !batch.containsKey(tableRequests.getKey()) ) {
+                    batch.put(tableRequests.getKey(), new LinkedList<WriteRequest>());
+                }
+                batch.get(tableRequests.getKey()).add(writeRequestIter.next());
+                batchSize++;
+            }
+        }
+        if ( batchSize > 0 ) batches.add(batch);
+
+        return batches;
+    }
+
+    /**
+     * Running totals of the writes to one table.
+     */
+    private static final class TableProgress {
+        private final String tableName;
+        private final int totalItems;
+        private int itemsWritten;
+        private double consumedCapacityUnits;
+
+        TableProgress(String tableName, int totalItems) {
+            this.tableName = tableName;
+            this.totalItems = totalItems;
+        }
+
+        /**
+         * Adds the results of a request to the totals, returning a snapshot
+         * of the new totals, or null if nothing changed.
+         */
+        synchronized BatchWriteProgress update(int written, double consumedCapacityUnits) {
+            if ( written == 0 && consumedCapacityUnits == 0 ) return null;
+
+            this.itemsWritten += written;
+            this.consumedCapacityUnits += consumedCapacityUnits;
+            return new BatchWriteProgress(tableName, totalItems, itemsWritten, this.consumedCapacityUnits);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2011-2013 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodb.datamodeling;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodb.AmazonDynamoDB;
+import com.amazonaws.services.dynamodb.model.ScanRequest;
+import com.amazonaws.services.dynamodb.model.ScanResult;
+
+/**
+ * Iterator over the results of a parallel scan in Amazon DynamoDB, returned by
+ * {@link DynamoDBMapper#parallelScan(Class, DynamoDBScanExpression, int)}.
+ * <p>
+ * Each segment of the table is scanned on its own thread, which marshalls
+ * every page of results into objects and hands it to the iterator through a
+ * queue holding at most one page per segment. Scanning threads wait while the
+ * queue is full, and the iterator forgets each object once it has returned it,
+ * so memory use stays the same however large the table is. Results from
+ * different segments are interleaved in no particular order.
+ * <p>
+ * If an iteration is abandoned before the end of the results, callers should
+ * call {@link #cancel()} so the scanning threads stop. A failed scan request
+ * is thrown from {@link #hasNext()} or {@link #next()}, after which the
+ * remaining segments are cancelled.
+ * <p>
+ * Iterators are not safe for use by multiple threads, and don't support
+ * {@link #remove()}.
+ *
+ * @param <T>
+ *            The domain object type returned by this iterator.
+ */
+public class ParallelScanIterator<T> implements Iterator<T> {
+
+    private final BlockingQueue<Page<T>> pages;
+    private final ExecutorService executor;
+
+    /** The number of segments which haven't finished scanning */
+    private int segmentsRemaining;
+
+    /** The page being returned, or null once all its objects have been returned */
+    private List<T> currentPage;
+    private int position;
+
+    private volatile boolean cancelled;
+
+    ParallelScanIterator(final DynamoDBMapper mapper, final Class<T> clazz, final AmazonDynamoDB dynamo,
+            List<ScanRequest> segmentScanRequests) {
+        this.segmentsRemaining = segmentScanRequests.size();
+        this.pages = new ArrayBlockingQueue<Page<T>>(segmentsRemaining);
+        this.executor = Executors.newFixedThreadPool(segmentsRemaining, new ThreadFactory() {
+            private int threadCount = 1;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("dynamodb-mapper-parallel-scan-" + threadCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for ( final ScanRequest scanRequest : segmentScanRequests ) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        scanSegment(mapper, clazz, dynamo, scanRequest);
+                    } catch ( InterruptedException e ) {
+                        // Cancelled
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Scans one segment of the table, a page at a time, adding each non-empty
+     * page of objects to the queue, followed by a page marking the end of the
+     * segment or, if a request fails, the failure.
+     */
+    private void scanSegment(DynamoDBMapper mapper, Class<T> clazz, AmazonDynamoDB dynamo, ScanRequest scanRequest)
+            throws InterruptedException {
+        Page<T> lastPage = new Page<T>(null, null);
+        try {
+            ScanResult scanResult;
+            do {
+                if ( cancelled )
+                    return;
+                scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(scanRequest));
+                List<T> objects = mapper.marshallIntoObjects(clazz, scanResult.getItems());
+                if ( !objects.isEmpty() )
+                    pages.put(new Page<T>(objects, null));
+                scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
+            } while ( scanResult.getLastEvaluatedKey() != null );
+        } catch ( RuntimeException e ) {
+            lastPage = new Page<T>(null, e);
+        } catch ( Error e ) {
+            lastPage = new Page<T>(null, new AmazonClientException("Unable to scan segment " + scanRequest.getSegment()
+                    + ": " + e.getMessage(), e));
+        }
+        pages.put(lastPage);
+    }
+
+    /**
+     * Returns whether there are more objects, waiting for the scanning threads
+     * to load them if necessary.
+     */
+    @Override
+    public boolean hasNext() {
+        while ( currentPage == null ) {
+            if ( segmentsRemaining == 0 )
+                return false;
+
+            Page<T> page;
+            try {
+                page = pages.take();
+            } catch ( InterruptedException e ) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Interrupted while waiting for scan results", e);
+            }
+
+            if ( page.failure != null ) {
+                cancel();
+                throw page.failure;
+            } else if ( page.objects == null ) {
+                if ( --segmentsRemaining == 0 )
+                    executor.shutdown();
+            } else {
+                currentPage = page.objects;
+                position = 0;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if ( !hasNext() )
+            throw new NoSuchElementException();
+
+        T next = currentPage.set(position++, null);
+        if ( position == currentPage.size() )
+            currentPage = null;
+        return next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Parallel scan results can't be removed");
+    }
+
+    /**
+     * Stops scanning the table and discards any results which haven't been
+     * returned yet. Afterwards, {@link #hasNext()} returns false.
+     */
+    public void cancel() {
+        cancelled = true;
+        executor.shutdownNow();
+        pages.clear();
+        segmentsRemaining = 0;
+        currentPage = null;
+    }
+
+    /**
+     * A page of objects from one segment, or the end of a segment, in which
+     * case objects is null, or a failure scanning it.
+     */
+    private static final class Page<T> {
+        private final List<T> objects;
+        private final RuntimeException failure;
+
+        private Page(List<T> objects, RuntimeException failure) {
+            this.objects = objects;
+            this.failure = failure;
+        }
+    }
+}
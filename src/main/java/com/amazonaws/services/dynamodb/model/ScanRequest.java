@@ -91,6 +91,27 @@ public class ScanRequest extends AmazonWebServiceRequest  implements Serializabl
      */
     private Key exclusiveStartKey;
 
+    /**
+     * For a parallel scan, the segment of the table which this request
+     * scans. Segments are numbered from 0 to one less than
+     * <code>TotalSegments</code>, and each one must be scanned by its own
+     * sequence of requests, passing back the <code>LastEvaluatedKey</code> of
+     * the segment's previous page.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>0 - 999999<br/>
+     */
+    private Integer segment;
+
+    /**
+     * For a parallel scan, the number of segments the table is divided
+     * into. Must be specified together with <code>Segment</code>.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>1 - 1000000<br/>
+     */
+    private Integer totalSegments;
+
     /**
      * Default constructor for a new ScanRequest object.  Callers should use the
      * setter or fluent setter (with...) methods to initialize this object after creating it.
@@ -537,6 +558,107 @@ public class ScanRequest extends AmazonWebServiceRequest  implements Serializabl
         return this;
     }
     
+
+    /**
+     * For a parallel scan, the segment of the table which this request
+     * scans. Segments are numbered from 0 to one less than
+     * <code>TotalSegments</code>, and each one must be scanned by its own
+     * sequence of requests, passing back the <code>LastEvaluatedKey</code> of
+     * the segment's previous page.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>0 - 999999<br/>
+     *
+     * @return The segment of the table which this request scans.
+     */
+    public Integer getSegment() {
+        return segment;
+    }
+    
+    /**
+     * For a parallel scan, the segment of the table which this request
+     * scans. Segments are numbered from 0 to one less than
+     * <code>TotalSegments</code>, and each one must be scanned by its own
+     * sequence of requests, passing back the <code>LastEvaluatedKey</code> of
+     * the segment's previous page.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>0 - 999999<br/>
+     *
+     * @param segment The segment of the table which this request scans.
+     */
+    public void setSegment(Integer segment) {
+        this.segment = segment;
+    }
+    
+    /**
+     * For a parallel scan, the segment of the table which this request
+     * scans. Segments are numbered from 0 to one less than
+     * <code>TotalSegments</code>, and each one must be scanned by its own
+     * sequence of requests, passing back the <code>LastEvaluatedKey</code> of
+     * the segment's previous page.
+     * <p>
+     * Returns a reference to this object so that method calls can be chained together.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>0 - 999999<br/>
+     *
+     * @param segment The segment of the table which this request scans.
+     *
+     * @return A reference to this updated object so that method calls can be chained 
+     *         together. 
+     */
+    public ScanRequest withSegment(Integer segment) {
+        this.segment = segment;
+        return this;
+    }
+    
+
+    /**
+     * For a parallel scan, the number of segments the table is divided
+     * into. Must be specified together with <code>Segment</code>.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>1 - 1000000<br/>
+     *
+     * @return The number of segments the table is divided into.
+     */
+    public Integer getTotalSegments() {
+        return totalSegments;
+    }
+    
+    /**
+     * For a parallel scan, the number of segments the table is divided
+     * into. Must be specified together with <code>Segment</code>.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>1 - 1000000<br/>
+     *
+     * @param totalSegments The number of segments the table is divided into.
+     */
+    public void setTotalSegments(Integer totalSegments) {
+        this.totalSegments = totalSegments;
+    }
+    
+    /**
+     * For a parallel scan, the number of segments the table is divided
+     * into. Must be specified together with <code>Segment</code>.
+     * <p>
+     * Returns a reference to this object so that method calls can be chained together.
+     * <p>
+     * <b>Constraints:</b><br/>
+     * <b>Range: </b>1 - 1000000<br/>
+     *
+     * @param totalSegments The number of segments the table is divided into.
+     *
+     * @return A reference to this updated object so that method calls can be chained 
+     *         together. 
+     */
+    public ScanRequest withTotalSegments(Integer totalSegments) {
+        this.totalSegments = totalSegments;
+        return this;
+    }
+    
     
     /**
      * Returns a string representation of this object; useful for testing and
@@ -556,6 +678,8 @@ public class ScanRequest extends AmazonWebServiceRequest  implements Serializabl
         if (isCount() != null) sb.append("Count: " + isCount() + ", ");
         if (getScanFilter() != null) sb.append("ScanFilter: " + getScanFilter() + ", ");
         if (getExclusiveStartKey() != null) sb.append("ExclusiveStartKey: " + getExclusiveStartKey() + ", ");
+        if (getSegment() != null) sb.append("Segment: " + getSegment() + ", ");
+        if (getTotalSegments() != null) sb.append("TotalSegments: " + getTotalSegments() + ", ");
         sb.append("}");
         return sb.toString();
     }
@@ -571,6 +695,8 @@ public class ScanRequest extends AmazonWebServiceRequest  implements Serializabl
         hashCode = prime * hashCode + ((isCount() == null) ? 0 : isCount().hashCode()); 
         hashCode = prime * hashCode + ((getScanFilter() == null) ? 0 : getScanFilter().hashCode()); 
         hashCode = prime * hashCode + ((getExclusiveStartKey() == null) ? 0 : getExclusiveStartKey().hashCode()); 
+        hashCode = prime * hashCode + ((getSegment() == null) ? 0 : getSegment().hashCode()); 
+        hashCode = prime * hashCode + ((getTotalSegments() == null) ? 0 : getTotalSegments().hashCode()); 
         return hashCode;
     }
     
@@ -594,6 +720,10 @@ public class ScanRequest extends AmazonWebServiceRequest  implements Serializabl
         if (other.getScanFilter() != null && other.getScanFilter().equals(this.getScanFilter()) == false) return false; 
         if (other.getExclusiveStartKey() == null ^ this.getExclusiveStartKey() == null) return false;
         if (other.getExclusiveStartKey() != null && other.getExclusiveStartKey().equals(this.getExclusiveStartKey()) == false) return false; 
+        if (other.getSegment() == null ^ this.getSegment() == null) return false;
+        if (other.getSegment() != null && other.getSegment().equals(this.getSegment()) == false) return false; 
+        if (other.getTotalSegments() == null ^ this.getTotalSegments() == null) return false;
+        if (other.getTotalSegments() != null && other.getTotalSegments().equals(this.getTotalSegments()) == false) return false; 
         return true;
     }
     
@@ -78,8 +78,7 @@ public class ScanRequestMarshaller implements Marshaller<Request<ScanRequest>, S
 
         
         try {
-          StringWriter stringWriter = new StringWriter();
-          JSONWriter jsonWriter = new JSONWriter(stringWriter);
+          JSONUtf8Writer jsonWriter = new JSONUtf8Writer();
 
           
             
@@ -316,13 +315,18 @@ public class ScanRequestMarshaller implements Marshaller<Request<ScanRequest>, S
                 }
                 jsonWriter.endObject();
             }
+            if (scanRequest.getSegment() != null) {
+                jsonWriter.key("Segment").value(scanRequest.getSegment());
+            }
+            if (scanRequest.getTotalSegments() != null) {
+                jsonWriter.key("TotalSegments").value(scanRequest.getTotalSegments());
+            }
 
           jsonWriter.endObject();
           
 
-          String snippet = stringWriter.toString();
-          byte[] content = snippet.getBytes("UTF-8");
-          request.setContent(new StringInputStream(snippet));
+          byte[] content = jsonWriter.getBytes();
+          request.setContent(new ByteArrayInputStream(content));
           request.addHeader("Content-Length", Integer.toString(content.length));
         } catch(Throwable t) {
           throw new AmazonClientException("Unable to marshall request to JSON: " + t.getMessage(), t);
@@ -39,6 +39,8 @@ import com.amazonaws.services.glacier.internal.TreeHashInputStream;
 import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
 import com.amazonaws.services.glacier.model.GetJobOutputRequest;
 import com.amazonaws.services.glacier.model.GetJobOutputResult;
 import com.amazonaws.services.glacier.model.InitiateJobRequest;
@@ -49,11 +51,10 @@ import com.amazonaws.services.glacier.model.JobParameters;
 import com.amazonaws.services.glacier.model.UploadArchiveRequest;
 import com.amazonaws.services.glacier.model.UploadArchiveResult;
 import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
-import com.amazonaws.services.s3.internal.InputSubstream;
-import com.amazonaws.services.s3.internal.RepeatableFileInputStream;
 import com.amazonaws.services.sns.AmazonSNSClient;
 import com.amazonaws.services.sqs.AmazonSQSClient;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.FileRegionInputStream;
 
 /**
  * Utilities for uploading and downloading data to and from AWS Glacier.
@@ -69,6 +70,9 @@ public class ArchiveTransferManager {
     /** Threshold, in bytes, for when to use the multipart upload operations */
     private static final long MULTIPART_UPLOAD_SIZE_THRESHOLD = 1024L * 1024L * 100;
 
+    /** The maximum number of parts in a Glacier multipart upload. */
+    private static final long MAXIMUM_UPLOAD_PARTS = 10000;
+
     /** Glacier client used for making all requests. */
     private final AmazonGlacier glacier;
 
@@ -80,6 +84,15 @@ public class ArchiveTransferManager {
 
 	private final AmazonSNSClient sns;
 
+	/** The maximum number of parts of a multipart upload to upload at a time. */
+	private int maxConcurrentPartUploads = 1;
+
+	/** The size of each chunk of a chunked download, or 0 to download archives in one request. */
+	private long downloadChunkSize = 0;
+
+	/** The maximum number of chunks of a chunked download to download at a time. */
+	private int maxConcurrentChunkDownloads = 1;
+
 	/**
 	 * Constructs a new ArchiveTransferManager, using the specified AWS
 	 * credentials to authenticate requests.
@@ -177,6 +190,95 @@ public class ArchiveTransferManager {
 		this.sns = sns;
     }
 
+	/**
+	 * Returns the maximum number of parts of a multipart upload which are
+	 * uploaded at a time. Defaults to 1, which uploads parts one after
+	 * another.
+	 *
+	 * @return The maximum number of parts uploaded at a time.
+	 */
+	public int getMaxConcurrentPartUploads() {
+		return maxConcurrentPartUploads;
+	}
+
+	/**
+	 * Sets the maximum number of parts of a multipart upload which are
+	 * uploaded at a time.
+	 * <p>
+	 * When set above 1, archives are uploaded in the smallest parts Glacier
+	 * allows for their size, and each upload thread reads its part into a
+	 * buffer of its own, computing the part's tree hash as it goes, before
+	 * uploading it. Each file is read only once, and memory use is capped at
+	 * roughly this many times the part size.
+	 *
+	 * @param maxConcurrentPartUploads
+	 *            The maximum number of parts to upload at a time.
+	 */
+	public void setMaxConcurrentPartUploads(int maxConcurrentPartUploads) {
+		if (maxConcurrentPartUploads < 1) {
+			throw new IllegalArgumentException("The number of concurrent part uploads must be at least 1");
+		}
+		this.maxConcurrentPartUploads = maxConcurrentPartUploads;
+	}
+
+	/**
+	 * Returns the size, in bytes, of each byte range fetched by a chunked
+	 * download, or 0 if archives are downloaded with a single request.
+	 *
+	 * @return The size of each chunk of a chunked download.
+	 */
+	public long getDownloadChunkSize() {
+		return downloadChunkSize;
+	}
+
+	/**
+	 * Sets the size, in bytes, of each byte range fetched by a chunked
+	 * download. Setting a size above 0 enables chunked downloads, which are
+	 * disabled by default.
+	 * <p>
+	 * A chunked download requests the archive in byte ranges, writing each
+	 * range directly to its offset in the destination file once its tree hash
+	 * has been checked. Completed ranges are recorded in a file next to the
+	 * destination file, with the suffix <code>.progress</code>, so a download
+	 * which is interrupted picks up where it stopped the next time the same
+	 * archive is downloaded to the same file. The progress file is deleted
+	 * once the download completes.
+	 *
+	 * @param downloadChunkSize
+	 *            The size of each chunk. Sizes are rounded up to a power of
+	 *            two multiple of one megabyte, so that Glacier returns the tree
+	 *            hash of each range.
+	 */
+	public void setDownloadChunkSize(long downloadChunkSize) {
+		this.downloadChunkSize = downloadChunkSize;
+	}
+
+	/**
+	 * Returns the maximum number of chunks of a chunked download which are
+	 * downloaded at a time. Defaults to 1.
+	 *
+	 * @return The maximum number of chunks downloaded at a time.
+	 */
+	public int getMaxConcurrentChunkDownloads() {
+		return maxConcurrentChunkDownloads;
+	}
+
+	/**
+	 * Sets the maximum number of chunks of a chunked download which are
+	 * downloaded at a time, each with its own connection.
+	 *
+	 * @param maxConcurrentChunkDownloads
+	 *            The maximum number of chunks to download at a time.
+	 *
+	 * @see #setDownloadChunkSize(long)
+	 */
+	public void setMaxConcurrentChunkDownloads(int maxConcurrentChunkDownloads) {
+		if (maxConcurrentChunkDownloads < 1) {
+			throw new IllegalArgumentException("The number of concurrent chunk downloads must be at least 1");
+		}
+		this.maxConcurrentChunkDownloads = maxConcurrentChunkDownloads;
+	}
+
 	/**
 	 * Uploads the specified file to Amazon Glacier for archival storage in the
 	 * specified vault for the user's current account. For small archives, this
@@ -314,6 +416,7 @@ public class ArchiveTransferManager {
             throws AmazonServiceException, AmazonClientException {
 
     	JobStatusMonitor jobStatusMonitor = null;
+    	String jobId = null;
     	GetJobOutputResult jobOutputResult = null;
     	try {
     		if (credentialsProvider != null && clientConfiguration != null) {
@@ -331,20 +434,78 @@ public class ArchiveTransferManager {
     				.withAccountId(accountId)
     				.withVaultName(vaultName)
     				.withJobParameters(jobParameters));
-    		String jobId = archiveRetrievalResult.getJobId();
+    		jobId = archiveRetrievalResult.getJobId();
 
     		jobStatusMonitor.waitForJobToComplete(jobId);
-    		jobOutputResult = glacier.getJobOutput(new GetJobOutputRequest()
-    			.withAccountId(accountId)
-    			.withVaultName(vaultName)
-    			.withJobId(jobId));
+    		if (downloadChunkSize <= 0) {
+    			jobOutputResult = glacier.getJobOutput(new GetJobOutputRequest()
+    				.withAccountId(accountId)
+    				.withVaultName(vaultName)
+    				.withJobId(jobId));
+    		}
     	} finally {
             if ( jobStatusMonitor != null ) {
                 jobStatusMonitor.shutdown();
             }
     	}
 
-    	downloadJobOutput(jobOutputResult, file);
+    	if (jobOutputResult != null) {
+    		downloadJobOutput(jobOutputResult, file);
+    	} else {
+    		downloadJobOutput(accountId, vaultName, jobId, file);
+    	}
+    }
+
+	/**
+	 * Downloads the output of a completed archive retrieval job in the
+	 * specified vault in the specified user's account, and saves it to the
+	 * specified file. Since Glacier keeps the output of a job available for
+	 * some time after the job completes, this method can be used to finish a
+	 * chunked download which was interrupted without waiting for a new job.
+	 *
+	 * @param accountId
+	 *            The ID for the account which owns the Glacier vault where the
+	 *            archive is being downloaded from. To use the same account the
+	 *            developer is using to make requests to AWS, the value
+	 *            <code>"-"</code> can be used instead of the full account ID.
+	 * @param vaultName
+	 *            The name of the vault to download the archive from.
+	 * @param jobId
+	 *            The ID of the completed archive retrieval job.
+	 * @param file
+	 *            The file save the archive to.
+	 *
+	 * @throws AmazonServiceException
+	 *             If any problems were encountered while communicating with
+	 *             AWS.
+	 * @throws AmazonClientException
+	 *             If any problems were encountered inside the AWS SDK for Java
+	 *             client code in making requests or processing responses from
+	 *             AWS.
+	 *
+	 * @see #setDownloadChunkSize(long)
+	 */
+    public void downloadJobOutput(final String accountId, final String vaultName, final String jobId, final File file)
+            throws AmazonServiceException, AmazonClientException {
+    	DescribeJobResult job = null;
+    	if (downloadChunkSize > 0) {
+    		job = glacier.describeJob(new DescribeJobRequest(accountId, vaultName, jobId));
+    	}
+
+    	if (job == null || job.getArchiveSizeInBytes() == null || job.getArchiveSizeInBytes() == 0) {
+    		downloadJobOutput(glacier.getJobOutput(new GetJobOutputRequest()
+    			.withAccountId(accountId)
+    			.withVaultName(vaultName)
+    			.withJobId(jobId)), file);
+    		return;
+    	}
+
+    	long chunkSize = MINIMUM_PART_SIZE;
+    	while (chunkSize < downloadChunkSize && chunkSize*2 <= MAXIMUM_PART_SIZE) {
+    		chunkSize *= 2;
+    	}
+    	new ChunkedJobOutputDownloader(glacier, accountId, vaultName, jobId, file, job.getArchiveSizeInBytes(),
+    			job.getSHA256TreeHash(), chunkSize, maxConcurrentChunkDownloads).download();
     }
 
     private void downloadJobOutput(GetJobOutputResult jobOutputResult, File file) {
@@ -406,15 +567,41 @@ public class ArchiveTransferManager {
         return partSize;
     }
 
-    private InputSubstream newInputSubstream(File file, long startingPosition, long length) {
+    /**
+     * Calculates the smallest part size which can be used to upload an
+     * archive of the specified size, keeping the number of parts within
+     * Glacier's limit. Parts are kept small when they're uploaded
+     * concurrently, since each one being uploaded is held in memory.
+     *
+     * @param fileSize
+     *            The size of the file being uploaded.
+     *
+     * @return The smallest part size to use in the multipart upload.
+     */
+    private long calculateMinimumPartSize(long fileSize) {
+        long partSize = MINIMUM_PART_SIZE;
+        while (partSize * MAXIMUM_UPLOAD_PARTS < fileSize && partSize*2 <= MAXIMUM_PART_SIZE) {
+            partSize *= 2;
+        }
+        return partSize;
+    }
+
+    private FileRegionInputStream newFileRegionInputStream(File file, long startingPosition, long length) {
         try {
-            return new InputSubstream(new RepeatableFileInputStream(file), startingPosition, length, true);
+            return new FileRegionInputStream(file, startingPosition, length);
         } catch (FileNotFoundException e) {
             throw new AmazonClientException("Unable to find file '" + file.getAbsolutePath() + "'", e);
         }
     }
 
     private UploadResult uploadInMultipleParts(final String accountId, final String vaultName, final String archiveDescription, final File file) {
+        if (maxConcurrentPartUploads > 1) {
+            long partSize = calculateMinimumPartSize(file.length());
+            if (partSize <= Integer.MAX_VALUE) {
+                return uploadInParallelParts(accountId, vaultName, archiveDescription, file, (int)partSize);
+            }
+        }
+
         long partSize = calculatePartSize(file.length());
         String partSizeString = Long.toString(partSize);
         InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
@@ -434,7 +621,7 @@ public class ArchiveTransferManager {
 	                length = file.length() - currentPosition;
 	            }
 
-				InputStream inputSubStream = newInputSubstream(file, currentPosition, length);
+				InputStream inputSubStream = newFileRegionInputStream(file, currentPosition, length);
 				inputSubStream.mark(-1);
 				String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
 				byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
@@ -476,11 +663,40 @@ public class ArchiveTransferManager {
     }
 
 
+    private UploadResult uploadInParallelParts(final String accountId, final String vaultName, final String archiveDescription, final File file, final int partSize) {
+        InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
+            .withAccountId(accountId)
+            .withArchiveDescription(archiveDescription)
+            .withVaultName(vaultName)
+            .withPartSize(Integer.toString(partSize)));
+        String uploadId = initiateResult.getUploadId();
+
+        try {
+            String checksum = new ParallelArchiveUploader(glacier, accountId, vaultName, uploadId, file,
+                    partSize, maxConcurrentPartUploads).uploadParts();
+
+            String archiveSize = Long.toString(file.length());
+            CompleteMultipartUploadResult completeMultipartUploadResult =
+                glacier.completeMultipartUpload(new CompleteMultipartUploadRequest()
+                    .withAccountId(accountId)
+                    .withArchiveSize(archiveSize)
+                    .withVaultName(vaultName)
+                    .withChecksum(checksum)
+                    .withUploadId(uploadId));
+
+            String artifactId = completeMultipartUploadResult.getArchiveId();
+            return new UploadResult(artifactId);
+        } catch (Exception e) {
+            glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
+            throw new AmazonClientException("Unable to finish the upload", e);
+        }
+    }
+
     private UploadResult uploadInSinglePart(final String accountId, final String vaultName, final String archiveDescription, final File file)
             throws AmazonServiceException, AmazonClientException, FileNotFoundException {
         String checksum = TreeHashGenerator.calculateTreeHash(file);
 
-        RepeatableFileInputStream input = new RepeatableFileInputStream(file);
+        FileRegionInputStream input = new FileRegionInputStream(file, 0, file.length());
         try {
             UploadArchiveResult uploadArchiveResult =
                 glacier.uploadArchive(new UploadArchiveRequest()
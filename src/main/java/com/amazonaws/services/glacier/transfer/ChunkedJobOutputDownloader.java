@@ -0,0 +1,350 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.internal.TreeHashInputStream;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * Downloads the output of an archive retrieval job in chunks, fetching
+ * several byte ranges at a time and writing each one directly to its offset in
+ * the destination file.
+ * <p>
+ * Each chunk is checked against the tree hash Glacier returns for its range.
+ * Chunks which have been written and checked are recorded in a progress file
+ * next to the destination file, so a download which is interrupted resumes
+ * with the chunks it didn't finish. Once every chunk is in place, the chunks'
+ * tree hashes are combined and checked against the archive's tree hash, and
+ * the progress file is deleted.
+ */
+class ChunkedJobOutputDownloader {
+
+    /** The suffix of the progress file kept next to the destination file */
+    static final String PROGRESS_FILE_SUFFIX = ".progress";
+
+    /** The number of attempts made for each chunk before the download fails */
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final Log log = LogFactory.getLog(ChunkedJobOutputDownloader.class);
+
+    private final AmazonGlacier glacier;
+    private final String accountId;
+    private final String vaultName;
+    private final String jobId;
+    private final File file;
+    private final File progressFile;
+    private final long archiveSize;
+    private final String archiveTreeHash;
+    private final long chunkSize;
+    private final int chunkCount;
+    private final int parallelism;
+
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final byte[][] binaryChecksums;
+
+    private FileChannel channel;
+    private OutputStream progressOutput;
+
+    /* Set when a chunk fails, so the other threads stop downloading chunks */
+    private volatile boolean failed;
+
+    /**
+     * @param glacier
+     *            The client to download the chunks with.
+     * @param accountId
+     *            The ID of the account which owns the vault, or null.
+     * @param vaultName
+     *            The name of the vault the archive is stored in.
+     * @param jobId
+     *            The ID of the completed archive retrieval job.
+     * @param file
+     *            The file to save the archive to.
+     * @param archiveSize
+     *            The size of the archive, in bytes.
+     * @param archiveTreeHash
+     *            The hex encoded tree hash of the archive.
+     * @param chunkSize
+     *            The size of each chunk, which must be a power of two
+     *            multiple of one megabyte.
+     * @param parallelism
+     *            The maximum number of chunks to download at a time.
+     */
+    ChunkedJobOutputDownloader(AmazonGlacier glacier, String accountId, String vaultName, String jobId, File file,
+            long archiveSize, String archiveTreeHash, long chunkSize, int parallelism) {
+        this.glacier = glacier;
+        this.accountId = accountId;
+        this.vaultName = vaultName;
+        this.jobId = jobId;
+        this.file = file;
+        this.progressFile = new File(file.getPath() + PROGRESS_FILE_SUFFIX);
+        this.archiveSize = archiveSize;
+        this.archiveTreeHash = archiveTreeHash;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int)Math.max(1, (archiveSize + chunkSize - 1) / chunkSize);
+        this.parallelism = parallelism;
+        this.binaryChecksums = new byte[chunkCount][];
+    }
+
+    /**
+     * Downloads every chunk which hasn't already been recorded as complete,
+     * returning once the whole archive has been saved and checked.
+     *
+     * @throws AmazonClientException
+     *             If any chunk couldn't be downloaded, or the archive's tree
+     *             hash doesn't match. Completed chunks stay recorded in the
+     *             progress file.
+     */
+    void download() {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            boolean resuming = readProgress();
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(archiveSize);
+            channel = randomAccessFile.getChannel();
+            progressOutput = new FileOutputStream(progressFile, resuming);
+            if (!resuming) writeProgress(progressHeader());
+
+            List<Integer> remainingChunks = new ArrayList<Integer>();
+            for (int i = 0; i < chunkCount; i++) {
+                if (binaryChecksums[i] == null) remainingChunks.add(i);
+            }
+            if (resuming) {
+                log.info("Resuming download of " + file + " with " + remainingChunks.size() + " of "
+                        + chunkCount + " chunks remaining");
+            }
+            downloadChunks(remainingChunks);
+
+            String checksum = TreeHashGenerator.calculateTreeHash(Arrays.asList(binaryChecksums));
+            if (archiveTreeHash != null && !checksum.equalsIgnoreCase(archiveTreeHash)) {
+                throw new AmazonClientException("Client side computed hash doesn't match server side hash; possible data corruption");
+            }
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to save archive to disk", e);
+        } finally {
+            try {progressOutput.close();} catch (Exception e) {}
+            try {randomAccessFile.close();} catch (Exception e) {}
+        }
+
+        if (!progressFile.delete()) {
+            log.warn("Unable to delete download progress file " + progressFile);
+        }
+    }
+
+    private void downloadChunks(final List<Integer> chunks) {
+        int threads = Math.min(parallelism, chunks.size());
+        if (threads == 0) return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int threadCount = 1;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("glacier-job-output-downloader-" + threadCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        try {
+                            int next;
+                            while (!failed && (next = nextChunk.getAndIncrement()) < chunks.size()) {
+                                downloadChunk(chunks.get(next));
+                            }
+                            return null;
+                        } catch (Exception e) {
+                            failed = true;
+                            throw e;
+                        }
+                    }
+                }));
+            }
+
+            Throwable firstFailure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) firstFailure = e.getCause();
+                }
+            }
+
+            if (firstFailure instanceof AmazonClientException) throw (AmazonClientException)firstFailure;
+            if (firstFailure != null) {
+                throw new AmazonClientException("Unable to download chunk: " + firstFailure.getMessage(), firstFailure);
+            }
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while waiting for chunks to download", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads one chunk, retrying it from the start if the connection fails
+     * or its data doesn't match its tree hash, and records it as complete once
+     * it's safely on disk.
+     */
+    private void downloadChunk(int chunk) throws IOException, NoSuchAlgorithmException {
+        long firstByte = chunk * chunkSize;
+        long lastByte = Math.min(firstByte + chunkSize, archiveSize) - 1;
+
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                binaryChecksums[chunk] = downloadRange(firstByte, lastByte);
+                break;
+            } catch (AmazonServiceException e) {
+                throw e;
+            } catch (AmazonClientException e) {
+                if (attempt >= MAX_CHUNK_ATTEMPTS || failed || Thread.currentThread().isInterrupted()) throw e;
+                log.debug("Retrying download of bytes " + firstByte + "-" + lastByte
+                        + " after failure: " + e.getMessage());
+            }
+        }
+
+        channel.force(false);
+        writeProgress(chunk + " " + BinaryUtils.toHex(binaryChecksums[chunk]));
+    }
+
+    /**
+     * Requests a range of the job output and writes it to the destination
+     * file, returning its binary tree hash once it's been checked.
+     */
+    private byte[] downloadRange(long firstByte, long lastByte) throws IOException, NoSuchAlgorithmException {
+        GetJobOutputResult result = glacier.getJobOutput(new GetJobOutputRequest()
+            .withAccountId(accountId)
+            .withVaultName(vaultName)
+            .withJobId(jobId)
+            .withRange("bytes=" + firstByte + "-" + lastByte));
+
+        TreeHashInputStream input = new TreeHashInputStream(result.getBody());
+        long position = firstByte;
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            int bytesRead;
+            while (position <= lastByte
+                    && (bytesRead = input.read(buffer, 0, (int)Math.min(buffer.length, lastByte - position + 1))) > -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to download bytes " + firstByte + "-" + lastByte
+                    + ": " + e.getMessage(), e);
+        } finally {
+            try {input.close();} catch (Exception e) {}
+        }
+
+        if (position <= lastByte) {
+            throw new AmazonClientException("Connection closed after " + (position - firstByte) + " of "
+                    + (lastByte - firstByte + 1) + " bytes of range " + firstByte + "-" + lastByte);
+        }
+
+        String checksum = input.getTreeHash();
+        if (result.getChecksum() != null && !checksum.equalsIgnoreCase(result.getChecksum())) {
+            throw new AmazonClientException("Client side computed hash doesn't match server side hash for bytes "
+                    + firstByte + "-" + lastByte + "; possible data corruption");
+        }
+        return BinaryUtils.fromHex(checksum);
+    }
+
+    /**
+     * The first line of the progress file, identifying the archive and the
+     * chunks it was split into.
+     */
+    private String progressHeader() {
+        return archiveSize + " " + chunkSize + " " + archiveTreeHash;
+    }
+
+    /**
+     * Loads the chunks recorded as complete by an earlier attempt to download
+     * the same archive to the same file.
+     *
+     * @return True if the download is being resumed.
+     */
+    private boolean readProgress() throws IOException {
+        if (!progressFile.exists() || !file.exists() || archiveTreeHash == null) return false;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(progressFile), "UTF-8"));
+        try {
+            if (!progressHeader().equals(reader.readLine())) return false;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // A line cut short by a crash just means its chunk is downloaded again
+                String[] fields = line.split(" ");
+                if (fields.length != 2 || fields[1].length() != 64) continue;
+                try {
+                    int chunk = Integer.parseInt(fields[0]);
+                    if (chunk >= 0 && chunk < chunkCount) binaryChecksums[chunk] = BinaryUtils.fromHex(fields[1]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            }
+            return true;
+        } finally {
+            try {reader.close();} catch (Exception e) {}
+        }
+    }
+
+    private synchronized void writeProgress(String line) throws IOException {
+        progressOutput.write((line + "\n").getBytes("UTF-8"));
+        progressOutput.flush();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.internal.TreeHashInputStream;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.FileRegionInputStream;
+
+/**
+ * Uploads the parts of a file in a Glacier multipart upload on several
+ * threads at once.
+ * <p>
+ * Each thread reads a part of the file into its own buffer, computing the
+ * part's tree hash as it goes, and then uploads the part from the buffer, so
+ * the file is only read once. The parts' tree hashes are combined into the
+ * tree hash of the whole archive once every part has been uploaded.
+ */
+class ParallelArchiveUploader {
+
+    private final AmazonGlacier glacier;
+    private final String accountId;
+    private final String vaultName;
+    private final String uploadId;
+    private final File file;
+    private final long fileLength;
+    private final int partSize;
+    private final int partCount;
+    private final int parallelism;
+
+    private final AtomicInteger nextPart = new AtomicInteger();
+    private final byte[][] binaryChecksums;
+
+    /* Set when a part fails, so the other threads stop uploading parts */
+    private volatile boolean failed;
+
+    /**
+     * @param glacier
+     *            The client to upload the parts with.
+     * @param accountId
+     *            The ID of the account which owns the vault, or null.
+     * @param vaultName
+     *            The name of the vault the archive is being uploaded to.
+     * @param uploadId
+     *            The ID of the multipart upload the parts belong to.
+     * @param file
+     *            The file to upload.
+     * @param partSize
+     *            The part size of the multipart upload.
+     * @param parallelism
+     *            The maximum number of parts to upload at a time.
+     */
+    ParallelArchiveUploader(AmazonGlacier glacier, String accountId, String vaultName, String uploadId, File file,
+            int partSize, int parallelism) {
+        this.glacier = glacier;
+        this.accountId = accountId;
+        this.vaultName = vaultName;
+        this.uploadId = uploadId;
+        this.file = file;
+        this.fileLength = file.length();
+        this.partSize = partSize;
+        this.partCount = (int)((fileLength + partSize - 1) / partSize);
+        this.parallelism = parallelism;
+        this.binaryChecksums = new byte[partCount][];
+    }
+
+    /**
+     * Uploads every part of the file, returning once they've all been
+     * uploaded.
+     *
+     * @return The hex encoded tree hash of the whole file.
+     *
+     * @throws AmazonClientException
+     *             If any part couldn't be uploaded.
+     */
+    String uploadParts() {
+        int threads = Math.min(parallelism, partCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int threadCount = 1;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("glacier-archive-uploader-" + threadCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        try {
+                            uploadNextParts();
+                            return null;
+                        } catch (Exception e) {
+                            failed = true;
+                            throw e;
+                        }
+                    }
+                }));
+            }
+
+            Throwable firstFailure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) firstFailure = e.getCause();
+                }
+            }
+
+            if (firstFailure instanceof AmazonClientException) throw (AmazonClientException)firstFailure;
+            if (firstFailure != null) {
+                throw new AmazonClientException("Unable to upload part: " + firstFailure.getMessage(), firstFailure);
+            }
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while waiting for parts to upload", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return TreeHashGenerator.calculateTreeHash(Arrays.asList(binaryChecksums));
+    }
+
+    /**
+     * Reads and uploads parts, reusing one buffer, until every part has been
+     * claimed by a thread or another thread's part fails.
+     */
+    private void uploadNextParts() throws IOException, NoSuchAlgorithmException {
+        byte[] buffer = new byte[(int)Math.min(partSize, fileLength)];
+
+        int part;
+        while (!failed && (part = nextPart.getAndIncrement()) < partCount) {
+            long position = (long)part * partSize;
+            int length = (int)Math.min(partSize, fileLength - position);
+
+            String checksum = readPart(position, buffer, length);
+            binaryChecksums[part] = BinaryUtils.fromHex(checksum);
+
+            glacier.uploadMultipartPart(new UploadMultipartPartRequest()
+                .withAccountId(accountId)
+                .withChecksum(checksum)
+                .withBody(new ByteArrayInputStream(buffer, 0, length))
+                .withRange("bytes " + position + "-" + (position + length - 1) + "/*")
+                .withUploadId(uploadId)
+                .withVaultName(vaultName));
+        }
+    }
+
+    /**
+     * Reads a part of the file into the buffer, returning the part's hex
+     * encoded tree hash.
+     */
+    private String readPart(long position, byte[] buffer, int length) throws IOException, NoSuchAlgorithmException {
+        TreeHashInputStream input = new TreeHashInputStream(
+                new FileRegionInputStream(file, position, length));
+        try {
+            int offset = 0;
+            while (offset < length) {
+                int bytesRead = input.read(buffer, offset, length - offset);
+                if (bytesRead == -1) {
+                    throw new AmazonClientException("Unexpected end of file '" + file.getAbsolutePath()
+                            + "' while reading part at offset " + position);
+                }
+                offset += bytesRead;
+            }
+        } finally {
+            try {input.close();} catch (Exception e) {}
+        }
+        return input.getTreeHash();
+    }
+}
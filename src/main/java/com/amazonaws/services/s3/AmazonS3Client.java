@@ -16,7 +16,6 @@ package com.amazonaws.services.s3;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.net.URI;
@@ -32,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -59,15 +59,14 @@ import com.amazonaws.http.ExecutionContext;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.http.HttpResponseHandler;
 import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.s3.internal.AWSS3V4Signer;
 import com.amazonaws.services.s3.internal.BucketNameUtils;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
-import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.MD5DigestCalculatingInputStream;
 import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.internal.ObjectExpirationHeaderHandler;
 import com.amazonaws.services.s3.internal.ProgressReportingInputStream;
-import com.amazonaws.services.s3.internal.RepeatableFileInputStream;
 import com.amazonaws.services.s3.internal.RepeatableInputStream;
 import com.amazonaws.services.s3.internal.ResponseHeaderHandlerChain;
 import com.amazonaws.services.s3.internal.S3ErrorResponseHandler;
@@ -161,7 +160,9 @@ import com.amazonaws.services.s3.model.transform.Unmarshallers;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CompleteMultipartUploadHandler;
 import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CopyObjectResultHandler;
 import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.util.AwsHostNameUtils;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.FileRegionInputStream;
 import com.amazonaws.util.Md5Utils;
 
 /**
@@ -204,6 +205,9 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
     /** Shared factory for converting configuration objects to XML */
     private static final BucketConfigurationXmlFactory bucketConfigurationXmlFactory = new BucketConfigurationXmlFactory();
 
+    /** Region names, such as "us-west-2" or "us-gov-west-1" */
+    private static final Pattern REGION_NAME_PATTERN = Pattern.compile("[a-z]{2}(-gov)?-[a-z]+-[0-9]+");
+
     /** S3 specific client configuration options */
     private S3ClientOptions clientOptions = new S3ClientOptions();
 
@@ -1045,20 +1049,23 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
-            FileInputStream fileInputStream = null;
-            try {
-                fileInputStream = new FileInputStream(file);
-                byte[] md5Hash = Md5Utils.computeMD5Hash(fileInputStream);
-                metadata.setContentMD5(BinaryUtils.toBase64(md5Hash));
-            } catch (Exception e) {
-                throw new AmazonClientException(
-                        "Unable to calculate MD5 hash: " + e.getMessage(), e);
-            } finally {
-                try {fileInputStream.close();} catch (Exception e) {}
+            /*
+             * Unless the MD5 is to be calculated as the file is uploaded, and
+             * checked against the returned ETag below, read the whole file up
+             * front so the Content-MD5 header can be sent with the request.
+             */
+            if (!clientOptions.isStreamingFileMD5()) {
+                try {
+                    byte[] md5Hash = Md5Utils.computeMD5Hash(file);
+                    metadata.setContentMD5(BinaryUtils.toBase64(md5Hash));
+                } catch (Exception e) {
+                    throw new AmazonClientException(
+                            "Unable to calculate MD5 hash: " + e.getMessage(), e);
+                }
             }
 
             try {
-                input = new RepeatableFileInputStream(file);
+                input = new FileRegionInputStream(file, 0, file.length());
             } catch (FileNotFoundException fnfe) {
                 throw new AmazonClientException("Unable to find file to upload", fnfe);
             }
@@ -2272,8 +2279,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             inputStream = uploadPartRequest.getInputStream();
         } else if (uploadPartRequest.getFile() != null) {
             try {
-                inputStream = new InputSubstream(new RepeatableFileInputStream(uploadPartRequest.getFile()),
-                        uploadPartRequest.getFileOffset(), partSize, true);
+                inputStream = new FileRegionInputStream(uploadPartRequest.getFile(),
+                        uploadPartRequest.getFileOffset(), partSize);
             } catch (FileNotFoundException e) {
                 throw new IllegalArgumentException("The specified file doesn't exist", e);
             }
@@ -2521,6 +2528,19 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
     }
 
     protected Signer createSigner(Request<?> request, String bucketName, String key) {
+        /*
+         * AWS4 signatures are scoped to a region, so chunked encoding signing
+         * is only used when the endpoint says which region the buckets are
+         * in. The default endpoint serves buckets in every region.
+         */
+        String endpointRegion = getEndpointRegion();
+        if (clientOptions.isChunkedEncodingSigning() && endpointRegion != null) {
+            AWSS3V4Signer signer = new AWSS3V4Signer();
+            signer.setServiceName("s3");
+            signer.setRegionName(endpointRegion);
+            return signer;
+        }
+
         String resourcePath =
             "/" +
             ((bucketName != null) ? bucketName + "/" : "") +
@@ -2529,6 +2549,19 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         return new S3Signer(request.getHttpMethod().toString(), resourcePath);
     }
 
+    /**
+     * Returns the region named by the client's endpoint, such as "us-west-2"
+     * for "s3-us-west-2.amazonaws.com", or null if the endpoint doesn't name
+     * a region, as with "s3.amazonaws.com" or a non-AWS endpoint.
+     */
+    private String getEndpointRegion() {
+        String host = endpoint.getHost();
+        if (!host.startsWith("s3-") || !host.endsWith(".amazonaws.com")) return null;
+
+        String region = AwsHostNameUtils.parseRegionName(endpoint);
+        return REGION_NAME_PATTERN.matcher(region).matches() ? region : null;
+    }
+
     /**
      * Pre-signs the specified request, using a signature query-string
      * parameter.
@@ -592,6 +592,9 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
      * AmazonS3EncryptionClient (as opposed to the normal AmazonS3Client) must
      * be uploaded serially, and in order. Otherwise, the previous encryption
      * context isn't available to use when encrypting the current part.
+     * To upload parts concurrently, encrypt them in order with
+     * {@link #encryptPart(String, byte[], int, boolean)} and upload them with
+     * {@link #uploadEncryptedPart(UploadPartRequest)}.
      */
     @Override
     public UploadPartResult uploadPart(UploadPartRequest uploadPartRequest)
@@ -652,6 +655,86 @@ public class AmazonS3EncryptionClient extends AmazonS3Client {
         return result;
     }
 
+    /**
+     * Encrypts the next part of an encrypted multipart upload in place,
+     * without uploading it, and returns the length of the encrypted part.
+     * <p>
+     * Parts must be encrypted one at a time and in order, since each part's
+     * encryption carries on from the last cipher block of the part before it.
+     * Once encrypted, though, parts don't depend on each other, so they can be
+     * uploaded concurrently with {@link #uploadEncryptedPart(UploadPartRequest)}.
+     *
+     * @param uploadId
+     *            The ID of the multipart upload the part belongs to.
+     * @param buffer
+     *            The unencrypted part data, which is replaced with the
+     *            encrypted data. The buffer for the last part must have room
+     *            for one cipher block of padding after the data.
+     * @param length
+     *            The length of the unencrypted part data. Must be a multiple
+     *            of the cipher block size, except for the last part.
+     * @param isLastPart
+     *            True if this is the last part of the upload.
+     *
+     * @return The length of the encrypted part data in the buffer.
+     */
+    public int encryptPart(String uploadId, byte[] buffer, int length, boolean isLastPart)
+            throws AmazonClientException {
+        if (!isLastPart && length % JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE != 0) {
+            throw new AmazonClientException("Invalid part size: part sizes for encrypted multipart uploads must be multiples " +
+                    "of the cipher block size (" + JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE + ") with the exception of the last part.  " +
+                    "Otherwise encryption adds extra padding that will corrupt the final object.");
+        }
+
+        EncryptedUploadContext encryptedUploadContext = currentMultipartUploadSecretKeys.get(uploadId);
+        if (encryptedUploadContext == null) throw new AmazonClientException("No client-side information available on upload ID " + uploadId);
+        if (encryptedUploadContext.hasFinalPartBeenSeen()) {
+            throw new AmazonClientException("Unable to encrypt a part after the last part of the upload has been encrypted.");
+        }
+
+        Cipher cipher = EncryptionUtils.createSymmetricCipher(encryptedUploadContext.getEnvelopeEncryptionKey(),
+                Cipher.ENCRYPT_MODE, cryptoConfig.getCryptoProvider(), encryptedUploadContext.getNextInitializationVector());
+
+        // Only the last part is padded; the ciphertext of any other part is exactly as long as its data
+        int encryptedLength;
+        try {
+            if (isLastPart) {
+                encryptedLength = cipher.doFinal(buffer, 0, length, buffer, 0);
+            } else {
+                encryptedLength = cipher.update(buffer, 0, length, buffer, 0);
+            }
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to encrypt part: " + e.getMessage(), e);
+        }
+
+        if (isLastPart) {
+            encryptedUploadContext.setHasFinalPartBeenSeen(true);
+        } else if (encryptedLength > 0) {
+            byte[] nextIV = new byte[JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE];
+            System.arraycopy(buffer, encryptedLength - nextIV.length, nextIV, 0, nextIV.length);
+            encryptedUploadContext.setNextInitializationVector(nextIV);
+        }
+
+        return encryptedLength;
+    }
+
+    /**
+     * Uploads a part of an encrypted multipart upload whose data has already
+     * been encrypted by {@link #encryptPart(String, byte[], int, boolean)}.
+     * Unlike {@link #uploadPart(UploadPartRequest)}, this method may be called
+     * concurrently for several parts, in any order.
+     *
+     * @param uploadPartRequest
+     *            The request containing the encrypted part data.
+     *
+     * @return The result of uploading the part.
+     */
+    public UploadPartResult uploadEncryptedPart(UploadPartRequest uploadPartRequest)
+            throws AmazonClientException, AmazonServiceException {
+        appendUserAgent(uploadPartRequest, USER_AGENT);
+        return super.uploadPart(uploadPartRequest);
+    }
+
     @Override
      public CopyPartResult copyPart(CopyPartRequest copyPartRequest) {
         String uploadId = copyPartRequest.getUploadId();
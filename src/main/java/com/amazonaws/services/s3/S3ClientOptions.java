@@ -25,10 +25,24 @@ public class S3ClientOptions {
     /** Flag for use of path-style access */
     private boolean pathStyleAccess = DEFAULT_PATH_STYLE_ACCESS;
 
+    /** The default setting for use of chunked payload signing */
+    public static final boolean DEFAULT_CHUNKED_ENCODING_SIGNING = false;
+
+    /** Flag for signing requests with AWS4 and chunk encoded uploads */
+    private boolean chunkedEncodingSigning = DEFAULT_CHUNKED_ENCODING_SIGNING;
+
+    /** The default setting for calculating file MD5s while uploading */
+    public static final boolean DEFAULT_STREAMING_FILE_MD5 = false;
+
+    /** Flag for calculating the MD5 of uploaded files as they're sent */
+    private boolean streamingFileMD5 = DEFAULT_STREAMING_FILE_MD5;
+
     public S3ClientOptions() {}
 
     public S3ClientOptions( S3ClientOptions other ) {
         this.pathStyleAccess = other.pathStyleAccess;
+        this.chunkedEncodingSigning = other.chunkedEncodingSigning;
+        this.streamingFileMD5 = other.streamingFileMD5;
     }
 
     /**
@@ -103,4 +117,124 @@ public class S3ClientOptions {
       return this;
     }
 
-}
\ No newline at end of file
+    /**
+     * <p>
+     * Returns whether the client signs requests with AWS Signature Version 4
+     * and sends object and part uploads with the "aws-chunked" content
+     * encoding.
+     * </p>
+     * <p>
+     * With chunked encoding, each chunk of the upload is signed as it's
+     * written to the connection, so the payload is read only once instead of
+     * being hashed before the request is sent.
+     * </p>
+     * <p>
+     * AWS Signature Version 4 signatures are scoped to a region, so this
+     * setting requires the client's endpoint to name the region of the
+     * buckets it accesses, such as "s3-us-west-2.amazonaws.com". With the
+     * default endpoint, "s3.amazonaws.com", or any other endpoint that
+     * doesn't name a region, requests are signed as if it were off.
+     * </p>
+     * @return True if the client signs uploads with chunked encoding
+     */
+    public boolean isChunkedEncodingSigning() {
+        return chunkedEncodingSigning;
+    }
+
+    /**
+     * <p>
+     * Configures the client to sign requests with AWS Signature Version 4 and
+     * send object and part uploads with the "aws-chunked" content encoding.
+     * </p>
+     * <p>
+     * With chunked encoding, each chunk of the upload is signed as it's
+     * written to the connection, so the payload is read only once instead of
+     * being hashed before the request is sent.
+     * </p>
+     * <p>
+     * AWS Signature Version 4 signatures are scoped to a region, so this
+     * setting requires the client's endpoint to name the region of the
+     * buckets it accesses, such as "s3-us-west-2.amazonaws.com". With the
+     * default endpoint, "s3.amazonaws.com", or any other endpoint that
+     * doesn't name a region, requests are signed as if it were off.
+     * </p>
+     * @param chunkedEncodingSigning
+     *            True to sign uploads with chunked encoding.
+     */
+    public void setChunkedEncodingSigning(boolean chunkedEncodingSigning) {
+        this.chunkedEncodingSigning = chunkedEncodingSigning;
+    }
+
+    /**
+     * <p>
+     * Configures the client to sign requests with AWS Signature Version 4 and
+     * send object and part uploads with the "aws-chunked" content encoding.
+     * </p>
+     * @param chunkedEncodingSigning
+     *            True to sign uploads with chunked encoding.
+     *
+     * @return The updated S3ClientOptions object with the new chunked
+     *         encoding setting.
+     */
+    public S3ClientOptions withChunkedEncodingSigning(boolean chunkedEncodingSigning) {
+        setChunkedEncodingSigning(chunkedEncodingSigning);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Returns whether the client calculates the MD5 of a file uploaded with
+     * {@link AmazonS3#putObject(com.amazonaws.services.s3.model.PutObjectRequest)}
+     * while the file is being sent, instead of reading the whole file to
+     * calculate it before the upload starts.
+     * </p>
+     * <p>
+     * Either way, the client checks the MD5 against the ETag Amazon S3
+     * returns. Calculating it while uploading reads each file once instead of
+     * twice, but no Content-MD5 header is sent, so corrupted data is only
+     * detected after it has been stored.
+     * </p>
+     * @return True if the client calculates file MD5s while uploading
+     */
+    public boolean isStreamingFileMD5() {
+        return streamingFileMD5;
+    }
+
+    /**
+     * <p>
+     * Configures the client to calculate the MD5 of a file uploaded with
+     * {@link AmazonS3#putObject(com.amazonaws.services.s3.model.PutObjectRequest)}
+     * while the file is being sent, instead of reading the whole file to
+     * calculate it before the upload starts.
+     * </p>
+     * <p>
+     * Either way, the client checks the MD5 against the ETag Amazon S3
+     * returns. Calculating it while uploading reads each file once instead of
+     * twice, but no Content-MD5 header is sent, so corrupted data is only
+     * detected after it has been stored.
+     * </p>
+     * @param streamingFileMD5
+     *            True to calculate file MD5s while uploading.
+     */
+    public void setStreamingFileMD5(boolean streamingFileMD5) {
+        this.streamingFileMD5 = streamingFileMD5;
+    }
+
+    /**
+     * <p>
+     * Configures the client to calculate the MD5 of a file uploaded with
+     * {@link AmazonS3#putObject(com.amazonaws.services.s3.model.PutObjectRequest)}
+     * while the file is being sent.
+     * </p>
+     * @param streamingFileMD5
+     *            True to calculate file MD5s while uploading.
+     *
+     * @return The updated S3ClientOptions object with the new file MD5
+     *         setting.
+     */
+    public S3ClientOptions withStreamingFileMD5(boolean streamingFileMD5) {
+        setStreamingFileMD5(streamingFileMD5);
+        return this;
+    }
+
+}
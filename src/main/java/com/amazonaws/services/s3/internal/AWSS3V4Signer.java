@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * AWS4 signer for Amazon S3. Object and part uploads are sent with the
+ * "aws-chunked" content encoding so their payloads are signed as they're
+ * streamed instead of being read twice.
+ */
+public class AWSS3V4Signer extends AWS4Signer {
+
+    @Override
+    protected boolean useChunkEncoding(Request<?> request) {
+        if (request.getContent() == null) return false;
+        if (request.getHeaders().get(Headers.CONTENT_LENGTH) == null) return false;
+
+        return request.getOriginalRequest() instanceof PutObjectRequest
+            || request.getOriginalRequest() instanceof UploadPartRequest;
+    }
+
+    /**
+     * S3 resource paths are already URL encoded by the client, so they're only
+     * normalized here rather than encoded a second time.
+     */
+    @Override
+    protected String getCanonicalizedResourcePath(String resourcePath) {
+        if (resourcePath == null || resourcePath.length() == 0) return "/";
+        if (resourcePath.startsWith("/")) return resourcePath;
+        return "/" + resourcePath;
+    }
+}
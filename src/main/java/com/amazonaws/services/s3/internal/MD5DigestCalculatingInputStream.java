@@ -15,16 +15,20 @@
 package com.amazonaws.services.s3.internal;
 
 import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import com.amazonaws.internal.DirectlyWritable;
+
 /**
  * Simple InputStream wrapper that examines the wrapped stream's contents as
  * they are read and calculates and MD5 digest.
  */
-public class MD5DigestCalculatingInputStream extends FilterInputStream {
+public class MD5DigestCalculatingInputStream extends FilterInputStream implements DirectlyWritable {
     
     /** The MD5 message digest being calculated by this input stream */
     private MessageDigest digest;
@@ -84,4 +88,28 @@ public class MD5DigestCalculatingInputStream extends FilterInputStream {
         return result;
     }
 
+    public boolean isDirectlyWritable() {
+        return in instanceof DirectlyWritable && ((DirectlyWritable)in).isDirectlyWritable();
+    }
+
+    /**
+     * Writes the rest of the wrapped stream directly to the specified output
+     * stream, calculating the digest from the data as it is written.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ((DirectlyWritable)in).writeTo(new FilterOutputStream(output) {
+            @Override
+            public void write(int b) throws IOException {
+                digest.update((byte)b);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                digest.update(b, off, len);
+                out.write(b, off, len);
+            }
+        });
+    }
+
 }
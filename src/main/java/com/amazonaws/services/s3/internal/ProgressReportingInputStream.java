@@ -15,9 +15,12 @@
 package com.amazonaws.services.s3.internal;
 
 import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
+import com.amazonaws.internal.DirectlyWritable;
 import com.amazonaws.services.s3.model.ProgressEvent;
 import com.amazonaws.services.s3.model.ProgressListener;
 
@@ -25,7 +28,7 @@ import com.amazonaws.services.s3.model.ProgressListener;
  * Simple InputStream wrapper that occasionally notifies a progress listener
  * about the number of bytes transfered.
  */
-public class ProgressReportingInputStream extends FilterInputStream {
+public class ProgressReportingInputStream extends FilterInputStream implements DirectlyWritable {
 
     /** The threshold of bytes between notifications. */
     private static final int NOTIFICATION_THRESHOLD = 8 * Constants.KB;
@@ -96,6 +99,32 @@ public class ProgressReportingInputStream extends FilterInputStream {
         return bytesRead;
     }
 
+    public boolean isDirectlyWritable() {
+        return in instanceof DirectlyWritable && ((DirectlyWritable)in).isDirectlyWritable();
+    }
+
+    /**
+     * Writes the rest of the wrapped stream directly to the specified output
+     * stream, notifying the listener as the data is written, and once it has
+     * all been written.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ((DirectlyWritable)in).writeTo(new FilterOutputStream(output) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                ProgressReportingInputStream.this.notify(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                ProgressReportingInputStream.this.notify(len);
+            }
+        });
+        notifyCompleted();
+    }
+
     @Override
     public void close() throws IOException {
         if (unnotifiedByteCount > 0) {
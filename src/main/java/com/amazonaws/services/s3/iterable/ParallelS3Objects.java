@@ -0,0 +1,487 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+/**
+ * Lists the objects in an Amazon S3 bucket using several concurrent listings,
+ * each covering part of the bucket's keys. For example:
+ *
+ * <pre>
+ * for ( S3ObjectSummary summary : ParallelS3Objects.inBucket(s3, &quot;my-bucket&quot;).withParallelism(20) ) {
+ *     System.out.printf(&quot;Object with key '%s'\n&quot;, summary.getKey());
+ * }
+ * </pre>
+ * <p>
+ * Unlike {@link S3Objects}, which lists a bucket one page after another, the
+ * keys are split into partitions which are listed at the same time. By
+ * default, the partitions are discovered by listing with a delimiter ("/"):
+ * each common prefix becomes a partition of its own, which is split further
+ * while there are fewer partitions than listing threads. Alternatively, if the
+ * distribution of keys is known, the caller can provide split points with
+ * {@link #withSplitPoints(String...)}.
+ * <p>
+ * Each listing thread fetches its next page as soon as it has handed over the
+ * current one, so pages are prefetched while the caller is processing
+ * earlier ones. Handed over pages wait in a buffer of bounded size
+ * ({@link #withMaxBufferedBatches(int)}), and listing threads wait when it's
+ * full, so a slow consumer doesn't cause unbounded memory use.
+ * <p>
+ * Object summaries are <b>not</b> returned in key order. The iterator returned
+ * by {@link #iterator()} must be read to the end to release the listing
+ * threads; to stop early, use {@link #batchIterator()} and close it.
+ */
+public class ParallelS3Objects implements Iterable<S3ObjectSummary> {
+
+    /** The default number of partitions listed at the same time */
+    public static final int DEFAULT_PARALLELISM = 10;
+
+    /** The default delimiter used to discover partitions */
+    public static final String DEFAULT_DELIMITER = "/";
+
+    private AmazonS3 s3;
+    private String bucketName;
+    private String prefix = null;
+    private Integer batchSize = null;
+    private String delimiter = DEFAULT_DELIMITER;
+    private List<String> splitPoints = null;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private Integer maxBufferedBatches = null;
+
+    private ParallelS3Objects(AmazonS3 s3, String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Constructs an iterable that covers all the objects in an Amazon S3
+     * bucket.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @return An iterable for object summaries.
+     */
+    public static ParallelS3Objects inBucket(AmazonS3 s3, String bucketName) {
+        return new ParallelS3Objects(s3, bucketName);
+    }
+
+    /**
+     * Constructs an iterable that covers the objects in an Amazon S3 bucket
+     * where the key begins with the given prefix.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @param prefix
+     *            The prefix.
+     * @return An iterable for object summaries.
+     */
+    public static ParallelS3Objects withPrefix(AmazonS3 s3, String bucketName, String prefix) {
+        ParallelS3Objects objects = new ParallelS3Objects(s3, bucketName);
+        objects.prefix = prefix;
+        return objects;
+    }
+
+    /**
+     * Sets the batch size, i.e., how many {@link S3ObjectSummary}s each
+     * listing request fetches at once.
+     *
+     * @param batchSize
+     *            How many object summaries to fetch at once.
+     */
+    public ParallelS3Objects withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the delimiter used to discover partitions of the keys, or null to
+     * list the keys between split points (or all the keys) without
+     * discovering partitions. Ignored if split points are set.
+     *
+     * @param delimiter
+     *            The delimiter, "/" by default.
+     */
+    public ParallelS3Objects withDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the keys at which the listing is split into partitions, instead of
+     * discovering partitions with a delimiter. Each partition covers the keys
+     * after one split point up to and including the next, so the split points
+     * don't need to be existing keys.
+     *
+     * @param splitPoints
+     *            The keys to split the listing at, in any order.
+     */
+    public ParallelS3Objects withSplitPoints(String... splitPoints) {
+        this.splitPoints = (splitPoints == null) ? null : Arrays.asList(splitPoints);
+        return this;
+    }
+
+    /**
+     * Sets how many partitions are listed at the same time, i.e., how many
+     * listing threads are used.
+     *
+     * @param parallelism
+     *            The number of listing threads, {@value #DEFAULT_PARALLELISM}
+     *            by default.
+     */
+    public ParallelS3Objects withParallelism(int parallelism) {
+        if ( parallelism < 1 ) throw new IllegalArgumentException("Parallelism must be at least one");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets how many pages of object summaries can wait to be consumed before
+     * the listing threads stop fetching more.
+     *
+     * @param maxBufferedBatches
+     *            The maximum number of buffered pages, twice the parallelism
+     *            by default.
+     */
+    public ParallelS3Objects withMaxBufferedBatches(int maxBufferedBatches) {
+        if ( maxBufferedBatches < 1 ) throw new IllegalArgumentException("At least one batch must be buffered");
+        this.maxBufferedBatches = maxBufferedBatches;
+        return this;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public AmazonS3 getS3() {
+        return s3;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public List<String> getSplitPoints() {
+        return splitPoints;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getMaxBufferedBatches() {
+        return (maxBufferedBatches == null) ? 2 * parallelism : maxBufferedBatches;
+    }
+
+    /**
+     * Starts listing the objects, returning an iterator over the object
+     * summaries, which must be read to the end.
+     */
+    @Override
+    public Iterator<S3ObjectSummary> iterator() {
+        final BatchIterator batches = batchIterator();
+        return new Iterator<S3ObjectSummary>() {
+            private Iterator<S3ObjectSummary> currentIterator = Collections.<S3ObjectSummary>emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while ( !currentIterator.hasNext() && batches.hasNext() ) {
+                    currentIterator = batches.next().iterator();
+                }
+                return currentIterator.hasNext();
+            }
+
+            @Override
+            public S3ObjectSummary next() {
+                if ( !hasNext() ) throw new NoSuchElementException();
+                return currentIterator.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Starts listing the objects, returning an iterator over the pages of
+     * object summaries as they're listed.
+     */
+    public BatchIterator batchIterator() {
+        return new BatchIterator();
+    }
+
+    /**
+     * Iterator over the pages of object summaries listed by the listing
+     * threads. Closing the iterator stops the listing.
+     */
+    public final class BatchIterator implements Iterator<List<S3ObjectSummary>>, Closeable {
+
+        /* Marks the end of the listing in the queue */
+        private final Object END = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(getMaxBufferedBatches());
+        private final AtomicInteger outstandingTasks = new AtomicInteger();
+        private final ExecutorService executor;
+        private volatile boolean closed;
+
+        private Object next;
+        private boolean done;
+
+        private BatchIterator() {
+            executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+                private int threadCount = 1;
+
+                public synchronized Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setName("s3-parallel-listing-" + threadCount++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+            List<String> sortedSplitPoints = sortedSplitPoints();
+            if ( sortedSplitPoints.isEmpty() ) {
+                submit(new ListingTask(prefix, null, null, delimiter != null));
+            } else {
+                String marker = null;
+                for ( String splitPoint : sortedSplitPoints ) {
+                    submit(new ListingTask(prefix, marker, splitPoint, false));
+                    marker = splitPoint;
+                }
+                submit(new ListingTask(prefix, marker, null, false));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( done ) return false;
+            if ( next == null ) {
+                try {
+                    next = queue.take();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new AmazonClientException("Interrupted while waiting for object listings", e);
+                }
+            }
+
+            if ( next == END ) {
+                done = true;
+                close();
+                return false;
+            }
+            if ( next instanceof RuntimeException ) {
+                done = true;
+                close();
+                throw (RuntimeException) next;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<S3ObjectSummary> next() {
+            if ( !hasNext() ) throw new NoSuchElementException();
+            List<S3ObjectSummary> batch = (List<S3ObjectSummary>) next;
+            next = null;
+            return batch;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Stops the listing threads. Pages which have already been listed but
+         * not yet returned are discarded.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            executor.shutdownNow();
+        }
+
+        private void submit(ListingTask task) {
+            outstandingTasks.incrementAndGet();
+            executor.execute(task);
+        }
+
+        /**
+         * Hands a page or the end of the listing over to the consumer,
+         * waiting while the buffer is full.
+         *
+         * @return False if the iterator was closed before the page could be
+         *         handed over.
+         */
+        private boolean put(Object element) throws InterruptedException {
+            while ( !closed ) {
+                if ( queue.offer(element, 100, TimeUnit.MILLISECONDS) ) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Lists one partition of the keys, handing each page over to the
+         * consumer as soon as it's fetched.
+         */
+        private final class ListingTask implements Runnable {
+            private final String prefix;
+            private final String marker;
+            private final String endKey;
+            private final boolean discoverPartitions;
+
+            /**
+             * @param prefix
+             *            The prefix of the keys to list.
+             * @param marker
+             *            The key to list from (exclusive), or null.
+             * @param endKey
+             *            The key to list up to (inclusive), or null.
+             * @param discoverPartitions
+             *            True to list with the delimiter and list each common
+             *            prefix found as a separate partition.
+             */
+            ListingTask(String prefix, String marker, String endKey, boolean discoverPartitions) {
+                this.prefix = prefix;
+                this.marker = marker;
+                this.endKey = endKey;
+                this.discoverPartitions = discoverPartitions;
+            }
+
+            public void run() {
+                try {
+                    list();
+                    if ( outstandingTasks.decrementAndGet() == 0 ) put(END);
+                } catch ( InterruptedException e ) {
+                    // The iterator was closed
+                } catch ( RuntimeException e ) {
+                    try {
+                        put(e);
+                    } catch ( InterruptedException ie ) {
+                        // The iterator was closed
+                    }
+                }
+            }
+
+            private void list() throws InterruptedException {
+                ListObjectsRequest req = new ListObjectsRequest()
+                        .withBucketName(getBucketName())
+                        .withPrefix(prefix)
+                        .withMarker(marker)
+                        .withMaxKeys(getBatchSize());
+                if ( discoverPartitions ) req.setDelimiter(delimiter);
+
+                ObjectListing listing = getS3().listObjects(req);
+                while ( !closed ) {
+                    boolean pastEnd = false;
+                    List<S3ObjectSummary> batch = listing.getObjectSummaries();
+                    if ( endKey != null ) {
+                        batch = new ArrayList<S3ObjectSummary>(batch.size());
+                        for ( S3ObjectSummary summary : listing.getObjectSummaries() ) {
+                            if ( compareKeys(summary.getKey(), endKey) > 0 ) {
+                                pastEnd = true;
+                                break;
+                            }
+                            batch.add(summary);
+                        }
+                    }
+
+                    if ( discoverPartitions ) {
+                        for ( String commonPrefix : listing.getCommonPrefixes() ) {
+                            // Keep splitting while there are idle listing threads
+                            boolean split = outstandingTasks.get() < 2 * parallelism;
+                            submit(new ListingTask(commonPrefix, null, null, split));
+                        }
+                    }
+
+                    if ( !batch.isEmpty() && !put(batch) ) return;
+                    if ( pastEnd || !listing.isTruncated() ) return;
+
+                    listing = getS3().listNextBatchOfObjects(listing);
+                }
+            }
+        }
+    }
+
+    private List<String> sortedSplitPoints() {
+        if ( splitPoints == null ) return Collections.emptyList();
+
+        TreeSet<String> sorted = new TreeSet<String>(KEY_ORDER);
+        for ( String splitPoint : splitPoints ) {
+            if ( splitPoint != null ) sorted.add(splitPoint);
+        }
+        return new ArrayList<String>(sorted);
+    }
+
+    /**
+     * Orders keys the way Amazon S3 lists them: by the bytes of their UTF-8
+     * encoding, which is the same as ordering them by code point (but not
+     * always the same as {@link String#compareTo(String)}).
+     */
+    private static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        public int compare(String a, String b) {
+            return compareKeys(a, b);
+        }
+    };
+
+    private static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while ( i < a.length() && j < b.length() ) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if ( ca != cb ) return ca - cb;
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.model.transform;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Filter input stream which replaces each carriage return (\r) in a UTF-8
+ * encoded XML document with the character reference "&amp;#013;" as the
+ * document is read, so the SAX parser doesn't normalize carriage returns in
+ * element values (such as object keys) to line feeds.
+ * <p>
+ * The replacement is made on bytes rather than decoded characters: in UTF-8,
+ * the byte 0x0D never occurs inside a multi-byte sequence, so it's always a
+ * carriage return. Only a small, fixed size buffer is held, however large the
+ * document is.
+ */
+class CarriageReturnEscapingInputStream extends FilterInputStream {
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final byte[] ESCAPED_CARRIAGE_RETURN = { '&', '#', '0', '1', '3', ';' };
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /* The next byte of ESCAPED_CARRIAGE_RETURN to return, or -1 if none is pending */
+    private int escapePosition = -1;
+
+    CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int bytesRead = read(b, 0, 1);
+
+        if (bytesRead == -1) return bytesRead;
+        return b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (escapePosition < 0 && position == limit && !fill()) return -1;
+
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (escapePosition >= 0) {
+                b[i++] = ESCAPED_CARRIAGE_RETURN[escapePosition++];
+                if (escapePosition == ESCAPED_CARRIAGE_RETURN.length) escapePosition = -1;
+                continue;
+            }
+
+            // Don't block for more input once some bytes have been returned
+            if (position == limit && (i > off || !fill())) break;
+
+            // Copy everything up to the next carriage return in one go
+            int copyEnd = Math.min(limit, position + (end - i));
+            int start = position;
+            while (position < copyEnd && buffer[position] != CARRIAGE_RETURN) position++;
+            System.arraycopy(buffer, start, b, i, position - start);
+            i += position - start;
+
+            if (position < copyEnd) {
+                position++;
+                escapePosition = 0;
+            }
+        }
+        return i - off;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] skipBuffer = new byte[(int)Math.min(n, BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            int bytesRead = read(skipBuffer, 0, (int)Math.min(n - skipped, skipBuffer.length));
+            if (bytesRead == -1) break;
+            skipped += bytesRead;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        int pending = (escapePosition >= 0) ? ESCAPED_CARRIAGE_RETURN.length - escapePosition : 0;
+        return pending + (limit - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {}
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Refills the buffer from the wrapped stream.
+     *
+     * @return False if the end of the wrapped stream has been reached.
+     */
+    private boolean fill() throws IOException {
+        int bytesRead;
+        do {
+            bytesRead = in.read(buffer, 0, buffer.length);
+        } while (bytesRead == 0);
+
+        position = 0;
+        limit = Math.max(bytesRead, 0);
+        return bytesRead > 0;
+    }
+}
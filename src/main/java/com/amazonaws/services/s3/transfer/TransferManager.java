@@ -23,8 +23,6 @@ import java.util.List;
 import java.util.Stack;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.commons.logging.Log;
@@ -54,6 +52,7 @@ import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
 import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.DownloadMonitor;
+import com.amazonaws.services.s3.transfer.internal.MultipartDownloadMonitor;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileDownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileTransfer;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileTransferMonitor;
@@ -123,9 +122,6 @@ public class TransferManager {
     /** The thread pool in which transfers are uploaded or downloaded. */
     private ThreadPoolExecutor threadPool;
 
-    /** Thread used for periodicially checking transfers and updating thier state. */
-    private ScheduledExecutorService timedThreadPool = new ScheduledThreadPoolExecutor(1);
-
     private static final Log log = LogFactory.getLog(TransferManager.class);
 
 
@@ -391,7 +387,6 @@ public class TransferManager {
 
             UploadCallable uploadCallable = new UploadCallable(this, threadPool, upload, putObjectRequest, listenerChain);
             UploadMonitor watcher = new UploadMonitor(this, upload, threadPool, uploadCallable, putObjectRequest, listenerChain);
-            watcher.setTimedThreadPool(timedThreadPool);
             upload.setMonitor(watcher);
 
             return upload;
@@ -488,6 +483,20 @@ public class TransferManager {
 
         transferProgress.setTotalBytesToTransfer(contentLength);
 
+        if (TransferManagerUtils.shouldUseMultipartDownload(getObjectRequest, objectMetadata,
+                configuration, s3 instanceof AmazonS3EncryptionClient)) {
+            S3Object s3Object = new S3Object();
+            s3Object.setBucketName(getObjectRequest.getBucketName());
+            s3Object.setKey(getObjectRequest.getKey());
+            s3Object.setObjectMetadata(objectMetadata);
+            download.setS3Object(s3Object);
+
+            MultipartDownloadMonitor monitor = new MultipartDownloadMonitor(download, file, objectMetadata, listenerChain);
+            download.setMonitor(monitor);
+            monitor.start(s3, threadPool, getObjectRequest, configuration.getDownloadPartSize());
+            return download;
+        }
+
         Future<?> future = threadPool.submit(new Callable<Object>() {
             @Override
             public Object call() throws Exception {
@@ -873,7 +882,6 @@ public class TransferManager {
      */
     public void shutdownNow() {
         threadPool.shutdownNow();
-        timedThreadPool.shutdownNow();
 
         if (s3 instanceof AmazonS3Client) {
             ((AmazonS3Client)s3).shutdown();
@@ -33,6 +33,15 @@ public class TransferManagerConfiguration {
     /** Default size threshold for when to use multipart uploads.  */
     private static final int DEFAULT_MULTIPART_UPLOAD_THRESHOLD = 16 * MB;
 
+    /** Default number of stream upload parts buffered concurrently (disabled). */
+    private static final int DEFAULT_STREAM_UPLOAD_PARALLELISM = 1;
+
+    /** Default part size for ranged downloads. */
+    private static final long DEFAULT_DOWNLOAD_PART_SIZE = 8 * MB;
+
+    /** Default size threshold for when to use ranged downloads (disabled). */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD = Long.MAX_VALUE;
+
     
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
@@ -57,6 +66,37 @@ public class TransferManagerConfiguration {
      */
     private int multipartUploadThreshold = DEFAULT_MULTIPART_UPLOAD_THRESHOLD;
 
+    /**
+     * The number of parts of an {@link java.io.InputStream} upload which are
+     * buffered in memory and uploaded concurrently. The stream is still read
+     * in order by a single thread, and memory use is capped at roughly this
+     * many part buffers.
+     * <p>
+     * A value of 1 uploads stream parts one at a time straight from the
+     * stream, without buffering.
+     */
+    private int streamUploadParallelism = DEFAULT_STREAM_UPLOAD_PARALLELISM;
+
+    /**
+     * The size, in bytes, of each byte range fetched by a ranged download.
+     * Each range is downloaded with its own connection, so smaller parts allow
+     * more connections to be used for the same object at the cost of
+     * additional requests.
+     */
+    private long downloadPartSize = DEFAULT_DOWNLOAD_PART_SIZE;
+
+    /**
+     * The size threshold, in bytes, for when to use ranged downloads.
+     * Downloads over this size will be split into byte ranges of
+     * {@link #downloadPartSize} bytes which are fetched concurrently and
+     * written directly to their offsets in the destination file. Downloads
+     * smaller than this threshold use a single connection for the whole
+     * object.
+     * <p>
+     * Ranged downloads are disabled by default.
+     */
+    private long multipartDownloadThreshold = DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD;
+
     
     /**
      * Returns the minimum part size for upload parts. 
@@ -124,4 +164,95 @@ public class TransferManagerConfiguration {
     public void setMultipartUploadThreshold(int multipartUploadThreshold) {
         this.multipartUploadThreshold = multipartUploadThreshold;
     }
+
+    /**
+     * Returns the size, in bytes, of each byte range fetched by a ranged
+     * download.
+     *
+     * @return The size, in bytes, of each byte range fetched by a ranged
+     *         download.
+     */
+    public long getDownloadPartSize() {
+        return downloadPartSize;
+    }
+
+    /**
+     * Sets the size, in bytes, of each byte range fetched by a ranged
+     * download. Each range is downloaded with its own connection, so smaller
+     * parts allow more connections to be used for the same object at the
+     * cost of additional requests.
+     *
+     * @param downloadPartSize
+     *            The size, in bytes, of each byte range fetched by a ranged
+     *            download.
+     */
+    public void setDownloadPartSize(long downloadPartSize) {
+        this.downloadPartSize = downloadPartSize;
+    }
+
+    /**
+     * Returns the size threshold in bytes for when to use ranged downloads.
+     * Downloads over this size will be split into byte ranges which are
+     * fetched concurrently on the transfer manager's thread pool and written
+     * directly to their offsets in the destination file.
+     * <p>
+     * Ranged downloads are disabled by default.
+     *
+     * @return The size threshold in bytes for when to use ranged downloads.
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Sets the size threshold in bytes for when to use ranged downloads.
+     * Downloads over this size will be split into byte ranges which are
+     * fetched concurrently on the transfer manager's thread pool and written
+     * directly to their offsets in the destination file.
+     * <p>
+     * Ranged downloads are never used for requests that specify a range or
+     * constraints of their own, or when the transfer manager is using an
+     * {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}.
+     *
+     * @param multipartDownloadThreshold
+     *            The size threshold in bytes for when to use ranged
+     *            downloads.
+     */
+    public void setMultipartDownloadThreshold(long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Returns the number of parts of an {@link java.io.InputStream} upload
+     * which are buffered in memory and uploaded concurrently. A value of 1
+     * means stream parts are uploaded one at a time without buffering.
+     *
+     * @return The number of stream upload parts buffered and uploaded
+     *         concurrently.
+     */
+    public int getStreamUploadParallelism() {
+        return streamUploadParallelism;
+    }
+
+    /**
+     * Sets the number of parts of an {@link java.io.InputStream} upload which
+     * are buffered in memory and uploaded concurrently. The stream is still
+     * read in order by a single thread, and memory use is capped at roughly
+     * this many times the part size.
+     * <p>
+     * When set above 1, streams of unknown length are also uploaded in parts
+     * of {@link #getMinimumUploadPartSize()} bytes instead of being buffered
+     * in memory in their entirety. Multipart uploads using an
+     * {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}, from files
+     * as well as streams, are buffered the same way: each part is encrypted
+     * in order as it's read, and the encrypted parts are uploaded
+     * concurrently.
+     *
+     * @param streamUploadParallelism
+     *            The number of stream upload parts buffered and uploaded
+     *            concurrently.
+     */
+    public void setStreamUploadParallelism(int streamUploadParallelism) {
+        this.streamUploadParallelism = streamUploadParallelism;
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.services.s3.internal.Constants.KB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ProgressEvent;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * Downloads a single byte range of an object and writes it directly to its
+ * offset in the destination file. If the connection fails part way through the
+ * range, only the bytes which haven't been written yet are requested again.
+ */
+public class DownloadPartCallable implements Callable<Long> {
+
+    /** The number of attempts made for each part before the download fails. */
+    private static final int MAX_PART_ATTEMPTS = 3;
+
+    private static final int BUFFER_SIZE = 16 * KB;
+
+    /** The threshold of bytes between progress notifications. */
+    private static final int NOTIFICATION_THRESHOLD = 8 * KB;
+
+    private static final Log log = LogFactory.getLog(DownloadPartCallable.class);
+
+    private final AmazonS3 s3;
+    private final GetObjectRequest partRequest;
+    private final FileChannel channel;
+    private final long firstByte;
+    private final long lastByte;
+    private final ProgressListenerChain progressListenerChain;
+
+    /**
+     * @param s3
+     *            The client to use when making requests to Amazon S3.
+     * @param partRequest
+     *            The request identifying the object to download; its range is
+     *            overwritten for every attempt.
+     * @param channel
+     *            The channel of the preallocated destination file.
+     * @param firstByte
+     *            The offset of the first byte of this part.
+     * @param lastByte
+     *            The offset of the last byte (inclusive) of this part.
+     * @param progressListenerChain
+     *            The listeners to notify as bytes are written.
+     */
+    public DownloadPartCallable(AmazonS3 s3, GetObjectRequest partRequest, FileChannel channel,
+            long firstByte, long lastByte, ProgressListenerChain progressListenerChain) {
+        this.s3 = s3;
+        this.partRequest = partRequest;
+        this.channel = channel;
+        this.firstByte = firstByte;
+        this.lastByte = lastByte;
+        this.progressListenerChain = progressListenerChain;
+    }
+
+    public Long call() throws Exception {
+        fireProgressEvent(ProgressEvent.PART_STARTED_EVENT_CODE);
+
+        long position = firstByte;
+        int attempt = 0;
+        try {
+            while (true) {
+                attempt++;
+                try {
+                    downloadRange(position);
+                    fireProgressEvent(ProgressEvent.PART_COMPLETED_EVENT_CODE);
+                    return lastByte - firstByte + 1;
+                } catch (PartAttemptException e) {
+                    position = e.position;
+                    if (attempt >= MAX_PART_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                        throw new AmazonClientException("Unable to download bytes " + firstByte + "-" + lastByte
+                                + ": " + e.getCause().getMessage(), e.getCause());
+                    }
+                    log.debug("Retrying download of bytes " + position + "-" + lastByte
+                            + " after failure: " + e.getCause().getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            fireProgressEvent(ProgressEvent.PART_FAILED_EVENT_CODE);
+            throw e;
+        }
+    }
+
+    /**
+     * Requests the bytes from the given position to the end of this part and
+     * writes them to the destination file.
+     */
+    private void downloadRange(long position) throws PartAttemptException {
+        partRequest.setRange(position, lastByte);
+
+        S3Object s3Object;
+        try {
+            s3Object = s3.getObject(partRequest);
+        } catch (AmazonServiceException e) {
+            throw e;
+        } catch (AmazonClientException e) {
+            throw new PartAttemptException(e, position);
+        }
+
+        if (s3Object == null) {
+            throw new CancellationException("Object was modified while it was being downloaded");
+        }
+
+        InputStream input = s3Object.getObjectContent();
+        int unnotifiedByteCount = 0;
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            int bytesRead;
+            while (position <= lastByte && (bytesRead = input.read(buffer)) > -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+
+                unnotifiedByteCount += bytesRead;
+                if (unnotifiedByteCount >= NOTIFICATION_THRESHOLD) {
+                    progressListenerChain.progressChanged(new ProgressEvent(unnotifiedByteCount));
+                    unnotifiedByteCount = 0;
+                }
+            }
+        } catch (IOException e) {
+            try {
+                s3Object.getObjectContent().abort();
+            } catch (IOException abortException) {
+                log.warn("Couldn't abort stream", abortException);
+            }
+            throw new PartAttemptException(e, position);
+        } finally {
+            if (unnotifiedByteCount > 0) {
+                progressListenerChain.progressChanged(new ProgressEvent(unnotifiedByteCount));
+            }
+            try {input.close();} catch (Exception e) {}
+        }
+
+        if (position <= lastByte) {
+            throw new PartAttemptException(new IOException("Connection closed after "
+                    + (position - firstByte) + " of " + (lastByte - firstByte + 1) + " bytes"), position);
+        }
+    }
+
+    private void fireProgressEvent(int eventType) {
+        if (progressListenerChain == null) return;
+        ProgressEvent event = new ProgressEvent(0);
+        event.setEventCode(eventType);
+        progressListenerChain.progressChanged(event);
+    }
+
+    /**
+     * Records how far an attempt got before it failed, so the next attempt can
+     * resume from there.
+     */
+    private static final class PartAttemptException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final long position;
+
+        PartAttemptException(Exception cause, long position) {
+            super(cause);
+            this.position = position;
+        }
+    }
+}
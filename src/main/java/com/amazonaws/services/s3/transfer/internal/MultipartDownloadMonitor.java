@@ -0,0 +1,282 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.ProgressEvent;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+/**
+ * Manages a ranged download by splitting the object into byte ranges, each of
+ * which is downloaded on the transfer manager's thread pool and written
+ * directly to its offset in a preallocated destination file.
+ * <p>
+ * Nothing blocks waiting for the parts; the last part to finish completes the
+ * download on its own thread, so any number of ranged downloads can share a
+ * bounded thread pool.
+ */
+public class MultipartDownloadMonitor implements TransferMonitor {
+
+    private static final Log log = LogFactory.getLog(MultipartDownloadMonitor.class);
+
+    private final DownloadImpl download;
+    private final File file;
+    private final ObjectMetadata objectMetadata;
+    private final ProgressListenerChain progressListenerChain;
+
+    private final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+    private final AtomicInteger remainingParts = new AtomicInteger();
+    private final FutureTask<Boolean> completion;
+
+    private RandomAccessFile randomAccessFile;
+
+    /**
+     * Constructs a new monitor for a ranged download. Call
+     * {@link #start(AmazonS3, ExecutorService, GetObjectRequest, long)}
+     * to submit the parts for download.
+     *
+     * @param download
+     *            The download being processed.
+     * @param file
+     *            The file to download the object data to.
+     * @param objectMetadata
+     *            The metadata of the object being downloaded.
+     * @param progressListenerChain
+     *            A chain of listeners that wish to be notified of download
+     *            progress.
+     */
+    public MultipartDownloadMonitor(DownloadImpl download, File file, ObjectMetadata objectMetadata,
+            ProgressListenerChain progressListenerChain) {
+        this.download = download;
+        this.file = file;
+        this.objectMetadata = objectMetadata;
+        this.progressListenerChain = progressListenerChain;
+        this.completion = new FutureTask<Boolean>(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                return completeDownload();
+            }
+        }) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                synchronized (futures) {
+                    for (Future<Long> future : futures) {
+                        future.cancel(mayInterruptIfRunning);
+                    }
+                }
+                closeFile();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+    }
+
+    /**
+     * Preallocates the destination file and submits a task for each byte
+     * range of the object to the thread pool.
+     *
+     * @param s3
+     *            The client to use when making requests to Amazon S3.
+     * @param threadPool
+     *            The thread pool in which to download the parts.
+     * @param getObjectRequest
+     *            The original download request.
+     * @param partSize
+     *            The number of bytes in each part.
+     */
+    public void start(AmazonS3 s3, ExecutorService threadPool,
+            GetObjectRequest getObjectRequest, long partSize) {
+        long contentLength = objectMetadata.getContentLength();
+        String clientMarker = getObjectRequest.getRequestClientOptions().getClientMarker();
+
+        try {
+            File parentDirectory = file.getParentFile();
+            if ( parentDirectory != null && !parentDirectory.exists() ) {
+                parentDirectory.mkdirs();
+            }
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(contentLength);
+        } catch (IOException e) {
+            closeFile();
+            download.setState(TransferState.Failed);
+            throw new AmazonClientException("Unable to create file '" + file.getAbsolutePath() + "': " + e.getMessage(), e);
+        }
+
+        int partCount = (int)((contentLength + partSize - 1) / partSize);
+        remainingParts.set(partCount);
+        download.setState(TransferState.InProgress);
+        fireProgressEvent(ProgressEvent.STARTED_EVENT_CODE);
+
+        for (int i = 0; i < partCount && !completion.isDone(); i++) {
+            long firstByte = i * partSize;
+            long lastByte = Math.min(firstByte + partSize, contentLength) - 1;
+
+            // Every part must come from the same version of the object
+            GetObjectRequest partRequest = new GetObjectRequest(getObjectRequest.getBucketName(),
+                    getObjectRequest.getKey(), getObjectRequest.getVersionId())
+                    .withMatchingETagConstraint(objectMetadata.getETag());
+            if (clientMarker != null) {
+                partRequest.getRequestClientOptions().addClientMarker(clientMarker.trim());
+            }
+
+            FutureTask<Long> part = new FutureTask<Long>(new DownloadPartCallable(s3, partRequest,
+                    randomAccessFile.getChannel(), firstByte, lastByte, progressListenerChain)) {
+                @Override
+                protected void done() {
+                    partDone(this);
+                }
+            };
+            synchronized (futures) {
+                futures.add(part);
+            }
+            threadPool.execute(part);
+        }
+    }
+
+    public Future<?> getFuture() {
+        return completion;
+    }
+
+    public boolean isDone() {
+        return download.isDone();
+    }
+
+    /**
+     * Called as each part finishes. A failed part fails the whole download
+     * straight away; otherwise the last part to finish completes it.
+     */
+    private void partDone(Future<Long> part) {
+        boolean failed = part.isCancelled();
+        if (!failed) {
+            try {
+                part.get();
+            } catch (Exception e) {
+                failed = true;
+            }
+        }
+
+        if (failed || remainingParts.decrementAndGet() == 0) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Closes the destination file, collects the results of all parts and
+     * verifies the integrity of the downloaded data.
+     */
+    private boolean completeDownload() throws Exception {
+        try {
+            closeFile();
+            synchronized (futures) {
+                for (Future<Long> future : futures) {
+                    if (!future.isDone()) future.cancel(true);
+                }
+                // Report the first part that actually failed rather than
+                // the parts canceled because of it
+                CancellationException cancellation = null;
+                for (Future<Long> future : futures) {
+                    try {
+                        future.get();
+                    } catch (CancellationException e) {
+                        if (cancellation == null) cancellation = new CancellationException("Download canceled");
+                    } catch (ExecutionException e) {
+                        Throwable t = e.getCause();
+                        if (t instanceof CancellationException) throw (CancellationException)t;
+                        if (t instanceof AmazonClientException) throw (AmazonClientException)t;
+                        throw new AmazonClientException("Unable to download part: " + t.getMessage(), t);
+                    }
+                }
+                if (cancellation != null) throw cancellation;
+            }
+
+            verifyIntegrity();
+            download.setState(TransferState.Completed);
+            fireProgressEvent(ProgressEvent.COMPLETED_EVENT_CODE);
+            return true;
+        } catch (CancellationException e) {
+            download.setState(TransferState.Canceled);
+            fireProgressEvent(ProgressEvent.CANCELED_EVENT_CODE);
+            throw e;
+        } catch (Exception e) {
+            // Downloads aren't allowed to move from canceled to failed
+            if (download.getState() != TransferState.Canceled) {
+                download.setState(TransferState.Failed);
+                fireProgressEvent(ProgressEvent.FAILED_EVENT_CODE);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compares the MD5 of the downloaded file against the object's ETag, when
+     * the ETag is an MD5 (i.e. the object wasn't uploaded in parts).
+     */
+    private void verifyIntegrity() {
+        if (ServiceUtils.isMultipartUploadETag(objectMetadata.getETag())) return;
+
+        byte[] clientSideHash = null;
+        byte[] serverSideHash = null;
+        try {
+            clientSideHash = Md5Utils.computeMD5Hash(new FileInputStream(file));
+            serverSideHash = BinaryUtils.fromHex(objectMetadata.getETag());
+        } catch (Exception e) {
+            log.warn("Unable to calculate MD5 hash to validate download: " + e.getMessage(), e);
+        }
+
+        if (clientSideHash != null && serverSideHash != null && !Arrays.equals(clientSideHash, serverSideHash)) {
+            throw new AmazonClientException("Unable to verify integrity of data download.  " +
+                    "Client calculated content hash didn't match hash calculated by Amazon S3.  " +
+                    "The data stored in '" + file.getAbsolutePath() + "' may be corrupt.");
+        }
+    }
+
+    private synchronized void closeFile() {
+        if (randomAccessFile == null) return;
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            log.warn("Unable to cleanly close file: " + e.getMessage(), e);
+        }
+    }
+
+    private void fireProgressEvent(int eventType) {
+        if (progressListenerChain == null) return;
+        ProgressEvent event = new ProgressEvent(0);
+        event.setEventCode(eventType);
+        progressListenerChain.progressChanged(event);
+    }
+}
@@ -17,10 +17,13 @@ package com.amazonaws.services.s3.transfer.internal;
 import static com.amazonaws.services.s3.internal.Constants.*;
 
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
 
@@ -61,13 +64,43 @@ public class TransferManagerUtils {
 	 */
     public static boolean isUploadParallelizable(final PutObjectRequest putObjectRequest, final boolean isUsingEncryption) {
     	// Each uploaded part in an encrypted upload depends on the encryption context
-    	// from the previous upload, so we cannot parallelize encrypted upload parts.
+    	// from the previous upload, so encrypted parts can't be read concurrently.
+    	// They're encrypted in order and then uploaded in parallel from buffers instead.
     	if (isUsingEncryption) return false;
 
     	// Otherwise, if there's a file, we can process the uploads concurrently.
         return (getRequestFile(putObjectRequest) != null);
     }
 
+    /**
+     * Returns true if the specified upload request reads its data from a
+     * stream which should be buffered into parts and uploaded concurrently.
+     * Encrypted uploads of files are also buffered, since their parts have to
+     * be encrypted in order before they can be uploaded concurrently.
+     *
+     * @param putObjectRequest
+     *            The request to check.
+     * @param configuration
+     *            Configuration settings controlling how transfer manager
+     *            processes requests.
+     * @param isUsingEncryption
+     *            True if the upload is an encrypted upload, otherwise false.
+     *
+     * @return True if this request should be uploaded from buffered parts.
+     */
+    public static boolean shouldUseBufferedStreamUpload(final PutObjectRequest putObjectRequest,
+            final TransferManagerConfiguration configuration, final boolean isUsingEncryption) {
+        if (configuration.getStreamUploadParallelism() <= 1) return false;
+        if (isUsingEncryption && getRequestFile(putObjectRequest) != null) {
+            return shouldUseMultipartUpload(putObjectRequest, configuration);
+        }
+        if (getRequestFile(putObjectRequest) != null || putObjectRequest.getInputStream() == null) return false;
+
+        // Streams of unknown length are split into parts as they're read
+        long contentLength = getContentLength(putObjectRequest);
+        return (contentLength < 0 || shouldUseMultipartUpload(putObjectRequest, configuration));
+    }
+
     /**
      * Returns the size of the data in this request, otherwise -1 if the content
      * length is unknown.
@@ -129,6 +162,46 @@ public class TransferManagerUtils {
         return (contentLength > configuration.getMultipartUploadThreshold());
     }
 
+    /**
+     * Returns true if the specified download request should be split into
+     * byte ranges which are downloaded concurrently.
+     *
+     * @param getObjectRequest
+     *            The request containing all the details of the download.
+     * @param objectMetadata
+     *            The metadata of the object being downloaded.
+     * @param configuration
+     *            Configuration settings controlling how transfer manager
+     *            processes requests.
+     * @param isUsingEncryption
+     *            True if the download is an encrypted download, otherwise
+     *            false.
+     *
+     * @return True if the specified request should be processed as a ranged
+     *         download.
+     */
+    public static boolean shouldUseMultipartDownload(GetObjectRequest getObjectRequest,
+            ObjectMetadata objectMetadata, TransferManagerConfiguration configuration, boolean isUsingEncryption) {
+        // Encrypted objects can only be decrypted from the beginning of the stream.
+        if (isUsingEncryption) return false;
+
+        // Ranges and constraints specified by the caller apply to the whole
+        // object, so they are handled with a single request.
+        if (getObjectRequest.getRange() != null) return false;
+        if (hasElements(getObjectRequest.getMatchingETagConstraints())) return false;
+        if (hasElements(getObjectRequest.getNonmatchingETagConstraints())) return false;
+        if (getObjectRequest.getModifiedSinceConstraint() != null) return false;
+        if (getObjectRequest.getUnmodifiedSinceConstraint() != null) return false;
+
+        long contentLength = objectMetadata.getContentLength();
+        return (contentLength > configuration.getMultipartDownloadThreshold()
+                && contentLength > configuration.getDownloadPartSize());
+    }
+
+    private static boolean hasElements(List<String> list) {
+        return (list != null && !list.isEmpty());
+    }
+
     /**
      * Convenience method for getting the file specified in a request.
      */
@@ -14,23 +14,40 @@
  */
 package com.amazonaws.services.s3.transfer.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3EncryptionClient;
+import com.amazonaws.services.s3.internal.Constants;
+import com.amazonaws.services.s3.internal.crypto.JceEncryptionConstants;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.ProgressEvent;
 import com.amazonaws.services.s3.model.PutObjectRequest;
@@ -54,6 +71,17 @@ public class UploadCallable implements Callable<UploadResult> {
     private final ProgressListenerChain progressListenerChain;
     private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
 
+    /*
+     * State for buffered stream uploads: part buffers which are free to be
+     * refilled, and the parts which may still be holding one.
+     */
+    private final BlockingQueue<byte[]> freePartBuffers = new LinkedBlockingQueue<byte[]>();
+    private final LinkedList<FutureTask<PartETag>> partsInFlight = new LinkedList<FutureTask<PartETag>>();
+    private int allocatedPartBuffers;
+
+    /* Run as each part of a multipart upload finishes, successfully or not */
+    private Runnable partDoneListener;
+
     public UploadCallable(TransferManager transferManager, ExecutorService threadPool, UploadImpl upload, PutObjectRequest putObjectRequest, ProgressListenerChain progressListenerChain) {
         this.s3 = transferManager.getAmazonS3Client();
         this.configuration = transferManager.getConfiguration();
@@ -72,33 +100,43 @@ public class UploadCallable implements Callable<UploadResult> {
         return multipartUploadId;
     }
 
+    /**
+     * Sets a callback to run on the thread which finishes each part of a
+     * multipart upload. Parts may finish before {@link #call()} returns.
+     */
+    void setPartDoneListener(Runnable partDoneListener) {
+        this.partDoneListener = partDoneListener;
+    }
+
     /**
      * Returns true if this UploadCallable is processing a multipart upload.
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
-    	return TransferManagerUtils.shouldUseMultipartUpload(putObjectRequest, configuration);
+    	return multipartUploadId != null || TransferManagerUtils.shouldUseMultipartUpload(putObjectRequest, configuration);
     }
 
     public UploadResult call() throws Exception {
         upload.setState(TransferState.InProgress);
-        if ( isMultipartUpload() ) {
+        if ( TransferManagerUtils.shouldUseBufferedStreamUpload(putObjectRequest, configuration, s3 instanceof AmazonS3EncryptionClient) ) {
+            return uploadStreamInBufferedParts();
+        } else if ( isMultipartUpload() ) {
             fireProgressEvent(ProgressEvent.STARTED_EVENT_CODE);
             return uploadInParts();
         } else {
-            return uploadInOneChunk();
+            return uploadInOneChunk(putObjectRequest);
         }
     }
 
     /**
      * Uploads the given request in a single chunk and returns the result.
      */
-    private UploadResult uploadInOneChunk() {
-        PutObjectResult putObjectResult = s3.putObject(putObjectRequest);
+    private UploadResult uploadInOneChunk(PutObjectRequest request) {
+        PutObjectResult putObjectResult = s3.putObject(request);
 
         UploadResult uploadResult = new UploadResult();
-        uploadResult.setBucketName(putObjectRequest.getBucketName());
-        uploadResult.setKey(putObjectRequest.getKey());
+        uploadResult.setBucketName(request.getBucketName());
+        uploadResult.setKey(request.getKey());
         uploadResult.setETag(putObjectResult.getETag());
         uploadResult.setVersionId(putObjectResult.getVersionId());
         return uploadResult;
@@ -110,9 +148,6 @@ public class UploadCallable implements Callable<UploadResult> {
      * as the multipart upload id.
      */
     private UploadResult uploadInParts() throws Exception {
-        final String bucketName = putObjectRequest.getBucketName();
-        final String key        = putObjectRequest.getKey();
-
         boolean isUsingEncryption = s3 instanceof AmazonS3EncryptionClient;
         long optimalPartSize = getOptimalPartSize(isUsingEncryption);
 
@@ -129,18 +164,234 @@ public class UploadCallable implements Callable<UploadResult> {
             }
         } catch (Exception e) {
             fireProgressEvent(ProgressEvent.FAILED_EVENT_CODE);
+            abortMultipartUpload();
+            throw e;
+        } finally {
+            closeInputStream(putObjectRequest.getInputStream());
+        }
+    }
+
+    /**
+     * Reads the request's data into a bounded set of reusable part buffers and
+     * uploads each buffered part on the thread pool while the next one is being
+     * read. If the whole stream fits into the first buffer it is uploaded with
+     * a single request instead.
+     * <p>
+     * With an encryption client, each part is encrypted on this thread as soon
+     * as it has been read, carrying the cipher chain on from the part before,
+     * so only the uploads of the encrypted parts run concurrently.
+     */
+    private UploadResult uploadStreamInBufferedParts() throws Exception {
+        final AmazonS3EncryptionClient encryptionClient =
+                (s3 instanceof AmazonS3EncryptionClient) ? (AmazonS3EncryptionClient)s3 : null;
+        final File file = TransferManagerUtils.getRequestFile(putObjectRequest);
+        final InputStream originalInput = (file != null) ? new FileInputStream(file) : putObjectRequest.getInputStream();
+        final PushbackInputStream input = new PushbackInputStream(originalInput, 1);
+
+        long partSize = TransferManagerUtils.getContentLength(putObjectRequest) < 0
+                ? alignPartSize(configuration.getMinimumUploadPartSize(), encryptionClient != null)
+                : getOptimalPartSize(encryptionClient != null);
+        // The last encrypted part grows by up to one cipher block of padding
+        int paddingSize = (encryptionClient != null) ? JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE : 0;
+        if (partSize + paddingSize > Integer.MAX_VALUE) {
+            throw new AmazonClientException("Part size of " + partSize + " bytes is too large to be buffered");
+        }
+
+        try {
+            byte[] buffer = nextPartBuffer((int)partSize + paddingSize);
+            int length = readPart(input, buffer, (int)partSize);
+            boolean isLastPart = isEndOfStream(input);
+
+            if (isLastPart) {
+                return uploadInOneChunk(createBufferedPutObjectRequest(buffer, length));
+            }
+
+            fireProgressEvent(ProgressEvent.STARTED_EVENT_CODE);
+            multipartUploadId = initiateMultipartUpload(putObjectRequest);
 
             try {
-                s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, multipartUploadId));
-            } catch (Exception e2) {
-                log.info("Unable to abort multipart upload, you may need to manually remove uploaded parts: " + e2.getMessage(), e2);
+                int partNumber = 1;
+                while (true) {
+                    if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
+                    if (partNumber > Constants.MAXIMUM_UPLOAD_PARTS) {
+                        throw new AmazonClientException("Stream is too long to be uploaded in "
+                                + Constants.MAXIMUM_UPLOAD_PARTS + " parts of " + partSize + " bytes");
+                    }
+
+                    if (encryptionClient != null) {
+                        length = encryptionClient.encryptPart(multipartUploadId, buffer, length, isLastPart);
+                    }
+                    submitBufferedPart(buffer, length, partNumber++, isLastPart);
+                    if (isLastPart) break;
+
+                    buffer = nextPartBuffer((int)partSize + paddingSize);
+                    length = readPart(input, buffer, (int)partSize);
+                    isLastPart = isEndOfStream(input);
+                }
+                return null;
+            } catch (Exception e) {
+                for (Future<PartETag> future : futures) future.cancel(true);
+                fireProgressEvent(ProgressEvent.FAILED_EVENT_CODE);
+                abortMultipartUpload();
+                throw e;
             }
-            throw e;
         } finally {
-            if (putObjectRequest.getInputStream() != null) {
-                try {putObjectRequest.getInputStream().close(); } catch (Exception e) {
-                    log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+            closeInputStream(originalInput);
+        }
+    }
+
+    /**
+     * Creates a copy of the request which uploads the specified buffer in place
+     * of the request's own data, so that the caller's request, and its
+     * metadata, are left as they were.
+     */
+    private PutObjectRequest createBufferedPutObjectRequest(byte[] buffer, int length) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        ObjectMetadata originalMetadata = putObjectRequest.getMetadata();
+        if (originalMetadata != null) {
+            for (Map.Entry<String, Object> header : originalMetadata.getRawMetadata().entrySet()) {
+                metadata.setHeader(header.getKey(), header.getValue());
+            }
+            metadata.setUserMetadata(new HashMap<String, String>(originalMetadata.getUserMetadata()));
+        }
+        metadata.setContentLength(length);
+
+        PutObjectRequest request = new PutObjectRequest(putObjectRequest.getBucketName(),
+                putObjectRequest.getKey(), new ByteArrayInputStream(buffer, 0, length), metadata);
+        request.setCannedAcl(putObjectRequest.getCannedAcl());
+        request.setAccessControlList(putObjectRequest.getAccessControlList());
+        request.setStorageClass(putObjectRequest.getStorageClass());
+        request.setRedirectLocation(putObjectRequest.getRedirectLocation());
+        request.setProgressListener(putObjectRequest.getProgressListener());
+        request.setRequestCredentials(putObjectRequest.getRequestCredentials());
+
+        String clientMarker = putObjectRequest.getRequestClientOptions().getClientMarker();
+        if (clientMarker != null) {
+            request.getRequestClientOptions().addClientMarker(clientMarker.trim());
+        }
+        return request;
+    }
+
+    /**
+     * Submits an upload for one buffered part to the thread pool. The buffer is
+     * handed back for reuse as soon as the part finishes. Parts uploaded with
+     * an encryption client must already have been encrypted.
+     */
+    private void submitBufferedPart(final byte[] buffer, int length, int partNumber, boolean isLastPart) {
+        final UploadPartRequest request = new UploadPartRequest()
+            .withBucketName(putObjectRequest.getBucketName())
+            .withKey(putObjectRequest.getKey())
+            .withUploadId(multipartUploadId)
+            .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+            .withPartNumber(partNumber)
+            .withPartSize(length);
+        request.setLastPart(isLastPart);
+        request.setProgressListener(putObjectRequest.getProgressListener());
+
+        Callable<PartETag> callable = new UploadPartCallable(s3, request);
+        if (s3 instanceof AmazonS3EncryptionClient) {
+            final AmazonS3EncryptionClient encryptionClient = (AmazonS3EncryptionClient)s3;
+            callable = new Callable<PartETag>() {
+                public PartETag call() throws Exception {
+                    return encryptionClient.uploadEncryptedPart(request).getPartETag();
                 }
+            };
+        }
+
+        FutureTask<PartETag> task = new FutureTask<PartETag>(callable) {
+            @Override
+            protected void done() {
+                freePartBuffers.add(buffer);
+                partDone();
+            }
+        };
+        futures.add(task);
+        partsInFlight.add(task);
+        threadPool.execute(task);
+    }
+
+    /**
+     * Returns a part buffer to read the next part into, allocating a new one
+     * only while fewer than the configured number of buffers exist. Otherwise
+     * waits for an uploading part to give its buffer back, running any part
+     * the thread pool hasn't picked up yet on this thread so that readers can
+     * never starve the pool.
+     */
+    private byte[] nextPartBuffer(int partSize) throws InterruptedException {
+        checkPartsInFlight();
+
+        byte[] buffer = freePartBuffers.poll();
+        if (buffer != null) return buffer;
+        if (allocatedPartBuffers < configuration.getStreamUploadParallelism()) {
+            allocatedPartBuffers++;
+            return new byte[partSize];
+        }
+
+        for (FutureTask<PartETag> task : partsInFlight) {
+            if (!freePartBuffers.isEmpty()) break;
+            task.run();
+        }
+        buffer = freePartBuffers.take();
+        checkPartsInFlight();
+        return buffer;
+    }
+
+    /**
+     * Forgets about parts which have finished, rethrowing the first failure so
+     * that the stream isn't read any further.
+     */
+    private void checkPartsInFlight() throws InterruptedException {
+        Iterator<FutureTask<PartETag>> iterator = partsInFlight.iterator();
+        while (iterator.hasNext()) {
+            FutureTask<PartETag> task = iterator.next();
+            if (task.isDone()) {
+                iterator.remove();
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    Throwable t = e.getCause();
+                    if (t instanceof AmazonClientException) throw (AmazonClientException)t;
+                    throw new AmazonClientException("Unable to upload part: " + t.getMessage(), t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads up to partSize bytes from the stream into the given buffer,
+     * returning the number of bytes read. Fewer bytes are only returned at the
+     * end of the stream.
+     */
+    private static int readPart(InputStream input, byte[] buffer, int partSize) throws IOException {
+        int length = 0;
+        while (length < partSize) {
+            int bytesRead = input.read(buffer, length, partSize - length);
+            if (bytesRead == -1) break;
+            length += bytesRead;
+        }
+        return length;
+    }
+
+    private static boolean isEndOfStream(PushbackInputStream input) throws IOException {
+        int data = input.read();
+        if (data == -1) return true;
+        input.unread(data);
+        return false;
+    }
+
+    private void abortMultipartUpload() {
+        try {
+            s3.abortMultipartUpload(new AbortMultipartUploadRequest(putObjectRequest.getBucketName(),
+                    putObjectRequest.getKey(), multipartUploadId));
+        } catch (Exception e) {
+            log.info("Unable to abort multipart upload, you may need to manually remove uploaded parts: " + e.getMessage(), e);
+        }
+    }
+
+    private void closeInputStream(InputStream inputStream) {
+        if (inputStream != null) {
+            try {inputStream.close(); } catch (Exception e) {
+                log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
             }
         }
     }
@@ -149,15 +400,23 @@ public class UploadCallable implements Callable<UploadResult> {
      * Computes and returns the optimal part size for the upload.
      */
     private long getOptimalPartSize(boolean isUsingEncryption) {
-        long optimalPartSize = TransferManagerUtils.calculateOptimalPartSize(putObjectRequest, configuration);
-        if (isUsingEncryption && optimalPartSize % 32 > 0) {
-        	// When using encryption, parts must line up correctly along cipher block boundaries
-        	optimalPartSize = optimalPartSize - (optimalPartSize % 32) + 32 ;
-        }
+        long optimalPartSize = alignPartSize(
+                TransferManagerUtils.calculateOptimalPartSize(putObjectRequest, configuration), isUsingEncryption);
         log.debug("Calculated optimal part size: " + optimalPartSize);
         return optimalPartSize;
     }
 
+    /**
+     * Rounds the given part size up so that encrypted parts line up correctly
+     * along cipher block boundaries.
+     */
+    private static long alignPartSize(long partSize, boolean isUsingEncryption) {
+        if (isUsingEncryption && partSize % 32 > 0) {
+            partSize = partSize - (partSize % 32) + 32;
+        }
+        return partSize;
+    }
+
     /**
      * Uploads all parts in the request in serial in this thread, then completes
      * the upload and returns the result.
@@ -202,10 +461,21 @@ public class UploadCallable implements Callable<UploadResult> {
         while (requestFactory.hasMoreRequests()) {
             if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
             UploadPartRequest request = requestFactory.getNextUploadPartRequest();
-            futures.add(threadPool.submit(new UploadPartCallable(s3, request)));
+            FutureTask<PartETag> task = new FutureTask<PartETag>(new UploadPartCallable(s3, request)) {
+                @Override
+                protected void done() {
+                    partDone();
+                }
+            };
+            futures.add(task);
+            threadPool.execute(task);
         }
     }
 
+    private void partDone() {
+        if (partDoneListener != null) partDoneListener.run();
+    }
+
     /**
      * Initiates a multipart upload and returns the upload id
      */
@@ -20,8 +20,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,11 +39,12 @@ import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
 
 /**
- * Manages an upload by periodically checking to see if the upload is done, and
- * returning a result if so. Otherwise, schedules a copy of itself to be run in
- * the future and returns null. When waiting on the result of this class via a
- * Future object, clients must call {@link UploadMonitor#isDone()} and
- * {@link UploadMonitor#getFuture()}
+ * Manages an upload, returning its result if it finishes in one step.
+ * Otherwise, the parts of a multipart upload are left running in the thread
+ * pool and null is returned; the thread which finishes the last part then
+ * completes the multipart upload straight away. When waiting on the result of
+ * this class via a Future object, clients must call
+ * {@link UploadMonitor#isDone()} and {@link UploadMonitor#getFuture()}
  */
 public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
 
@@ -51,7 +52,6 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
     private final AmazonS3 s3;
     private final ExecutorService threadPool;
     private final PutObjectRequest putObjectRequest;
-    private ScheduledExecutorService timedThreadPool;
 
     private static final Log log = LogFactory.getLog(UploadMonitor.class);
     private final TransferManagerConfiguration configuration;
@@ -65,6 +65,13 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
     private String uploadId;
     private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
 
+    /*
+     * The number of parts which haven't finished yet, less the number of
+     * parts which finished before the total was known
+     */
+    private final AtomicInteger remainingParts = new AtomicInteger();
+    private final FutureTask<UploadResult> completion;
+
     /*
      * State for clients wishing to poll for completion
      */
@@ -87,10 +94,6 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
         isUploadDone = true;
     }
 
-    // TODO: this could be configured in the configuration object (which we're
-    // not using right now)
-    private int pollInterval = 5000;
-
     /**
      * Constructs a new upload watcher, which immediately submits itself to the
      * thread pool.
@@ -122,12 +125,19 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
         this.putObjectRequest = putObjectRequest;
         this.progressListenerChain = progressListenerChain;
         this.transfer = transfer;
+        this.completion = new FutureTask<UploadResult>(this);
 
-        setNextFuture(threadPool.submit(this));
-    }
+        multipartUploadCallable.setPartDoneListener(new Runnable() {
+            public void run() {
+                if (remainingParts.decrementAndGet() == 0) completion.run();
+            }
+        });
 
-    public void setTimedThreadPool(ScheduledExecutorService timedThreadPool) {
-        this.timedThreadPool = timedThreadPool;
+        // The upload may finish before submit returns, so the first future is
+        // published before the task can run and replace it
+        FutureTask<UploadResult> uploadTask = new FutureTask<UploadResult>(this);
+        setNextFuture(uploadTask);
+        threadPool.execute(uploadTask);
     }
 
     @Override
@@ -136,7 +146,7 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
             if ( uploadId == null ) {
                 return upload();
             } else {
-                return poll();
+                return complete();
             }
         } catch ( CancellationException e ) {
             transfer.setState(TransferState.Canceled);
@@ -150,17 +160,9 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
     }
 
     /**
-     * Polls for a result from a multipart upload and either returns it if
-     * complete, or reschedules to poll again later if not.
+     * Completes a multipart upload once all of its parts have finished.
      */
-    private UploadResult poll() throws InterruptedException {
-        for ( Future<PartETag> f : futures ) {
-            if ( !f.isDone() ) {
-                reschedule();
-                return null;
-            }
-        }
-
+    private UploadResult complete() {
         for ( Future<PartETag> f : futures ) {
             if ( f.isCancelled() ) {
                 throw new CancellationException();
@@ -171,8 +173,9 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
     }
 
     /**
-     * Initiates the upload and checks on the result. If it has completed,
-     * returns the result; otherwise, reschedules to check back later.
+     * Initiates the upload. If it has completed, returns the result;
+     * otherwise, arranges for the multipart upload to be completed as soon as
+     * its last part finishes.
      */
     private UploadResult upload() throws Exception, InterruptedException {
 
@@ -183,7 +186,12 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
         } else {
             uploadId = multipartUploadCallable.getMultipartUploadId();
             futures.addAll(multipartUploadCallable.getFutures());
-            reschedule();
+            setNextFuture(completion);
+
+            // Parts which already finished have counted themselves off below zero
+            if ( remainingParts.addAndGet(futures.size()) == 0 ) {
+                completion.run();
+            }
         }
 
         return result;
@@ -200,15 +208,6 @@ public class UploadMonitor implements Callable<UploadResult>, TransferMonitor {
         }
     }
 
-    private void reschedule()  {
-        setNextFuture(timedThreadPool.schedule(new Callable<UploadResult>() {
-            public UploadResult call() throws Exception {
-                setNextFuture(threadPool.submit(UploadMonitor.this));
-                return null;
-            }
-        }, pollInterval, TimeUnit.MILLISECONDS));
-    }
-
     private void fireProgressEvent(int eventType) {
         if (progressListenerChain == null) return;
         ProgressEvent event = new ProgressEvent(0);
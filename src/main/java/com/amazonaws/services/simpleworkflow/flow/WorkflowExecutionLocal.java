@@ -15,7 +15,9 @@
 package com.amazonaws.services.simpleworkflow.flow;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contains value that is bound to a currently executing workflow. Has the same
@@ -68,6 +70,47 @@ public class WorkflowExecutionLocal<T> {
         }
     }
 
+    /**
+     * Returns the current values of all the workflow execution locals, so that
+     * a decider kept in memory between decisions can later continue with them,
+     * possibly on another thread, using {@link #restore(Map)}. It is not a
+     * good idea to call this method from non framework code.
+     */
+    public static Map<WorkflowExecutionLocal<?>, Object> save() {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        // Identity map, as hashCode() is delegated to the value
+        Map<WorkflowExecutionLocal<?>, Object> result = new IdentityHashMap<WorkflowExecutionLocal<?>, Object>();
+        for (WorkflowExecutionLocal<?> local : currentLocals) {
+            Wrapper<?> w = local.value.get();
+            if (w != null) {
+                result.put(local, w.wrapped);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the values of the workflow execution locals on the current thread
+     * to those returned by {@link #save()}. Locals without a saved value get
+     * their initial value, as with {@link #before()}. It is not a good idea to
+     * call this method from non framework code.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void restore(Map<WorkflowExecutionLocal<?>, Object> saved) {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        for (WorkflowExecutionLocal local : currentLocals) {
+            Wrapper w = new Wrapper();
+            w.wrapped = saved.containsKey(local) ? saved.get(local) : local.initialValue();
+            local.set(w);
+        }
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public WorkflowExecutionLocal() {
         Wrapper w = new Wrapper();
@@ -16,6 +16,7 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 
 import org.apache.commons.logging.Log;
@@ -25,6 +26,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowException;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncScope;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.core.Promise;
@@ -131,7 +133,7 @@ class AsyncDecider {
 
     private WorkflowDefinition definition;
 
-    private final HistoryHelper historyHelper;
+    private HistoryHelper historyHelper;
 
     private final DecisionsHelper decisionsHelper;
 
@@ -155,6 +157,9 @@ class AsyncDecider {
 
     private Throwable failure;
 
+    /* Workflow execution locals of a decider kept between decision tasks */
+    private Map<WorkflowExecutionLocal<?>, Object> suspendedLocals;
+
     public AsyncDecider(WorkflowDefinitionFactory workflowDefinitionFactory, HistoryHelper historyHelper,
             DecisionsHelper decisionsHelper) throws Exception {
         this.workflowDefinitionFactory = workflowDefinitionFactory;
@@ -425,10 +430,22 @@ class AsyncDecider {
     }
 
     public void decide() throws Exception {
+        decide(true);
+    }
+
+    /**
+     * @param deleteDefinition
+     *            False to keep the workflow definition after the decision, so
+     *            the decider can be {@link #suspend() suspended} and later
+     *            continue with the events of the next decision task.
+     */
+    void decide(boolean deleteDefinition) throws Exception {
         try {
-            definition = workflowDefinitionFactory.getWorkflowDefinition(context);
             if (definition == null) {
-                throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+                definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+                if (definition == null) {
+                    throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+                }
             }
             long lastNonReplayedEventId = historyHelper.getLastNonReplayEventId();
             // Buffer events until the next DecisionTaskStarted and then process them
@@ -534,7 +551,67 @@ class AsyncDecider {
             catch (Throwable e) {
                 decisionsHelper.setWorkflowContextData(e.getMessage());
             }
-            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+            if (deleteDefinition) {
+                workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the decider can be kept in memory to handle the next
+     * decision task of the workflow execution, i.e. the workflow is still
+     * running and its definition was created.
+     */
+    boolean isResumable() {
+        return definition != null && !completed && !decisionsHelper.isWorkflowFailed();
+    }
+
+    /**
+     * Returns the ID of the DecisionTaskStarted event of the last decision
+     * task the decider handled.
+     */
+    long getLastStartedEventId() {
+        return historyHelper.getDecisionTask().getStartedEventId();
+    }
+
+    /**
+     * Saves the workflow execution locals of a decision made with
+     * {@link #decide(boolean)} and clears them from the current thread.
+     */
+    void suspend() {
+        suspendedLocals = WorkflowExecutionLocal.save();
+        CurrentDecisionContext.unset();
+    }
+
+    /**
+     * Restores a suspended decider on the current thread, to continue with the
+     * events of the next decision task, which must all follow the last
+     * decision task the decider handled.
+     * 
+     * @param newEvents
+     *            The events after the DecisionTaskStarted event of the last
+     *            decision task handled, in order.
+     */
+    void resume(HistoryHelper newEvents) {
+        WorkflowExecutionLocal.restore(suspendedLocals);
+        suspendedLocals = null;
+        this.historyHelper = newEvents;
+    }
+
+    /**
+     * Deletes the workflow definition of a suspended decider which won't be
+     * resumed.
+     */
+    void release() {
+        if (suspendedLocals != null) {
+            WorkflowExecutionLocal.restore(suspendedLocals);
+            suspendedLocals = null;
+        }
+        if (definition != null) {
+            workflowDefinitionFactory.deleteWorkflowDefinition(definition);
+        }
+        else {
+            CurrentDecisionContext.unset();
         }
     }
 
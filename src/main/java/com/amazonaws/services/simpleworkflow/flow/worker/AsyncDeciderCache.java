@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Least recently used cache of suspended deciders, keyed by workflow run ID.
+ * <p>
+ * A decider is taken out of the cache while it handles a decision task, so a
+ * decider is never used by two threads at once, and put back once the task
+ * has been handled. Deciders evicted to stay within the size limit are
+ * released.
+ */
+class AsyncDeciderCache {
+
+    private static final Log log = LogFactory.getLog(AsyncDeciderCache.class);
+
+    private final int maximumSize;
+
+    private final LinkedHashMap<String, AsyncDecider> deciders;
+
+    AsyncDeciderCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.deciders = new LinkedHashMap<String, AsyncDecider>(16, 0.75f, true);
+    }
+
+    /**
+     * Takes the decider of a workflow run out of the cache.
+     *
+     * @return The decider, or null if none is cached for the run.
+     */
+    AsyncDecider remove(String runId) {
+        synchronized (deciders) {
+            return deciders.remove(runId);
+        }
+    }
+
+    /**
+     * Puts a suspended decider in the cache, releasing the least recently used
+     * decider if the cache is full.
+     */
+    void put(String runId, AsyncDecider decider) {
+        AsyncDecider evicted = null;
+        AsyncDecider replaced;
+        synchronized (deciders) {
+            replaced = deciders.put(runId, decider);
+            if (deciders.size() > maximumSize) {
+                Map.Entry<String, AsyncDecider> eldest = deciders.entrySet().iterator().next();
+                evicted = eldest.getValue();
+                deciders.remove(eldest.getKey());
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicting decider of workflow run " + eldest.getKey());
+                }
+            }
+        }
+        release(replaced);
+        release(evicted);
+    }
+
+    /**
+     * Releases a decider which won't be used again.
+     */
+    void release(AsyncDecider decider) {
+        if (decider == null) {
+            return;
+        }
+        try {
+            decider.release();
+        }
+        catch (Throwable e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Failure releasing cached decider", e);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (deciders) {
+            return deciders.size();
+        }
+    }
+
+}
@@ -14,6 +14,7 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -21,17 +22,127 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.flow.common.WorkflowExecutionUtils;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinition;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactory;
 import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
 import com.amazonaws.services.simpleworkflow.model.Decision;
 import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.History;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
 import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
 import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
 public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
 
+    /**
+     * Reads the pages of a decision task's history, which are in reverse
+     * order, only as far back as needed.
+     */
+    private static final class ReverseOrderHistory {
+
+        private final Iterator<DecisionTask> pages;
+
+        private final DecisionTask decisionTask;
+
+        /* Newest first */
+        private final List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+
+        ReverseOrderHistory(Iterator<DecisionTask> pages) {
+            this.pages = pages;
+            decisionTask = pages.next();
+            events.addAll(decisionTask.getEvents());
+        }
+
+        DecisionTask getDecisionTask() {
+            return decisionTask;
+        }
+
+        /**
+         * Returns the events with IDs greater than the given ID, oldest first.
+         */
+        List<HistoryEvent> getEventsAfter(long eventId) {
+            while (pages.hasNext() && (events.isEmpty() || events.get(events.size() - 1).getEventId() > eventId)) {
+                events.addAll(pages.next().getEvents());
+            }
+            List<HistoryEvent> result = new ArrayList<HistoryEvent>();
+            for (int i = events.size() - 1; i >= 0; i--) {
+                HistoryEvent event = events.get(i);
+                if (event.getEventId() > eventId) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads the whole history of a decision task, oldest first, one page at a
+     * time, for a decision task whose own history was polled in reverse order.
+     * Events added after the decision task started are left out.
+     */
+    private static final class HistoryPageIterator implements Iterator<DecisionTask> {
+
+        private final AmazonSimpleWorkflow service;
+
+        private final String domain;
+
+        private final DecisionTask decisionTask;
+
+        private DecisionTask next;
+
+        HistoryPageIterator(AmazonSimpleWorkflow service, String domain, DecisionTask decisionTask) {
+            this.service = service;
+            this.domain = domain;
+            this.decisionTask = decisionTask;
+            next = poll(null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DecisionTask next() {
+            if (!hasNext()) {
+                throw new IllegalStateException("hasNext() == false");
+            }
+            DecisionTask result = next;
+            next = (result.getNextPageToken() == null) ? null : poll(result.getNextPageToken());
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private DecisionTask poll(String nextPageToken) {
+            History history = WorkflowExecutionUtils.getHistoryPage(nextPageToken, service, domain,
+                    decisionTask.getWorkflowExecution());
+            List<HistoryEvent> events = history.getEvents();
+            String token = history.getNextPageToken();
+            long startedEventId = decisionTask.getStartedEventId();
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i).getEventId() >= startedEventId) {
+                    events = events.subList(0, i + 1);
+                    token = null;
+                    break;
+                }
+            }
+            DecisionTask page = createPage(decisionTask, events);
+            page.setNextPageToken(token);
+            return page;
+        }
+    }
+
+    /** The number of events in each page of a history rebuilt from a reverse order history */
+    private static final int HISTORY_PAGE_SIZE = 1000;
+
     private static final Log log = LogFactory.getLog(AsyncDecisionTaskHandler.class);
 
     private static final Log asyncThreadDumpLog = LogFactory.getLog(AsyncDecisionTaskHandler.class.getName()
@@ -39,15 +150,159 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
 
     private final WorkflowDefinitionFactoryFactory definitionFactoryFactory;
 
+    private final AsyncDeciderCache deciderCache;
+
+    private final AmazonSimpleWorkflow service;
+
+    private final String domain;
+
     public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory) {
+        this(definitionFactoryFactory, 0, null, null);
+    }
+
+    /**
+     * @param deciderCacheSize
+     *            The maximum number of workflow runs whose deciders are kept
+     *            in memory between decision tasks, or zero to replay the whole
+     *            history for every decision task. A cached decider only
+     *            handles the events added since its last decision task, and
+     *            the history is then expected in reverse order (see
+     *            {@link #isHistoryReverseOrder()}).
+     * @param service
+     *            The service to read the whole history of a workflow run from,
+     *            oldest first, when its decider isn't cached. Required only if
+     *            deciderCacheSize is greater than zero.
+     * @param domain
+     *            The domain of the workflow runs.
+     */
+    public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory, int deciderCacheSize,
+            AmazonSimpleWorkflow service, String domain) {
+        if (deciderCacheSize > 0 && service == null) {
+            throw new IllegalArgumentException("A service is required to cache deciders");
+        }
         this.definitionFactoryFactory = definitionFactoryFactory;
+        this.deciderCache = deciderCacheSize > 0 ? new AsyncDeciderCache(deciderCacheSize) : null;
+        this.service = service;
+        this.domain = domain;
+    }
+
+    /**
+     * Returns true if deciders are cached, in which case only the newest
+     * pages of the history, up to the last decision task handled, are read.
+     */
+    @Override
+    public boolean isHistoryReverseOrder() {
+        return deciderCache != null;
     }
 
     @Override
     public RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception {
+        if (deciderCache != null) {
+            return handleDecisionTaskWithCachedDecider(decisionTaskIterator);
+        }
         HistoryHelper historyHelper = new HistoryHelper(decisionTaskIterator);
         AsyncDecider decider = createDecider(historyHelper);
         decider.decide();
+        return createCompletedRequest(decider, historyHelper);
+    }
+
+    private RespondDecisionTaskCompletedRequest handleDecisionTaskWithCachedDecider(Iterator<DecisionTask> decisionTaskIterator)
+            throws Exception {
+        ReverseOrderHistory history = new ReverseOrderHistory(decisionTaskIterator);
+        DecisionTask decisionTask = history.getDecisionTask();
+        String runId = decisionTask.getWorkflowExecution().getRunId();
+
+        HistoryHelper historyHelper = null;
+        AsyncDecider decider = deciderCache.remove(runId);
+        if (decider != null) {
+            long lastStartedEventId = decider.getLastStartedEventId();
+            List<HistoryEvent> newEvents = history.getEventsAfter(lastStartedEventId);
+            if (isContinuation(decisionTask, newEvents, lastStartedEventId)) {
+                historyHelper = new HistoryHelper(toPages(decisionTask, newEvents));
+                decider.resume(historyHelper);
+            }
+            else {
+                if (log.isDebugEnabled()) {
+                    log.debug("Cached decider is out of date, replaying full history: workflowExecution="
+                            + decisionTask.getWorkflowExecution() + ", lastStartedEventId=" + lastStartedEventId
+                            + ", previousStartedEventId=" + decisionTask.getPreviousStartedEventId());
+                }
+                deciderCache.release(decider);
+                decider = null;
+            }
+        }
+        if (decider == null) {
+            historyHelper = new HistoryHelper(new HistoryPageIterator(service, domain, decisionTask));
+            decider = createDecider(historyHelper);
+        }
+
+        boolean resumable = false;
+        try {
+            decider.decide(false);
+            RespondDecisionTaskCompletedRequest result = createCompletedRequest(decider, historyHelper);
+            resumable = decider.isResumable();
+            return result;
+        }
+        finally {
+            if (resumable) {
+                decider.suspend();
+                deciderCache.put(runId, decider);
+            }
+            else {
+                deciderCache.release(decider);
+            }
+        }
+    }
+
+    /**
+     * Checks that the new events of a decision task directly follow the last
+     * decision task a cached decider handled, and that the decisions it made
+     * then were completed rather than timed out.
+     */
+    private static boolean isContinuation(DecisionTask decisionTask, List<HistoryEvent> newEvents, long lastStartedEventId) {
+        Long previousStartedEventId = decisionTask.getPreviousStartedEventId();
+        if (previousStartedEventId == null || previousStartedEventId != lastStartedEventId) {
+            return false;
+        }
+        if (newEvents.isEmpty() || newEvents.get(0).getEventId() != lastStartedEventId + 1) {
+            return false;
+        }
+        for (HistoryEvent event : newEvents) {
+            if (EventType.DecisionTaskCompleted.toString().equals(event.getEventType())) {
+                return event.getDecisionTaskCompletedEventAttributes().getStartedEventId() == lastStartedEventId;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits events, oldest first, into decision task pages to be read by a
+     * {@link HistoryHelper}.
+     */
+    private static Iterator<DecisionTask> toPages(DecisionTask decisionTask, List<HistoryEvent> events) {
+        List<DecisionTask> pages = new ArrayList<DecisionTask>();
+        for (int i = 0; i < events.size() || i == 0; i += HISTORY_PAGE_SIZE) {
+            pages.add(createPage(decisionTask, events.subList(i, Math.min(events.size(), i + HISTORY_PAGE_SIZE))));
+        }
+        return pages.iterator();
+    }
+
+    /**
+     * Creates a page of the given decision task's history holding the given
+     * events.
+     */
+    private static DecisionTask createPage(DecisionTask decisionTask, List<HistoryEvent> events) {
+        DecisionTask page = new DecisionTask();
+        page.setTaskToken(decisionTask.getTaskToken());
+        page.setStartedEventId(decisionTask.getStartedEventId());
+        page.setPreviousStartedEventId(decisionTask.getPreviousStartedEventId());
+        page.setWorkflowExecution(decisionTask.getWorkflowExecution());
+        page.setWorkflowType(decisionTask.getWorkflowType());
+        page.setEvents(events);
+        return page;
+    }
+
+    private RespondDecisionTaskCompletedRequest createCompletedRequest(AsyncDecider decider, HistoryHelper historyHelper) {
         DecisionsHelper decisionsHelper = decider.getDecisionsHelper();
         Collection<Decision> decisions = decisionsHelper.getDecisions();
         String context = decisionsHelper.getWorkflowContextDataToReturn();
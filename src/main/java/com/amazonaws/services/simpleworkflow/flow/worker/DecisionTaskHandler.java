@@ -59,4 +59,13 @@ public abstract class DecisionTaskHandler {
 
     public abstract Object loadWorkflowThroughReplay(Iterator<DecisionTask> decisionTaskIterator) throws Exception;
 
+    /**
+     * Returns true if {@link #handleDecisionTask(Iterator)} expects the pages
+     * of the history in reverse order, newest events first, so it can stop
+     * reading pages once it has the events it needs.
+     */
+    public boolean isHistoryReverseOrder() {
+        return false;
+    }
+
 }
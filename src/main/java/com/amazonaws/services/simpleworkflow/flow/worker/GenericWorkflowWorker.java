@@ -38,6 +38,8 @@ public class GenericWorkflowWorker extends GenericWorker {
 
     private WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
 
+    private int deciderCacheSize;
+
     public GenericWorkflowWorker() {
         setIdentity(ManagementFactory.getRuntimeMXBean().getName());
     }
@@ -57,6 +59,28 @@ public class GenericWorkflowWorker extends GenericWorker {
         this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
     }
 
+    public int getDeciderCacheSize() {
+        return deciderCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of workflow runs whose deciders are kept in
+     * memory between decision tasks. A cached decider only handles the events
+     * added to the history since its previous decision task, instead of
+     * replaying the whole history, which saves fetching and replaying the
+     * history of long running workflows on every decision. A decision task
+     * for a workflow run without a cached decider, or whose previous decision
+     * task was handled by another worker, replays the whole history as usual.
+     * 
+     * @param deciderCacheSize
+     *            The maximum number of cached deciders, or zero (the default)
+     *            to not cache deciders.
+     */
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        checkStarted();
+        this.deciderCacheSize = deciderCacheSize;
+    }
+
     protected DecisionTaskPoller createWorkflowPoller() {
         DecisionTaskPoller poller = new DecisionTaskPoller();
         return poller;
@@ -75,7 +99,8 @@ public class GenericWorkflowWorker extends GenericWorker {
     @Override
     protected TaskPoller createPoller() {
         DecisionTaskPoller result = new DecisionTaskPoller();
-        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory));
+        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory, deciderCacheSize,
+                getService(), getDomain()));
         result.setDomain(getDomain());
         result.setIdentity(getIdentity());
         result.setService(getService());
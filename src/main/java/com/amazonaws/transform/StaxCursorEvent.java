@@ -0,0 +1,179 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.transform;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * The single, reused event a {@link StaxUnmarshallerContext} reading from an
+ * {@link XMLStreamReader} returns from
+ * {@link StaxUnmarshallerContext#nextEvent()}, so that no event object is
+ * allocated per token.
+ * <p>
+ * It only reports the type of the parser's current position; the details of
+ * the position (element names, text, attribute values) are read through the
+ * context. The as* conversions build a full event object from the parser's
+ * current position, so they're only valid until the next event is read.
+ */
+class StaxCursorEvent implements XMLEvent {
+
+    private final XMLStreamReader streamReader;
+    private int eventType;
+
+    /** Created the first time an event is converted, since few ever are */
+    private XMLEventFactory eventFactory;
+
+    StaxCursorEvent(XMLStreamReader streamReader) {
+        this.streamReader = streamReader;
+    }
+
+    void setEventType(int eventType) {
+        this.eventType = eventType;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public Location getLocation() {
+        return streamReader.getLocation();
+    }
+
+    public boolean isStartElement() {
+        return eventType == XMLStreamConstants.START_ELEMENT;
+    }
+
+    public boolean isAttribute() {
+        return eventType == XMLStreamConstants.ATTRIBUTE;
+    }
+
+    public boolean isNamespace() {
+        return eventType == XMLStreamConstants.NAMESPACE;
+    }
+
+    public boolean isEndElement() {
+        return eventType == XMLStreamConstants.END_ELEMENT;
+    }
+
+    public boolean isEntityReference() {
+        return eventType == XMLStreamConstants.ENTITY_REFERENCE;
+    }
+
+    public boolean isProcessingInstruction() {
+        return eventType == XMLStreamConstants.PROCESSING_INSTRUCTION;
+    }
+
+    public boolean isCharacters() {
+        return eventType == XMLStreamConstants.CHARACTERS
+            || eventType == XMLStreamConstants.CDATA
+            || eventType == XMLStreamConstants.SPACE;
+    }
+
+    public boolean isStartDocument() {
+        return eventType == XMLStreamConstants.START_DOCUMENT;
+    }
+
+    public boolean isEndDocument() {
+        return eventType == XMLStreamConstants.END_DOCUMENT;
+    }
+
+    public StartElement asStartElement() {
+        if (!isStartElement()) throw new ClassCastException(this + " isn't a start element");
+
+        List<Attribute> attributes = new ArrayList<Attribute>(streamReader.getAttributeCount());
+        for (int i = 0; i < streamReader.getAttributeCount(); i++) {
+            attributes.add(getEventFactory().createAttribute(
+                    nullToEmpty(streamReader.getAttributePrefix(i)),
+                    nullToEmpty(streamReader.getAttributeNamespace(i)),
+                    streamReader.getAttributeLocalName(i),
+                    streamReader.getAttributeValue(i)));
+        }
+
+        return getEventFactory().createStartElement(
+                nullToEmpty(streamReader.getPrefix()),
+                nullToEmpty(streamReader.getNamespaceURI()),
+                streamReader.getLocalName(),
+                attributes.iterator(),
+                getNamespaces().iterator());
+    }
+
+    public EndElement asEndElement() {
+        if (!isEndElement()) throw new ClassCastException(this + " isn't an end element");
+
+        return getEventFactory().createEndElement(
+                nullToEmpty(streamReader.getPrefix()),
+                nullToEmpty(streamReader.getNamespaceURI()),
+                streamReader.getLocalName(),
+                getNamespaces().iterator());
+    }
+
+    public Characters asCharacters() {
+        if (!isCharacters()) throw new ClassCastException(this + " isn't character data");
+
+        String text = streamReader.getText();
+        if (eventType == XMLStreamConstants.CDATA) return getEventFactory().createCData(text);
+        if (eventType == XMLStreamConstants.SPACE) return getEventFactory().createIgnorableSpace(text);
+        return getEventFactory().createCharacters(text);
+    }
+
+    public QName getSchemaType() {
+        return null;
+    }
+
+    public void writeAsEncodedUnicode(Writer writer) throws XMLStreamException {
+        throw new XMLStreamException("Events read from an XMLStreamReader can't be written");
+    }
+
+    private List<Namespace> getNamespaces() {
+        List<Namespace> namespaces = new ArrayList<Namespace>(streamReader.getNamespaceCount());
+        for (int i = 0; i < streamReader.getNamespaceCount(); i++) {
+            String prefix = streamReader.getNamespacePrefix(i);
+            String uri = nullToEmpty(streamReader.getNamespaceURI(i));
+            namespaces.add(prefix == null || prefix.length() == 0
+                    ? getEventFactory().createNamespace(uri)
+                    : getEventFactory().createNamespace(prefix, uri));
+        }
+        return namespaces;
+    }
+
+    private XMLEventFactory getEventFactory() {
+        if (eventFactory == null) eventFactory = XMLEventFactory.newInstance();
+        return eventFactory;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    @Override
+    public String toString() {
+        return "XMLEvent of type " + eventType + " at " + streamReader.getLocation();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.transform;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A psuedo-xpath expression, such as <code>"reservationSet/item"</code> or
+ * <code>"item/@type"</code>, compiled once so that it can be tested against
+ * the current position of a {@link StaxUnmarshallerContext} without building
+ * or comparing path strings.
+ * <p>
+ * The expression is split into its element names, which are interned, plus
+ * an optional trailing attribute name. Since XML parsers intern the element
+ * names they report, comparing them with the expression's names is usually
+ * an identity check. Compiled expressions are immutable and can be shared by
+ * any number of threads; unmarshallers can keep them in static fields, or use
+ * the {@link StaxUnmarshallerContext#testExpression(String, int)} methods,
+ * which look them up in a cache.
+ */
+public final class StaxPathExpression {
+
+    /** Compiled expressions, keyed by their source, shared by every context */
+    private static final ConcurrentMap<String, StaxPathExpression> cache =
+        new ConcurrentHashMap<String, StaxPathExpression>();
+
+    private final String expression;
+
+    /** The element names of the expression, outermost first */
+    private final String[] elementNames;
+
+    /** The name of the attribute the expression ends with, or null */
+    private final String attributeName;
+
+    /**
+     * The number of levels the expression descends below the depth at which
+     * it starts matching. Attributes don't count as a level.
+     */
+    private final int depthOffset;
+
+    private final boolean matchesAnything;
+
+    private StaxPathExpression(String expression) {
+        this.expression = expression;
+        this.matchesAnything = expression.equals(".");
+
+        String[] segments = expression.split("/", -1);
+        String attributeName = null;
+        int elementCount = segments.length;
+        if (segments[segments.length - 1].startsWith("@")) {
+            attributeName = segments[segments.length - 1].substring(1).intern();
+            elementCount--;
+        }
+
+        this.elementNames = new String[elementCount];
+        for (int i = 0; i < elementCount; i++) {
+            elementNames[i] = segments[i].intern();
+        }
+        this.attributeName = attributeName;
+        this.depthOffset = Math.max(elementCount - 1, 0);
+    }
+
+    /**
+     * Returns the compiled form of the specified expression.
+     *
+     * @param expression
+     *            The psuedo-xpath expression to compile.
+     *
+     * @return The compiled expression.
+     */
+    public static StaxPathExpression compile(String expression) {
+        StaxPathExpression compiled = cache.get(expression);
+        if (compiled == null) {
+            compiled = new StaxPathExpression(expression);
+            StaxPathExpression existing = cache.putIfAbsent(expression, compiled);
+            if (existing != null) compiled = existing;
+        }
+        return compiled;
+    }
+
+    /**
+     * Tests this expression against the innermost elements of the specified
+     * path, and the attribute being read, if any.
+     *
+     * @param path
+     *            The names of the elements enclosing the current position,
+     *            outermost first. Only the first depth entries are used.
+     * @param depth
+     *            The element depth of the current position.
+     * @param currentAttributeName
+     *            The name of the attribute at the current position, or null
+     *            if the current position isn't an attribute.
+     * @param startingStackDepth
+     *            The depth at which the expression must start matching, or -1
+     *            if it may start at any depth.
+     *
+     * @return True if the expression matches the current position.
+     */
+    boolean matches(String[] path, int depth, String currentAttributeName, int startingStackDepth) {
+        if (matchesAnything) return true;
+
+        if (startingStackDepth >= 0 && startingStackDepth + depthOffset != depth) return false;
+
+        if (attributeName == null) {
+            if (currentAttributeName != null) return false;
+        } else if (!attributeName.equals(currentAttributeName)) {
+            return false;
+        }
+
+        int start = depth - elementNames.length;
+        if (start < 0) return false;
+        for (int i = 0; i < elementNames.length; i++) {
+            if (!elementNames[i].equals(path[start + i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Stack;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.XMLEvent;
 
@@ -34,14 +35,56 @@ import javax.xml.stream.events.XMLEvent;
  * response. It also tracks the current position and element depth of the
  * document being parsed and provides utilties for accessing the next XML event
  * from the parser, reading element text, handling attribute XML events, etc.
+ * <p>
+ * A context can read from either an {@link XMLEventReader} or an
+ * {@link XMLStreamReader}. Unmarshallers see the same sequence of events
+ * either way, but a context reading from an XMLStreamReader returns the same
+ * event object from every call to {@link #nextEvent()}, reporting the type of
+ * the parser's current position, and reads element text and attribute values
+ * straight from the parser, so it allocates far less per response.
  */
 public class StaxUnmarshallerContext {
 
     private XMLEvent currentEvent;
     private final XMLEventReader eventReader;
 
+    /*
+     * When reading from an XMLStreamReader instead of an XMLEventReader: the
+     * reader, the event returned for every position, whether the first event
+     * has been returned yet, and whether readText has already moved the
+     * reader to the end element which is to be returned next.
+     */
+    private final XMLStreamReader streamReader;
+    private final StaxCursorEvent cursorEvent;
+    private boolean started;
+    private boolean endElementPending;
+
+    /*
+     * The attributes of the last start element read from an XMLStreamReader,
+     * which are returned as events after it, and the value of the attribute
+     * being read.
+     */
+    private String[] attributeNames = new String[4];
+    private String[] attributeValues = new String[4];
+    private int attributeCount;
+    private int nextAttribute;
+    private String currentAttributeValue;
+
+    /*
+     * The keys of the metadata expressions matching the last start element
+     * read from an XMLStreamReader, which store its text once it's read.
+     */
+    private final List<String> pendingMetadataKeys = new ArrayList<String>();
+
     public final Stack<String> stack = new Stack<String>();
-    private String stackString = "";
+
+    /*
+     * The names of the enclosing elements, indexed by depth, and the name of
+     * the attribute being read, if any, which compiled expressions are tested
+     * against.
+     */
+    private String[] path = new String[16];
+    private String currentAttributeName;
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -71,6 +114,27 @@ public class StaxUnmarshallerContext {
      */
     public StaxUnmarshallerContext(XMLEventReader eventReader, Map<String, String> headers) {
         this.eventReader = eventReader;
+        this.streamReader = null;
+        this.cursorEvent = null;
+        this.headers = headers;
+    }
+
+    /**
+     * Constructs a new unmarshaller context which reads the XML document from
+     * the cursor of the specified stream reader, and a set of response
+     * headers.
+     *
+     * @param streamReader
+     *            The stream reader positioned at the start of the document to
+     *            unmarshall.
+     * @param headers
+     *            The set of response headers associated with this unmarshaller
+     *            context.
+     */
+    public StaxUnmarshallerContext(XMLStreamReader streamReader, Map<String, String> headers) {
+        this.eventReader = null;
+        this.streamReader = streamReader;
+        this.cursorEvent = new StaxCursorEvent(streamReader);
         this.headers = headers;
     }
 
@@ -97,6 +161,15 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public String readText() throws XMLStreamException {
+        if (streamReader != null) {
+            if (cursorEvent.isAttribute()) return currentAttributeValue;
+
+            String text = streamReader.getElementText();
+            endElementPending = true;
+            storePendingMetadata(text);
+            return text;
+        }
+
         if (currentEvent.isAttribute()) {
             Attribute attribute = (Attribute)currentEvent;
             return attribute.getValue();
@@ -137,8 +210,20 @@ public class StaxUnmarshallerContext {
      *         otherwise false.
      */
     public boolean testExpression(String expression) {
-        if (expression.equals(".")) return true;
-        return stackString.endsWith(expression);
+        return testExpression(StaxPathExpression.compile(expression));
+    }
+
+    /**
+     * Tests the specified compiled expression against the current position in
+     * the XML document being parsed.
+     *
+     * @param expression
+     *            The compiled psuedo-xpath expression to test.
+     * @return True if the expression matches the current document position,
+     *         otherwise false.
+     */
+    public boolean testExpression(StaxPathExpression expression) {
+        return expression.matches(path, stack.size(), currentAttributeName, -1);
     }
 
     /**
@@ -156,19 +241,25 @@ public class StaxUnmarshallerContext {
      *         the XML document, starting from the specified depth.
      */
     public boolean testExpression(String expression, int startingStackDepth) {
-        if (expression.equals(".")) return true;
-
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
-            // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
-                startingStackDepth++;
-            }
-        }
-
+        return testExpression(StaxPathExpression.compile(expression), startingStackDepth);
+    }
 
-        return (startingStackDepth == getCurrentDepth()
-                && stackString.endsWith("/" + expression));
+    /**
+     * Tests the specified compiled expression against the current position in
+     * the XML document being parsed, and restricts the expression to matching
+     * at the specified stack depth.
+     *
+     * @param expression
+     *            The compiled psuedo-xpath expression to test.
+     * @param startingStackDepth
+     *            The depth in the stack representing where the expression must
+     *            start matching in order for this method to return true.
+     *
+     * @return True if the specified expression matches the current position in
+     *         the XML document, starting from the specified depth.
+     */
+    public boolean testExpression(StaxPathExpression expression, int startingStackDepth) {
+        return expression.matches(path, stack.size(), currentAttributeName, startingStackDepth);
     }
 
     /**
@@ -180,6 +271,9 @@ public class StaxUnmarshallerContext {
      *         yet).
      */
     public boolean isStartOfDocument() throws XMLStreamException {
+        if (streamReader != null) {
+            return !started && streamReader.getEventType() == XMLStreamConstants.START_DOCUMENT;
+        }
         return eventReader.peek().isStartDocument();
     }
 
@@ -191,6 +285,8 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public XMLEvent nextEvent() throws XMLStreamException {
+        if (streamReader != null) return nextCursorEvent();
+
         if (attributeIterator != null && attributeIterator.hasNext()) {
             currentEvent = (XMLEvent)attributeIterator.next();
         } else {
@@ -243,7 +339,7 @@ public class StaxUnmarshallerContext {
      *            The key under which to store the matching element's data.
      */
     public void registerMetadataExpression(String expression, int targetDepth, String storageKey) {
-        metadataExpressions.add(new MetadataExpression(expression, targetDepth, storageKey));
+        metadataExpressions.add(new MetadataExpression(StaxPathExpression.compile(expression), targetDepth, storageKey));
     }
 
 
@@ -256,11 +352,11 @@ public class StaxUnmarshallerContext {
      * unmarshaller context is looking for.
      */
     private class MetadataExpression {
-        public String expression;
+        public StaxPathExpression expression;
         public int targetDepth;
         public String key;
 
-        public MetadataExpression(String expression, int targetDepth, String key) {
+        public MetadataExpression(StaxPathExpression expression, int targetDepth, String key) {
             this.expression = expression;
             this.targetDepth = targetDepth;
             this.key = key;
@@ -271,22 +367,105 @@ public class StaxUnmarshallerContext {
         if (event == null) return;
 
         if (event.isEndElement()) {
-            stack.pop();
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
+            endElement();
         } else if (event.isStartElement()) {
-            stack.push(event.asStartElement().getName().getLocalPart());
-            stackString += "/" + event.asStartElement().getName().getLocalPart();
+            startElement(event.asStartElement().getName().getLocalPart());
         } else if (event.isAttribute()) {
             Attribute attribute = (Attribute)event;
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
+            currentAttributeName = attribute.getName().getLocalPart();
+        }
+    }
+
+    private void startElement(String name) {
+        if (stack.size() == path.length) {
+            String[] newPath = new String[path.length * 2];
+            System.arraycopy(path, 0, newPath, 0, path.length);
+            path = newPath;
+        }
+        path[stack.size()] = name;
+        stack.push(name);
+        currentAttributeName = null;
+    }
+
+    private void endElement() {
+        path[stack.size() - 1] = null;
+        stack.pop();
+        currentAttributeName = null;
+    }
+
+    /**
+     * Moves to the next position of the XMLStreamReader, returning the
+     * attributes of a start element as events of their own after it, as an
+     * XMLEventReader would.
+     */
+    private XMLEvent nextCursorEvent() throws XMLStreamException {
+        if (nextAttribute < attributeCount) {
+            currentAttributeName = attributeNames[nextAttribute];
+            currentAttributeValue = attributeValues[nextAttribute];
+            nextAttribute++;
+            cursorEvent.setEventType(XMLStreamConstants.ATTRIBUTE);
+            return cursorEvent;
+        }
+        currentAttributeValue = null;
+
+        int eventType;
+        if (!started) {
+            started = true;
+            eventType = streamReader.getEventType();
+        } else if (endElementPending) {
+            endElementPending = false;
+            eventType = XMLStreamConstants.END_ELEMENT;
+        } else {
+            eventType = streamReader.next();
+        }
+        cursorEvent.setEventType(eventType);
+
+        if (eventType == XMLStreamConstants.START_ELEMENT) {
+            startElement(streamReader.getLocalName());
+            readAttributes();
+
+            pendingMetadataKeys.clear();
+            for (MetadataExpression metadataExpression : metadataExpressions) {
+                if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
+                    pendingMetadataKeys.add(metadataExpression.key);
+                }
             }
-            stackString += "/@" + attribute.getName().getLocalPart();
+        } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+            endElement();
+            pendingMetadataKeys.clear();
+        } else if (cursorEvent.isCharacters()) {
+            storePendingMetadata(streamReader.getText());
+        }
+
+        return cursorEvent;
+    }
+
+    /**
+     * Copies the attributes of the start element the XMLStreamReader is at,
+     * so they can be returned after it even once the reader has moved on.
+     */
+    private void readAttributes() {
+        attributeCount = streamReader.getAttributeCount();
+        nextAttribute = 0;
+        if (attributeCount > attributeNames.length) {
+            attributeNames = new String[attributeCount];
+            attributeValues = new String[attributeCount];
+        }
+        for (int i = 0; i < attributeCount; i++) {
+            attributeNames[i] = streamReader.getAttributeLocalName(i);
+            attributeValues[i] = streamReader.getAttributeValue(i);
+        }
+    }
+
+    /**
+     * Stores the text of the element last read from the XMLStreamReader under
+     * the keys of the metadata expressions it matched.
+     */
+    private void storePendingMetadata(String text) {
+        for (String key : pendingMetadataKeys) {
+            metadata.put(key, text);
         }
+        pendingMetadataKeys.clear();
     }
 
 }
@@ -25,6 +25,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.metrics.AwsSdkMetrics;
 
 public class AWSRequestMetrics {
 
@@ -48,6 +49,9 @@ public class AWSRequestMetrics {
         CredentialsRequestTime,
         ServiceEndpoint,
         ServiceName,
+        RetryCapacity, // Tokens left in the client's retry budget
+        ClientSendRate, // Requests per second allowed by the adaptive rate limiter
+        RateLimitDelayTime,
     }
     
     private final TimingInfo timingInfo;
@@ -63,11 +67,41 @@ public class AWSRequestMetrics {
     private static final Log latencyLogger = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
     private static final Object COMMA_SEPARATOR = ", ";
+
+    private static final int FIELD_COUNT = Field.values().length;
+
+    /*
+     * Start times, accumulated times and counters of the predefined fields,
+     * indexed by ordinal. Only allocated if profiling is enabled or a metric
+     * collector is registered.
+     */
+    private final long[] fieldStartNanos;
+    private final long[] fieldTotalNanos;
+    private final long[] fieldCounters;
     
     
     public AWSRequestMetrics() {
         this.timingInfo = new TimingInfo();
         this.profilingSystemPropertyEnabled = isProfilingEnabled();
+
+        if (profilingSystemPropertyEnabled || AwsSdkMetrics.isMetricsEnabled()) {
+            fieldStartNanos = new long[FIELD_COUNT];
+            fieldTotalNanos = new long[FIELD_COUNT];
+            fieldCounters = new long[FIELD_COUNT];
+        } else {
+            fieldStartNanos = null;
+            fieldTotalNanos = null;
+            fieldCounters = null;
+        }
+    }
+
+    /**
+     * Returns true if this object records the timings and counters of the
+     * predefined {@link Field}s, which is the case when runtime profiling is
+     * enabled or a metric collector was registered when it was created.
+     */
+    public boolean isEnabled() {
+        return fieldStartNanos != null;
     }
 
     /* Check the profiling system property and return true if set */
@@ -132,6 +166,78 @@ public class AWSRequestMetrics {
             timingInfo.setCounter(counterName, count);
         }
     }
+
+    /**
+     * Starts timing one of the predefined fields. Unlike
+     * {@link #startEvent(String)}, this also feeds the registered metric
+     * collector, and the time of each start/end pair is added to the field's
+     * total (e.g. across the attempts of a request).
+     *
+     * @param field - The field to start timing
+     */
+    public void startEvent(Field field) {
+        if (fieldStartNanos == null) return;
+
+        long now = System.nanoTime();
+        fieldStartNanos[field.ordinal()] = now;
+        if (profilingSystemPropertyEnabled) {
+            eventsBeingProfiled.put(field.name(), now);
+        }
+    }
+
+    /**
+     * Ends timing one of the predefined fields, which must have been started
+     * with {@link #startEvent(Field)}.
+     *
+     * @param field - The field to end timing
+     */
+    public void endEvent(Field field) {
+        if (fieldStartNanos == null) return;
+
+        long now = System.nanoTime();
+        fieldTotalNanos[field.ordinal()] += now - fieldStartNanos[field.ordinal()];
+        if (profilingSystemPropertyEnabled) {
+            Long startTime = eventsBeingProfiled.get(field.name());
+            if (startTime == null) {
+                throw new IllegalStateException("Trying to end an event which was never started. " + field.name());
+            }
+            this.timingInfo.addSubMeasurement(field.name(), new TimingInfo(startTime, now));
+        }
+    }
+
+    /**
+     * Sets the counter of one of the predefined fields.
+     *
+     * @param field - The field to set
+     * @param count - The new count
+     */
+    public void setCounter(Field field, long count) {
+        if (fieldCounters == null) return;
+
+        fieldCounters[field.ordinal()] = count;
+        setCounter(field.name(), count);
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, recorded for a field with
+     * {@link #startEvent(Field)} and {@link #endEvent(Field)}, or zero if the
+     * field wasn't timed.
+     *
+     * @param field - The field to look up
+     */
+    public long getTimeNanos(Field field) {
+        return (fieldTotalNanos == null) ? 0 : fieldTotalNanos[field.ordinal()];
+    }
+
+    /**
+     * Returns the counter set for a field with
+     * {@link #setCounter(Field, long)}, or zero if it wasn't set.
+     *
+     * @param field - The field to look up
+     */
+    public long getCounter(Field field) {
+        return (fieldCounters == null) ? 0 : fieldCounters[field.ordinal()];
+    }
     
     /**
      * Add a property. If you add the same property more than once, it stores all values a list.
@@ -26,23 +26,71 @@ import java.util.SimpleTimeZone;
 /**
  * Utilities for parsing and formatting dates.
  * <p>
- * Note that this class doesn't use static methods because of the
- * synchronization issues with SimpleDateFormat. This lets synchronization be
- * done on a per-object level, instead of on a per-class level.
+ * Dates in the forms the services use (ISO 8601 with or without fractional
+ * seconds, and RFC 822 in GMT) are parsed and formatted by hand, without any
+ * shared state, so instances are safe to share between any number of threads
+ * without locking. Anything else a SimpleDateFormat
+ * with the same pattern would accept, such as RFC 822 dates in other time
+ * zones or dates before the Gregorian calendar, is handed to a new
+ * SimpleDateFormat, as before.
  */
 public class DateUtils {
 
     /** ISO 8601 format */
-    protected final SimpleDateFormat iso8601DateFormat =
-        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    private static final String ISO8601_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
 
     /** Alternate ISO 8601 format without fractional seconds */
-    protected final SimpleDateFormat alternateIso8601DateFormat =
-        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final String ALTERNATE_ISO8601_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
     /** RFC 822 format */
+    private static final String RFC822_PATTERN = "EEE, dd MMM yyyy HH:mm:ss z";
+
+    private static final String[] DAY_NAMES = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+
+    private static final String[] MONTH_NAMES =
+        {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /*
+     * Dates are handled by hand within these years; SimpleDateFormat uses the
+     * Julian calendar before 1582 and writes more than four digits after 9999.
+     */
+    private static final int MINIMUM_YEAR = 1600;
+    private static final int MAXIMUM_YEAR = 9999;
+
+    private static final long MINIMUM_MILLIS = millisFromCivil(MINIMUM_YEAR, 1, 1, 0, 0, 0, 0);
+    private static final long MAXIMUM_MILLIS = millisFromCivil(MAXIMUM_YEAR + 1, 1, 1, 0, 0, 0, 0);
+
+    /**
+     * ISO 8601 format
+     *
+     * @deprecated No longer used to parse or format dates, and not safe to
+     *             use without synchronizing on it. Kept for subclasses.
+     */
+    @Deprecated
+    protected final SimpleDateFormat iso8601DateFormat =
+        new SimpleDateFormat(ISO8601_PATTERN);
+
+    /**
+     * Alternate ISO 8601 format without fractional seconds
+     *
+     * @deprecated No longer used to parse or format dates, and not safe to
+     *             use without synchronizing on it. Kept for subclasses.
+     */
+    @Deprecated
+    protected final SimpleDateFormat alternateIso8601DateFormat =
+        new SimpleDateFormat(ALTERNATE_ISO8601_PATTERN);
+
+    /**
+     * RFC 822 format
+     *
+     * @deprecated No longer used to parse or format dates, and not safe to
+     *             use without synchronizing on it. Kept for subclasses.
+     */
+    @Deprecated
     protected final SimpleDateFormat rfc822DateFormat =
-        new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+        new SimpleDateFormat(RFC822_PATTERN, Locale.US);
 
 
     /**
@@ -56,7 +104,8 @@ public class DateUtils {
 
     /**
      * Parses the specified date string as an ISO 8601 date and returns the Date
-     * object.
+     * object. One or two digits of fractional seconds are read as tenths or
+     * hundredths of a second.
      *
      * @param dateString
      *            The date string to parse.
@@ -67,16 +116,15 @@ public class DateUtils {
      *             If the date string could not be parsed.
      */
     public Date parseIso8601Date(String dateString) throws ParseException {
+        long millis = parseIso8601Millis(dateString);
+        if (millis != Long.MIN_VALUE) return new Date(millis);
+
         try {
-            synchronized (iso8601DateFormat) {
-                return iso8601DateFormat.parse(dateString);
-            }
+            return newDateFormat(ISO8601_PATTERN, null).parse(dateString);
         } catch (ParseException e) {
             // If the first ISO 8601 parser didn't work, try the alternate
             // version which doesn't include fractional seconds
-            synchronized (alternateIso8601DateFormat) {
-                return alternateIso8601DateFormat.parse(dateString);
-            }
+            return newDateFormat(ALTERNATE_ISO8601_PATTERN, null).parse(dateString);
         }
     }
 
@@ -89,9 +137,27 @@ public class DateUtils {
      * @return The ISO 8601 string representing the specified date.
      */
     public String formatIso8601Date(Date date) {
-        synchronized (iso8601DateFormat) {
-            return iso8601DateFormat.format(date);
+        long millis = date.getTime();
+        if (millis < MINIMUM_MILLIS || millis >= MAXIMUM_MILLIS) {
+            return newDateFormat(ISO8601_PATTERN, null).format(date);
         }
+
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int)(millis - days * MILLIS_PER_DAY);
+        int[] civil = civilFromDays(days);
+
+        char[] chars = new char[24];
+        writeDigits(chars, 0, civil[0], 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, civil[1], 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, civil[2], 2);
+        chars[10] = 'T';
+        writeTime(chars, 11, millisOfDay);
+        chars[19] = '.';
+        writeDigits(chars, 20, millisOfDay % 1000, 3);
+        chars[23] = 'Z';
+        return new String(chars);
     }
 
     /**
@@ -107,9 +173,10 @@ public class DateUtils {
      *             If the date string could not be parsed.
      */
     public Date parseRfc822Date(String dateString) throws ParseException {
-        synchronized (rfc822DateFormat) {
-            return rfc822DateFormat.parse(dateString);
-        }
+        long millis = parseRfc822Millis(dateString);
+        if (millis != Long.MIN_VALUE) return new Date(millis);
+
+        return newDateFormat(RFC822_PATTERN, Locale.US).parse(dateString);
     }
 
     /**
@@ -121,9 +188,225 @@ public class DateUtils {
      * @return The RFC 822 string representing the specified date.
      */
     public String formatRfc822Date(Date date) {
-        synchronized (rfc822DateFormat) {
-            return rfc822DateFormat.format(date);
+        long millis = date.getTime();
+        if (millis < MINIMUM_MILLIS || millis >= MAXIMUM_MILLIS) {
+            return newDateFormat(RFC822_PATTERN, Locale.US).format(date);
+        }
+
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int)(millis - days * MILLIS_PER_DAY);
+        int[] civil = civilFromDays(days);
+
+        int dayOfWeek = dayOfWeekOf(days);
+
+        char[] chars = new char[29];
+        DAY_NAMES[dayOfWeek].getChars(0, 3, chars, 0);
+        chars[3] = ',';
+        chars[4] = ' ';
+        writeDigits(chars, 5, civil[2], 2);
+        chars[7] = ' ';
+        MONTH_NAMES[civil[1] - 1].getChars(0, 3, chars, 8);
+        chars[11] = ' ';
+        writeDigits(chars, 12, civil[0], 4);
+        chars[16] = ' ';
+        writeTime(chars, 17, millisOfDay);
+        " GMT".getChars(0, 4, chars, 25);
+        return new String(chars);
+    }
+
+
+    /*
+     * Private Interface
+     */
+
+    /**
+     * Parses an ISO 8601 date of the form yyyy-MM-ddTHH:mm:ss[.fraction]Z,
+     * returning Long.MIN_VALUE if the string isn't exactly of that form or
+     * any of its fields are out of range.
+     */
+    private static long parseIso8601Millis(String s) {
+        int length = s.length();
+        if (length < 20 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            return Long.MIN_VALUE;
+        }
+
+        int year = parseDigits(s, 0, 4);
+        int month = parseDigits(s, 5, 2);
+        int day = parseDigits(s, 8, 2);
+        int hour = parseDigits(s, 11, 2);
+        int minute = parseDigits(s, 14, 2);
+        int second = parseDigits(s, 17, 2);
+
+        int millis = 0;
+        int position = 19;
+        if (s.charAt(position) == '.') {
+            int digits = 0;
+            int scale = 100;
+            position++;
+            while (position < length && s.charAt(position) >= '0' && s.charAt(position) <= '9') {
+                millis += (s.charAt(position) - '0') * scale;
+                scale /= 10;
+                position++;
+                digits++;
+            }
+            // SimpleDateFormat reads more than three digits as milliseconds
+            if (digits == 0 || digits > 3) return Long.MIN_VALUE;
         }
+        if (position != length - 1 || s.charAt(position) != 'Z') return Long.MIN_VALUE;
+
+        if (!isValid(year, month, day, hour, minute, second)) return Long.MIN_VALUE;
+        return millisFromCivil(year, month, day, hour, minute, second, millis);
+    }
+
+    /**
+     * Parses an RFC 822 date of the form EEE, dd MMM yyyy HH:mm:ss GMT,
+     * returning Long.MIN_VALUE if the string isn't exactly of that form or
+     * any of its fields are out of range.
+     */
+    private static long parseRfc822Millis(String s) {
+        if (s.length() != 29 || s.charAt(3) != ',' || s.charAt(4) != ' ' || s.charAt(7) != ' '
+                || s.charAt(11) != ' ' || s.charAt(16) != ' ' || s.charAt(19) != ':' || s.charAt(22) != ':'
+                || !s.endsWith(" GMT")) {
+            return Long.MIN_VALUE;
+        }
+
+        int month = 0;
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            if (s.regionMatches(true, 8, MONTH_NAMES[i], 0, 3)) {
+                month = i + 1;
+                break;
+            }
+        }
+
+        int dayOfWeek = -1;
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (s.regionMatches(true, 0, DAY_NAMES[i], 0, 3)) {
+                dayOfWeek = i;
+                break;
+            }
+        }
+
+        int day = parseDigits(s, 5, 2);
+        int year = parseDigits(s, 12, 4);
+        int hour = parseDigits(s, 17, 2);
+        int minute = parseDigits(s, 20, 2);
+        int second = parseDigits(s, 23, 2);
+
+        if (month == 0 || dayOfWeek == -1 || !isValid(year, month, day, hour, minute, second)) {
+            return Long.MIN_VALUE;
+        }
+
+        long millis = millisFromCivil(year, month, day, hour, minute, second, 0);
+        if (dayOfWeekOf(floorDiv(millis, MILLIS_PER_DAY)) != dayOfWeek) return Long.MIN_VALUE;
+        return millis;
+    }
+
+    /**
+     * Returns whether the fields are in range, so they would be read the same
+     * way by a lenient SimpleDateFormat.
+     */
+    private static boolean isValid(int year, int month, int day, int hour, int minute, int second) {
+        return year >= MINIMUM_YEAR && year <= MAXIMUM_YEAR
+            && month >= 1 && month <= 12
+            && day >= 1 && day <= daysInMonth(year, month)
+            && hour >= 0 && hour <= 23
+            && minute >= 0 && minute <= 59
+            && second >= 0 && second <= 59;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leapYear ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * Returns the decimal number of the given length at the given offset, or
+     * -1 if any of its characters isn't a digit.
+     */
+    private static int parseDigits(String s, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = (char)('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /** Writes the HH:mm:ss of the time of day */
+    private static void writeTime(char[] chars, int offset, int millisOfDay) {
+        int secondOfDay = millisOfDay / 1000;
+        writeDigits(chars, offset, secondOfDay / 3600, 2);
+        chars[offset + 2] = ':';
+        writeDigits(chars, offset + 3, secondOfDay / 60 % 60, 2);
+        chars[offset + 5] = ':';
+        writeDigits(chars, offset + 6, secondOfDay % 60, 2);
+    }
+
+    /**
+     * Returns the milliseconds since the epoch of the UTC date and time given,
+     * in the proleptic Gregorian calendar.
+     */
+    private static long millisFromCivil(int year, int month, int day, int hour, int minute, int second, int millis) {
+        // Count years from March, so that leap days fall at the end of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return days * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+    }
+
+    /**
+     * Returns the year, month and day of the days since the epoch given, in
+     * the proleptic Gregorian calendar.
+     */
+    private static int[] civilFromDays(long days) {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int)(z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int)(yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return new int[] {year, month, day};
+    }
+
+    /** Returns the day of the week, from Sunday as 0, of the days since the epoch */
+    private static int dayOfWeekOf(long days) {
+        // 1970-01-01 was a Thursday
+        return (int)(((days + 4) % 7 + 7) % 7);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long quotient = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) quotient--;
+        return quotient;
+    }
+
+    /**
+     * Returns a new date format in GMT with the pattern given, for the dates
+     * which aren't parsed or formatted by hand.
+     */
+    private static SimpleDateFormat newDateFormat(String pattern, Locale locale) {
+        SimpleDateFormat format = (locale == null) ? new SimpleDateFormat(pattern) : new SimpleDateFormat(pattern, locale);
+        format.setTimeZone(new SimpleTimeZone(0, "GMT"));
+        return format;
     }
 
 }
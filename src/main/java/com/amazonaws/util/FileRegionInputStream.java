@@ -0,0 +1,207 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.amazonaws.internal.DirectlyWritable;
+
+/**
+ * Input stream over a region of a file, such as one part of a multipart
+ * upload, which reads the file by absolute position through a
+ * {@link FileChannel}.
+ * <p>
+ * Reaching the start of the region doesn't mean reading or skipping through
+ * the file before it, and marking and resetting the stream only moves its
+ * position, so the stream can be repeated any number of times, from any
+ * point, at no cost. Resetting the stream after it has been closed reopens
+ * the file.
+ * <p>
+ * When a request's content is a FileRegionInputStream, or a stream wrapping
+ * one which passes {@link #writeTo(OutputStream)} through, the HTTP client
+ * writes it out with that method rather than copying it through a generic
+ * input stream entity.
+ */
+public class FileRegionInputStream extends InputStream implements DirectlyWritable {
+
+    /** The largest buffer used to write a region out */
+    private static final int MAXIMUM_BUFFER_SIZE = 1024 * 64;
+
+    private final File file;
+    private final long offset;
+    private final long length;
+
+    /** The channel of the open file, or null once the stream is closed */
+    private FileChannel channel;
+
+    /** The position of the stream, relative to the start of the region */
+    private long position;
+    private long markedPosition;
+
+    /**
+     * Creates an input stream over the specified region of a file. If the
+     * file ends before the region does, the stream ends with the file.
+     *
+     * @param file
+     *            The file from which this input stream reads data.
+     * @param offset
+     *            The offset, in bytes, into the file at which the region
+     *            starts.
+     * @param length
+     *            The length, in bytes, of the region.
+     *
+     * @throws FileNotFoundException
+     *             If the specified file doesn't exist, or can't be opened.
+     */
+    public FileRegionInputStream(File file, long offset, long length) throws FileNotFoundException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("The offset and length of a file region cannot be negative");
+        }
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    /**
+     * Returns the File this stream is reading data from.
+     *
+     * @return the File this stream is reading data from.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int bytesRead = read(b, 0, 1);
+
+        if (bytesRead == -1) return bytesRead;
+        return b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+
+        long bytesRemaining = length - position;
+        if (bytesRemaining <= 0) return -1;
+
+        len = (int) Math.min(len, bytesRemaining);
+        int bytesRead = openChannel().read(ByteBuffer.wrap(b, off, len), offset + position);
+        if (bytesRead > 0) position += bytesRead;
+
+        return bytesRead;
+    }
+
+    public boolean isDirectlyWritable() {
+        return true;
+    }
+
+    /**
+     * Writes the rest of the region, from the current position of the stream,
+     * to the specified output stream, reading it straight from the file into a
+     * single buffer.
+     *
+     * @param output
+     *            The stream to write the region to.
+     *
+     * @throws IOException
+     *             If the file can't be read, or the output can't be written.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        long bytesRemaining = length - position;
+        if (bytesRemaining <= 0) return;
+
+        FileChannel channel = openChannel();
+        byte[] buffer = new byte[(int) Math.min(bytesRemaining, MAXIMUM_BUFFER_SIZE)];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        while (bytesRemaining > 0) {
+            byteBuffer.clear();
+            if (bytesRemaining < buffer.length) byteBuffer.limit((int) bytesRemaining);
+
+            int bytesRead = channel.read(byteBuffer, offset + position);
+            if (bytesRead == -1) return;
+
+            output.write(buffer, 0, bytesRead);
+            position += bytesRead;
+            bytesRemaining -= bytesRead;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(Math.min(n, length - position), 0);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Math.max(length - position, 0), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        markedPosition = position;
+    }
+
+    /**
+     * Moves the stream back to the last mark point, or the start of the
+     * region if there is no mark point, reopening the file if the stream has
+     * been closed.
+     *
+     * @throws IOException
+     *             If the file can't be reopened.
+     */
+    @Override
+    public void reset() throws IOException {
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "r").getChannel();
+        }
+        position = markedPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            throw new IOException("Stream closed");
+        }
+        return channel;
+    }
+}
@@ -19,16 +19,28 @@ package com.amazonaws.util;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 /**
  * Utility methods for computing MD5 sums.
  */
 public class Md5Utils {
 
+    private static final Log log = LogFactory.getLog(Md5Utils.class);
+
+    /** The size of the buffer files are read into */
+    private static final int FILE_BUFFER_SIZE = 1024 * 64;
+
     /**
      * Computes the MD5 hash of the data in the given input stream and returns
      * it as an array of bytes.
@@ -59,4 +71,35 @@ public class Md5Utils {
     public static byte[] computeMD5Hash(byte[] data) throws NoSuchAlgorithmException, IOException {
         return computeMD5Hash(new ByteArrayInputStream(data));
     }
+
+    /**
+     * Computes the MD5 hash of the contents of the given file and returns it
+     * as an array of bytes.
+     * <p>
+     * The file is read by position through its channel into a single buffer,
+     * instead of being copied through a stream and a buffered stream.
+     */
+    public static byte[] computeMD5Hash(File file) throws NoSuchAlgorithmException, IOException {
+        FileInputStream fileInputStream = new FileInputStream(file);
+        try {
+            FileChannel channel = fileInputStream.getChannel();
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[FILE_BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long position = 0;
+            int bytesRead;
+            while ( (bytesRead = channel.read(byteBuffer, position)) != -1 ) {
+                messageDigest.update(buffer, 0, bytesRead);
+                position += bytesRead;
+                byteBuffer.clear();
+            }
+            return messageDigest.digest();
+        } finally {
+            try {
+                fileInputStream.close();
+            } catch ( Exception e ) {
+                log.debug("Unable to close file of hash candidate: " + e.getMessage(), e);
+            }
+        }
+    }
 }
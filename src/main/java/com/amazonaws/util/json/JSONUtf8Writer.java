@@ -0,0 +1,354 @@
+/*
+ * Copyright 2010-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util.json;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * Writes JSON text directly as UTF-8 bytes, with the same cascade style API as
+ * {@link JSONWriter}.
+ * <p>
+ * Unlike a JSONWriter writing to a StringWriter, whose text then has to be
+ * converted to a String and then encoded to bytes, this writer encodes keys
+ * and values (including base64 encoding binary values) straight into a byte
+ * buffer, which is reused by the next writer created on the same thread. The
+ * only copy of the document made is the one returned by {@link #getBytes()}.
+ * <p>
+ * Instances aren't thread safe, and each instance can produce one JSON text.
+ */
+public class JSONUtf8Writer {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    /** Buffers larger than this aren't kept for reuse, to bound idle memory */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int MAX_DEPTH = 20;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private static final byte[] BASE64 =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+    private static final ThreadLocal<byte[]> scratchBuffers = new ThreadLocal<byte[]>();
+
+    private byte[] buffer;
+    private int count;
+
+    /* Whether the object or array at each depth already has a member */
+    private final boolean[] hasMembers = new boolean[MAX_DEPTH];
+    /* Whether the container at each depth is an object (true) or an array */
+    private final boolean[] isObject = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean expectingValue;
+
+    public JSONUtf8Writer() {
+        buffer = scratchBuffers.get();
+        if (buffer == null) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        } else {
+            // Nested writers on the same thread mustn't share the buffer
+            scratchBuffers.set(null);
+        }
+    }
+
+    /**
+     * Begins an object.
+     */
+    public JSONUtf8Writer object() throws JSONException {
+        beforeValue();
+        push(true);
+        write((byte)'{');
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     */
+    public JSONUtf8Writer endObject() throws JSONException {
+        pop(true);
+        write((byte)'}');
+        return this;
+    }
+
+    /**
+     * Begins an array.
+     */
+    public JSONUtf8Writer array() throws JSONException {
+        beforeValue();
+        push(false);
+        write((byte)'[');
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     */
+    public JSONUtf8Writer endArray() throws JSONException {
+        pop(false);
+        write((byte)']');
+        return this;
+    }
+
+    /**
+     * Appends a key to the current object. The next call must append its
+     * value.
+     */
+    public JSONUtf8Writer key(String key) throws JSONException {
+        if (key == null) throw new JSONException("Null key.");
+        if (depth == 0 || !isObject[depth - 1] || expectingValue) {
+            throw new JSONException("Misplaced key.");
+        }
+
+        if (hasMembers[depth - 1]) write((byte)',');
+        hasMembers[depth - 1] = true;
+        writeString(key);
+        write((byte)':');
+        expectingValue = true;
+        return this;
+    }
+
+    public JSONUtf8Writer value(String value) throws JSONException {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JSONUtf8Writer value(boolean value) throws JSONException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public JSONUtf8Writer value(long value) throws JSONException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    public JSONUtf8Writer value(double value) throws JSONException {
+        return value(new Double(value));
+    }
+
+    /**
+     * Appends a date as the number of seconds since the epoch, like
+     * {@link JSONWriter#value(Date)}.
+     */
+    public JSONUtf8Writer value(Date date) throws JSONException {
+        return value(date.getTime() / 1000);
+    }
+
+    /**
+     * Appends the remaining bytes of a buffer as a base64 encoded string,
+     * without changing the buffer's position.
+     */
+    public JSONUtf8Writer value(ByteBuffer value) throws JSONException {
+        beforeValue();
+        write((byte)'"');
+        writeBase64(value.duplicate());
+        write((byte)'"');
+        return this;
+    }
+
+    /**
+     * Appends any other value as {@link JSONWriter#value(Object)} would.
+     */
+    public JSONUtf8Writer value(Object value) throws JSONException {
+        if (value instanceof String) return value((String)value);
+        if (value instanceof Boolean) return value(((Boolean)value).booleanValue());
+        if (value instanceof ByteBuffer) return value((ByteBuffer)value);
+        if (value instanceof Date) return value((Date)value);
+
+        beforeValue();
+        String text = JSONObject.valueToString(value);
+        if (text.length() > 0 && text.charAt(0) == '"') {
+            // Already quoted and escaped, but may contain non-ASCII characters
+            writeUtf8(text, false);
+        } else {
+            writeAscii(text);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the complete JSON text as UTF-8 bytes, and releases this
+     * writer's buffer for reuse.
+     */
+    public byte[] getBytes() throws JSONException {
+        if (depth != 0 || buffer == null) throw new JSONException("Incomplete JSON text.");
+
+        byte[] bytes = new byte[count];
+        System.arraycopy(buffer, 0, bytes, 0, count);
+
+        if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) scratchBuffers.set(buffer);
+        buffer = null;
+        return bytes;
+    }
+
+    private void beforeValue() throws JSONException {
+        if (depth == 0) {
+            if (count > 0) throw new JSONException("Value out of sequence.");
+            return;
+        }
+        if (isObject[depth - 1]) {
+            if (!expectingValue) throw new JSONException("Value out of sequence.");
+            expectingValue = false;
+        } else {
+            if (hasMembers[depth - 1]) write((byte)',');
+            hasMembers[depth - 1] = true;
+        }
+    }
+
+    private void push(boolean object) throws JSONException {
+        if (depth >= MAX_DEPTH) throw new JSONException("Nesting too deep.");
+        isObject[depth] = object;
+        hasMembers[depth] = false;
+        depth++;
+    }
+
+    private void pop(boolean object) throws JSONException {
+        if (depth == 0 || isObject[depth - 1] != object || expectingValue) {
+            throw new JSONException(object ? "Misplaced endObject." : "Misplaced endArray.");
+        }
+        depth--;
+    }
+
+    private void writeString(String s) {
+        write((byte)'"');
+        writeUtf8(s, true);
+        write((byte)'"');
+    }
+
+    /**
+     * Writes a string's characters as UTF-8, optionally escaping the
+     * characters JSON strings can't contain as {@link JSONObject#quote(String)}
+     * does.
+     */
+    private void writeUtf8(String s, boolean escape) {
+        int end = s.length();
+        ensureCapacity(end);
+
+        char previous = 0;
+        for (int i = 0; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (escape) {
+                    if (c == '"' || c == '\\' || (c == '/' && previous == '<')) {
+                        write((byte)'\\');
+                        write((byte)c);
+                    } else if (c < ' ') {
+                        writeControlCharacter(c);
+                    } else {
+                        write((byte)c);
+                    }
+                } else {
+                    write((byte)c);
+                }
+            } else if (escape && c < 0xA0) {
+                // C1 control characters, which JSONObject.quote escapes too
+                writeControlCharacter(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[count++] = (byte)(0xC0 | (c >> 6));
+                buffer[count++] = (byte)(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(4);
+                buffer[count++] = (byte)(0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte)(0x80 | (codePoint & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // Unpaired surrogates can't be encoded, as with String.getBytes
+                write((byte)'?');
+            } else {
+                ensureCapacity(3);
+                buffer[count++] = (byte)(0xE0 | (c >> 12));
+                buffer[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+            previous = c;
+        }
+    }
+
+    private void writeControlCharacter(char c) {
+        switch (c) {
+        case '\b': writeAscii("\\b"); return;
+        case '\t': writeAscii("\\t"); return;
+        case '\n': writeAscii("\\n"); return;
+        case '\f': writeAscii("\\f"); return;
+        case '\r': writeAscii("\\r"); return;
+        default:
+            ensureCapacity(6);
+            buffer[count++] = '\\';
+            buffer[count++] = 'u';
+            buffer[count++] = HEX[(c >> 12) & 0xF];
+            buffer[count++] = HEX[(c >> 8) & 0xF];
+            buffer[count++] = HEX[(c >> 4) & 0xF];
+            buffer[count++] = HEX[c & 0xF];
+        }
+    }
+
+    private void writeBase64(ByteBuffer bytes) {
+        ensureCapacity((bytes.remaining() + 2) / 3 * 4);
+        while (bytes.remaining() >= 3) {
+            int b = ((bytes.get() & 0xFF) << 16) | ((bytes.get() & 0xFF) << 8) | (bytes.get() & 0xFF);
+            buffer[count++] = BASE64[(b >> 18) & 0x3F];
+            buffer[count++] = BASE64[(b >> 12) & 0x3F];
+            buffer[count++] = BASE64[(b >> 6) & 0x3F];
+            buffer[count++] = BASE64[b & 0x3F];
+        }
+        if (bytes.remaining() == 2) {
+            int b = ((bytes.get() & 0xFF) << 16) | ((bytes.get() & 0xFF) << 8);
+            buffer[count++] = BASE64[(b >> 18) & 0x3F];
+            buffer[count++] = BASE64[(b >> 12) & 0x3F];
+            buffer[count++] = BASE64[(b >> 6) & 0x3F];
+            buffer[count++] = '=';
+        } else if (bytes.remaining() == 1) {
+            int b = (bytes.get() & 0xFF) << 16;
+            buffer[count++] = BASE64[(b >> 18) & 0x3F];
+            buffer[count++] = BASE64[(b >> 12) & 0x3F];
+            buffer[count++] = '=';
+            buffer[count++] = '=';
+        }
+    }
+
+    private void writeAscii(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte)s.charAt(i);
+        }
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+        buffer[count++] = b;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (count + additional <= buffer.length) return;
+
+        int newLength = Math.max(buffer.length * 2, count + additional);
+        byte[] newBuffer = new byte[newLength];
+        System.arraycopy(buffer, 0, newBuffer, 0, count);
+        buffer = newBuffer;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011-2013 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.EC2MetadataClient;
+import com.amazonaws.util.DateUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests of InstanceProfileCredentialsProvider against a stub metadata
+ * service, which can be told to fail or to hold its responses.
+ */
+public class InstanceProfileCredentialsProviderTest {
+
+    private static final long MINUTE = 1000 * 60;
+
+    private HttpServer server;
+
+    private volatile String accessKeyId;
+    private volatile Date expiration;
+    private volatile boolean failing;
+    private volatile CountDownLatch responseGate;
+    private final AtomicInteger credentialsRequests = new AtomicInteger();
+
+    @Before
+    public void startMetadataService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(EC2MetadataClient.SECURITY_CREDENTIALS_RESOURCE, new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                if (path.equals(EC2MetadataClient.SECURITY_CREDENTIALS_RESOURCE)) {
+                    respond(exchange, 200, "test-role\n");
+                    return;
+                }
+
+                credentialsRequests.incrementAndGet();
+                CountDownLatch gate = responseGate;
+                if (gate != null) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                if (failing) {
+                    respond(exchange, 500, "");
+                } else {
+                    respond(exchange, 200, "{\"AccessKeyId\":\"" + accessKeyId + "\","
+                            + "\"SecretAccessKey\":\"secret\","
+                            + "\"Token\":\"token\","
+                            + "\"Expiration\":\"" + new DateUtils().formatIso8601Date(expiration) + "\"}");
+                }
+            }
+        });
+        server.start();
+
+        System.setProperty(EC2MetadataClient.EC2_METADATA_SERVICE_OVERRIDE,
+                "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void stopMetadataService() {
+        System.clearProperty(EC2MetadataClient.EC2_METADATA_SERVICE_OVERRIDE);
+        CountDownLatch gate = responseGate;
+        if (gate != null) gate.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testAsyncRefreshDoesNotBlockCallers() throws Exception {
+        serveCredentials("first", 10 * MINUTE);
+        InstanceProfileCredentialsProvider provider = new InstanceProfileCredentialsProvider(true);
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+
+        // Credentials within fifteen minutes of expiring are renewed in the background
+        serveCredentials("second", 60 * MINUTE);
+        responseGate = new CountDownLatch(1);
+
+        long start = System.currentTimeMillis();
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        responseGate.countDown();
+        assertEquals("second", waitForCredentials(provider, "second"));
+        assertEquals(2, credentialsRequests.get());
+    }
+
+    @Test
+    public void testFailedAsyncRefreshKeepsServingCurrentCredentials() throws Exception {
+        serveCredentials("first", 10 * MINUTE);
+        InstanceProfileCredentialsProvider provider = new InstanceProfileCredentialsProvider(true);
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+
+        failing = true;
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (credentialsRequests.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, credentialsRequests.get());
+        assertEquals("first", provider.getCredentials().getAWSAccessKeyId());
+    }
+
+    @Test(expected = AmazonClientException.class)
+    public void testExpiredCredentialsAreNotServed() {
+        serveCredentials("expired", -MINUTE);
+        new InstanceProfileCredentialsProvider(true).getCredentials();
+    }
+
+    private void serveCredentials(String accessKeyId, long timeToLive) {
+        this.accessKeyId = accessKeyId;
+        this.expiration = new Date(System.currentTimeMillis() + timeToLive);
+        this.failing = false;
+    }
+
+    /**
+     * Asks the provider for credentials until it returns the specified ones,
+     * or five seconds pass, and returns the access key it last returned.
+     */
+    private static String waitForCredentials(AWSCredentialsProvider provider, String accessKeyId)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        String current = provider.getCredentials().getAWSAccessKeyId();
+        while (!current.equals(accessKeyId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            current = provider.getCredentials().getAWSAccessKeyId();
+        }
+        return current;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        OutputStream output = exchange.getResponseBody();
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+}